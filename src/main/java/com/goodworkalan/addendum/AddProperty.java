@@ -14,6 +14,9 @@ import com.goodworkalan.addendum.dialect.Column;
  * @author Alan Gutierrez
  */
 public class AddProperty extends FreshProperty<AlterEntity, AddProperty> {
+    /** The parent alter table builder. */
+    private final AlterEntity alterEntity;
+
     /** The database migration patch. */
     private final Patch patch;
 
@@ -42,6 +45,7 @@ public class AddProperty extends FreshProperty<AlterEntity, AddProperty> {
      */
     AddProperty(AlterEntity container, Patch patch, String tableName, String property, Column column) {
         super(container, column);
+        this.alterEntity = container;
         this.patch = patch;
         this.property = property;
         this.tableName = tableName;
@@ -63,6 +67,6 @@ public class AddProperty extends FreshProperty<AlterEntity, AddProperty> {
      */
     @Override
     protected void ending() {
-        patch.add(new ColumnAdd(tableName, property, column));
+        patch.add(new ColumnAdd(tableName, property, column, alterEntity.getOnlineBatchSize()));
     }
 }
@@ -1,14 +1,20 @@
 package com.goodworkalan.addendum;
 
-import static com.goodworkalan.addendum.Addendum.SQL_ADDENDA_COUNT;
-import static com.goodworkalan.addendum.Addendum.SQL_ADDENDUM;
-import static com.goodworkalan.addendum.Addendum.SQL_CREATE_ADDENDA;
-import static com.goodworkalan.addendum.Addendum.SQL_GET_DIALECT;
+import static com.goodworkalan.addendum.Addendum.SNAPSHOT_ADDENDA;
 
-import java.sql.Connection;
-import java.sql.SQLException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 import com.goodworkalan.addendum.connector.Connector;
 import com.goodworkalan.addendum.dialect.Dialect;
@@ -23,19 +29,67 @@ import com.goodworkalan.furnish.Furnish;
  */
 public class Addenda {
     /** The numbers of addenda to skip. */
-    private final int skip;
+    final int skip;
 
     /** The tracking schema. */
     final Schema schema = new Schema();
 
     /** A list of changes to apply to the database. */
-    private final List<List<DatabaseUpdate>> scripts = new ArrayList<List<DatabaseUpdate>>();
+    final List<List<DatabaseUpdate>> scripts = new ArrayList<List<DatabaseUpdate>>();
 
     /** The connector. */
     private final Connector connector;
 
+    /** The number of addenda described by a schema snapshot. */
+    int base;
+
+    /**
+     * The fingerprint chain of the addenda described by a schema snapshot,
+     * or null if no snapshot was read.
+     */
+    private byte[] chain;
+
+    /** The duration of the migration lease in milliseconds. */
+    long leaseDuration = 60000L;
+
+    /** Whether to apply each addendum in a single transaction. */
+    boolean transactional;
+
+    /** Whether to fold redundant updates in the pending addenda. */
+    boolean optimize;
+
+    /** The number of rows initialized by each statement of a backfill. */
+    int backfillChunkSize;
+
+    /** The number of rows inserted by each batch. */
+    int insertBatchSize = 100;
+
+    /** The number of independent updates of an addendum applied at once. */
+    int parallelism = 1;
+
+    /** Whether to create the tables of a fresh database directly. */
+    boolean provision;
+
+    /** The number of addenda created ahead of the addendum being applied. */
+    int pipelineDepth;
+
+    /** Whether to record the timing history of each database update. */
+    boolean history;
+
+    /** The number of leading addenda known to contain only data definitions. */
+    private int definitionCount;
+
+    /**
+     * Copies of the tables by entity name as they were after the leading data
+     * definition addenda, or null if no copy has been made.
+     */
+    Map<String, Entity> definitions;
+
+    /** The number of addenda applied to the copies of the tables. */
+    int definitionsAt = -1;
+
     /** A service loader for the Dialect service. */
-    private Iterable<Dialect> dialects = new Furnish<Dialect>(Dialect.class);
+    Iterable<Dialect> dialects = new Furnish<Dialect>(Dialect.class);
 
     /**
      * Create a collection of changes that operates on the database associated
@@ -62,57 +116,472 @@ public class Addenda {
         this(connector, 0);
     }
 
+    /**
+     * Set the duration of the migration lease in milliseconds. The lease is
+     * renewed by a heartbeat at a third of this duration while addenda are
+     * applied. If the process holding the lease dies, other processes will
+     * wait for the lease to expire before applying the addenda themselves.
+     * 
+     * @param leaseDuration
+     *            The duration of the migration lease in milliseconds.
+     */
+    public void setLeaseDuration(long leaseDuration) {
+        this.leaseDuration = leaseDuration;
+    }
+
+    /**
+     * Set whether each addendum is applied in a single transaction. When
+     * enabled, and when the dialect supports transactional DDL, the DDL
+     * statements of an addendum are executed as a JDBC batch and committed
+     * once, together with the addendum accounting. When the dialect does not
+     * support transactional DDL, the addenda are applied one statement at a
+     * time as if this mode were disabled.
+     * 
+     * @param transactional
+     *            Whether to apply each addendum in a single transaction.
+     */
+    public void setTransactional(boolean transactional) {
+        this.transactional = transactional;
+    }
+
+    /**
+     * Set whether chains of updates in the pending addenda are folded into
+     * their net effect before they are applied, so that a database that is
+     * many addenda behind does not create columns that are later dropped, or
+     * rename a table many times. Updates are never folded across an
+     * {@link Execution}.
+     * <p>
+     * In transactional mode, updates are folded across addenda and the
+     * addenda spanned by a fold are committed together. Otherwise, updates
+     * are only folded within a single addendum, so that each committed
+     * addendum leaves the database in the state it describes.
+     * 
+     * @param optimize
+     *            Whether to fold redundant updates in the pending addenda.
+     */
+    public void setOptimize(boolean optimize) {
+        this.optimize = optimize;
+    }
+
+    /**
+     * Set the number of rows initialized by each statement when a not null
+     * column is added to an existing table, or zero to initialize all of the
+     * rows with a single statement, which is the default. Initializing a large
+     * table in ranges of its primary key avoids holding locks on the entire
+     * table and logging the entire update in a single transaction.
+     * <p>
+     * Rows are only initialized in ranges when addenda are not applied in
+     * transactional mode, since each range is committed as it is updated.
+     * 
+     * @param backfillChunkSize
+     *            The number of rows initialized by each statement.
+     */
+    public void setBackfillChunkSize(int backfillChunkSize) {
+        this.backfillChunkSize = backfillChunkSize;
+    }
+
+    /**
+     * Set the number of rows inserted by each batch when many rows are given
+     * to an insert statement, or when adjacent insert statements of an
+     * addendum insert into the same columns of the same table. The default is
+     * 100.
+     * 
+     * @param insertBatchSize
+     *            The number of rows inserted by each batch.
+     */
+    public void setInsertBatchSize(int insertBatchSize) {
+        this.insertBatchSize = insertBatchSize;
+    }
+
+    /**
+     * Set the number of independent updates of an addendum applied at once,
+     * each on a connection of its own from the connector. The default is
+     * one, which applies the updates one after another on a single
+     * connection.
+     * <p>
+     * Updates are independent if they affect different tables. Updates whose
+     * affected tables are unknown, such as an {@link Execution}, run alone
+     * after every earlier update of the addendum has completed. An addendum
+     * is recorded as applied only after all of its updates succeed. Updates
+     * are only applied in parallel when addenda are not applied in
+     * transactional mode, since each connection commits on its own.
+     * 
+     * @param parallelism
+     *            The number of updates applied at once.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Set whether a fresh database is provisioned by creating the tables
+     * described by the leading data definition addenda directly. When no
+     * addenda have been applied to the database, the leading addenda that
+     * only create, alter and rename tables are replaced by a single create
+     * table statement for each table as it is after those addenda, and are
+     * then recorded as applied. The addenda from the first addendum with an
+     * {@link Execution} or an insert onward are applied as usual.
+     * <p>
+     * This mode is ignored if initial addenda are skipped, since skipped
+     * addenda describe tables that already exist.
+     * <p>
+     * If every addendum only creates, alters and renames tables, the tables
+     * are copied when the addenda are compiled. Otherwise, the tables are
+     * copied as each addendum is created while the addenda created so far
+     * only create, alter and rename tables, so this mode must be enabled
+     * before the addenda are created. Nothing is copied when this mode is
+     * disabled.
+     * 
+     * @param provision
+     *            Whether to create the tables of a fresh database directly.
+     */
+    public void setProvision(boolean provision) {
+        this.provision = provision;
+    }
+
+    /**
+     * Set the number of addenda created from definitions ahead of the
+     * addendum being applied, or zero to create each addendum only when the
+     * previous addendum has been applied, which is the default. When set,
+     * the addenda of the definitions given to {@link #compile(Iterable)
+     * compile} are created in a thread of their own and wait in a queue of
+     * this size, so that creating addenda overlaps with applying them.
+     * <p>
+     * Addenda are still applied one at a time and in order, each only after
+     * the previous addendum is committed. A failure to create an addendum is
+     * raised only after every earlier addendum has been applied.
+     * 
+     * @param pipelineDepth
+     *            The number of addenda created ahead.
+     */
+    public void setPipelineDepth(int pipelineDepth) {
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    /**
+     * Set whether to record the timing history of each database update in
+     * the timing history table kept alongside the addenda table. Each
+     * execution of an update is recorded with its kind, the tables it
+     * affects, a hash of the SQL it issues, its start time, its duration, the
+     * number of rows it changes and the host that ran it. The timings of an
+     * addendum are written in a single batch when the addendum is applied.
+     * The timing history is not recorded by default.
+     * 
+     * @param history
+     *            Whether to record the timing history.
+     * @see com.goodworkalan.addendum.dialect.Timing
+     */
+    public void setHistory(boolean history) {
+        this.history = history;
+    }
+
+    /**
+     * Compile the addenda in this collection into an immutable plan that can
+     * amend any number of databases, even at the same time. Addenda created
+     * after the plan is compiled, and settings changed after the plan is
+     * compiled, do not change the plan.
+     * 
+     * @return A plan that applies the addenda in this collection.
+     */
+    public Plan compile() {
+        return new Plan(this, null);
+    }
+
+    /**
+     * Compile the addenda in this collection, followed by the addenda defined
+     * by the given definitions, into an immutable plan that creates the
+     * addenda of the definitions as it applies them, instead of keeping them
+     * in memory. Each definition defines a single addendum, and the
+     * definitions must produce the same addenda, in order, each time they are
+     * iterated.
+     * <p>
+     * The definitions are iterated once when the plan is compiled to
+     * determine the fingerprint, and once each time the plan amends a
+     * database that is not current. The addenda already applied to the
+     * database only advance the tracking schema, and the updates of each
+     * addendum are released once it is applied, so the memory used does not
+     * grow with the number of addenda. Addenda created by definitions are not
+     * optimized and are not replaced by provisioning.
+     * 
+     * @param definitions
+     *            The definitions of the addenda in order.
+     * @return A plan that applies the addenda.
+     */
+    public Plan compile(Iterable<? extends Definition> definitions) {
+        return new Plan(this, definitions);
+    }
+
     /**
      * Apply all of the addenda if they are not already recored in the addenda
      * table in the database of the associated connector. A dialect will be
      * chosen from the dialects available according to their
      * <code>META-INF/com.goodworkalan.addendum.Dialect</code> files.
+     * <p>
+     * If the version stamp in the database records the number of addenda in
+     * this collection and a matching fingerprint, the database is up to date
+     * and this method returns after that single read, without choosing a
+     * dialect and without issuing any DDL.
+     * <p>
+     * Otherwise, the addenda are applied only after acquiring the migration
+     * lease, so that when many processes amend the same database at once,
+     * exactly one of them applies the addenda while the others wait.
      * 
+     * @return The result of the amend.
      * @exception AddendumException
      *                For any SQL error.
      */
-    public void amend() {
-        Connection connection = connector.open();
-        try {
-            Dialect dialect = null;
-            try {
-                for (Dialect candidate : dialects) {
-                    dialect = candidate.canTranslate(connection, dialect);
-                }
-            } catch (SQLException e) {
-                throw new Danger(Addendum.class, SQL_GET_DIALECT, e);
-            }
-            if (dialect == null) {
-                throw new Danger(Addendum.class, SQL_GET_DIALECT);
-            }
-            try {
-                dialect.createAddendaTable(connection);
-            } catch (SQLException e) {
-                throw new Danger(Addendum.class, SQL_CREATE_ADDENDA, e);
+    public Amendment amend() {
+        return compile().amend(connector);
+    }
+
+    /**
+     * Apply the addenda that are not already recorded in the addenda table in
+     * the database of the associated connector within the given time budget,
+     * stopping on an addendum boundary.
+     * 
+     * @param budget
+     *            The time budget in milliseconds.
+     * @return The result of the amend, which is not complete if the amend
+     *         stopped before the deadline.
+     * @exception AddendumException
+     *                For any SQL error, or if the deadline passed while an
+     *                addendum was applied.
+     * @see Plan#amend(Connector, long)
+     */
+    public Amendment amend(long budget) {
+        return compile().amend(connector, budget);
+    }
+
+    /**
+     * Apply all of the addenda if they are not already recorded in the
+     * addenda table in the database of the associated connector using a
+     * thread of the given executor, returning a future result of the amend
+     * immediately. The addenda are compiled by the calling thread, so addenda
+     * created after this method returns are not applied.
+     * 
+     * @param executor
+     *            The executor that amends the database.
+     * @return The future result of the amend.
+     * @see Plan#amendAsync(Connector, Executor)
+     */
+    public Future<Amendment> amendAsync(Executor executor) {
+        return compile().amendAsync(connector, executor);
+    }
+
+    /**
+     * Apply the addenda in this collection followed by the addenda defined
+     * by the given definitions to the database of the associated connector,
+     * creating the addenda of the definitions as they are applied.
+     * 
+     * @param definitions
+     *            The definitions of the addenda in order.
+     * @return The result of the amend.
+     * @exception AddendumException
+     *                For any SQL error.
+     * @see #compile(Iterable)
+     */
+    public Amendment amend(Iterable<? extends Definition> definitions) {
+        return compile(definitions).amend(connector);
+    }
+
+    /**
+     * Determine whether all of the given updates of an addendum are data
+     * definitions.
+     * 
+     * @param updates
+     *            The updates of an addendum.
+     * @return True if all of the updates are data definitions.
+     */
+    static boolean isDataDefinition(List<DatabaseUpdate> updates) {
+        for (DatabaseUpdate update : updates) {
+            if (!update.isDataDefinition()) {
+                return false;
             }
-            int max;
-            try {
-                max = dialect.addendaCount(connection);
-            } catch (SQLException e) {
-                throw new Danger(Addendum.class, SQL_ADDENDA_COUNT, e);
+        }
+        return true;
+    }
+
+    /**
+     * Determine whether the given updates of an addendum are marked as
+     * deferrable.
+     * 
+     * @param updates
+     *            The updates of an addendum.
+     * @return True if the addendum is deferrable.
+     */
+    static boolean isDeferred(List<DatabaseUpdate> updates) {
+        for (DatabaseUpdate update : updates) {
+            if (update instanceof Deferral) {
+                return true;
             }
-            for (int i = max, stop = scripts.size(); i < stop; i++) {
-                if (i >= skip) {
-                    for (DatabaseUpdate update : scripts.get(i)) {
-                        update.update(connection, dialect);
-                    }
-                }
-                try {
-                    dialect.addendum(connection);
-                } catch (SQLException e) {
-                    throw new Danger(Addendum.class, SQL_ADDENDUM, e);
-                }
+        }
+        return false;
+    }
+
+    /**
+     * Copy the tables of the tracking schema by entity name, so that the
+     * copies do not change as later addenda change the tracking schema.
+     * 
+     * @return Copies of the tables by entity name.
+     */
+    Map<String, Entity> getDefinitions() {
+        Map<String, Entity> entities = new TreeMap<String, Entity>();
+        for (Map.Entry<String, String> alias : schema.aliases.entrySet()) {
+            entities.put(alias.getKey(), new Entity(schema.entities.get(alias.getValue())));
+        }
+        return entities;
+    }
+
+    /**
+     * Get the fingerprint of the addenda in this collection. The fingerprint
+     * is a chain of SHA-1 digests, one for each addendum, of the digest of
+     * the previous addendum and the signatures of the database updates of the
+     * addendum, so that a change in the number, order or kind of updates, or
+     * in the tables and columns they affect, will change the fingerprint, and
+     * so that the chain can be continued from a schema snapshot.
+     * 
+     * @return The fingerprint of the addenda.
+     */
+    String getFingerprint() {
+        return toHex(getChain());
+    }
+
+    /**
+     * Get the last digest of the fingerprint chain of the addenda in this
+     * collection.
+     * 
+     * @return The last digest of the fingerprint chain.
+     */
+    byte[] getChain() {
+        byte[] link = chain == null ? newDigest().digest() : chain;
+        for (int i = base, stop = scripts.size(); i < stop; i++) {
+            link = link(link, scripts.get(i));
+        }
+        return link;
+    }
+
+    /**
+     * Create a new SHA-1 message digest.
+     * 
+     * @return A SHA-1 message digest.
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // Every implementation of the Java platform supports SHA-1.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Extend the fingerprint chain ending with the given digest with the
+     * given updates of the next addendum.
+     * 
+     * @param previous
+     *            The digest of the previous addendum.
+     * @param updates
+     *            The updates of the next addendum.
+     * @return The digest of the next addendum.
+     */
+    static byte[] link(byte[] previous, List<DatabaseUpdate> updates) {
+        MessageDigest digest = newDigest();
+        digest.update(previous);
+        try {
+            for (DatabaseUpdate update : updates) {
+                digest.update(update.getSignature().getBytes("UTF-8"));
+                digest.update((byte) 1);
             }
-        } finally {
-            connector.close(connection);
+        } catch (UnsupportedEncodingException e) {
+            // Every implementation of the Java platform supports UTF-8.
+            throw new IllegalStateException(e);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Convert the given digest of a fingerprint chain into a fingerprint.
+     * 
+     * @param digest
+     *            The digest.
+     * @return The digest as a hexadecimal string.
+     */
+    static String toHex(byte[] digest) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
         }
+        return hex.toString();
     }
-    
+
+    /**
+     * Get the number of addenda in this collection, including the addenda
+     * described by a schema snapshot.
+     * 
+     * @return The number of addenda.
+     */
+    public int getAddendaCount() {
+        return scripts.size();
+    }
+
+    /**
+     * Write a compact binary snapshot of the tracking schema as it is after
+     * the addenda in this collection to the given output stream. The
+     * snapshot records the number of addenda it describes and their
+     * fingerprint, so that a collection that reads the snapshot has the same
+     * fingerprint as one that creates every addendum. Every addendum should
+     * be committed before the snapshot is written.
+     * 
+     * @param out
+     *            The output stream.
+     * @throws IOException
+     *             For any I/O error.
+     * @exception AddendumException
+     *                If a column default value cannot be written.
+     */
+    public void writeSnapshot(OutputStream out) throws IOException {
+        Snapshot.write(schema, scripts.size(), getChain(), out);
+    }
+
+    /**
+     * Read a snapshot of the tracking schema written by
+     * {@link #writeSnapshot(OutputStream) writeSnapshot} from the given input
+     * stream into this empty collection, instead of creating the addenda the
+     * snapshot describes. The application then creates only the addenda after
+     * the first {@link #getAddendaCount() getAddendaCount()} addenda.
+     * <p>
+     * The fingerprint of the collection continues from the fingerprint of the
+     * snapshot, so a database amended with every addendum is current if the
+     * snapshot describes the same addenda. The addenda of the snapshot cannot
+     * be applied, so a database that has not applied them cannot be amended,
+     * unless the database is fresh and {@link #setProvision(boolean)
+     * provisioning} is enabled, in which case the tables the snapshot
+     * describes are created directly.
+     * 
+     * @param in
+     *            The input stream.
+     * @throws IOException
+     *             For any I/O error.
+     * @exception AddendumException
+     *                If this collection is not empty, or if the snapshot is
+     *                damaged or of another format version.
+     */
+    public void readSnapshot(InputStream in) throws IOException {
+        if (!scripts.isEmpty()) {
+            throw new Danger(Addendum.class, SNAPSHOT_ADDENDA);
+        }
+        Schema snapshot = new Schema();
+        Snapshot read = Snapshot.read(snapshot, in);
+        schema.entities.putAll(snapshot.entities);
+        schema.aliases.putAll(snapshot.aliases);
+        for (int i = 0; i < read.getCount(); i++) {
+            scripts.add(Collections.<DatabaseUpdate>emptyList());
+        }
+        base = read.getCount();
+        chain = read.getChain();
+    }
+
     /**
      * Create a new addendum that will changes to a the database associated with
      * the connector of this addenda, or to any other data resources in the
@@ -121,6 +590,15 @@ public class Addenda {
      * @return An addendum builder used to specify updates to the database.
      */
     public Addendum addendum() {
+        if (provision) {
+            while (definitionCount < scripts.size() && isDataDefinition(scripts.get(definitionCount))) {
+                definitionCount++;
+            }
+            if (definitionCount == scripts.size()) {
+                definitions = getDefinitions();
+                definitionsAt = scripts.size();
+            }
+        }
         List<DatabaseUpdate> updates = new ArrayList<DatabaseUpdate>();
         scripts.add(updates);
         return new Addendum(new Patch(schema, updates));
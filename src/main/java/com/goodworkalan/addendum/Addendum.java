@@ -20,24 +20,43 @@ public class Addendum {
     public final static String ADDENDUM_TABLE_EXISTS = "404";
     /** The table cannot be found in the addendum. */
     public final static String ADDENDUM_TABLE_MISSING = "414";
+    /** Interrupted while waiting for another thread to amend the database. */
+    public final static String AMEND_INTERRUPTED = "315";
     /** Unable to add a column. */
     public final static String CANNOT_ADD_COLUMN = "504";
     /** Unable to alter a column. */
     public final static String CANNOT_ALTER_COLUMN = "503";
+    /** Unable to apply many column changes to a table. */
+    public final static String CANNOT_ALTER_TABLE = "509";
     /** Unable to create the table for an entity due to an SQL exception. */
     public final static String CANNOT_CREATE_TABLE = "501";
     /** Unable to drop a column. */
     public final static String CANNOT_DROP_COLUMN = "505";
+    /** Unable to execute a batch of DDL statements. */
+    public final static String CANNOT_EXECUTE_BATCH = "508";
     /** Unable to execute arbitrary SQL statements. */
     public final static String CANNOT_EXECUTE_SQL = "502";
     /** Unable to insert values. */
     public final static String CANNOT_INSERT = "506";
+    /** Unable to execute an SQL script. */
+    public final static String CANNOT_EXECUTE_SCRIPT = "511";
+    /** Unable to load rows from a resource. */
+    public final static String CANNOT_LOAD = "510";
     /** Unable to rename a table. */
     public final static String CANNOT_RENAME_TABLE = "507";
+    /** Unable to transform the rows of a table. */
+    public final static String CANNOT_TRANSFORM = "512";
     /** A column already exists in the table in the schema. */
     public final static String COLUMN_EXISTS = "408";
     /** A column does not exist the entity. */
     public final static String COLUMN_MISSING = "416";
+    /** The deadline of an amend passed while an addendum was applied. */
+    public final static String DEADLINE_EXCEEDED = "316";
+    /** Definitions produce a different number of addenda each time. */
+    public final static String DEFINITIONS_CHANGED = "424";
+    /** The dialect does not support change capture triggers. */
+    public final static String DIALECT_DOES_NOT_SUPPORT_CAPTURE = "103";
+
     /** The requested generator type is not supported by the SQL dialect. */
     public final static String DIALECT_DOES_NOT_SUPPORT_GENERATOR = "101";
     /** The dialog does not support a specific SQL type. */
@@ -46,10 +65,20 @@ public class Addendum {
     public final static String ENTITY_EXISTS = "405";
     /** The entity cannot be found in the schema. */
     public final static String ENTITY_MISSING = "410";
+    /** Insert statement DSL value cannot be converted to the column type. */
+    public final static String INSERT_TYPE = "402";
     /** Insert statement DSL values count does not match column count. */
     public final static String INSERT_VALUES = "401";
+    /** A record of a load resource does not have a value for each column. */
+    public final static String LOAD_VALUES = "419";
+    /** The migration lease was lost to another process. */
+    public final static String LEASE_LOST = "307";
     /** Unable to open an SQL connection due to a JNI naming error. */
     public final static String NAMING_EXCEPTION = "201";
+    /** Interrupted while waiting for updates applied in parallel. */
+    public final static String PARALLEL_INTERRUPTED = "312";
+    /** Interrupted while waiting for the next addendum to be created. */
+    public final static String PIPELINE_INTERRUPTED = "314";
     /** A primary key property does not exist. */
     public final static String PRIMARY_KEY_COLUMN_MISSING = "417";
     /** The primary key has already been specified for the entity. */
@@ -58,12 +87,24 @@ public class Addendum {
     public final static String PROPERTY_EXISTS = "407";
     /** A property does not exist the entity. */
     public final static String PROPERTY_MISSING = "415";
+    /** A file or class path resource cannot be found. */
+    public final static String RESOURCE_MISSING = "418";
+    /** A schema snapshot is read into addenda that are not empty. */
+    public final static String SNAPSHOT_ADDENDA = "423";
+    /** The database has applied fewer addenda than a schema snapshot. */
+    public final static String SNAPSHOT_BEHIND = "313";
+    /** A schema snapshot is damaged or of another format version. */
+    public final static String SNAPSHOT_INVALID = "421";
+    /** A column default value cannot be written to a schema snapshot. */
+    public final static String SNAPSHOT_VALUE = "422";
     /** Unable to determine the maximum value of the applied updates. */
     public final static String SQL_ADDENDA_COUNT = "303";
     /** Unable to update the addenda table with a new update. */
     public final static String SQL_ADDENDUM = "304";
     /** Unable to close a JDBC data source. */
     public final static String SQL_CLOSE = "399";
+    /** Unable to commit or roll back the transaction of an addendum. */
+    public final static String SQL_COMMIT = "311";
     /** Unable to connect to a JDBC data source. */
     public final static String SQL_CONNECT = "301";
     /** Unable to create the addenda table to track updates. */
@@ -72,10 +113,20 @@ public class Addendum {
     public final static String SQL_EXECUTION = "308";
     /** Unable to create database dialect. */
     public final static String SQL_GET_DIALECT = "309";
+    /** Unable to acquire the migration lease. */
+    public final static String SQL_LEASE = "306";
+    /** Unable to release the migration lease. */
+    public final static String SQL_RELEASE = "310";
+    /** Unable to record the addenda version stamp. */
+    public final static String SQL_STAMP = "305";
+    /** Unable to create, read or write the timing history. */
+    public final static String SQL_TIMING = "317";
     /** A table name already exists in the schema. */
     public final static String TABLE_EXISTS = "406";
     /** The table cannot be found in the schema. */
     public final static String TABLE_MISSING = "411";
+    /** A table to transform in ranges does not have a key column. */
+    public final static String TRANSFORM_KEY = "420";
     /** Unable to determine an SQL type for a Java class. */
     public final static String UNMAPPABLE_TYPE = "412";
 
@@ -295,6 +346,22 @@ public class Addendum {
         return this;
     }
 
+    /**
+     * Performs updates using application specific SQL statements with an
+     * execution context that batches writes, caches prepared statements,
+     * streams query results and commits periodically, and that closes every
+     * statement it creates when the update ends.
+     * 
+     * @param executable
+     *            A {@link ContextExecutable} to execute.
+     * @return This schema element to continue the domain-specific language
+     *         statement.
+     */
+    public Addendum execute(ContextExecutable executable) {
+        patch.add(new ContextExecution(executable));
+        return this;
+    }
+
     /**
      * Create an insert statement that will insert values into the database.
      * 
@@ -308,6 +375,89 @@ public class Addendum {
         return new Insert(this, insertion);
     }
 
+    /**
+     * Create a load statement that will stream the records of a comma
+     * separated or tab separated values file into a table, inserting them in
+     * batches, so that the memory used does not depend on the size of the
+     * file.
+     * 
+     * @param table
+     *            The table name.
+     * @return A load element to define the load statement.
+     */
+    public Load load(String table) {
+        Loading loading = new Loading(table);
+        patch.add(loading);
+        return new Load(this, loading);
+    }
+
+    /**
+     * Execute the statements of the SQL script in the file with the given
+     * name, or if no such file exists, the class path resource with the given
+     * name. The statements are separated by semicolons. The script is read
+     * and executed in batches of statements, so that the memory used does not
+     * depend on the size of the script. If the name ends with
+     * <code>.gz</code> the script is decompressed as it is read.
+     * 
+     * @param resource
+     *            The file name or class path resource name.
+     * @return This addendum builder.
+     */
+    public Addendum script(String resource) {
+        return script(resource, ";");
+    }
+
+    /**
+     * Execute the statements of the SQL script in the file with the given
+     * name, or if no such file exists, the class path resource with the given
+     * name, separated by the given delimiter. The delimiter can be changed
+     * within the script by a <code>DELIMITER</code> directive.
+     * 
+     * @param resource
+     *            The file name or class path resource name.
+     * @param delimiter
+     *            The statement delimiter.
+     * @return This addendum builder.
+     */
+    public Addendum script(String resource, String delimiter) {
+        patch.add(new ScriptExecution(resource, delimiter));
+        return this;
+    }
+
+    /**
+     * Create a transformation that will transform the rows of a table in
+     * ranges of a key column, with many ranges transformed at once, each on a
+     * connection of its own, and each range committed as it is transformed.
+     * 
+     * @param table
+     *            The table name or entity name.
+     * @return A transform element to define the transformation.
+     */
+    public Transform transform(String table) {
+        Transformation transformation = new Transformation(table);
+        patch.add(transformation);
+        return new Transform(this, transformation);
+    }
+
+    /**
+     * Mark this addendum as deferrable, because the application can start
+     * without it, as is the case for a backfill, an index build or a refresh
+     * of reference data. Addenda are applied in order, so only the deferrable
+     * addenda after the last addendum that is not deferrable are deferred.
+     * Those addenda are not applied when the database is amended and are
+     * left for a {@link DeferredScheduler} to apply in the background.
+     * 
+     * @return This addendum builder to continue construction.
+     */
+    public Addendum defer() {
+        patch.add(new SchemaUpdate() {
+            public DatabaseUpdate execute(Schema schema) {
+                return new Deferral();
+            }
+        });
+        return this;
+    }
+
     /**
      * Terminates the addendum specification statement in the domain specific
      * language.
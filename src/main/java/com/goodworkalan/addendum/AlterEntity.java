@@ -22,6 +22,12 @@ public class AlterEntity {
     /** The entity to alter. */
     private final Entity entity;
 
+    /**
+     * The number of rows copied by each statement of an online alteration,
+     * or zero to alter the table in place.
+     */
+    private int onlineBatchSize;
+
     /**
      * Create an alter table builder that alters the given entity.
      * 
@@ -38,6 +44,45 @@ public class AlterEntity {
         this.patch = patch;
     }
 
+    /**
+     * Apply the column additions, alterations and drops that follow to a
+     * copy of the table, then swap the copy with the table, so that the table
+     * remains available for reading and writing during the alteration. Rows
+     * are copied in batches of the given size, and writes to the table during
+     * the copy are applied to the copy by triggers. If the dialect cannot
+     * create change capture triggers or the table does not have a single
+     * column primary key, the table is altered in place.
+     * 
+     * @param batchSize
+     *            The number of rows copied by each statement.
+     * @return This alter entity builder to continue construction.
+     */
+    public AlterEntity online(int batchSize) {
+        this.onlineBatchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Apply the column additions, alterations and drops that follow to a
+     * copy of the table, copying rows in batches of one thousand rows.
+     * 
+     * @return This alter entity builder to continue construction.
+     * @see #online(int)
+     */
+    public AlterEntity online() {
+        return online(1000);
+    }
+
+    /**
+     * Get the number of rows copied by each statement of an online
+     * alteration, or zero if the table is altered in place.
+     * 
+     * @return The number of rows copied by each statement or zero.
+     */
+    int getOnlineBatchSize() {
+        return onlineBatchSize;
+    }
+
     /**
      * Rename the underlying table.
      * 
@@ -82,7 +127,7 @@ public class AlterEntity {
         entity.rename(from, to);
         Column renamed = entity.getColumn(to);
         if (renamed.getName().equals(from)) {
-            patch.add(new ColumnAlteration(entity.tableName, renamed, to));
+            patch.add(new ColumnAlteration(entity.tableName, renamed, to, onlineBatchSize));
         }
         return this;
     }
@@ -210,7 +255,7 @@ public class AlterEntity {
      *                If the property does not exist.
      */
     public AlterEntity drop(String property) {
-        patch.add(new ColumnDrop(entity.tableName, property));
+        patch.add(new ColumnDrop(entity.tableName, property, onlineBatchSize));
         return this;
     }
 
@@ -10,6 +10,9 @@ import com.goodworkalan.addendum.dialect.Column;
  */
 public class AlterProperty
 extends ExistingProperty<AlterEntity, AlterProperty> {
+    /** The parent alter table builder. */
+    private final AlterEntity alterTable;
+
     /** The database migration. */
     private final Patch patch;
    
@@ -36,6 +39,7 @@ extends ExistingProperty<AlterEntity, AlterProperty> {
      */
     public AlterProperty(AlterEntity alterTable, Patch patch, Entity entity, Column column) {
         super(alterTable, column);
+        this.alterTable = alterTable;
         this.patch = patch;
         this.entity = entity;
         this.newColumnName = column.getName();
@@ -81,6 +85,6 @@ extends ExistingProperty<AlterEntity, AlterProperty> {
      */
     @Override
     protected void ending() {
-        patch.add(new ColumnAlteration(entity.tableName, column, newColumnName));
+        patch.add(new ColumnAlteration(entity.tableName, column, newColumnName, alterTable.getOnlineBatchSize()));
     }
 }
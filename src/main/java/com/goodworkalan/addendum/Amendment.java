@@ -0,0 +1,98 @@
+package com.goodworkalan.addendum;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of amending a database with a {@link Plan}.
+ *
+ * @author Alan Gutierrez
+ */
+public class Amendment {
+    /** The number of addenda applied to the database after the amend. */
+    private final int version;
+
+    /** Whether every addendum the amend was to apply was applied. */
+    private final boolean complete;
+
+    /** The duration of the amend in milliseconds. */
+    private final long duration;
+
+    /** The duration in milliseconds of each addendum applied by the amend. */
+    private final List<Long> durations;
+
+    /**
+     * Create an amendment result.
+     *
+     * @param version
+     *            The number of addenda applied to the database after the
+     *            amend.
+     * @param complete
+     *            Whether every addendum the amend was to apply was applied.
+     * @param duration
+     *            The duration of the amend in milliseconds.
+     * @param durations
+     *            The duration in milliseconds of each addendum applied by the
+     *            amend.
+     */
+    Amendment(int version, boolean complete, long duration, List<Long> durations) {
+        this.version = version;
+        this.complete = complete;
+        this.duration = duration;
+        this.durations = Collections.unmodifiableList(durations);
+    }
+
+    /**
+     * Get the number of addenda applied to the database after the amend,
+     * including the addenda applied before the amend.
+     *
+     * @return The version of the database.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Determine whether every addendum the amend was to apply was applied.
+     * An amend with a deadline stops before an addendum that it does not
+     * expect to finish before the deadline, leaving the database at the end
+     * of the last addendum it applied.
+     *
+     * @return True if the amend applied every addendum it was to apply.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Get the number of addenda applied by the amend. This is zero if the
+     * database was already up to date or if another process amended it.
+     *
+     * @return The number of addenda applied.
+     */
+    public int getSteps() {
+        return durations.size();
+    }
+
+    /**
+     * Get the duration of the amend in milliseconds, including the time spent
+     * waiting for the migration lease.
+     *
+     * @return The duration in milliseconds.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Get the duration in milliseconds of each addendum applied by the amend
+     * in the order in which they were applied. The addenda of a fresh
+     * database that are created together by provisioning are timed together,
+     * with their duration given to the first of them.
+     *
+     * @return The duration of each addendum applied.
+     */
+    public List<Long> getDurations() {
+        return durations;
+    }
+}
@@ -0,0 +1,85 @@
+package com.goodworkalan.addendum;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Writes rows with a prepared insert, update or delete statement as a JDBC
+ * batch, executing the batch when it reaches a number of rows or an estimated
+ * number of bytes. Batch writers are created by an {@link ExecutionContext}
+ * and flushed when the context commits or closes.
+ * 
+ * @author Alan Gutierrez
+ */
+public class BatchWriter {
+    /** The execution context. */
+    private final ExecutionContext context;
+
+    /** The prepared statement. */
+    private final PreparedStatement statement;
+
+    /** The number of rows in the current batch. */
+    private int rows;
+
+    /** The estimated number of bytes in the current batch. */
+    private long bytes;
+
+    /**
+     * Create a batch writer that writes with the given prepared statement.
+     * 
+     * @param context
+     *            The execution context.
+     * @param statement
+     *            The prepared statement.
+     */
+    BatchWriter(ExecutionContext context, PreparedStatement statement) {
+        this.context = context;
+        this.statement = statement;
+    }
+
+    /**
+     * Add a row with the given parameter values to the batch, executing the
+     * batch if it has reached the batch row count or batch byte count of the
+     * context.
+     * 
+     * @param values
+     *            The parameter values.
+     * @return This batch writer.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public BatchWriter write(Object... values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            statement.setObject(i + 1, value);
+            if (value instanceof String) {
+                bytes += ((String) value).length();
+            } else if (value instanceof byte[]) {
+                bytes += ((byte[]) value).length;
+            } else {
+                bytes += 8;
+            }
+        }
+        statement.addBatch();
+        rows++;
+        if (rows >= context.getBatchRows() || bytes >= context.getBatchBytes()) {
+            flush();
+        }
+        context.written(1);
+        return this;
+    }
+
+    /**
+     * Execute the rows in the current batch.
+     * 
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void flush() throws SQLException {
+        if (rows != 0) {
+            statement.executeBatch();
+            rows = 0;
+            bytes = 0;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.goodworkalan.addendum;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * A range of the keys of a table given to a {@link ChunkTransformer}. The
+ * range includes the keys greater than the lower key, or every key if there
+ * is no lower key, up to and including the upper key.
+ * 
+ * @author Alan Gutierrez
+ */
+public class Chunk {
+    /** The index of the chunk in the table. */
+    private final int number;
+
+    /** The key column name. */
+    private final String keyName;
+
+    /** The key before the first key of the range or null. */
+    private final Object lower;
+
+    /** The last key of the range. */
+    private final Object upper;
+
+    /**
+     * Create a chunk.
+     * 
+     * @param number
+     *            The index of the chunk in the table.
+     * @param keyName
+     *            The key column name.
+     * @param lower
+     *            The key before the first key of the range or null.
+     * @param upper
+     *            The last key of the range.
+     */
+    Chunk(int number, String keyName, Object lower, Object upper) {
+        this.number = number;
+        this.keyName = keyName;
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    /**
+     * Get the index of the chunk in the table.
+     * 
+     * @return The chunk number.
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * Get the key before the first key of the range, or null if the range
+     * starts at the first key of the table.
+     * 
+     * @return The lower key or null.
+     */
+    public Object getLower() {
+        return lower;
+    }
+
+    /**
+     * Get the last key of the range.
+     * 
+     * @return The upper key.
+     */
+    public Object getUpper() {
+        return upper;
+    }
+
+    /**
+     * Get an SQL condition that selects the rows of the range, with
+     * parameters bound by {@link #bind(PreparedStatement, int) bind}.
+     * 
+     * @return The condition.
+     */
+    public String getCondition() {
+        if (lower == null) {
+            return keyName + " <= ?";
+        }
+        return keyName + " > ? AND " + keyName + " <= ?";
+    }
+
+    /**
+     * Bind the keys of the range to the parameters of the condition starting
+     * at the given parameter index.
+     * 
+     * @param statement
+     *            The prepared statement.
+     * @param index
+     *            The index of the first parameter of the condition.
+     * @return The index of the parameter after the condition.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public int bind(PreparedStatement statement, int index) throws SQLException {
+        if (lower != null) {
+            statement.setObject(index++, lower);
+        }
+        statement.setObject(index++, upper);
+        return index;
+    }
+}
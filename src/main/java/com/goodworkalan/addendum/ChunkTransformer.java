@@ -0,0 +1,31 @@
+package com.goodworkalan.addendum;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import com.goodworkalan.addendum.dialect.Dialect;
+
+/**
+ * Transforms the rows of a table one range of keys at a time. Ranges are
+ * transformed concurrently, each on a connection of its own, so the
+ * transformer must not keep state between calls that is not thread safe.
+ * 
+ * @author Alan Gutierrez
+ */
+public interface ChunkTransformer {
+    /**
+     * Transform the rows in the given range of keys. The changes are
+     * committed after this method returns.
+     * 
+     * @param connection
+     *            An open JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @param chunk
+     *            The range of keys.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void transform(Connection connection, Dialect dialect, Chunk chunk)
+    throws SQLException;
+}
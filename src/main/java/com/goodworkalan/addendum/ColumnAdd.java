@@ -1,11 +1,8 @@
 package com.goodworkalan.addendum;
 import static com.goodworkalan.addendum.Addendum.CANNOT_ADD_COLUMN;
 
-import java.sql.Connection;
-import java.sql.SQLException;
-
 import com.goodworkalan.addendum.dialect.Column;
-import com.goodworkalan.addendum.dialect.Dialect;
+import com.goodworkalan.addendum.dialect.ColumnChange;
 
 /**
  * An update that adds a column to an existing entity.
@@ -23,6 +20,9 @@ class ColumnAdd implements SchemaUpdate
     /** The column definition. */
     private final Column column;
 
+    /** The number of rows copied by each statement of an online alteration. */
+    private final int onlineBatchSize;
+
     /**
      * Create a table alteration that adds the given columns the given table.
      * 
@@ -32,11 +32,15 @@ class ColumnAdd implements SchemaUpdate
      *            The new property name.
      * @param column
      *            The column definition.
+     * @param onlineBatchSize
+     *            The number of rows copied by each statement of an online
+     *            alteration, or zero to alter the table in place.
      */
-    public ColumnAdd(String tableName, String property, Column column) {
+    public ColumnAdd(String tableName, String property, Column column, int onlineBatchSize) {
         this.tableName = tableName;
         this.property = property;
         this.column = column;
+        this.onlineBatchSize = onlineBatchSize;
     }
 
     /**
@@ -51,11 +55,9 @@ class ColumnAdd implements SchemaUpdate
         Entity entity = schema.entities.get(tableName);
         entity.properties.put(property, column.getName());
         entity.columns.put(column.getName(), column);
-        return new DatabaseUpdate(CANNOT_ADD_COLUMN, column.getName(), tableName) {
-            public void execute(Connection connection, Dialect dialect)
-            throws SQLException {
-                dialect.addColumn(connection, tableName, column);
-            }
-        };
+        if (onlineBatchSize > 0) {
+            return new OnlineAlteration(tableName, ColumnChange.add(new Column(column)), new Entity(entity), onlineBatchSize);
+        }
+        return new ColumnUpdate(tableName, ColumnChange.add(new Column(column)), CANNOT_ADD_COLUMN, column.getName(), tableName);
     }
 }
@@ -3,11 +3,8 @@ package com.goodworkalan.addendum;
 import static com.goodworkalan.addendum.Addendum.CANNOT_ALTER_COLUMN;
 import static com.goodworkalan.addendum.Addendum.COLUMN_EXISTS;
 
-import java.sql.Connection;
-import java.sql.SQLException;
-
 import com.goodworkalan.addendum.dialect.Column;
-import com.goodworkalan.addendum.dialect.Dialect;
+import com.goodworkalan.addendum.dialect.ColumnChange;
 import com.goodworkalan.danger.Danger;
 
 /**
@@ -25,6 +22,9 @@ class ColumnAlteration implements SchemaUpdate {
     /** The column definition. */
     private final Column column;
 
+    /** The number of rows copied by each statement of an online alteration. */
+    private final int onlineBatchSize;
+
     /**
      * Create a column alteration with the given table name, the given existing
      * column name and the given column definition.
@@ -35,11 +35,15 @@ class ColumnAlteration implements SchemaUpdate {
      *            The column definition.
      * @param newColumnName
      *            The new column name.
+     * @param onlineBatchSize
+     *            The number of rows copied by each statement of an online
+     *            alteration, or zero to alter the table in place.
      */
-    public ColumnAlteration(String tableName, Column column, String newColumnName) {
+    public ColumnAlteration(String tableName, Column column, String newColumnName, int onlineBatchSize) {
         this.tableName = tableName;
         this.column = column;
         this.newColumnName = newColumnName;
+        this.onlineBatchSize = onlineBatchSize;
     }
 
     /**
@@ -66,11 +70,9 @@ class ColumnAlteration implements SchemaUpdate {
         }
         final String tableName = entity.tableName;
         final Column frozenColumn = new Column(column);
-        return new DatabaseUpdate(CANNOT_ALTER_COLUMN, tableName, oldColumnName) {
-            public void execute(Connection connection, Dialect dialect)
-            throws SQLException {
-                dialect.alterColumn(connection, tableName, oldColumnName, frozenColumn);
-            }
-        };
+        if (onlineBatchSize > 0) {
+            return new OnlineAlteration(tableName, ColumnChange.alter(oldColumnName, frozenColumn), new Entity(entity), onlineBatchSize);
+        }
+        return new ColumnUpdate(tableName, ColumnChange.alter(oldColumnName, frozenColumn), CANNOT_ALTER_COLUMN, tableName, oldColumnName);
     }
 }
@@ -3,10 +3,7 @@ package com.goodworkalan.addendum;
 import static com.goodworkalan.addendum.Addendum.CANNOT_DROP_COLUMN;
 import static com.goodworkalan.addendum.Addendum.PROPERTY_MISSING;
 
-import java.sql.Connection;
-import java.sql.SQLException;
-
-import com.goodworkalan.addendum.dialect.Dialect;
+import com.goodworkalan.addendum.dialect.ColumnChange;
 import com.goodworkalan.danger.Danger;
 
 /**
@@ -21,6 +18,9 @@ class ColumnDrop implements SchemaUpdate {
     /** The name of the property to drop. */
     private final String property;
 
+    /** The number of rows copied by each statement of an online alteration. */
+    private final int onlineBatchSize;
+
     /**
      * Drop the column with the given column definition.
      * 
@@ -28,10 +28,14 @@ class ColumnDrop implements SchemaUpdate {
      *            The table name.
      * @param columnName
      *            The name of the column to drop.
+     * @param onlineBatchSize
+     *            The number of rows copied by each statement of an online
+     *            alteration, or zero to alter the table in place.
      */
-    public ColumnDrop(String tableName, String property) {
+    public ColumnDrop(String tableName, String property, int onlineBatchSize) {
         this.tableName = tableName;
         this.property = property;
+        this.onlineBatchSize = onlineBatchSize;
     }
 
     /**
@@ -50,11 +54,9 @@ class ColumnDrop implements SchemaUpdate {
             throw new Danger(Addendum.class, PROPERTY_MISSING, property);
         }
         entity.columns.remove(columnName);
-        return new DatabaseUpdate(CANNOT_DROP_COLUMN, columnName, tableName) {
-            public void execute(Connection connection, Dialect dialect)
-            throws SQLException {
-                dialect.dropColumn(connection, tableName, columnName);
-            }
-        };
+        if (onlineBatchSize > 0) {
+            return new OnlineAlteration(tableName, ColumnChange.drop(columnName), new Entity(entity), onlineBatchSize);
+        }
+        return new ColumnUpdate(tableName, ColumnChange.drop(columnName), CANNOT_DROP_COLUMN, columnName, tableName);
     }
 }
@@ -0,0 +1,138 @@
+package com.goodworkalan.addendum;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Set;
+
+import com.goodworkalan.addendum.dialect.ColumnChange;
+import com.goodworkalan.addendum.dialect.Dialect;
+
+/**
+ * A database update that applies a single change to a column of a table.
+ * Column updates are exposed so that adjacent changes to the same table can
+ * be coalesced into a single {@link TableAlteration}.
+ * 
+ * @author Alan Gutierrez
+ */
+class ColumnUpdate extends DatabaseUpdate {
+    /** The table name. */
+    private final String tableName;
+
+    /** The column change. */
+    private final ColumnChange change;
+
+    /**
+     * Create a column update that applies the given change to the table with
+     * the given name, wrapping an SQL exception in an addendum exception with
+     * the given error code and error arguments.
+     * 
+     * @param tableName
+     *            The table name.
+     * @param change
+     *            The column change.
+     * @param code
+     *            The wrapper exception error code.
+     * @param arguments
+     *            The wrapper exception arguments.
+     */
+    public ColumnUpdate(String tableName, ColumnChange change, String code, Object...arguments) {
+        super(code, arguments);
+        this.tableName = tableName;
+        this.change = change;
+    }
+
+    /**
+     * Get the table name.
+     * 
+     * @return The table name.
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Get the column change.
+     * 
+     * @return The column change.
+     */
+    public ColumnChange getChange() {
+        return change;
+    }
+
+    /**
+     * Get the name of the table whose column is changed.
+     * 
+     * @return The table name in a set.
+     */
+    @Override
+    public Set<String> getTableNames() {
+        return Collections.singleton(tableName);
+    }
+
+    /**
+     * A column change is a data definition.
+     * 
+     * @return True.
+     */
+    @Override
+    public boolean isDataDefinition() {
+        return true;
+    }
+
+    /**
+     * Column additions and drops can be batched. Column alterations are
+     * implemented by each dialect and are not batched.
+     * 
+     * @return True if this is an add or a drop.
+     */
+    @Override
+    public boolean isBatchable() {
+        return change.getType() != ColumnChange.Type.ALTER;
+    }
+
+    /**
+     * Apply the column change using the given JDBC connection and the given
+     * SQL dialect with the default settings.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    @Override
+    public void execute(Connection connection, Dialect dialect) throws SQLException {
+        execute(connection, dialect, new Settings());
+    }
+
+    /**
+     * Apply the column change using the given JDBC connection and the given
+     * SQL dialect, initializing an added not null column in chunks of the
+     * backfill chunk size of the given settings.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @param settings
+     *            The settings of the amend.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    @Override
+    public void execute(Connection connection, Dialect dialect, Settings settings) throws SQLException {
+        switch (change.getType()) {
+        case ADD:
+            dialect.addColumn(connection, tableName, change.getColumn(), settings.getBackfillChunkSize());
+            break;
+        case ALTER:
+            dialect.alterColumn(connection, tableName, change.getName(), change.getColumn());
+            break;
+        case DROP:
+            dialect.dropColumn(connection, tableName, change.getName());
+            break;
+        }
+    }
+}
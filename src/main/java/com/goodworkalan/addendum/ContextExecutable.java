@@ -0,0 +1,24 @@
+package com.goodworkalan.addendum;
+
+import java.sql.SQLException;
+
+/**
+ * Allows users to specify application specific SQL updates against the
+ * database using an {@link ExecutionContext} that batches writes, caches
+ * prepared statements, streams results and commits periodically, and that is
+ * closed when the update ends.
+ * 
+ * @author Alan Gutierrez
+ */
+public interface ContextExecutable {
+    /**
+     * Perform an update using application specific SQL statements.
+     * 
+     * @param context
+     *            The execution context.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void execute(ExecutionContext context)
+    throws SQLException;
+}
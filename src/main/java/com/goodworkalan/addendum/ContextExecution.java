@@ -0,0 +1,52 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.Addendum.CANNOT_EXECUTE_SQL;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import com.goodworkalan.addendum.dialect.Dialect;
+
+/**
+ * An update that will run arbitrary SQL in a {@link ContextExecutable} with
+ * an {@link ExecutionContext} that is closed when the update ends.
+ * 
+ * @author Alan Gutierrez
+ */
+class ContextExecution implements SchemaUpdate {
+    /** The executable to execute. */
+    private final ContextExecutable executable;
+
+    /**
+     * Create a new context execution.
+     * 
+     * @param executable
+     *            The executable to execute.
+     */
+    public ContextExecution(ContextExecutable executable) {
+        this.executable = executable;
+    }
+
+    /**
+     * Return a database update that will execute arbitrary SQL statements. This
+     * method has no effect on tracking schema.
+     * 
+     * @param schema
+     *            The tracking schema.
+     */
+    public DatabaseUpdate execute(Schema schema) {
+        return new DatabaseUpdate(CANNOT_EXECUTE_SQL) {
+            public void execute(Connection connection, Dialect dialect)
+            throws SQLException {
+                ExecutionContext context = new ExecutionContext(connection, dialect);
+                boolean success = false;
+                try {
+                    executable.execute(context);
+                    success = true;
+                } finally {
+                    context.close(success);
+                }
+            }
+        };
+    }
+}
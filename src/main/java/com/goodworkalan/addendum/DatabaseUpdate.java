@@ -1,7 +1,10 @@
 package com.goodworkalan.addendum;
 
+import static com.goodworkalan.addendum.Addendum.CANNOT_EXECUTE_BATCH;
+
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Set;
 
 import com.goodworkalan.addendum.dialect.Dialect;
 import com.goodworkalan.danger.Danger;
@@ -41,9 +44,86 @@ abstract class DatabaseUpdate {
         this.arguments = arguments;
     }
 
+    /**
+     * Create a database update that will wrap an SQL exception in an addendum
+     * exception with the error code and error arguments of the given database
+     * update.
+     * 
+     * @param update
+     *            The database update whose error code and arguments to use.
+     */
+    protected DatabaseUpdate(DatabaseUpdate update) {
+        this.code = update.code;
+        this.arguments = update.arguments;
+    }
+
+    /**
+     * Get the wrapper exception error code, which identifies the kind of
+     * update.
+     * 
+     * @return The wrapper exception error code.
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * Get a signature of this database update used to create the fingerprint
+     * of the addenda. The signature is built from the wrapper exception error
+     * code, which identifies the kind of update, and the wrapper exception
+     * arguments, which identify the tables and columns affected.
+     * 
+     * @return The signature of this database update.
+     */
+    public String getSignature() {
+        StringBuilder signature = new StringBuilder(code);
+        for (Object argument : arguments) {
+            signature.append(' ').append(argument);
+        }
+        return signature.toString();
+    }
+
+    /**
+     * Get the names of the tables affected by this update, or null if the
+     * affected tables cannot be known, as is the case for updates that run
+     * application code. An update that returns null must not be reordered
+     * with respect to any other update. This implementation returns null.
+     * 
+     * @return The names of the affected tables or null if unknown.
+     */
+    public Set<String> getTableNames() {
+        return null;
+    }
+
+    /**
+     * Determine whether this update only changes the structure of tables,
+     * without reading or writing rows or running application code. An
+     * addendum whose updates are all data definitions can be replaced by
+     * creating the tables it describes. This implementation returns false.
+     * 
+     * @return True if the update only changes the structure of tables.
+     */
+    public boolean isDataDefinition() {
+        return false;
+    }
+
+    /**
+     * Determine whether the statements issued by this update can be collected
+     * into a JDBC batch with the statements of the updates that precede it.
+     * Updates that read the database, that use prepared statements or that
+     * run application code are not batchable, so any batched statements are
+     * flushed before they execute. This implementation returns false.
+     * 
+     * @return True if the update can be batched.
+     */
+    public boolean isBatchable() {
+        return false;
+    }
+
     /**
      * Perform the database update using the given JDBC connection and the given
-     * dialect wrapping any SQL exception in an addendum exception.
+     * dialect wrapping any SQL exception in an addendum exception. If this
+     * update is not batchable, any batched statements are flushed first.
      * 
      * @param connection
      *            The JDBC connection.
@@ -53,13 +133,57 @@ abstract class DatabaseUpdate {
      *                For any error occurring during the update.
      */
     public void update(Connection connection, Dialect dialect) {
+        update(connection, dialect, new Settings());
+    }
+
+    /**
+     * Perform the database update using the given JDBC connection and the given
+     * dialect wrapping any SQL exception in an addendum exception, with the
+     * given settings of the amend. If this update is not batchable, any
+     * batched statements are flushed first.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @param settings
+     *            The settings of the amend.
+     * @exception AddendumException
+     *                For any error occurring during the update.
+     */
+    public void update(Connection connection, Dialect dialect, Settings settings) {
+        if (!isBatchable()) {
+            try {
+                dialect.flushBatch(connection);
+            } catch (SQLException e) {
+                throw new Danger(Addendum.class, CANNOT_EXECUTE_BATCH, e);
+            }
+        }
         try {
-            execute(connection, dialect);
+            execute(connection, dialect, settings);
         } catch (SQLException e) {
             throw new Danger(Addendum.class, code, e, arguments);
         }
     }
 
+    /**
+     * Perform the database update on the given JDBC connection using the given
+     * SQL dialect, with the given settings of the amend. This implementation
+     * ignores the settings and calls {@link #execute(Connection, Dialect)}.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @param settings
+     *            The settings of the amend.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void execute(Connection connection, Dialect dialect, Settings settings) throws SQLException {
+        execute(connection, dialect);
+    }
+
     /**
      * Perform the database update on the given JDBC connection using the given
      * SQL dialect.
@@ -74,4 +198,4 @@ abstract class DatabaseUpdate {
      *                For any error occurring during the update.
      */
     public abstract void execute(Connection connection, Dialect dialect) throws SQLException;
-}
+}
\ No newline at end of file
@@ -0,0 +1,164 @@
+package com.goodworkalan.addendum;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.goodworkalan.addendum.connector.Connector;
+
+/**
+ * Cancels the statements running against a database when the deadline of an
+ * amend passes. The connections used by the amend are wrapped so that every
+ * statement they create is tracked until it is closed, and when the deadline
+ * passes, every open statement is cancelled with
+ * <code>Statement.cancel()</code>, so that the update running the statement
+ * fails and the amend stops.
+ *
+ * @author Alan Gutierrez
+ */
+class Deadline extends TimerTask {
+    /** The timer that cancels the statements at the deadline. */
+    private final static Timer TIMER = new Timer("Addenda Deadline", true);
+
+    /** The wrapped statements that are open. */
+    private final Map<Statement, Boolean> statements = new ConcurrentHashMap<Statement, Boolean>();
+
+    /** Whether the deadline has passed and the statements were cancelled. */
+    private volatile boolean expired;
+
+    /**
+     * Create a deadline that cancels the open statements at the given time.
+     *
+     * @param until
+     *            The time in milliseconds at which to cancel the statements.
+     */
+    public Deadline(long until) {
+        TIMER.schedule(this, Math.max(until - System.currentTimeMillis(), 0));
+    }
+
+    /**
+     * Cancel every open statement.
+     */
+    public void run() {
+        expired = true;
+        for (Statement statement : statements.keySet()) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                // The statement may have completed or closed.
+            }
+        }
+    }
+
+    /**
+     * Determine whether the deadline has passed and the open statements were
+     * cancelled.
+     *
+     * @return True if the deadline has passed.
+     */
+    public boolean isExpired() {
+        return expired;
+    }
+
+    /**
+     * Stop waiting for the deadline.
+     */
+    public void close() {
+        cancel();
+    }
+
+    /**
+     * Wrap the given connector so that the statements of the connections it
+     * opens are cancelled at the deadline.
+     *
+     * @param connector
+     *            The connector.
+     * @return The wrapped connector.
+     */
+    public Connector wrap(final Connector connector) {
+        return new Connector() {
+            public Connection open() {
+                return wrap(connector.open());
+            }
+
+            public void close(Connection connection) {
+                connector.close(Forwarder.unwrap(connection));
+            }
+        };
+    }
+
+    /**
+     * Wrap the given connection so that the statements it creates are
+     * cancelled at the deadline.
+     *
+     * @param connection
+     *            The connection.
+     * @return The wrapped connection.
+     */
+    public Connection wrap(Connection connection) {
+        return Forwarder.proxy(new Handler(connection, false));
+    }
+
+    /**
+     * Forwards the methods of a connection or a statement to the wrapped
+     * connection or statement, tracking the statements created by a
+     * connection and forgetting the statements that are closed.
+     */
+    private final class Handler extends Forwarder {
+        /**
+         * Create a handler that forwards to the given target.
+         *
+         * @param target
+         *            The wrapped connection or statement.
+         * @param statement
+         *            Whether the target is a statement.
+         */
+        public Handler(Object target, boolean statement) {
+            super(target, statement);
+        }
+
+        /**
+         * Create a handler that forwards to the given statement.
+         *
+         * @param statement
+         *            The statement.
+         * @return A handler that forwards to the statement.
+         */
+        @Override
+        protected Forwarder forward(Object statement) {
+            return new Handler(statement, true);
+        }
+
+        /**
+         * Forget a statement that is closed.
+         */
+        @Override
+        protected void forwarded(Object proxy, Method method, Object[] args, Object result) {
+            if (isStatement() && method.getName().equals("close")) {
+                statements.remove(proxy);
+            }
+        }
+
+        /**
+         * Track the created statement, cancelling it at once if the deadline
+         * has passed.
+         *
+         * @param created
+         *            The wrapped statement.
+         * @throws SQLException
+         *             For any SQL error.
+         */
+        @Override
+        protected void created(Statement created) throws SQLException {
+            statements.put(created, Boolean.TRUE);
+            if (expired) {
+                created.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.goodworkalan.addendum;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+
+import com.goodworkalan.addendum.dialect.Dialect;
+
+/**
+ * A marker in the updates of an addendum that the addendum is not required
+ * by the application to start and can be applied in the background by a
+ * {@link DeferredScheduler} after the application has started. The marker
+ * does nothing to the database.
+ * 
+ * @author Alan Gutierrez
+ */
+class Deferral extends DatabaseUpdate {
+    /** Create a deferral marker. */
+    public Deferral() {
+        super((String) null);
+    }
+
+    /**
+     * Get the signature of the marker, so that marking an addendum as
+     * deferrable changes the fingerprint of the addenda.
+     * 
+     * @return The signature of the marker.
+     */
+    @Override
+    public String getSignature() {
+        return "deferred";
+    }
+
+    /**
+     * The marker is a barrier, so that the updates of a deferrable addendum
+     * are not moved into the addenda that are required.
+     * 
+     * @return Null.
+     */
+    @Override
+    public Set<String> getTableNames() {
+        return null;
+    }
+
+    /**
+     * Do nothing.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     */
+    public void execute(Connection connection, Dialect dialect) throws SQLException {
+    }
+}
@@ -0,0 +1,389 @@
+package com.goodworkalan.addendum;
+
+import java.util.Calendar;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.goodworkalan.addendum.connector.Connector;
+
+/**
+ * Applies the deferrable addenda of plans in the background after the
+ * application has started, applying the addenda of at most a fixed number of
+ * databases at once, and optionally starting addenda only during a daily
+ * window of time, such as the hours of least traffic.
+ * <p>
+ * The deferrable addenda of a database are applied under the migration lease
+ * like any other addenda. When the window closes, the addendum being applied
+ * is allowed to finish, no further addendum is started, and the remaining
+ * addenda are applied when the window next opens.
+ *
+ * @author Alan Gutierrez
+ */
+public class DeferredScheduler {
+    /** The number of minutes in a day. */
+    private final static int MINUTES_PER_DAY = 24 * 60;
+
+    /** The threads that apply the deferrable addenda. */
+    private final ScheduledThreadPoolExecutor executor;
+
+    /** The minute of the day at which the window opens or -1 for no window. */
+    private volatile int from = -1;
+
+    /** The minute of the day at which the window closes. */
+    private volatile int to;
+
+    /**
+     * Create a scheduler that applies the deferrable addenda of at most the
+     * given number of databases at once.
+     *
+     * @param concurrency
+     *            The number of databases amended at once.
+     */
+    public DeferredScheduler(int concurrency) {
+        this.executor = new ScheduledThreadPoolExecutor(concurrency, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Addenda Deferred");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Start deferrable addenda only between the given minutes of the day in
+     * the default time zone. If the window closes before it opens, the window
+     * spans midnight. If the window closes when it opens, the window spans the
+     * whole day.
+     *
+     * @param from
+     *            The minute of the day at which the window opens.
+     * @param to
+     *            The minute of the day at which the window closes.
+     */
+    public void setWindow(int from, int to) {
+        this.to = to % MINUTES_PER_DAY;
+        this.from = from % MINUTES_PER_DAY;
+    }
+
+    /**
+     * Apply the addenda of the given plan, including the deferrable addenda,
+     * to the database of the given connector after the given delay, returning
+     * a future result of the amend immediately. Cancelling the future result
+     * stops the amend from being started or rescheduled.
+     *
+     * @param plan
+     *            The plan.
+     * @param connector
+     *            The connector of the database to amend.
+     * @param delay
+     *            The delay in milliseconds before the addenda are applied.
+     * @return The future result of the amend.
+     */
+    public Future<Amendment> schedule(Plan plan, Connector connector, long delay) {
+        Deferred deferred = new Deferred(plan, connector);
+        deferred.schedule(delay);
+        return deferred.result;
+    }
+
+    /**
+     * Stop the scheduler, abandoning the amends that have not started and
+     * interrupting the amends that are running.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Get the minute of the day of the given time.
+     *
+     * @param now
+     *            The time in milliseconds.
+     * @return The minute of the day.
+     */
+    static int minute(long now) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
+        return calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
+    }
+
+    /**
+     * Determine whether the given minute of the day is inside the window that
+     * opens and closes at the given minutes of the day.
+     *
+     * @param minute
+     *            The minute of the day.
+     * @param from
+     *            The minute of the day at which the window opens.
+     * @param to
+     *            The minute of the day at which the window closes.
+     * @return True if the minute is inside the window.
+     */
+    static boolean isOpen(int minute, int from, int to) {
+        if (from < to) {
+            return from <= minute && minute < to;
+        }
+        if (to < from) {
+            return from <= minute || minute < to;
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of milliseconds from the given time until the next start
+     * of the given minute of the day. During the given minute, the next start
+     * is a day away, so the result is always greater than zero.
+     *
+     * @param now
+     *            The time in milliseconds.
+     * @param minute
+     *            The minute of the day.
+     * @return The number of milliseconds until the minute.
+     */
+    static long until(long now, int minute) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
+        int minutes = (minute - minute(now) + MINUTES_PER_DAY) % MINUTES_PER_DAY;
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.MINUTE, minutes == 0 ? MINUTES_PER_DAY : minutes);
+        return Math.max(1, calendar.getTimeInMillis() - now);
+    }
+
+    /**
+     * The amend of a single database, rescheduled for the next opening of
+     * the window whenever the window closes before every addendum is
+     * applied.
+     */
+    private final class Deferred implements Runnable {
+        /** The plan. */
+        private final Plan plan;
+
+        /** The connector of the database to amend. */
+        private final Connector connector;
+
+        /** The future result of the amend. */
+        private final Result result = new Result();
+
+        /**
+         * Create the amend of the database of the given connector with the
+         * given plan.
+         *
+         * @param plan
+         *            The plan.
+         * @param connector
+         *            The connector of the database to amend.
+         */
+        public Deferred(Plan plan, Connector connector) {
+            this.plan = plan;
+            this.connector = connector;
+        }
+
+        /**
+         * Run the amend after the given delay.
+         *
+         * @param delay
+         *            The delay in milliseconds.
+         */
+        public void schedule(long delay) {
+            result.setNext(executor.schedule(this, delay, TimeUnit.MILLISECONDS));
+        }
+
+        /**
+         * Apply the addenda if the window is open, otherwise wait for the
+         * window to open.
+         */
+        public void run() {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                long now = System.currentTimeMillis();
+                int from = DeferredScheduler.this.from;
+                long until = Long.MAX_VALUE;
+                if (from != -1) {
+                    int to = DeferredScheduler.this.to;
+                    if (!isOpen(minute(now), from, to)) {
+                        schedule(DeferredScheduler.until(now, from));
+                        return;
+                    }
+                    until = now + DeferredScheduler.until(now, to);
+                }
+                Amendment amendment = plan.migrate(connector, true, until, false);
+                if (from != -1 && !amendment.isComplete()) {
+                    schedule(DeferredScheduler.until(System.currentTimeMillis(), from));
+                } else {
+                    result.set(amendment);
+                }
+            } catch (Throwable e) {
+                result.setException(e);
+            }
+        }
+    }
+
+    /**
+     * The future result of an amend that is set by the amend when it is done.
+     * Cancelling the result cancels the next run of the amend.
+     */
+    private final static class Result implements Future<Amendment> {
+        /** The next run of the amend. */
+        private Future<?> next;
+
+        /** Whether the amend is done, failed or cancelled. */
+        private boolean done;
+
+        /** Whether the amend was cancelled. */
+        private boolean cancelled;
+
+        /** The result of the amend. */
+        private Amendment amendment;
+
+        /** The failure of the amend. */
+        private Throwable failure;
+
+        /**
+         * Set the next run of the amend, cancelling it if the result was
+         * cancelled.
+         *
+         * @param next
+         *            The next run of the amend.
+         */
+        public synchronized void setNext(Future<?> next) {
+            if (cancelled) {
+                next.cancel(false);
+            } else {
+                this.next = next;
+            }
+        }
+
+        /**
+         * Set the result of the amend.
+         *
+         * @param amendment
+         *            The result of the amend.
+         */
+        public synchronized void set(Amendment amendment) {
+            if (!done) {
+                this.amendment = amendment;
+                done = true;
+                notifyAll();
+            }
+        }
+
+        /**
+         * Set the failure of the amend.
+         *
+         * @param failure
+         *            The failure of the amend.
+         */
+        public synchronized void setException(Throwable failure) {
+            if (!done) {
+                this.failure = failure;
+                done = true;
+                notifyAll();
+            }
+        }
+
+        /**
+         * Cancel the amend if it is not done, cancelling its next run.
+         *
+         * @param mayInterruptIfRunning
+         *            Whether to interrupt the amend if it is running.
+         * @return True if the amend was cancelled.
+         */
+        public synchronized boolean cancel(boolean mayInterruptIfRunning) {
+            if (done) {
+                return false;
+            }
+            done = true;
+            cancelled = true;
+            if (next != null) {
+                next.cancel(mayInterruptIfRunning);
+            }
+            notifyAll();
+            return true;
+        }
+
+        /**
+         * Determine whether the amend was cancelled.
+         *
+         * @return True if the amend was cancelled.
+         */
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Determine whether the amend is done, failed or cancelled.
+         *
+         * @return True if the amend is done.
+         */
+        public synchronized boolean isDone() {
+            return done;
+        }
+
+        /**
+         * Wait for the result of the amend.
+         *
+         * @return The result of the amend.
+         * @throws InterruptedException
+         *             If the wait is interrupted.
+         * @throws ExecutionException
+         *             If the amend failed.
+         */
+        public synchronized Amendment get() throws InterruptedException, ExecutionException {
+            while (!done) {
+                wait();
+            }
+            return getResult();
+        }
+
+        /**
+         * Wait at most the given time for the result of the amend.
+         *
+         * @param timeout
+         *            The time to wait.
+         * @param unit
+         *            The unit of the time to wait.
+         * @return The result of the amend.
+         * @throws InterruptedException
+         *             If the wait is interrupted.
+         * @throws ExecutionException
+         *             If the amend failed.
+         * @throws TimeoutException
+         *             If the amend is not done in time.
+         */
+        public synchronized Amendment get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            long stop = System.nanoTime() + unit.toNanos(timeout);
+            while (!done) {
+                long remaining = stop - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TimeoutException();
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return getResult();
+        }
+
+        /**
+         * Get the result of the amend that is done.
+         *
+         * @return The result of the amend.
+         * @throws ExecutionException
+         *             If the amend failed.
+         */
+        private Amendment getResult() throws ExecutionException {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            if (failure != null) {
+                throw new ExecutionException(failure);
+            }
+            return amendment;
+        }
+    }
+}
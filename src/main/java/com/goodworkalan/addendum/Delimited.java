@@ -0,0 +1,234 @@
+package com.goodworkalan.addendum;
+
+import java.io.IOException;
+
+/**
+ * A reader of the fields of a delimited text file, such as a comma separated
+ * or tab separated values file, that reads the file one buffer at a time
+ * through an {@link Input}, so that the memory used does not depend on the
+ * size of the file.
+ * <p>
+ * Fields are read into a single reusable byte array. A field is only
+ * converted to a string when it is requested as a string, so that integer
+ * fields are parsed directly from the bytes of the file.
+ * <p>
+ * Fields can be enclosed in double quotes, in which case they can contain the
+ * delimiter and line breaks, and a double quote is escaped by another double
+ * quote. Lines can end with a line feed or a carriage return and line feed.
+ * Blank lines are ignored.
+ *
+ * @author Alan Gutierrez
+ */
+class Delimited {
+    /** The input. */
+    private final Input input;
+
+    /** The delimiter. */
+    private final int delimiter;
+
+    /** The bytes of the current field. */
+    private byte[] field = new byte[64];
+
+    /** The length of the current field. */
+    private int length;
+
+    /** Whether the current field was enclosed in quotes. */
+    private boolean quoted;
+
+    /** Whether the current field is the last field of its record. */
+    private boolean endOfRecord = true;
+
+    /** The current line number. */
+    private int line = 1;
+
+    /** The line number of the first line of the current record. */
+    private int recordLine;
+
+    /**
+     * Create a delimited reader of the given input.
+     *
+     * @param input
+     *            The input.
+     * @param delimiter
+     *            The delimiter.
+     */
+    public Delimited(Input input, char delimiter) {
+        this.input = input;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Read the next byte.
+     *
+     * @return The next byte or -1 at the end of the input.
+     * @throws IOException
+     *             For any I/O error.
+     */
+    private int read() throws IOException {
+        return input.read();
+    }
+
+    /**
+     * Append the given byte to the current field.
+     *
+     * @param b
+     *            The byte.
+     */
+    private void append(int b) {
+        if (length == field.length) {
+            byte[] grown = new byte[length * 2];
+            System.arraycopy(field, 0, grown, 0, length);
+            field = grown;
+        }
+        field[length++] = (byte) b;
+    }
+
+    /**
+     * Read the next field, returning false at the end of the input.
+     *
+     * @return True if a field was read.
+     * @throws IOException
+     *             For any I/O error.
+     */
+    public boolean next() throws IOException {
+        length = 0;
+        quoted = false;
+        int b = read();
+        if (endOfRecord) {
+            while (b == '\r' || b == '\n') {
+                if (b == '\n') {
+                    line++;
+                }
+                b = read();
+            }
+            if (b == -1) {
+                return false;
+            }
+            recordLine = line;
+            endOfRecord = false;
+        }
+        if (b == '"') {
+            quoted = true;
+            for (;;) {
+                b = read();
+                if (b == -1) {
+                    break;
+                }
+                if (b == '"') {
+                    b = read();
+                    if (b != '"') {
+                        break;
+                    }
+                } else if (b == '\n') {
+                    line++;
+                }
+                append(b);
+            }
+            while (b != -1 && b != delimiter && b != '\n' && b != '\r') {
+                b = read();
+            }
+        } else {
+            while (b != -1 && b != delimiter && b != '\n' && b != '\r') {
+                append(b);
+                b = read();
+            }
+        }
+        if (b == '\n') {
+            line++;
+        }
+        endOfRecord = b != delimiter;
+        return true;
+    }
+
+    /**
+     * Determine whether the current field is the last field of its record.
+     *
+     * @return True if the current field ends its record.
+     */
+    public boolean isEndOfRecord() {
+        return endOfRecord;
+    }
+
+    /**
+     * Determine whether the current field is empty and not enclosed in quotes,
+     * indicating a null value.
+     *
+     * @return True if the current field is null.
+     */
+    public boolean isNull() {
+        return !quoted && length == 0;
+    }
+
+    /**
+     * Determine whether the current field is an integer that can be parsed by
+     * {@link #getLong() getLong} without overflow.
+     *
+     * @return True if the current field is an integer.
+     */
+    public boolean isInteger() {
+        int i = length != 0 && (field[0] == '-' || field[0] == '+') ? 1 : 0;
+        if (i == length || length - i > 18) {
+            return false;
+        }
+        for (; i < length; i++) {
+            if (field[i] < '0' || field[i] > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the current field as an integer, which must be verified by
+     * {@link #isInteger() isInteger}.
+     *
+     * @return The integer value of the current field.
+     */
+    public long getLong() {
+        int i = field[0] == '-' || field[0] == '+' ? 1 : 0;
+        long value = 0;
+        for (; i < length; i++) {
+            value = value * 10 + (field[i] - '0');
+        }
+        return field[0] == '-' ? -value : value;
+    }
+
+    /**
+     * Get the current field as a string decoded as UTF-8.
+     *
+     * @return The current field.
+     * @throws IOException
+     *             For any I/O error.
+     */
+    public String getString() throws IOException {
+        return new String(field, 0, length, "UTF-8");
+    }
+
+    /**
+     * Get the number of bytes read.
+     *
+     * @return The number of bytes read.
+     */
+    public long getBytes() {
+        return input.getPosition();
+    }
+
+    /**
+     * Get the line number of the first line of the current record.
+     *
+     * @return The line number of the current record.
+     */
+    public int getRecordLine() {
+        return recordLine;
+    }
+
+    /**
+     * Close the file or channel.
+     *
+     * @throws IOException
+     *             For any I/O error.
+     */
+    public void close() throws IOException {
+        input.close();
+    }
+}
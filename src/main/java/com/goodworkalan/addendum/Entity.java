@@ -44,6 +44,42 @@ class Entity {
         this.tableName = tableName;
     }
 
+    /**
+     * Create a copy of the given table specification that will not change
+     * when the given table specification changes.
+     * 
+     * @param entity
+     *            The table specification to copy.
+     */
+    public Entity(Entity entity) {
+        this.tableName = entity.tableName;
+        this.primaryKey.addAll(entity.primaryKey);
+        this.properties.putAll(entity.properties);
+        for (Column column : entity.columns.values()) {
+            this.columns.put(column.getName(), new Column(column));
+        }
+    }
+
+    /**
+     * Find the column definition with the given column name, ignoring case if
+     * there is no column with exactly the given name.
+     * 
+     * @param columnName
+     *            The column name.
+     * @return The column definition or null if it does not exist.
+     */
+    public Column findColumn(String columnName) {
+        Column column = columns.get(columnName);
+        if (column == null) {
+            for (Map.Entry<String, Column> entry : columns.entrySet()) {
+                if (entry.getKey().equalsIgnoreCase(columnName)) {
+                    return entry.getValue();
+                }
+            }
+        }
+        return column;
+    }
+
     /**
      * Get the column definition for the given property name.
      * 
@@ -0,0 +1,345 @@
+package com.goodworkalan.addendum;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.goodworkalan.addendum.dialect.Dialect;
+
+/**
+ * The context of a {@link ContextExecutable} that manages the statements of
+ * an application specific update. Prepared statements are cached by their
+ * SQL for the duration of the update, writes are collected into JDBC batches
+ * that are executed when they reach a number of rows or bytes, queries are
+ * streamed with a fetch size, and the writes can be committed periodically.
+ * Every statement and result set created by the context is closed when the
+ * update ends, whether or not it succeeds.
+ * <p>
+ * Periodic commits are only made if the connection is in auto-commit mode
+ * when they are enabled, in which case auto-commit is disabled for the
+ * duration of the update and restored when it ends. When the addenda are
+ * applied in transactional mode the writes are committed with the addendum.
+ * 
+ * @author Alan Gutierrez
+ */
+public class ExecutionContext {
+    /** The JDBC connection. */
+    private final Connection connection;
+
+    /** The SQL dialect. */
+    private final Dialect dialect;
+
+    /** The cached prepared statements by their SQL. */
+    private final Map<String, PreparedStatement> statements = new LinkedHashMap<String, PreparedStatement>();
+
+    /** The batch writers by their SQL in the order they were created. */
+    private final Map<String, BatchWriter> writers = new LinkedHashMap<String, BatchWriter>();
+
+    /** The prepared statements of the batch writers. */
+    private final List<PreparedStatement> writerStatements = new ArrayList<PreparedStatement>();
+
+    /** The result sets of the queries. */
+    private final List<ResultSet> results = new ArrayList<ResultSet>();
+
+    /** The number of rows in a batch that causes it to be executed. */
+    private int batchRows = 1000;
+
+    /** The estimated number of bytes in a batch that cause it to be executed. */
+    private long batchBytes = 1024 * 1024;
+
+    /** The fetch size of queries. */
+    private int fetchSize = 1000;
+
+    /** The number of rows written between commits or zero. */
+    private int commitRows;
+
+    /** Whether auto-commit was disabled to commit periodically. */
+    private boolean committing;
+
+    /** The number of rows written since the last commit. */
+    private int uncommitted;
+
+    /**
+     * Create an execution context for the given connection and dialect.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     */
+    ExecutionContext(Connection connection, Dialect dialect) {
+        this.connection = connection;
+        this.dialect = dialect;
+    }
+
+    /**
+     * Get the JDBC connection.
+     * 
+     * @return The JDBC connection.
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Get the SQL dialect.
+     * 
+     * @return The SQL dialect.
+     */
+    public Dialect getDialect() {
+        return dialect;
+    }
+
+    /**
+     * Get the number of rows in a batch that causes it to be executed.
+     * 
+     * @return The batch row count.
+     */
+    public int getBatchRows() {
+        return batchRows;
+    }
+
+    /**
+     * Set the number of rows in a batch that causes it to be executed. The
+     * default is 1000.
+     * 
+     * @param batchRows
+     *            The batch row count.
+     */
+    public void setBatchRows(int batchRows) {
+        this.batchRows = batchRows;
+    }
+
+    /**
+     * Get the estimated number of bytes in a batch that causes it to be
+     * executed.
+     * 
+     * @return The batch byte count.
+     */
+    public long getBatchBytes() {
+        return batchBytes;
+    }
+
+    /**
+     * Set the estimated number of bytes in a batch that causes it to be
+     * executed. Strings are counted by their length, byte arrays by their
+     * length and other values as eight bytes. The default is one megabyte.
+     * 
+     * @param batchBytes
+     *            The batch byte count.
+     */
+    public void setBatchBytes(long batchBytes) {
+        this.batchBytes = batchBytes;
+    }
+
+    /**
+     * Get the fetch size of queries.
+     * 
+     * @return The fetch size.
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Set the fetch size of queries, which is a hint to the driver of the
+     * number of rows to read from the database at once. The default is 1000.
+     * 
+     * @param fetchSize
+     *            The fetch size.
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Commit the writes of the update each time the given number of rows have
+     * been written by the batch writers. If the connection is not in
+     * auto-commit mode, the connection belongs to the transaction of the
+     * addendum and no periodic commits are made.
+     * 
+     * @param commitRows
+     *            The number of rows written between commits.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void setCommitRows(int commitRows) throws SQLException {
+        this.commitRows = commitRows;
+        if (commitRows > 0 && !committing && connection.getAutoCommit()) {
+            connection.setAutoCommit(false);
+            committing = true;
+        }
+    }
+
+    /**
+     * Get a prepared statement for the given SQL, preparing it only the first
+     * time it is requested in this update.
+     * 
+     * @param sql
+     *            The SQL.
+     * @return The prepared statement.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Get a batch writer for the given insert, update or delete SQL, creating
+     * it only the first time it is requested in this update.
+     * 
+     * @param sql
+     *            The SQL.
+     * @return The batch writer.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public BatchWriter writer(String sql) throws SQLException {
+        BatchWriter writer = writers.get(sql);
+        if (writer == null) {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            writerStatements.add(statement);
+            writer = new BatchWriter(this, statement);
+            writers.put(sql, writer);
+        }
+        return writer;
+    }
+
+    /**
+     * Execute the given query with the given parameter values using a cached
+     * prepared statement and the fetch size of this context. The batches of
+     * the batch writers are executed first, so that the query reads the
+     * rows they have written. Running the same query again closes the result
+     * set of the previous run.
+     * 
+     * @param sql
+     *            The query SQL.
+     * @param values
+     *            The parameter values.
+     * @return The result set.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public ResultSet query(String sql, Object... values) throws SQLException {
+        flush();
+        PreparedStatement statement = prepare(sql);
+        for (int i = 0; i < values.length; i++) {
+            statement.setObject(i + 1, values[i]);
+        }
+        statement.setFetchSize(fetchSize);
+        ResultSet rs = statement.executeQuery();
+        results.add(rs);
+        return rs;
+    }
+
+    /**
+     * Execute the batches of the batch writers in the order that the writers
+     * were created.
+     * 
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void flush() throws SQLException {
+        for (BatchWriter writer : writers.values()) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Execute the batches of the batch writers and commit them if periodic
+     * commits are enabled.
+     * 
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void commit() throws SQLException {
+        flush();
+        if (committing) {
+            connection.commit();
+        }
+        uncommitted = 0;
+    }
+
+    /**
+     * Count the given number of rows written by a batch writer, committing if
+     * the number of rows written since the last commit reaches the number of
+     * rows between commits.
+     * 
+     * @param rows
+     *            The number of rows written.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    void written(int rows) throws SQLException {
+        uncommitted += rows;
+        if (commitRows > 0 && uncommitted >= commitRows) {
+            commit();
+        }
+    }
+
+    /**
+     * End the update. If the update succeeded, the remaining batches are
+     * executed and committed, otherwise uncommitted writes are rolled back.
+     * Every result set and statement is closed and auto-commit is restored,
+     * even if closing one of them fails.
+     * 
+     * @param success
+     *            Whether the update succeeded.
+     * @throws SQLException
+     *             For any SQL error if the update succeeded.
+     */
+    void close(boolean success) throws SQLException {
+        SQLException failure = null;
+        try {
+            if (success) {
+                commit();
+            } else if (committing) {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            failure = e;
+        }
+        for (ResultSet rs : results) {
+            try {
+                rs.close();
+            } catch (SQLException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        List<PreparedStatement> all = new ArrayList<PreparedStatement>(statements.values());
+        all.addAll(writerStatements);
+        for (PreparedStatement statement : all) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        results.clear();
+        statements.clear();
+        writers.clear();
+        writerStatements.clear();
+        if (committing) {
+            committing = false;
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        if (success && failure != null) {
+            throw failure;
+        }
+    }
+}
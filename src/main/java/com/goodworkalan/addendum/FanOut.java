@@ -0,0 +1,219 @@
+package com.goodworkalan.addendum;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.LoggerFactory;
+
+import com.goodworkalan.addendum.connector.Connector;
+import com.goodworkalan.danger.Danger;
+import com.goodworkalan.notice.NoticeFactory;
+
+/**
+ * Amends the databases of many tenants with a single collection of addenda,
+ * so that the addenda are built and compiled into a {@link Plan} once and
+ * applied to each database concurrently. The number of databases amended at
+ * once is limited overall and for each database host. A failure to amend the
+ * database of one tenant is recorded in the result of that tenant and does
+ * not stop the amendment of the others.
+ * 
+ * @author Alan Gutierrez
+ */
+public class FanOut {
+    /** The notice factory specifically for the <code>FanOut</code>. */
+    private final static NoticeFactory NOTICES = new NoticeFactory(LoggerFactory.getLogger(FanOut.class));
+
+    /** The addenda. */
+    private final Addenda addenda;
+
+    /** The tenants that have not been amended. */
+    private final LinkedList<Tenant> pending = new LinkedList<Tenant>();
+
+    /** The number of tenant databases being amended by host. */
+    private final Map<String, Integer> running = new HashMap<String, Integer>();
+
+    /** The number of tenant databases amended at once. */
+    private int parallelism = 8;
+
+    /** The number of tenant databases on a single host amended at once. */
+    private int hostParallelism = 2;
+
+    /**
+     * A tenant database.
+     */
+    private final static class Tenant {
+        /** The tenant name. */
+        public final String name;
+
+        /** The host of the tenant database. */
+        public final String host;
+
+        /** The connector of the tenant database. */
+        public final Connector connector;
+
+        /**
+         * Create a tenant.
+         * 
+         * @param name
+         *            The tenant name.
+         * @param host
+         *            The host of the tenant database.
+         * @param connector
+         *            The connector of the tenant database.
+         */
+        public Tenant(String name, String host, Connector connector) {
+            this.name = name;
+            this.host = host;
+            this.connector = connector;
+        }
+    }
+
+    /**
+     * Create a fan out that amends databases with the given addenda.
+     * 
+     * @param addenda
+     *            The addenda.
+     */
+    public FanOut(Addenda addenda) {
+        this.addenda = addenda;
+    }
+
+    /**
+     * Set the number of tenant databases amended at once. The default is 8.
+     * 
+     * @param parallelism
+     *            The number of tenant databases amended at once.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Set the number of tenant databases on a single host amended at once.
+     * The default is 2.
+     * 
+     * @param hostParallelism
+     *            The number of tenant databases on a host amended at once.
+     */
+    public void setHostParallelism(int hostParallelism) {
+        this.hostParallelism = hostParallelism;
+    }
+
+    /**
+     * Add the database of a tenant to amend.
+     * 
+     * @param tenant
+     *            The tenant name.
+     * @param host
+     *            The host of the tenant database, used to limit the number
+     *            of databases on the host amended at once.
+     * @param connector
+     *            The connector of the tenant database.
+     */
+    public void add(String tenant, String host, Connector connector) {
+        pending.add(new Tenant(tenant, host, connector));
+    }
+
+    /**
+     * Take the next tenant whose host is below its limit, waiting while every
+     * pending tenant is on a host at its limit, or return null if there are
+     * no more tenants.
+     * 
+     * @return The next tenant or null.
+     * @throws InterruptedException
+     *             If the thread is interrupted while waiting.
+     */
+    private synchronized Tenant take() throws InterruptedException {
+        for (;;) {
+            if (pending.isEmpty()) {
+                return null;
+            }
+            for (int i = 0, stop = pending.size(); i < stop; i++) {
+                Tenant tenant = pending.get(i);
+                Integer count = running.get(tenant.host);
+                if (count == null || count < hostParallelism) {
+                    running.put(tenant.host, count == null ? 1 : count + 1);
+                    return pending.remove(i);
+                }
+            }
+            wait();
+        }
+    }
+
+    /**
+     * Release the host of the given tenant after its database is amended.
+     * 
+     * @param tenant
+     *            The tenant.
+     */
+    private synchronized void release(Tenant tenant) {
+        int count = running.get(tenant.host) - 1;
+        if (count == 0) {
+            running.remove(tenant.host);
+        } else {
+            running.put(tenant.host, count);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Amend the database of each tenant that has been added and return the
+     * result of each tenant in the order that the amendments completed.
+     * 
+     * @return The result of each tenant.
+     */
+    public List<TenantResult> amend() {
+        final Plan plan = addenda.compile();
+        final List<TenantResult> results = new ArrayList<TenantResult>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0, stop = Math.min(parallelism, pending.size()); i < stop; i++) {
+            Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        Tenant tenant;
+                        while ((tenant = take()) != null) {
+                            long start = System.currentTimeMillis();
+                            RuntimeException failure = null;
+                            try {
+                                plan.amend(tenant.connector);
+                            } catch (RuntimeException e) {
+                                failure = e;
+                            } finally {
+                                release(tenant);
+                            }
+                            TenantResult result = new TenantResult(tenant.name, tenant.host, failure, System.currentTimeMillis() - start);
+                            synchronized (results) {
+                                results.add(result);
+                            }
+                            NOTICES.info("tenant")
+                                .put("tenant", tenant.name)
+                                .put("host", tenant.host)
+                                .put("success", result.isSuccess())
+                                .put("duration", result.getDuration())
+                                .send();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, "Addenda Fan Out " + i);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (Thread other : threads) {
+                    other.interrupt();
+                }
+                throw new Danger(Addendum.class, Addendum.PARALLEL_INTERRUPTED, e);
+            }
+        }
+        return results;
+    }
+}
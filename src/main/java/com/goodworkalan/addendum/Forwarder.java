@@ -0,0 +1,137 @@
+package com.goodworkalan.addendum;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Forwards the methods of a connection or a statement to the wrapped
+ * connection or statement, wrapping the statements created by a connection,
+ * so that the methods called on a connection and its statements can be
+ * observed. A proxy is equal only to itself, so that it can be used as a key
+ * by the dialects.
+ *
+ * @author Alan Gutierrez
+ */
+abstract class Forwarder implements InvocationHandler {
+    /** The wrapped connection or statement. */
+    private final Object target;
+
+    /** Whether the target is a statement. */
+    private final boolean statement;
+
+    /**
+     * Create a forwarder to the given target.
+     *
+     * @param target
+     *            The wrapped connection or statement.
+     * @param statement
+     *            Whether the target is a statement.
+     */
+    protected Forwarder(Object target, boolean statement) {
+        this.target = target;
+        this.statement = statement;
+    }
+
+    /**
+     * Wrap the given connection with a proxy that forwards to the given
+     * forwarder.
+     *
+     * @param forwarder
+     *            The forwarder to the connection.
+     * @return The wrapped connection.
+     */
+    public static Connection proxy(Forwarder forwarder) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, forwarder);
+    }
+
+    /**
+     * Get the connection wrapped by the given proxy.
+     *
+     * @param connection
+     *            A connection wrapped by a forwarder.
+     * @return The wrapped connection.
+     */
+    public static Connection unwrap(Connection connection) {
+        return (Connection) ((Forwarder) Proxy.getInvocationHandler(connection)).target;
+    }
+
+    /**
+     * Determine whether the target is a statement.
+     *
+     * @return True if the target is a statement.
+     */
+    protected boolean isStatement() {
+        return statement;
+    }
+
+    /**
+     * Create a forwarder to the given statement created by the target
+     * connection.
+     *
+     * @param statement
+     *            The statement.
+     * @return A forwarder to the statement.
+     */
+    protected abstract Forwarder forward(Object statement);
+
+    /**
+     * Called after a method is forwarded to the target with the result of
+     * the method. This implementation does nothing.
+     *
+     * @param proxy
+     *            The proxy.
+     * @param method
+     *            The method.
+     * @param args
+     *            The method arguments or null.
+     * @param result
+     *            The result of the method.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    protected void forwarded(Object proxy, Method method, Object[] args, Object result) throws SQLException {
+    }
+
+    /**
+     * Called when a statement is created by the target connection with the
+     * wrapped statement. This implementation does nothing.
+     *
+     * @param created
+     *            The wrapped statement.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    protected void created(Statement created) throws SQLException {
+    }
+
+    /**
+     * Forward the method to the target, wrapping the statements that are
+     * created.
+     */
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getName().equals("equals") && args != null && args.length == 1) {
+            return proxy == args[0];
+        }
+        if (method.getName().equals("hashCode") && args == null) {
+            return System.identityHashCode(proxy);
+        }
+        Object result;
+        try {
+            result = method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+        forwarded(proxy, method, args, result);
+        if (!statement && result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+            Statement created = (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { method.getReturnType() }, forward(result));
+            created(created);
+            result = created;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,112 @@
+package com.goodworkalan.addendum;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import com.goodworkalan.addendum.connector.Connector;
+import com.goodworkalan.addendum.dialect.Dialect;
+
+/**
+ * Renews the migration lease in the background while addenda are applied.
+ * The heartbeat renews the lease on its own connection, so that the renewal
+ * is committed immediately and is visible to waiting processes, even if the
+ * addenda are applied in a long running transaction.
+ *
+ * @author Alan Gutierrez
+ */
+class Heartbeat extends TimerTask {
+    /** The database connector. */
+    private final Connector connector;
+
+    /** The SQL dialect. */
+    private final Dialect dialect;
+
+    /** The unique identity of the lease owner. */
+    private final String owner;
+
+    /** The duration of the lease in milliseconds. */
+    private final long duration;
+
+    /** The timer that schedules the renewals. */
+    private final Timer timer;
+
+    /** The connection used to renew the lease. */
+    private Connection connection;
+
+    /** Whether the lease has been lost. */
+    private volatile boolean lost;
+
+    /**
+     * Create a heartbeat that renews the lease of the given owner for the
+     * given duration using a connection from the given connector.
+     *
+     * @param connector
+     *            The database connector.
+     * @param dialect
+     *            The SQL dialect.
+     * @param owner
+     *            The unique identity of the lease owner.
+     * @param duration
+     *            The duration of the lease in milliseconds.
+     */
+    public Heartbeat(Connector connector, Dialect dialect, String owner, long duration) {
+        this.connector = connector;
+        this.dialect = dialect;
+        this.owner = owner;
+        this.duration = duration;
+        this.timer = new Timer("Addenda Heartbeat", true);
+    }
+
+    /**
+     * Open the renewal connection and renew the lease at a third of the lease
+     * duration, so that two consecutive renewals can fail before the lease
+     * expires.
+     */
+    public void start() {
+        connection = connector.open();
+        long period = Math.max(duration / 3, 1);
+        timer.schedule(this, period, period);
+    }
+
+    /**
+     * Renew the lease, marking the lease as lost if it is now held by
+     * another process or if the renewal fails.
+     */
+    @Override
+    public synchronized void run() {
+        if (connection != null && !lost) {
+            try {
+                if (!dialect.lease(connection, owner, duration)) {
+                    lost = true;
+                }
+            } catch (SQLException e) {
+                lost = true;
+            }
+        }
+    }
+
+    /**
+     * Determine whether the lease has been lost.
+     *
+     * @return True if the lease has been lost.
+     */
+    public boolean isLost() {
+        return lost;
+    }
+
+    /**
+     * Stop renewing the lease and close the renewal connection.
+     */
+    public synchronized void stop() {
+        timer.cancel();
+        if (connection != null) {
+            try {
+                connector.close(connection);
+            } finally {
+                connection = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.Addendum.RESOURCE_MISSING;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.zip.GZIPInputStream;
+
+import com.goodworkalan.danger.Danger;
+
+/**
+ * A byte at a time reader of a file or stream that reads one buffer at a
+ * time, so that the memory used does not depend on the size of the input. A
+ * file is mapped into memory one region at a time, while a stream is read
+ * into a single reusable buffer.
+ *
+ * @author Alan Gutierrez
+ */
+class Input {
+    /** The size of each memory mapped region of a file. */
+    private final static int WINDOW = 8 * 1024 * 1024;
+
+    /** The size of the buffer used to read a channel. */
+    private final static int BUFFER = 64 * 1024;
+
+    /** The memory mapped file or null if reading a channel. */
+    private final FileChannel file;
+
+    /** The channel to read. */
+    private final ReadableByteChannel channel;
+
+    /** The current buffer. */
+    private ByteBuffer buffer;
+
+    /** The position in the file of the next memory mapped region. */
+    private long mapped;
+
+    /** The number of bytes read. */
+    private long position;
+
+    /**
+     * Create an input.
+     *
+     * @param file
+     *            The memory mapped file or null if reading a channel.
+     * @param channel
+     *            The channel to read.
+     * @param buffer
+     *            The initial empty buffer.
+     */
+    private Input(FileChannel file, ReadableByteChannel channel, ByteBuffer buffer) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Create an input that reads the given file by mapping it into memory one
+     * region at a time.
+     *
+     * @param file
+     *            The file channel.
+     * @return An input.
+     */
+    public static Input map(FileChannel file) {
+        return new Input(file, file, ByteBuffer.allocate(0));
+    }
+
+    /**
+     * Create an input that reads the given channel into a buffer.
+     *
+     * @param channel
+     *            The channel.
+     * @return An input.
+     */
+    public static Input read(ReadableByteChannel channel) {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER);
+        buffer.flip();
+        return new Input(null, channel, buffer);
+    }
+
+    /**
+     * Open the file with the given name, or if no such file exists, the class
+     * path resource with the given name, decompressing it if its name ends
+     * with <code>.gz</code>. A file that is not compressed is mapped into
+     * memory.
+     *
+     * @param resource
+     *            The file name or class path resource name.
+     * @return An input.
+     * @throws IOException
+     *             For any I/O error.
+     * @exception Danger
+     *                If neither the file nor the resource exist.
+     */
+    public static Input open(String resource) throws IOException {
+        boolean gzip = resource.toLowerCase().endsWith(".gz");
+        File file = new File(resource);
+        URL url = null;
+        if (!file.isFile()) {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            if (classLoader == null) {
+                classLoader = Input.class.getClassLoader();
+            }
+            url = classLoader.getResource(resource.startsWith("/") ? resource.substring(1) : resource);
+            if (url == null) {
+                throw new Danger(Addendum.class, RESOURCE_MISSING, resource);
+            }
+            if (url.getProtocol().equals("file")) {
+                file = new File(URLDecoder.decode(url.getPath(), "UTF-8"));
+            }
+        }
+        if (file.isFile()) {
+            FileInputStream in = new FileInputStream(file);
+            if (!gzip) {
+                return map(in.getChannel());
+            }
+            return read(Channels.newChannel(new GZIPInputStream(in, BUFFER)));
+        }
+        InputStream in = url.openStream();
+        if (gzip) {
+            in = new GZIPInputStream(in, BUFFER);
+        }
+        return read(Channels.newChannel(in));
+    }
+
+    /**
+     * Fill the buffer with the next region of the file or the next bytes of
+     * the channel.
+     *
+     * @return False if there are no more bytes to read.
+     * @throws IOException
+     *             For any I/O error.
+     */
+    private boolean fill() throws IOException {
+        if (file != null) {
+            long size = file.size();
+            if (mapped >= size) {
+                return false;
+            }
+            buffer = file.map(FileChannel.MapMode.READ_ONLY, mapped, Math.min(WINDOW, size - mapped));
+            mapped += buffer.limit();
+            return true;
+        }
+        buffer.clear();
+        int read;
+        do {
+            read = channel.read(buffer);
+        } while (read == 0);
+        buffer.flip();
+        return read != -1;
+    }
+
+    /**
+     * Read the next byte.
+     *
+     * @return The next byte or -1 at the end of the input.
+     * @throws IOException
+     *             For any I/O error.
+     */
+    public int read() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        position++;
+        return buffer.get() & 0xFF;
+    }
+
+    /**
+     * Skip forward to the given position. A memory mapped file is mapped from
+     * the given position, while a stream is read up to the given position.
+     *
+     * @param offset
+     *            The position of the next byte to read.
+     * @throws IOException
+     *             For any I/O error.
+     */
+    public void seek(long offset) throws IOException {
+        if (file != null) {
+            mapped = offset;
+            position = offset;
+            buffer = ByteBuffer.allocate(0);
+        } else {
+            while (position < offset && read() != -1) {
+            }
+        }
+    }
+
+    /**
+     * Get the number of bytes read, which is the position of the next byte to
+     * read.
+     *
+     * @return The number of bytes read.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Close the file or channel.
+     *
+     * @throws IOException
+     *             For any I/O error.
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+}
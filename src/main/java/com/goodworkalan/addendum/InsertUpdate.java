@@ -0,0 +1,134 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.Addendum.INSERT_VALUES;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import com.goodworkalan.addendum.dialect.Column;
+import com.goodworkalan.addendum.dialect.Dialect;
+import com.goodworkalan.addendum.dialect.Rows;
+
+/**
+ * A database update that inserts rows into a table with a single call to
+ * {@link Dialect#insert(Connection, String, List, Rows, int) Dialect.insert}, so
+ * that the rows are inserted in batches by a single prepared statement.
+ * 
+ * @author Alan Gutierrez
+ */
+class InsertUpdate extends DatabaseUpdate {
+    /** The table name. */
+    private final String table;
+
+    /** The columns in the insert statement. */
+    private final List<Column> columns;
+
+    /** The rows of column values in the insert statement. */
+    private final Rows rows;
+
+    /**
+     * Create an insert update that inserts the given rows of values for the
+     * given columns into the table with the given name.
+     * 
+     * @param table
+     *            The table name.
+     * @param columns
+     *            The columns in the insert statement.
+     * @param rows
+     *            The rows of column values in the insert statement.
+     */
+    public InsertUpdate(String table, List<Column> columns, Rows rows) {
+        super(INSERT_VALUES, table);
+        this.table = table;
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    /**
+     * Determine whether the given insert update inserts into the same table
+     * and the same columns of the same types as this insert update, so that
+     * the two can be merged.
+     * 
+     * @param next
+     *            The following insert update.
+     * @return True if the insert updates can be merged.
+     */
+    public boolean canMerge(InsertUpdate next) {
+        if (!table.equals(next.table) || columns.size() != next.columns.size()) {
+            return false;
+        }
+        for (int i = 0, stop = columns.size(); i < stop; i++) {
+            Column column = columns.get(i);
+            Column nextColumn = next.columns.get(i);
+            if (!column.getName().equals(nextColumn.getName()) || column.getColumnType() != nextColumn.getColumnType()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create an insert update that inserts the rows of this insert update
+     * followed by the rows of the given insert update into the same table and
+     * columns.
+     * 
+     * @param next
+     *            The following insert update.
+     * @return An insert update that inserts both sets of rows.
+     */
+    public InsertUpdate merge(InsertUpdate next) {
+        Rows merged = new Rows(columns);
+        merged.addAll(rows);
+        merged.addAll(next.rows);
+        return new InsertUpdate(table, columns, merged);
+    }
+
+    /**
+     * Get the name of the table into which rows are inserted.
+     * 
+     * @return The table name in a set.
+     */
+    @Override
+    public Set<String> getTableNames() {
+        return Collections.singleton(table);
+    }
+
+    /**
+     * Insert the rows using the given JDBC connection and the given SQL
+     * dialect with the default settings.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    @Override
+    public void execute(Connection connection, Dialect dialect) throws SQLException {
+        execute(connection, dialect, new Settings());
+    }
+
+    /**
+     * Insert the rows using the given JDBC connection and the given SQL
+     * dialect in batches of the insert batch size of the given settings.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @param settings
+     *            The settings of the amend.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    @Override
+    public void execute(Connection connection, Dialect dialect, Settings settings) throws SQLException {
+        if (rows.size() != 0) {
+            dialect.insert(connection, table, columns, rows, settings.getInsertBatchSize());
+        }
+    }
+}
@@ -2,16 +2,19 @@ package com.goodworkalan.addendum;
 
 import static com.goodworkalan.addendum.Addendum.INSERT_VALUES;
 
-import java.sql.Connection;
-import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.List;
 
-import com.goodworkalan.addendum.dialect.Dialect;
+import com.goodworkalan.addendum.dialect.Column;
+import com.goodworkalan.addendum.dialect.Rows;
 import com.goodworkalan.danger.Danger;
 
 /**
- * An update action that inserts a record into the database.
+ * An update action that inserts one or more records into the database. The
+ * type of each insert column is found in the table definition in the tracking
+ * schema, so that the values are bound with the setter for the type of the
+ * column.
  * 
  * @author Alan Gutierrez
  */
@@ -19,11 +22,14 @@ class Insertion implements SchemaUpdate {
     /** The table name. */
     private final String table;
 
-    /** The column names in the insert statement. */
-    private final List<String> columns;
+    /** The columns in the insert statement. */
+    private final List<Column> columns;
 
-    /** The column values in the insert statement. */
-    private final List<String> values;
+    /** The rows of column values in the insert statement. */
+    private final Rows rows;
+
+    /** The table definition at the time of the insert or null if unknown. */
+    private Entity entity;
 
     /**
      * Create an insertion update action that will insert into the table with
@@ -34,54 +40,69 @@ class Insertion implements SchemaUpdate {
      */
     public Insertion(String table) {
         this.table = table;
-        this.columns = new ArrayList<String>();
-        this.values = new ArrayList<String>();
+        this.columns = new ArrayList<Column>();
+        this.rows = new Rows(columns);
     }
 
     /**
-     * Set the insert statement columns.
+     * Set the insert statement columns. The type of each column is taken from
+     * the table definition in the tracking schema. Columns of tables that are
+     * not defined by an addendum are bound as strings, or according to the
+     * class of the given value.
      * 
      * @param cols
      *            The column names in the insert statement.
      */
     public void columns(String[] cols) {
-        for (String column : cols) {
-            columns.add(column);
+        for (String name : cols) {
+            Column column = entity == null ? null : entity.findColumn(name);
+            columns.add(new Column(name, column == null ? Types.OTHER : column.getColumnType()));
         }
     }
 
     /**
-     * Set the insert statement values.
+     * Add a row of values to the insert statement.
      * 
      * @param vals
      *            The column values in the insert statement.
      * @exception Addendum
      *                If the count of column values does not match the count of
-     *                names.
+     *                names or if a value cannot be converted to the type of its
+     *                column.
      */
-    public void values(String[] vals) {
+    public void values(Object[] vals) {
         if (vals.length != columns.size()) {
             throw new Danger(Addendum.class, INSERT_VALUES);
         }
-        for (String value : vals) {
-            values.add(value);
+        for (Object value : vals) {
+            rows.add(value);
         }
+        rows.endRow();
+    }
+
+    /**
+     * Get the rows of column values in the insert statement, to which values
+     * can be added one column at a time.
+     * 
+     * @return The rows.
+     */
+    public Rows getRows() {
+        return rows;
     }
 
     /**
-     * Insert the record described by this insertion statement into the database
-     * at the given connection with the given database dialect.
+     * Find the definition of the table in the given tracking schema and return
+     * an update that inserts the records described by this insertion
+     * statement into the database.
      * 
      * @param schema
      *            The tracking schema.
      */
-    public DatabaseUpdate execute(Schema database) {
-        return new DatabaseUpdate(INSERT_VALUES, table) {
-            public void execute(Connection connection, Dialect dialect)
-            throws SQLException {
-                dialect.insert(connection, table, columns, values);
-            }
-        };
+    public DatabaseUpdate execute(Schema schema) {
+        entity = schema.entities.get(table);
+        if (entity == null && schema.aliases.containsKey(table)) {
+            entity = schema.entities.get(schema.aliases.get(table));
+        }
+        return new InsertUpdate(table, columns, rows);
     }
-
 }
@@ -0,0 +1,82 @@
+package com.goodworkalan.addendum;
+
+/**
+ * A builder that specifies the load of the records of a comma separated or
+ * tab separated values file into a table.
+ * 
+ * @author Alan Gutierrez
+ */
+public class Load {
+    /** The addendum builder. */
+    private final Addendum addendum;
+
+    /** The update action that will load the records. */
+    private final Loading loading;
+
+    /**
+     * Create a load element that will specify the given loading.
+     * 
+     * @param addendum
+     *            The addendum builder.
+     * @param loading
+     *            The update action that will load the records.
+     */
+    Load(Addendum addendum, Loading loading) {
+        this.addendum = addendum;
+        this.loading = loading;
+    }
+
+    /**
+     * Set the names of the columns of the fields of each record. If no
+     * columns are given, the column names are read from the first record.
+     * 
+     * @param columns
+     *            The column names.
+     * @return This load element to continue specifying the load.
+     */
+    public Load columns(String... columns) {
+        for (String column : columns) {
+            loading.getColumns().add(column);
+        }
+        return this;
+    }
+
+    /**
+     * Skip the first record, which is a header, when the column names are
+     * given.
+     * 
+     * @return This load element to continue specifying the load.
+     */
+    public Load header() {
+        loading.setHeader(true);
+        return this;
+    }
+
+    /**
+     * Set the delimiter. By default, the delimiter is a tab if the resource
+     * name ends with <code>.tsv</code> or <code>.tab</code> and a comma
+     * otherwise.
+     * 
+     * @param delimiter
+     *            The delimiter.
+     * @return This load element to continue specifying the load.
+     */
+    public Load delimiter(char delimiter) {
+        loading.setDelimiter(delimiter);
+        return this;
+    }
+
+    /**
+     * Load the records from the file with the given name, or if no such file
+     * exists, from the class path resource with the given name. If the name
+     * ends with <code>.gz</code> the file is decompressed as it is read.
+     * 
+     * @param resource
+     *            The file name or class path resource name.
+     * @return The addendum builder.
+     */
+    public Addendum from(String resource) {
+        loading.setResource(resource);
+        return addendum;
+    }
+}
@@ -0,0 +1,174 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.Addendum.CANNOT_LOAD;
+import static com.goodworkalan.addendum.Addendum.LOAD_VALUES;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.LoggerFactory;
+
+import com.goodworkalan.addendum.dialect.Column;
+import com.goodworkalan.addendum.dialect.Dialect;
+import com.goodworkalan.addendum.dialect.Rows;
+import com.goodworkalan.addendum.dialect.Tables;
+import com.goodworkalan.danger.Danger;
+import com.goodworkalan.notice.Notice;
+import com.goodworkalan.notice.NoticeFactory;
+
+/**
+ * A database update that streams the records of a delimited text file into a
+ * table. The records are converted to the types of the columns of the table
+ * as they are read and inserted a chunk at a time, so that only a single
+ * chunk of records is held in memory.
+ *
+ * @author Alan Gutierrez
+ */
+class LoadUpdate extends DatabaseUpdate {
+    /** The notice factory specifically for the <code>LoadUpdate</code>. */
+    private final static NoticeFactory NOTICES = new NoticeFactory(LoggerFactory.getLogger(LoadUpdate.class));
+
+    /** The number of records inserted by each call to the dialect. */
+    private final static int CHUNK_SIZE = 1000;
+
+    /** The load settings. */
+    private final Loading loading;
+
+    /** A copy of the table definition or null if the table is not tracked. */
+    private final Entity entity;
+
+    /**
+     * Create a load update.
+     *
+     * @param loading
+     *            The load settings.
+     * @param entity
+     *            A copy of the table definition or null if the table is not
+     *            tracked.
+     */
+    public LoadUpdate(Loading loading, Entity entity) {
+        super(CANNOT_LOAD, loading.getTable());
+        this.loading = loading;
+        this.entity = entity;
+    }
+
+    /**
+     * Get the name of the table into which records are loaded.
+     *
+     * @return The table name in a set.
+     */
+    @Override
+    public Set<String> getTableNames() {
+        return Collections.singleton(loading.getTable());
+    }
+
+    /**
+     * Read the records of the resource and insert them into the table a
+     * chunk at a time with the default settings.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    @Override
+    public void execute(Connection connection, Dialect dialect) throws SQLException {
+        execute(connection, dialect, new Settings());
+    }
+
+    /**
+     * Read the records of the resource and insert them into the table a
+     * chunk at a time, in batches of the insert batch size of the given
+     * settings.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @param settings
+     *            The settings of the amend.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    @Override
+    public void execute(Connection connection, Dialect dialect, Settings settings) throws SQLException {
+        Notice info = NOTICES.info("load");
+        long start = System.currentTimeMillis();
+        int count = 0;
+        Delimited delimited = null;
+        try {
+            info.put("table", loading.getTable()).put("resource", loading.getResource());
+            delimited = new Delimited(Input.open(loading.getResource()), loading.getDelimiter());
+            List<String> names = new ArrayList<String>(loading.getColumns());
+            if (loading.hasHeader()) {
+                List<String> header = new ArrayList<String>();
+                while (delimited.next()) {
+                    header.add(delimited.getString().trim());
+                    if (delimited.isEndOfRecord()) {
+                        break;
+                    }
+                }
+                if (names.isEmpty()) {
+                    names = header;
+                }
+            }
+            List<Column> columns = new ArrayList<Column>();
+            int[] types = new int[names.size()];
+            for (int i = 0; i < types.length; i++) {
+                Column column = entity == null ? null : entity.findColumn(names.get(i));
+                types[i] = column == null ? Types.OTHER : column.getColumnType();
+                columns.add(new Column(names.get(i), types[i]));
+            }
+            Rows rows = new Rows(columns);
+            int index = 0;
+            while (delimited.next()) {
+                if (index == types.length) {
+                    throw new Danger(Addendum.class, LOAD_VALUES, delimited.getRecordLine(), loading.getResource());
+                }
+                if (delimited.isNull()) {
+                    rows.add((Object) null);
+                } else if (Tables.isInteger(types[index]) && delimited.isInteger()) {
+                    rows.add(delimited.getLong());
+                } else {
+                    rows.add((Object) delimited.getString());
+                }
+                index++;
+                if (delimited.isEndOfRecord()) {
+                    if (index != types.length) {
+                        throw new Danger(Addendum.class, LOAD_VALUES, delimited.getRecordLine(), loading.getResource());
+                    }
+                    rows.endRow();
+                    index = 0;
+                    count++;
+                    if (rows.size() == CHUNK_SIZE) {
+                        dialect.insert(connection, loading.getTable(), columns, rows, settings.getInsertBatchSize());
+                        rows.clear();
+                    }
+                }
+            }
+            if (rows.size() != 0) {
+                dialect.insert(connection, loading.getTable(), columns, rows, settings.getInsertBatchSize());
+            }
+        } catch (IOException e) {
+            throw new Danger(Addendum.class, CANNOT_LOAD, e, loading.getTable());
+        } finally {
+            if (delimited != null) {
+                info.put("bytes", delimited.getBytes());
+                try {
+                    delimited.close();
+                } catch (IOException e) {
+                    // Nothing more can be done.
+                }
+            }
+            info.put("rows", count).put("duration", System.currentTimeMillis() - start).send();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.goodworkalan.addendum;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An update action that loads the records of a delimited text file into a
+ * table. The settings of the load are specified by a {@link Load} builder
+ * after the loading is added to the addendum, so they are read by the
+ * database update when it is executed.
+ * 
+ * @author Alan Gutierrez
+ */
+class Loading implements SchemaUpdate {
+    /** The table name. */
+    private final String table;
+
+    /** The column names or an empty list to read them from the header. */
+    private final List<String> columns = new ArrayList<String>();
+
+    /** Whether the first record is a header. */
+    private boolean header;
+
+    /** The delimiter or zero to choose it by the resource name. */
+    private char delimiter;
+
+    /** The file name or class path resource name. */
+    private String resource;
+
+    /**
+     * Create a loading that will load records into the table with the given
+     * table name.
+     * 
+     * @param table
+     *            The table name.
+     */
+    public Loading(String table) {
+        this.table = table;
+    }
+
+    /**
+     * Get the table name.
+     * 
+     * @return The table name.
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Get the column names or an empty list if the column names are read from
+     * the header.
+     * 
+     * @return The column names.
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Determine whether the first record is a header, which is always the case
+     * if no column names are given.
+     * 
+     * @return True if the first record is a header.
+     */
+    public boolean hasHeader() {
+        return header || columns.isEmpty();
+    }
+
+    /**
+     * Set whether the first record is a header.
+     * 
+     * @param header
+     *            Whether the first record is a header.
+     */
+    public void setHeader(boolean header) {
+        this.header = header;
+    }
+
+    /**
+     * Get the delimiter, which is a tab if the resource name ends with
+     * <code>.tsv</code> or <code>.tab</code>, ignoring a <code>.gz</code>
+     * suffix, and a comma otherwise, unless a delimiter was given.
+     * 
+     * @return The delimiter.
+     */
+    public char getDelimiter() {
+        if (delimiter != 0) {
+            return delimiter;
+        }
+        String name = resource.toLowerCase();
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        return name.endsWith(".tsv") || name.endsWith(".tab") ? '\t' : ',';
+    }
+
+    /**
+     * Set the delimiter.
+     * 
+     * @param delimiter
+     *            The delimiter.
+     */
+    public void setDelimiter(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Get the file name or class path resource name.
+     * 
+     * @return The resource name.
+     */
+    public String getResource() {
+        return resource;
+    }
+
+    /**
+     * Set the file name or class path resource name.
+     * 
+     * @param resource
+     *            The resource name.
+     */
+    public void setResource(String resource) {
+        this.resource = resource;
+    }
+
+    /**
+     * Return a database update that loads the records into the table, using a
+     * copy of the table definition in the given tracking schema to determine
+     * the types of the columns.
+     * 
+     * @param schema
+     *            The tracking schema.
+     */
+    public DatabaseUpdate execute(Schema schema) {
+        Entity entity = schema.entities.get(table);
+        if (entity == null && schema.aliases.containsKey(table)) {
+            entity = schema.entities.get(schema.aliases.get(table));
+        }
+        return new LoadUpdate(this, entity == null ? null : new Entity(entity));
+    }
+}
@@ -0,0 +1,239 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.Addendum.CANNOT_ALTER_TABLE;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.goodworkalan.addendum.dialect.Column;
+import com.goodworkalan.addendum.dialect.ColumnChange;
+import com.goodworkalan.addendum.dialect.Dialect;
+import com.goodworkalan.addendum.dialect.Tables;
+
+/**
+ * A database update that applies changes to the columns of a table without
+ * blocking writes to the table for the duration of the change. A shadow table
+ * is created with the altered definition of the table, triggers are created
+ * to apply writes to the table to the shadow table, the rows of the table are
+ * copied into the shadow table in ranges of the primary key, and then the
+ * shadow table is swapped with the table by renaming the two tables.
+ * <p>
+ * Tables without a single column primary key cannot be copied in ranges, and
+ * dialects that cannot create the triggers cannot keep the shadow table in
+ * sync, so in either case the table is altered in place.
+ *
+ * @author Alan Gutierrez
+ */
+class OnlineAlteration extends DatabaseUpdate {
+    /** The table name. */
+    private final String tableName;
+
+    /** The column changes. */
+    private final List<ColumnChange> changes;
+
+    /** A copy of the table definition after the column changes. */
+    private final Entity entity;
+
+    /** The number of rows copied by each statement. */
+    private final int batchSize;
+
+    /**
+     * Create an online alteration that applies the given column changes to
+     * the table with the given name, producing the given table definition.
+     *
+     * @param tableName
+     *            The table name.
+     * @param changes
+     *            The column changes.
+     * @param entity
+     *            A copy of the table definition after the column changes.
+     * @param batchSize
+     *            The number of rows copied by each statement.
+     */
+    public OnlineAlteration(String tableName, List<ColumnChange> changes, Entity entity, int batchSize) {
+        super(CANNOT_ALTER_TABLE, tableName);
+        this.tableName = tableName;
+        this.changes = changes;
+        this.entity = entity;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Create an online alteration that applies the given single column
+     * change to the table with the given name, producing the given table
+     * definition.
+     *
+     * @param tableName
+     *            The table name.
+     * @param change
+     *            The column change.
+     * @param entity
+     *            A copy of the table definition after the column change.
+     * @param batchSize
+     *            The number of rows copied by each statement.
+     */
+    public OnlineAlteration(String tableName, ColumnChange change, Entity entity, int batchSize) {
+        this(tableName, Collections.singletonList(change), entity, batchSize);
+    }
+
+    /**
+     * Get the table name.
+     *
+     * @return The table name.
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Create an online alteration that applies the column changes of this
+     * online alteration followed by the column changes of the given online
+     * alteration of the same table, so that the table is copied once.
+     *
+     * @param next
+     *            The following online alteration of the same table.
+     * @return An online alteration that applies both sets of changes.
+     */
+    public OnlineAlteration merge(OnlineAlteration next) {
+        List<ColumnChange> merged = new ArrayList<ColumnChange>(changes);
+        merged.addAll(next.changes);
+        return new OnlineAlteration(tableName, merged, next.entity, next.batchSize);
+    }
+
+    /**
+     * Get the name of the table whose columns are changed.
+     *
+     * @return The table name in a set.
+     */
+    @Override
+    public Set<String> getTableNames() {
+        return Collections.singleton(tableName);
+    }
+
+    /**
+     * An online alteration is a data definition.
+     *
+     * @return True.
+     */
+    @Override
+    public boolean isDataDefinition() {
+        return true;
+    }
+
+    /**
+     * Map the name of each column of the altered table to the name of the
+     * column in the existing table from which it is copied, or to null if the
+     * column is added by the changes, by following renames backward through
+     * the column changes.
+     *
+     * @return A map of altered column names to existing column names.
+     */
+    Map<String, String> getSources() {
+        Map<String, String> sources = new LinkedHashMap<String, String>();
+        for (String columnName : entity.columns.keySet()) {
+            String source = columnName;
+            for (int i = changes.size() - 1; source != null && i >= 0; i--) {
+                ColumnChange change = changes.get(i);
+                switch (change.getType()) {
+                case ADD:
+                    if (change.getName().equals(source)) {
+                        source = null;
+                    }
+                    break;
+                case ALTER:
+                    if (change.getColumn().getName().equals(source)) {
+                        source = change.getName();
+                    }
+                    break;
+                case DROP:
+                    break;
+                }
+            }
+            sources.put(columnName, source);
+        }
+        return sources;
+    }
+
+    /**
+     * Apply the column changes with the default settings.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    @Override
+    public void execute(Connection connection, Dialect dialect) throws SQLException {
+        execute(connection, dialect, new Settings());
+    }
+
+    /**
+     * Apply the column changes using a shadow table, or in place if the
+     * dialect cannot capture changes or the table does not have a single
+     * column primary key. The swap of the shadow table with the table is the
+     * only statement during which the table is unavailable. If the change
+     * capture cannot be created, the shadow table is dropped.
+     * <p>
+     * An online alteration that did not finish is finished if the shadow
+     * table was copied, otherwise the shadow table is dropped and the copy
+     * starts over, since rows may have been written to the table after the
+     * change capture stopped.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @param settings
+     *            The settings of the amend.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    @Override
+    public void execute(Connection connection, Dialect dialect, Settings settings) throws SQLException {
+        if (entity.primaryKey.size() != 1 || !dialect.canCapture()) {
+            dialect.alterTable(connection, tableName, changes, settings.getBackfillChunkSize());
+            return;
+        }
+        String keyName = entity.primaryKey.get(0);
+        String shadowName = tableName + "_shadow";
+        String oldName = tableName + "_old";
+        if (Tables.exists(connection, oldName)) {
+            if (!Tables.exists(connection, tableName)) {
+                dialect.renameTable(connection, shadowName, tableName);
+            }
+            dialect.dropCapture(connection, oldName, tableName);
+            dialect.dropTable(connection, oldName);
+            return;
+        }
+        if (Tables.exists(connection, shadowName)) {
+            dialect.dropCapture(connection, tableName, tableName);
+            dialect.dropTable(connection, shadowName);
+        }
+        Map<String, String> sources = getSources();
+        Collection<Column> columns = entity.columns.values();
+        dialect.createTable(connection, shadowName, columns, entity.primaryKey);
+        boolean captured = false;
+        try {
+            dialect.createCapture(connection, tableName, shadowName, keyName, columns, sources);
+            captured = true;
+        } finally {
+            if (!captured) {
+                dialect.dropCapture(connection, tableName, tableName);
+                dialect.dropTable(connection, shadowName);
+            }
+        }
+        dialect.copyRows(connection, tableName, shadowName, keyName, columns, sources, batchSize);
+        dialect.swapTable(connection, tableName, shadowName, oldName);
+        dialect.dropCapture(connection, oldName, tableName);
+        dialect.dropTable(connection, oldName);
+    }
+}
@@ -0,0 +1,302 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.Addendum.CANNOT_ADD_COLUMN;
+import static com.goodworkalan.addendum.Addendum.CANNOT_ALTER_COLUMN;
+import static com.goodworkalan.addendum.Addendum.CANNOT_DROP_COLUMN;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.goodworkalan.addendum.dialect.Column;
+import com.goodworkalan.addendum.dialect.ColumnChange;
+
+/**
+ * Folds chains of updates in a list of pending addenda into their net effect,
+ * so that a database that is many addenda behind does not replay steps that
+ * are undone by later steps. A column that is added and later dropped is
+ * never created, a table renamed from A to B to C is renamed once from A to
+ * C, and a column altered many times is altered once.
+ * <p>
+ * A fold replaces an earlier update and a later update with a single update
+ * at the position of the later update. Updates are only folded if no update
+ * between them refers to the same table, and never across an update whose
+ * tables are unknown, such as an {@link Execution} that runs application
+ * code. The optimized addenda have the same number of addenda as the pending
+ * addenda, so that each addendum is still recorded in the addenda table.
+ * <p>
+ * When a fold spans addenda, the addenda from the addendum of the earlier
+ * update up to the addendum of the later update are joined and must be
+ * committed together, since the database state between them no longer
+ * matches the state described by the addenda.
+ *
+ * @author Alan Gutierrez
+ */
+class Optimizer {
+    /** The updates of all of the pending addenda in order, null if removed. */
+    private final List<DatabaseUpdate> updates = new ArrayList<DatabaseUpdate>();
+
+    /** The index of the pending addendum of each update. */
+    private final List<Integer> owners = new ArrayList<Integer>();
+
+    /** For each pending addendum, whether it must commit with the next. */
+    private final boolean[] joined;
+
+    /** The number of pending addenda. */
+    private final int count;
+
+    /** Whether updates may be folded across addenda. */
+    private final boolean across;
+
+    /**
+     * Create an optimizer for the given pending addenda.
+     *
+     * @param pending
+     *            The updates of each pending addendum.
+     * @param across
+     *            Whether updates may be folded across addenda, in which case
+     *            the caller must commit joined addenda together.
+     */
+    public Optimizer(List<List<DatabaseUpdate>> pending, boolean across) {
+        this.count = pending.size();
+        this.across = across;
+        this.joined = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            for (DatabaseUpdate update : pending.get(i)) {
+                updates.add(update);
+                owners.add(i);
+            }
+        }
+        optimize();
+    }
+
+    /**
+     * Get the optimized updates of each pending addendum. The list contains
+     * an entry for each pending addendum, even if all of the updates of the
+     * addendum were folded into later updates.
+     *
+     * @return The optimized updates of each pending addendum.
+     */
+    public List<List<DatabaseUpdate>> getAddenda() {
+        List<List<DatabaseUpdate>> addenda = new ArrayList<List<DatabaseUpdate>>();
+        for (int i = 0; i < count; i++) {
+            addenda.add(new ArrayList<DatabaseUpdate>());
+        }
+        for (int i = 0, stop = updates.size(); i < stop; i++) {
+            if (updates.get(i) != null) {
+                addenda.get(owners.get(i)).add(updates.get(i));
+            }
+        }
+        return addenda;
+    }
+
+    /**
+     * Determine whether the pending addendum at the given index must be
+     * committed together with the pending addendum that follows it.
+     *
+     * @param index
+     *            The index of the pending addendum.
+     * @return True if the addendum is joined to the next addendum.
+     */
+    public boolean isJoined(int index) {
+        return joined[index];
+    }
+
+    /**
+     * Fold updates until no more updates can be folded.
+     */
+    private void optimize() {
+        boolean folded = true;
+        while (folded) {
+            folded = false;
+            for (int i = 0, stop = updates.size(); i < stop; i++) {
+                DatabaseUpdate update = updates.get(i);
+                if (update instanceof TableRenameUpdate) {
+                    folded |= foldRename(i, (TableRenameUpdate) update);
+                } else if (update instanceof ColumnUpdate) {
+                    folded |= foldColumn(i, (ColumnUpdate) update);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the next update after the given index that refers to any of the
+     * given table names, returning -1 if an update with unknown tables is
+     * encountered first, or if the update would be in another addendum and
+     * folding across addenda is disabled.
+     *
+     * @param i
+     *            The index of the earlier update.
+     * @param tableNames
+     *            The table names.
+     * @return The index of the next update that refers to the tables or -1.
+     */
+    private int next(int i, Set<String> tableNames) {
+        for (int j = i + 1, stop = updates.size(); j < stop; j++) {
+            DatabaseUpdate update = updates.get(j);
+            if (update != null) {
+                if (!across && !owners.get(j).equals(owners.get(i))) {
+                    return -1;
+                }
+                Set<String> names = update.getTableNames();
+                if (names == null) {
+                    return -1;
+                }
+                if (!Collections.disjoint(names, tableNames)) {
+                    return j;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Replace the update at the earlier index and the update at the later
+     * index with the given update at the later index, joining the addenda
+     * between them. If the given update is null, both updates are removed.
+     *
+     * @param i
+     *            The index of the earlier update.
+     * @param j
+     *            The index of the later update.
+     * @param update
+     *            The folded update or null.
+     */
+    private void fold(int i, int j, DatabaseUpdate update) {
+        updates.set(i, null);
+        updates.set(j, update);
+        for (int k = owners.get(i), stop = owners.get(j); k < stop; k++) {
+            joined[k] = true;
+        }
+    }
+
+    /**
+     * Fold the table rename at the given index with a later rename of the
+     * renamed table.
+     *
+     * @param i
+     *            The index of the rename.
+     * @param rename
+     *            The rename.
+     * @return True if the rename was folded.
+     */
+    private boolean foldRename(int i, TableRenameUpdate rename) {
+        Set<String> tableNames = new HashSet<String>();
+        tableNames.add(rename.getFrom());
+        tableNames.add(rename.getTo());
+        int j = next(i, tableNames);
+        if (j != -1 && updates.get(j) instanceof TableRenameUpdate) {
+            TableRenameUpdate next = (TableRenameUpdate) updates.get(j);
+            if (next.getFrom().equals(rename.getTo()) && !next.getTo().equals(rename.getTo())) {
+                if (next.getTo().equals(rename.getFrom())) {
+                    fold(i, j, null);
+                } else {
+                    Set<String> between = new HashSet<String>();
+                    between.add(next.getTo());
+                    if (next(i, between) == j) {
+                        fold(i, j, new TableRenameUpdate(rename.getFrom(), next.getTo()));
+                    } else {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fold the column change at the given index with a later change to the
+     * same column of the same table. Changes to other columns of the table
+     * are skipped, but any other reference to the table stops the search. An
+     * added column is only folded with a later alteration that keeps its
+     * default value and nullability.
+     *
+     * @param i
+     *            The index of the column change.
+     * @param update
+     *            The column change.
+     * @return True if the column change was folded.
+     */
+    private boolean foldColumn(int i, ColumnUpdate update) {
+        ColumnChange change = update.getChange();
+        if (change.getType() == ColumnChange.Type.DROP) {
+            return false;
+        }
+        String tableName = update.getTableName();
+        String columnName = change.getColumn().getName();
+        Set<String> tableNames = Collections.singleton(tableName);
+        int j = i;
+        for (;;) {
+            j = next(j, tableNames);
+            if (j == -1 || !(updates.get(j) instanceof ColumnUpdate)) {
+                return false;
+            }
+            ColumnChange next = ((ColumnUpdate) updates.get(j)).getChange();
+            if (next.getName().equals(columnName)) {
+                break;
+            }
+            if (touches(next, columnName) || touches(next, change.getName())) {
+                return false;
+            }
+        }
+        ColumnChange next = ((ColumnUpdate) updates.get(j)).getChange();
+        if (change.getType() == ColumnChange.Type.ADD) {
+            if (next.getType() == ColumnChange.Type.DROP) {
+                fold(i, j, null);
+            } else if (next.getType() == ColumnChange.Type.ALTER && isPreserving(change.getColumn(), next.getColumn())) {
+                Column column = next.getColumn();
+                fold(i, j, new ColumnUpdate(tableName, ColumnChange.add(column), CANNOT_ADD_COLUMN, column.getName(), tableName));
+            } else {
+                return false;
+            }
+        } else {
+            String oldName = change.getName();
+            if (next.getType() == ColumnChange.Type.DROP) {
+                fold(i, j, new ColumnUpdate(tableName, ColumnChange.drop(oldName), CANNOT_DROP_COLUMN, oldName, tableName));
+            } else if (next.getType() == ColumnChange.Type.ALTER) {
+                fold(i, j, new ColumnUpdate(tableName, ColumnChange.alter(oldName, next.getColumn()), CANNOT_ALTER_COLUMN, tableName, oldName));
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determine whether a column added as the given column and later altered
+     * to the given column can be added as the altered column instead. The
+     * rows that exist when the column is added are given the default value of
+     * the added column, so the alteration must keep the default value and
+     * the nullability of the added column.
+     *
+     * @param added
+     *            The added column.
+     * @param altered
+     *            The altered column.
+     * @return True if the alteration keeps the default value and nullability.
+     */
+    private static boolean isPreserving(Column added, Column altered) {
+        Object value = added.getDefaultValue();
+        return added.isNotNull() == altered.isNotNull()
+            && (value == null ? altered.getDefaultValue() == null : value.equals(altered.getDefaultValue()));
+    }
+
+    /**
+     * Determine whether the given column change refers to the given column
+     * name, either as the existing column name or as the new column name.
+     *
+     * @param change
+     *            The column change.
+     * @param columnName
+     *            The column name.
+     * @return True if the change refers to the column name.
+     */
+    private static boolean touches(ColumnChange change, String columnName) {
+        return change.getName().equals(columnName)
+            || (change.getColumn() != null && change.getColumn().getName().equals(columnName));
+    }
+}
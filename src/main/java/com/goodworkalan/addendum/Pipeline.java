@@ -0,0 +1,131 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.Addendum.PIPELINE_INTERRUPTED;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import com.goodworkalan.danger.Danger;
+
+/**
+ * An iterator over the updates of addenda that creates the addenda in a
+ * thread of its own, ahead of the thread that applies them, so that the
+ * creation of later addenda overlaps with the application of earlier ones.
+ * <p>
+ * At most a fixed number of created addenda wait in a bounded queue for the
+ * applying thread. The addenda are returned in the order they were created,
+ * and a failure to create an addendum is raised by the applying thread when
+ * it reaches that addendum, after every earlier addendum has been returned.
+ *
+ * @author Alan Gutierrez
+ */
+class Pipeline implements Iterator<List<DatabaseUpdate>> {
+    /** The marker for the end of the addenda. */
+    private final static Object END = new Object();
+
+    /** The queue of created addenda. */
+    private final BlockingQueue<Object> queue;
+
+    /** The thread that creates the addenda. */
+    private final Thread thread;
+
+    /** The next item taken from the queue or null. */
+    private Object next;
+
+    /**
+     * Create a pipeline that creates the addenda of the given iterator ahead
+     * of the thread that applies them, with at most the given number of
+     * created addenda waiting.
+     *
+     * @param source
+     *            The iterator that creates the addenda.
+     * @param depth
+     *            The number of created addenda that can wait.
+     */
+    public Pipeline(final Iterator<List<DatabaseUpdate>> source, int depth) {
+        this.queue = new ArrayBlockingQueue<Object>(depth);
+        this.thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Object item;
+                    try {
+                        while (source.hasNext()) {
+                            queue.put(source.next());
+                        }
+                        item = END;
+                    } catch (RuntimeException e) {
+                        item = e;
+                    } catch (Error e) {
+                        item = e;
+                    }
+                    queue.put(item);
+                } catch (InterruptedException e) {
+                    // The applying thread has stopped taking addenda.
+                }
+            }
+        }, "Addenda Pipeline");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Determine whether there is another addendum, waiting for it to be
+     * created, and raise the failure to create it if it could not be
+     * created.
+     *
+     * @return True if there is another addendum.
+     */
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new Danger(Addendum.class, PIPELINE_INTERRUPTED, e);
+            }
+        }
+        if (next instanceof RuntimeException) {
+            throw (RuntimeException) next;
+        }
+        if (next instanceof Error) {
+            throw (Error) next;
+        }
+        return next != END;
+    }
+
+    /**
+     * Get the updates of the next addendum.
+     *
+     * @return The updates of the next addendum.
+     */
+    @SuppressWarnings("unchecked")
+    public List<DatabaseUpdate> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<DatabaseUpdate> updates = (List<DatabaseUpdate>) next;
+        next = null;
+        return updates;
+    }
+
+    /**
+     * Addenda cannot be removed.
+     *
+     * @exception UnsupportedOperationException
+     *                Always.
+     */
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Stop creating addenda, discarding any addenda that have been created
+     * and not returned.
+     */
+    public void close() {
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,1216 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.Addendum.AMEND_INTERRUPTED;
+import static com.goodworkalan.addendum.Addendum.CANNOT_CREATE_TABLE;
+import static com.goodworkalan.addendum.Addendum.CANNOT_EXECUTE_BATCH;
+import static com.goodworkalan.addendum.Addendum.DEADLINE_EXCEEDED;
+import static com.goodworkalan.addendum.Addendum.DEFINITIONS_CHANGED;
+import static com.goodworkalan.addendum.Addendum.LEASE_LOST;
+import static com.goodworkalan.addendum.Addendum.SNAPSHOT_BEHIND;
+import static com.goodworkalan.addendum.Addendum.SQL_ADDENDA_COUNT;
+import static com.goodworkalan.addendum.Addendum.SQL_ADDENDUM;
+import static com.goodworkalan.addendum.Addendum.SQL_COMMIT;
+import static com.goodworkalan.addendum.Addendum.SQL_CREATE_ADDENDA;
+import static com.goodworkalan.addendum.Addendum.SQL_GET_DIALECT;
+import static com.goodworkalan.addendum.Addendum.SQL_LEASE;
+import static com.goodworkalan.addendum.Addendum.SQL_RELEASE;
+import static com.goodworkalan.addendum.Addendum.SQL_STAMP;
+import static com.goodworkalan.addendum.Addendum.SQL_TIMING;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import com.goodworkalan.addendum.connector.Connector;
+import com.goodworkalan.addendum.dialect.Dialect;
+import com.goodworkalan.addendum.dialect.Stamp;
+import com.goodworkalan.addendum.dialect.Timing;
+import com.goodworkalan.danger.Danger;
+
+/**
+ * An immutable migration plan compiled from a collection of {@link Addenda}
+ * that can amend any number of databases, one after another or at the same
+ * time from many threads.
+ * <p>
+ * The updates of each addendum, the fingerprint, the tables created when a
+ * fresh database is provisioned and the settings of the addenda are copied
+ * when the plan is compiled, so that addenda added to the collection
+ * afterward do not change the plan. The statements of the updates that only
+ * issue DDL are rendered by each dialect the first time the plan amends a
+ * database of that dialect, and the rendered statements are executed for
+ * every later database of that dialect. Updates that read the database or
+ * run application code are executed as they are for every database.
+ * <p>
+ * A plan compiled with definitions of addenda creates the addenda of the
+ * definitions as it applies them, and releases them once they are applied.
+ * The addenda can be created in a thread of their own, ahead of the addendum
+ * being applied, so that creating addenda overlaps with applying them.
+ *
+ * @author Alan Gutierrez
+ */
+public class Plan {
+    /** The initial wait in milliseconds for the migration lease. */
+    private final static long MINIMUM_BACKOFF = 50L;
+
+    /** The maximum wait in milliseconds for the migration lease. */
+    private final static long MAXIMUM_BACKOFF = 2000L;
+
+    /**
+     * The migrations without a deadline in progress in this JVM keyed by
+     * connector and fingerprint.
+     */
+    private final static ConcurrentMap<Object, FutureTask<Amendment>> FLIGHTS = new ConcurrentHashMap<Object, FutureTask<Amendment>>();
+
+    /** The updates of each addendum. */
+    private final List<List<DatabaseUpdate>> scripts;
+
+    /** The updates of each addendum with column updates coalesced. */
+    private final List<List<DatabaseUpdate>> coalesced;
+
+    /**
+     * The updates rendered by dialect class, with the provisioning updates
+     * first followed by the coalesced updates of each addendum.
+     */
+    private final Map<Class<?>, List<List<DatabaseUpdate>>> rendered = new ConcurrentHashMap<Class<?>, List<List<DatabaseUpdate>>>();
+
+    /** The definitions of the addenda after the compiled addenda or null. */
+    private final Iterable<? extends Definition> definitions;
+
+    /** The tracking schema as it is after the compiled addenda or null. */
+    private final Schema origin;
+
+    /** The number of addenda. */
+    private final int count;
+
+    /**
+     * The number of addenda required to start the application, which is the
+     * number of addenda up to the last addendum that is not deferrable.
+     */
+    private final int required;
+
+    /** The fingerprint of the addenda. */
+    private final String fingerprint;
+
+    /** The number of leading addenda replaced by provisioning. */
+    private final int provisionCount;
+
+    /** The updates that create the tables of a fresh database. */
+    private final List<DatabaseUpdate> provisioning;
+
+    /** The numbers of addenda to skip. */
+    private final int skip;
+
+    /** The number of addenda described by a schema snapshot. */
+    private final int base;
+
+    /** The duration of the migration lease in milliseconds. */
+    private final long leaseDuration;
+
+    /** Whether to apply each addendum in a single transaction. */
+    private final boolean transactional;
+
+    /** Whether to fold redundant updates in the pending addenda. */
+    private final boolean optimize;
+
+    /** The number of rows initialized by each statement of a backfill. */
+    private final int backfillChunkSize;
+
+    /** The number of rows inserted by each batch. */
+    private final int insertBatchSize;
+
+    /** The number of independent updates of an addendum applied at once. */
+    private final int parallelism;
+
+    /** Whether to create the tables of a fresh database directly. */
+    private final boolean provision;
+
+    /** The number of addenda created ahead of the addendum being applied. */
+    private final int pipelineDepth;
+
+    /** Whether to record the timing history of each database update. */
+    private final boolean history;
+
+    /** A service loader for the Dialect service. */
+    private final Iterable<Dialect> dialects;
+
+    /**
+     * The longest recorded duration in milliseconds of each addendum by index,
+     * used to estimate whether an addendum will finish before a deadline.
+     */
+    private final Map<Integer, Long> estimates = new ConcurrentHashMap<Integer, Long>();
+
+    /**
+     * Compile a plan from the given collection of addenda followed by the
+     * addenda defined by the given definitions.
+     *
+     * @param addenda
+     *            The addenda.
+     * @param definitions
+     *            The definitions of the addenda after the addenda of the
+     *            collection or null.
+     */
+    Plan(Addenda addenda, Iterable<? extends Definition> definitions) {
+        List<List<DatabaseUpdate>> scripts = new ArrayList<List<DatabaseUpdate>>();
+        List<List<DatabaseUpdate>> coalesced = new ArrayList<List<DatabaseUpdate>>();
+        for (List<DatabaseUpdate> updates : addenda.scripts) {
+            scripts.add(Collections.unmodifiableList(new ArrayList<DatabaseUpdate>(updates)));
+            coalesced.add(Collections.unmodifiableList(TableAlteration.coalesce(updates)));
+        }
+        this.scripts = Collections.unmodifiableList(scripts);
+        this.coalesced = Collections.unmodifiableList(coalesced);
+        this.definitions = definitions;
+        int required = 0;
+        for (int i = 0, stop = scripts.size(); i < stop; i++) {
+            if (!Addenda.isDeferred(scripts.get(i))) {
+                required = i + 1;
+            }
+        }
+        if (definitions == null) {
+            this.origin = null;
+            this.count = scripts.size();
+            this.fingerprint = addenda.getFingerprint();
+        } else {
+            this.origin = new Schema(addenda.schema);
+            Schema schema = new Schema(origin);
+            byte[] chain = addenda.getChain();
+            int count = scripts.size();
+            for (Definition definition : definitions) {
+                List<DatabaseUpdate> updates = new ArrayList<DatabaseUpdate>();
+                new Addendum(new Patch(schema, updates)).apply(definition);
+                chain = Addenda.link(chain, updates);
+                count++;
+                if (!Addenda.isDeferred(updates)) {
+                    required = count;
+                }
+            }
+            this.count = count;
+            this.fingerprint = Addenda.toHex(chain);
+        }
+        this.required = required;
+        this.skip = addenda.skip;
+        this.base = addenda.base;
+        this.leaseDuration = addenda.leaseDuration;
+        this.transactional = addenda.transactional;
+        this.optimize = addenda.optimize && definitions == null;
+        this.backfillChunkSize = addenda.backfillChunkSize;
+        this.insertBatchSize = addenda.insertBatchSize;
+        this.parallelism = addenda.parallelism;
+        this.provision = addenda.provision && definitions == null;
+        this.pipelineDepth = addenda.pipelineDepth;
+        this.history = addenda.history;
+        this.dialects = addenda.dialects;
+        int count = 0;
+        Map<String, Entity> entities = null;
+        if (provision) {
+            while (count < scripts.size() && Addenda.isDataDefinition(scripts.get(count))) {
+                count++;
+            }
+            if (count == scripts.size()) {
+                entities = addenda.getDefinitions();
+            } else if (count == addenda.definitionsAt) {
+                entities = addenda.definitions;
+            }
+        }
+        List<DatabaseUpdate> provisioning = new ArrayList<DatabaseUpdate>();
+        if (entities == null) {
+            count = 0;
+        } else {
+            for (Map.Entry<String, Entity> entry : entities.entrySet()) {
+                final Entity entity = entry.getValue();
+                provisioning.add(new DatabaseUpdate(CANNOT_CREATE_TABLE, entry.getKey(), entity.tableName) {
+                    public void execute(Connection connection, Dialect dialect) throws SQLException {
+                        dialect.createTable(connection, entity.tableName, entity.columns.values(), entity.primaryKey);
+                    }
+
+                    @Override
+                    public Set<String> getTableNames() {
+                        return Collections.singleton(entity.tableName);
+                    }
+
+                    @Override
+                    public boolean isBatchable() {
+                        return true;
+                    }
+                });
+            }
+        }
+        this.provisionCount = count;
+        this.provisioning = Collections.unmodifiableList(provisioning);
+    }
+
+    /**
+     * Get the fingerprint of the addenda compiled into this plan.
+     *
+     * @return The fingerprint of the addenda.
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Get the number of addenda compiled into this plan.
+     *
+     * @return The number of addenda.
+     */
+    public int getAddendaCount() {
+        return count;
+    }
+
+    /**
+     * Get the number of addenda in this plan that are required to start the
+     * application. The addenda after them are deferrable and are applied by
+     * a {@link DeferredScheduler}.
+     *
+     * @return The number of required addenda.
+     */
+    public int getRequiredCount() {
+        return required;
+    }
+
+    /**
+     * Apply all of the addenda in this plan that are not already recorded in
+     * the addenda table in the database of the given connector. This method
+     * can be called for many databases at once from many threads.
+     * <p>
+     * If the version stamp in the database records the number of addenda in
+     * this plan and a matching fingerprint, the database is up to date and
+     * this method returns after that single read, without choosing a dialect
+     * and without issuing any DDL. Otherwise, the addenda are applied only
+     * after acquiring the migration lease, so that when many processes amend
+     * the same database at once, exactly one of them applies the addenda
+     * while the others wait.
+     * <p>
+     * Deferrable addenda after the last addendum that is not deferrable are
+     * not applied, and if the required addenda have been applied, this
+     * method returns without waiting for the migration lease, which may be
+     * held by a {@link DeferredScheduler} applying the deferrable addenda.
+     * <p>
+     * Within this JVM, a thread that amends a database while another thread
+     * is amending the same database with a plan of the same fingerprint and
+     * no time budget does not open a connection of its own. It waits for the
+     * other thread and returns or raises the same failure when the other
+     * thread is done. The database is identified by the equality of the
+     * connectors.
+     *
+     * @param connector
+     *            The connector of the database to amend.
+     * @return The result of the amend.
+     * @exception AddendumException
+     *                For any SQL error.
+     */
+    public Amendment amend(Connector connector) {
+        return join(connector);
+    }
+
+    /**
+     * Apply the addenda in this plan that are not already recorded in the
+     * database of the given connector within the given time budget, stopping
+     * on an addendum boundary, so that a later amend resumes where this one
+     * stopped.
+     * <p>
+     * An addendum is not started if its recorded duration would take it past
+     * the deadline. Durations are recorded each time this plan applies an
+     * addendum to any database, and can be recorded from an earlier amend,
+     * such as one against a staging database, with
+     * {@link #record(Amendment) record}. An addendum without a recorded
+     * duration is started if the deadline has not passed. If the deadline
+     * passes while an addendum is applied, the statements running against the
+     * database are cancelled with <code>Statement.cancel()</code> and the
+     * amend fails with the addendum rolled back. Statements are cancelled
+     * only if addenda are transactional and the dialect supports
+     * transactional DDL, since an addendum that cannot be rolled back would
+     * be left half applied. Otherwise, the recorded durations alone decide
+     * whether an addendum is started.
+     * <p>
+     * An amend with a time budget is never shared with another thread, as
+     * with {@link #amend(Connector) amend}, since the shared amend would
+     * stop at the deadline of the thread that started it. It waits for the
+     * migration lease like an amend from another process.
+     *
+     * @param connector
+     *            The connector of the database to amend.
+     * @param budget
+     *            The time budget in milliseconds.
+     * @return The result of the amend, which is not complete if the amend
+     *         stopped before the deadline.
+     * @exception AddendumException
+     *                For any SQL error, or if the deadline passed while an
+     *                addendum was applied.
+     */
+    public Amendment amend(Connector connector, long budget) {
+        return migrate(connector, false, System.currentTimeMillis() + budget, true);
+    }
+
+    /**
+     * Apply the required addenda in this plan to the database of the given
+     * connector without a deadline, or wait for the amend of the same
+     * database by this plan that is already running in another thread and
+     * return its result.
+     *
+     * @param connector
+     *            The connector of the database to amend.
+     * @return The result of the amend.
+     */
+    private Amendment join(final Connector connector) {
+        Object key = Arrays.<Object>asList(connector, fingerprint);
+        FutureTask<Amendment> flight = new FutureTask<Amendment>(new Callable<Amendment>() {
+            public Amendment call() {
+                return migrate(connector, false, Long.MAX_VALUE, false);
+            }
+        });
+        FutureTask<Amendment> running = FLIGHTS.putIfAbsent(key, flight);
+        if (running == null) {
+            try {
+                flight.run();
+            } finally {
+                FLIGHTS.remove(key, flight);
+            }
+            running = flight;
+        }
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Danger(Addendum.class, AMEND_INTERRUPTED, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    /**
+     * Record the durations of the addenda applied by the given amend, so that
+     * they are used to estimate whether an addendum will finish before the
+     * deadline of an amend with a time budget. The longest duration recorded
+     * for each addendum is used.
+     *
+     * @param amendment
+     *            The result of an amend by a plan of the same addenda.
+     */
+    public void record(Amendment amendment) {
+        List<Long> durations = amendment.getDurations();
+        int first = amendment.getVersion() - durations.size();
+        for (int i = 0, stop = durations.size(); i < stop; i++) {
+            record(first + i, durations.get(i));
+        }
+    }
+
+    /**
+     * Record the durations of the addenda in the timing history of the
+     * database of the given connector, such as a staging database amended
+     * with the timing history enabled, so that they are used to estimate
+     * whether an addendum will finish before the deadline of an amend with a
+     * time budget. The duration of an addendum is the sum of the durations of
+     * its updates.
+     *
+     * @param connector
+     *            The connector of the database with the timing history.
+     * @exception AddendumException
+     *                If the timing history cannot be read.
+     * @see Addenda#setHistory(boolean)
+     */
+    public void record(Connector connector) {
+        Map<Integer, Long> durations = new HashMap<Integer, Long>();
+        Connection connection = connector.open();
+        try {
+            for (Timing timing : Timing.read(connection)) {
+                Long duration = durations.get(timing.getAddendum());
+                durations.put(timing.getAddendum(), (duration == null ? 0L : duration) + timing.getDuration());
+            }
+        } catch (SQLException e) {
+            throw new Danger(Addendum.class, SQL_TIMING, e);
+        } finally {
+            connector.close(connection);
+        }
+        for (Map.Entry<Integer, Long> entry : durations.entrySet()) {
+            record(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Record the given duration of the addendum at the given index if it is
+     * longer than the duration already recorded.
+     *
+     * @param index
+     *            The index of the addendum.
+     * @param duration
+     *            The duration in milliseconds.
+     */
+    private void record(int index, long duration) {
+        Long recorded = estimates.get(index);
+        if (recorded == null || recorded < duration) {
+            estimates.put(index, duration);
+        }
+    }
+
+    /**
+     * Apply all of the addenda in this plan that are not already recorded in
+     * the database of the given connector using a thread of the given
+     * executor, returning a future result of the amend immediately.
+     * <p>
+     * The calling thread is free to start the parts of the application that
+     * do not depend on the schema while the database is amended, and to wait
+     * on the future before it starts the parts that do. A failure to amend
+     * the database is raised by the future as the cause of an
+     * <code>ExecutionException</code>.
+     *
+     * @param connector
+     *            The connector of the database to amend.
+     * @param executor
+     *            The executor that amends the database.
+     * @return The future result of the amend.
+     * @see Readiness
+     */
+    public Future<Amendment> amendAsync(final Connector connector, Executor executor) {
+        FutureTask<Amendment> future = new FutureTask<Amendment>(new Callable<Amendment>() {
+            public Amendment call() {
+                return amend(connector);
+            }
+        });
+        executor.execute(future);
+        return future;
+    }
+
+    /**
+     * Apply the addenda in this plan to the database of the given connector
+     * under the migration lease, including the deferrable addenda if
+     * requested, and starting no addendum that is not expected to finish
+     * before the given time.
+     *
+     * @param connector
+     *            The connector of the database to amend.
+     * @param deferred
+     *            Whether to apply the deferrable addenda.
+     * @param until
+     *            The time in milliseconds after which no addendum is started.
+     * @param cancel
+     *            Whether to cancel the running statements at the given time.
+     * @return The result of the amend.
+     */
+    Amendment migrate(Connector connector, boolean deferred, long until, boolean cancel) {
+        long start = System.currentTimeMillis();
+        List<Long> durations = new ArrayList<Long>();
+        int limit = deferred ? count : required;
+        Recorder recorder = history ? new Recorder(ManagementFactory.getRuntimeMXBean().getName()) : null;
+        Connector amending = recorder == null ? connector : recorder.wrap(connector);
+        return migrate(amending, connector, limit, until, cancel, recorder, start, durations);
+    }
+
+    /**
+     * Apply the given number of addenda in this plan to the database of the
+     * given connector under the migration lease, starting no addendum that is
+     * not expected to finish before the given time.
+     *
+     * @param connector
+     *            The connector of the database to amend.
+     * @param renewal
+     *            The connector used to renew and release the migration lease.
+     * @param limit
+     *            The number of addenda to apply.
+     * @param until
+     *            The time in milliseconds after which no addendum is started.
+     * @param cancel
+     *            Whether to cancel the running statements at the given time.
+     * @param recorder
+     *            The recorder of the timing history or null.
+     * @param start
+     *            The time in milliseconds at which the amend started.
+     * @param durations
+     *            The list to which the duration in milliseconds of each
+     *            addendum applied is added.
+     * @return The result of the amend.
+     */
+    private Amendment migrate(Connector connector, Connector renewal, int limit, long until, boolean cancel, Recorder recorder, long start, List<Long> durations) {
+        int version = count;
+        Connection connection = connector.open();
+        try {
+            if (isCurrent(connection)) {
+                return new Amendment(version, true, System.currentTimeMillis() - start, durations);
+            }
+            Dialect dialect = getDialect(connection);
+            if (limit < count) {
+                try {
+                    dialect.createAddendaTable(connection);
+                    int applied = dialect.addendaCount(connection);
+                    if (applied >= limit) {
+                        return new Amendment(applied, true, System.currentTimeMillis() - start, durations);
+                    }
+                } catch (SQLException e) {
+                    throw new Danger(Addendum.class, SQL_ADDENDA_COUNT, e);
+                }
+            }
+            String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+            if (!acquire(connection, dialect, owner)) {
+                // Report the addenda the other process recorded, not the plan.
+                int applied;
+                try {
+                    applied = dialect.addendaCount(connection);
+                } catch (SQLException e) {
+                    throw new Danger(Addendum.class, SQL_ADDENDA_COUNT, e);
+                }
+                return new Amendment(applied, applied >= limit, System.currentTimeMillis() - start, durations);
+            }
+            try {
+                Heartbeat heartbeat = new Heartbeat(renewal, dialect, owner, leaseDuration);
+                heartbeat.start();
+                try {
+                    version = apply(connector, connection, dialect, heartbeat, limit, until, cancel, recorder, durations);
+                } finally {
+                    heartbeat.stop();
+                }
+            } finally {
+                release(renewal, dialect, owner);
+            }
+        } finally {
+            connector.close(connection);
+        }
+        return new Amendment(version, version >= limit, System.currentTimeMillis() - start, durations);
+    }
+
+    /**
+     * Release the migration lease held by the given owner on a connection of
+     * its own, so that the release never commits the changes of an addendum
+     * that failed on the connection that applies the addenda.
+     *
+     * @param connector
+     *            The connector of the database.
+     * @param dialect
+     *            The SQL dialect.
+     * @param owner
+     *            The unique identity of the lease owner.
+     */
+    private void release(Connector connector, Dialect dialect, String owner) {
+        Connection connection = connector.open();
+        try {
+            dialect.release(connection, owner);
+        } catch (SQLException e) {
+            throw new Danger(Addendum.class, SQL_RELEASE, e);
+        } finally {
+            connector.close(connection);
+        }
+    }
+
+    /**
+     * Choose a dialect for the given connection from the available dialects.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @return The dialect.
+     * @exception Danger
+     *                If no dialect can translate for the connection.
+     */
+    private Dialect getDialect(Connection connection) {
+        Dialect dialect = null;
+        try {
+            // The service loader is not safe to iterate from many threads.
+            synchronized (dialects) {
+                for (Dialect candidate : dialects) {
+                    dialect = candidate.canTranslate(connection, dialect);
+                }
+            }
+        } catch (SQLException e) {
+            throw new Danger(Addendum.class, SQL_GET_DIALECT, e);
+        }
+        if (dialect == null) {
+            throw new Danger(Addendum.class, SQL_GET_DIALECT);
+        }
+        return dialect;
+    }
+
+    /**
+     * Get the provisioning updates followed by the coalesced updates of each
+     * addendum with the statements of the batchable updates rendered by the
+     * given dialect, rendering them the first time the dialect is used.
+     *
+     * @param dialect
+     *            The SQL dialect.
+     * @return The provisioning updates followed by the updates of each
+     *         addendum.
+     */
+    List<List<DatabaseUpdate>> getRendered(Dialect dialect) {
+        List<List<DatabaseUpdate>> updates = rendered.get(dialect.getClass());
+        if (updates == null) {
+            Settings settings = new Settings(null, backfillChunkSize, insertBatchSize);
+            updates = new ArrayList<List<DatabaseUpdate>>();
+            updates.add(render(dialect, settings, provisioning));
+            for (List<DatabaseUpdate> addendum : coalesced) {
+                updates.add(render(dialect, settings, addendum));
+            }
+            updates = Collections.unmodifiableList(updates);
+            rendered.put(dialect.getClass(), updates);
+        }
+        return updates;
+    }
+
+    /**
+     * Render the statements of the batchable updates in the given list of
+     * updates by recording the statements the given dialect issues for them
+     * against a connection that fails on every use. An update that uses the
+     * connection, because its statements depend on the state of the
+     * database, is not rendered and is executed as it is.
+     *
+     * @param dialect
+     *            The SQL dialect.
+     * @param settings
+     *            The settings of the amends that apply the updates.
+     * @param updates
+     *            The updates.
+     * @return The updates with the batchable updates rendered.
+     */
+    private static List<DatabaseUpdate> render(Dialect dialect, Settings settings, List<DatabaseUpdate> updates) {
+        List<DatabaseUpdate> rendered = new ArrayList<DatabaseUpdate>();
+        for (DatabaseUpdate update : updates) {
+            List<String> statements = null;
+            if (update.isBatchable()) {
+                Connection offline = getOfflineConnection();
+                dialect.beginRecording(offline);
+                boolean success = false;
+                try {
+                    update.execute(offline, dialect, settings);
+                    success = true;
+                } catch (SQLException e) {
+                    // The update must be executed against the database.
+                } catch (RuntimeException e) {
+                    // The update must be executed against the database.
+                } finally {
+                    statements = dialect.endRecording(offline);
+                }
+                if (!success) {
+                    statements = null;
+                }
+            }
+            rendered.add(statements == null ? update : new RenderedUpdate(update, statements));
+        }
+        return Collections.unmodifiableList(rendered);
+    }
+
+    /**
+     * Create a connection that throws an SQL exception when any of its
+     * methods are called, other than the methods of <code>Object</code>, so
+     * that it can be used as a key to record statements, but cannot be used
+     * to read the database.
+     *
+     * @return A connection that cannot be used.
+     */
+    private static Connection getOfflineConnection() {
+        return (Connection) Proxy.newProxyInstance(Plan.class.getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("hashCode") && args == null) {
+                    return System.identityHashCode(proxy);
+                }
+                if (method.getName().equals("equals") && args != null && args.length == 1) {
+                    return proxy == args[0];
+                }
+                if (method.getName().equals("toString") && args == null) {
+                    return "Offline Connection";
+                }
+                throw new SQLException("Statements are being rendered.");
+            }
+        });
+    }
+
+    /**
+     * Acquire the migration lease for the given owner, waiting with a
+     * randomized exponential backoff while another process holds the lease.
+     * The lease table is created once, and while waiting, only the lease row
+     * is read until the lease is free or expired. The version stamp is then
+     * read, so that when the process holding the lease has applied the
+     * addenda, the waiting process returns without acquiring the lease.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @param owner
+     *            The unique identity of the lease owner.
+     * @return True if the lease was acquired, false if the database was
+     *         brought up to date by another process.
+     */
+    private boolean acquire(Connection connection, Dialect dialect, String owner) {
+        try {
+            dialect.createLeaseTable(connection);
+        } catch (SQLException e) {
+            throw new Danger(Addendum.class, SQL_LEASE, e);
+        }
+        long backoff = MINIMUM_BACKOFF;
+        for (;;) {
+            try {
+                if (dialect.lease(connection, owner, leaseDuration)) {
+                    return true;
+                }
+                do {
+                    try {
+                        Thread.sleep(backoff + (long) (Math.random() * backoff));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new Danger(Addendum.class, SQL_LEASE, e);
+                    }
+                    backoff = Math.min(backoff * 2, MAXIMUM_BACKOFF);
+                } while (dialect.isLeased(connection));
+            } catch (SQLException e) {
+                throw new Danger(Addendum.class, SQL_LEASE, e);
+            }
+            if (isCurrent(connection)) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Apply the addenda that have not been applied to the database at the
+     * given connection while holding the migration lease, then record the
+     * version stamp.
+     * <p>
+     * If transactional mode is enabled and the dialect supports transactional
+     * DDL, the DDL statements of each addendum are executed as a JDBC batch
+     * and committed in a single transaction together with the addendum
+     * accounting. Otherwise, each statement is executed on the connection in
+     * whatever commit mode the connector provided, and if the connector
+     * provided a connection that is not in auto-commit mode, each addendum is
+     * committed when it is applied and rolled back if it fails, so that the
+     * changes of a failed addendum are never committed.
+     * <p>
+     * The statements of the addenda are cancelled at the given time only in
+     * transactional mode, so that a cancelled addendum is rolled back. The
+     * commits, rollbacks and the version stamp are issued on the given
+     * connection, whose statements are never cancelled.
+     *
+     * @param connector
+     *            The connector of the database.
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @param heartbeat
+     *            The heartbeat renewing the migration lease.
+     * @param limit
+     *            The number of addenda to apply.
+     * @param until
+     *            The time in milliseconds after which no addendum is started.
+     * @param cancel
+     *            Whether to cancel the running statements at the given time.
+     * @param recorder
+     *            The recorder of the timing history or null.
+     * @param durations
+     *            The list to which the duration in milliseconds of each
+     *            addendum applied is added.
+     * @return The number of addenda applied to the database.
+     */
+    private int apply(Connector connector, Connection connection, Dialect dialect, Heartbeat heartbeat, int limit, long until, boolean cancel, Recorder recorder, List<Long> durations) {
+        try {
+            dialect.createAddendaTable(connection);
+        } catch (SQLException e) {
+            throw new Danger(Addendum.class, SQL_CREATE_ADDENDA, e);
+        }
+        if (recorder != null) {
+            try {
+                dialect.createTimingTable(connection);
+            } catch (SQLException e) {
+                throw new Danger(Addendum.class, SQL_TIMING, e);
+            }
+        }
+        int max;
+        try {
+            max = dialect.addendaCount(connection);
+        } catch (SQLException e) {
+            throw new Danger(Addendum.class, SQL_ADDENDA_COUNT, e);
+        }
+        // A fresh database is brought past a schema snapshot by provisioning.
+        boolean provisioning = provision && max == 0 && skip == 0 && provisionCount >= base;
+        if (max < base && !provisioning) {
+            throw new Danger(Addendum.class, SNAPSHOT_BEHIND, max, base);
+        }
+        boolean autoCommit;
+        boolean transactional;
+        try {
+            autoCommit = connection.getAutoCommit();
+            transactional = this.transactional && dialect.isTransactionalDDL(connection);
+            if (transactional) {
+                connection.setAutoCommit(false);
+            }
+        } catch (SQLException e) {
+            throw new Danger(Addendum.class, SQL_COMMIT, e);
+        }
+        boolean commit = transactional || !autoCommit;
+        Deadline deadline = cancel && transactional ? new Deadline(until) : null;
+        Connector amending = deadline == null ? connector : deadline.wrap(connector);
+        Connection amendingConnection = deadline == null ? connection : deadline.wrap(connection);
+        Settings settings = new Settings(amending, backfillChunkSize, insertBatchSize);
+        UpdateScheduler scheduler = null;
+        if (!transactional && autoCommit && parallelism > 1) {
+            scheduler = new UpdateScheduler(settings, dialect, parallelism);
+        }
+        Pipeline pipeline = null;
+        try {
+            List<List<DatabaseUpdate>> rendered = getRendered(dialect);
+            if (provisioning) {
+                long start = System.currentTimeMillis();
+                max = provision(settings, amendingConnection, dialect, rendered.get(0), transactional, commit, scheduler, recorder);
+                for (int i = 0; i < max; i++) {
+                    durations.add(i == 0 ? System.currentTimeMillis() - start : 0L);
+                }
+            }
+            Iterator<List<DatabaseUpdate>> pending;
+            Optimizer optimizer = null;
+            if (optimize) {
+                optimizer = new Optimizer(getPending(scripts.subList(0, Math.max(max, limit)), max), transactional);
+                List<List<DatabaseUpdate>> optimized = new ArrayList<List<DatabaseUpdate>>();
+                for (List<DatabaseUpdate> updates : optimizer.getAddenda()) {
+                    optimized.add(TableAlteration.coalesce(updates));
+                }
+                pending = optimized.iterator();
+            } else if (definitions == null || max >= count) {
+                pending = getPending(rendered.subList(1, rendered.size()), max).iterator();
+            } else {
+                pending = getPending(getPending(rendered.subList(1, rendered.size()), max).iterator(), max);
+                if (pipelineDepth > 0) {
+                    pending = pipeline = new Pipeline(pending, pipelineDepth);
+                }
+            }
+            int applied = max;
+            for (int i = 0; applied < limit && pending.hasNext(); i++) {
+                if (i == 0 || optimizer == null || !optimizer.isJoined(i - 1)) {
+                    Long estimate = estimates.get(applied);
+                    long now = System.currentTimeMillis();
+                    if (now >= until || (estimate != null && until - now < estimate)) {
+                        break;
+                    }
+                }
+                List<DatabaseUpdate> updates = pending.next();
+                long start = System.currentTimeMillis();
+                if (recorder != null) {
+                    recorder.setAddendum(applied);
+                }
+                try {
+                    try {
+                        // Addenda joined by the optimizer before this one are
+                        // not yet committed and must be rolled back as well.
+                        if (heartbeat.isLost()) {
+                            throw new Danger(Addendum.class, LEASE_LOST);
+                        }
+                        apply(settings, amendingConnection, dialect, updates, transactional, transactional ? null : scheduler, recorder);
+                        if (commit && (optimizer == null || !optimizer.isJoined(i))) {
+                            connection.commit();
+                        }
+                    } catch (SQLException e) {
+                        rollback(connection);
+                        throw new Danger(Addendum.class, SQL_COMMIT, e);
+                    } catch (RuntimeException e) {
+                        if (commit) {
+                            rollback(connection);
+                        }
+                        throw e;
+                    }
+                } catch (RuntimeException e) {
+                    if (deadline != null && deadline.isExpired()) {
+                        throw new Danger(Addendum.class, DEADLINE_EXCEEDED, e, applied);
+                    }
+                    throw e;
+                }
+                long duration = System.currentTimeMillis() - start;
+                durations.add(duration);
+                record(applied, duration);
+                applied++;
+            }
+            if (applied < count) {
+                return applied;
+            }
+            if (max <= count) {
+                try {
+                    dialect.stamp(connection, count, fingerprint);
+                    if (commit) {
+                        connection.commit();
+                    }
+                } catch (SQLException e) {
+                    if (commit) {
+                        rollback(connection);
+                    }
+                    throw new Danger(Addendum.class, SQL_STAMP, e);
+                }
+            }
+            return Math.max(max, count);
+        } finally {
+            if (deadline != null) {
+                deadline.close();
+            }
+            if (pipeline != null) {
+                pipeline.close();
+            }
+            if (scheduler != null) {
+                scheduler.close();
+            }
+            if (transactional) {
+                try {
+                    connection.setAutoCommit(autoCommit);
+                } catch (SQLException e) {
+                    throw new Danger(Addendum.class, SQL_COMMIT, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create the tables described by the leading data definition addenda in
+     * a fresh database and record those addenda as applied. If the copies of
+     * the tables made when the plan was compiled do not describe the leading
+     * data definition addenda, because updates were added to an addendum
+     * after the next addendum was created, nothing is done.
+     *
+     * @param settings
+     *            The settings of the amend.
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @param updates
+     *            The updates that create the tables.
+     * @param transactional
+     *            Whether to execute the statements as a JDBC batch.
+     * @param commit
+     *            Whether to commit the statements in a single transaction.
+     * @param scheduler
+     *            The scheduler that creates the tables in parallel or null.
+     * @param recorder
+     *            The recorder of the timing history or null.
+     * @return The number of addenda recorded as applied.
+     */
+    private int provision(Settings settings, Connection connection, Dialect dialect, List<DatabaseUpdate> updates, boolean transactional, boolean commit, UpdateScheduler scheduler, Recorder recorder) {
+        if (provisionCount == 0) {
+            return 0;
+        }
+        try {
+            if (recorder != null) {
+                recorder.setAddendum(0);
+            }
+            apply(settings, connection, dialect, updates, transactional, scheduler, recorder);
+            for (int i = 1; i < provisionCount; i++) {
+                dialect.addendum(connection);
+            }
+            if (commit) {
+                connection.commit();
+            }
+        } catch (SQLException e) {
+            if (commit) {
+                rollback(connection);
+            }
+            throw new Danger(Addendum.class, SQL_ADDENDUM, e);
+        } catch (RuntimeException e) {
+            if (commit) {
+                rollback(connection);
+            }
+            throw e;
+        }
+        return provisionCount;
+    }
+
+    /**
+     * Get the updates of each addendum that has not been applied from the
+     * given updates of every addendum, starting with the addendum at the
+     * given index. The initial addenda to skip are given an empty list of
+     * updates, so that they are only recorded.
+     *
+     * @param addenda
+     *            The updates of every addendum.
+     * @param max
+     *            The count of addenda already applied.
+     * @return The updates of each addendum that has not been applied.
+     */
+    private List<List<DatabaseUpdate>> getPending(List<List<DatabaseUpdate>> addenda, int max) {
+        List<List<DatabaseUpdate>> pending = new ArrayList<List<DatabaseUpdate>>();
+        for (int i = max, stop = addenda.size(); i < stop; i++) {
+            if (i < skip) {
+                pending.add(Collections.<DatabaseUpdate>emptyList());
+            } else {
+                pending.add(addenda.get(i));
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Get the updates of each addendum that has not been applied, starting
+     * with the addendum at the given index, with the given compiled updates
+     * followed by the updates of the addenda created from the definitions.
+     * Each addendum of the definitions is created only when the iterator
+     * reaches it, advancing a copy of the tracking schema, and the addenda
+     * already applied are created only to advance the tracking schema.
+     *
+     * @param compiled
+     *            The compiled updates of each addendum that has not been
+     *            applied.
+     * @param max
+     *            The count of addenda already applied.
+     * @return The updates of each addendum that has not been applied.
+     */
+    private Iterator<List<DatabaseUpdate>> getPending(final Iterator<List<DatabaseUpdate>> compiled, final int max) {
+        final Schema schema = new Schema(origin);
+        final Iterator<? extends Definition> iterator = definitions.iterator();
+        return new Iterator<List<DatabaseUpdate>>() {
+            /** The index of the next addendum to create. */
+            private int index = scripts.size();
+
+            /** The updates of the next addendum or null. */
+            private List<DatabaseUpdate> next;
+
+            public boolean hasNext() {
+                if (next == null && compiled.hasNext()) {
+                    next = compiled.next();
+                }
+                while (next == null && iterator.hasNext()) {
+                    List<DatabaseUpdate> updates = new ArrayList<DatabaseUpdate>();
+                    new Addendum(new Patch(schema, updates)).apply(iterator.next());
+                    if (index >= max) {
+                        next = index < skip ? Collections.<DatabaseUpdate>emptyList() : TableAlteration.coalesce(updates);
+                    }
+                    index++;
+                }
+                if (next == null && index != count) {
+                    throw new Danger(Addendum.class, DEFINITIONS_CHANGED, count, index);
+                }
+                return next != null;
+            }
+
+            public List<DatabaseUpdate> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                List<DatabaseUpdate> updates = next;
+                next = null;
+                return updates;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Apply the given coalesced updates of an addendum to the database at
+     * the given connection and record the addendum in the addenda table,
+     * together with the timing history of its updates if they are recorded.
+     *
+     * @param settings
+     *            The settings of the amend.
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @param updates
+     *            The coalesced updates of the addendum.
+     * @param batch
+     *            Whether to execute the DDL statements of the addendum as a
+     *            JDBC batch.
+     * @param scheduler
+     *            The scheduler that applies independent updates in parallel
+     *            or null to apply the updates one after another.
+     * @param recorder
+     *            The recorder of the timing history or null.
+     */
+    private void apply(Settings settings, Connection connection, Dialect dialect, List<DatabaseUpdate> updates, boolean batch, UpdateScheduler scheduler, Recorder recorder) {
+        if (!updates.isEmpty()) {
+            if (recorder != null) {
+                updates = recorder.record(updates);
+            }
+            try {
+                if (batch) {
+                    dialect.beginBatch(connection);
+                }
+                try {
+                    if (scheduler == null) {
+                        for (DatabaseUpdate update : updates) {
+                            update.update(connection, dialect, settings);
+                        }
+                    } else {
+                        scheduler.apply(connection, updates);
+                    }
+                    dialect.flushBatch(connection);
+                } finally {
+                    if (batch) {
+                        dialect.endBatch(connection);
+                    }
+                }
+            } catch (SQLException e) {
+                throw new Danger(Addendum.class, CANNOT_EXECUTE_BATCH, e);
+            }
+        }
+        if (recorder != null) {
+            try {
+                recorder.write(connection);
+            } catch (SQLException e) {
+                throw new Danger(Addendum.class, SQL_TIMING, e);
+            }
+        }
+        try {
+            dialect.addendum(connection);
+        } catch (SQLException e) {
+            throw new Danger(Addendum.class, SQL_ADDENDUM, e);
+        }
+    }
+
+    /**
+     * Roll back the current transaction on the given connection after a
+     * failure. A failure to roll back is ignored, so that the exception that
+     * caused the failure is the one reported.
+     *
+     * @param connection
+     *            The JDBC connection.
+     */
+    private static void rollback(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            // The original exception is more informative.
+        }
+    }
+
+    /**
+     * Determine if the database at the given connection is up to date by
+     * reading the version stamp. The database is up to date if the version
+     * stamp records the number of addenda in this plan and its fingerprint.
+     * If the version stamp cannot be read, because the version stamp table
+     * has not yet been created, the database is not up to date.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @return True if the database is up to date.
+     */
+    private boolean isCurrent(Connection connection) {
+        Stamp stamp;
+        try {
+            stamp = Stamp.read(connection);
+        } catch (SQLException e) {
+            try {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                }
+            } catch (SQLException rollback) {
+                throw new Danger(Addendum.class, SQL_ADDENDA_COUNT, rollback);
+            }
+            return false;
+        }
+        return stamp != null && stamp.matches(count, fingerprint);
+    }
+}
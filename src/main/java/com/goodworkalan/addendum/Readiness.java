@@ -0,0 +1,111 @@
+package com.goodworkalan.addendum;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A gate for the start of an application that amends its databases in
+ * parallel with the start of the parts of the application that do not depend
+ * on the schema, such as caches and thread pools, so that the application is
+ * ready as soon as the slowest of them is done, instead of after all of them
+ * one after another.
+ * <p>
+ * Amendments and subsystems are started with the executor of the gate, and
+ * the application waits on the gate before it starts the parts that depend
+ * on the schema, such as the listeners that accept requests.
+ *
+ * @author Alan Gutierrez
+ */
+public class Readiness {
+    /** The executor that runs the amendments and the subsystems. */
+    private final Executor executor;
+
+    /** The amendments and subsystems that were started. */
+    private final List<Future<?>> started = new CopyOnWriteArrayList<Future<?>>();
+
+    /**
+     * Create a readiness gate that starts amendments and subsystems with the
+     * given executor. The executor must be able to run them all at once for
+     * them to run in parallel.
+     *
+     * @param executor
+     *            The executor.
+     */
+    public Readiness(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Amend the database of the given collection of addenda.
+     *
+     * @param addenda
+     *            The addenda.
+     * @return The future result of the amend.
+     */
+    public Future<Amendment> amend(Addenda addenda) {
+        Future<Amendment> future = addenda.amendAsync(executor);
+        started.add(future);
+        return future;
+    }
+
+    /**
+     * Start a subsystem of the application that does not depend on the
+     * schema.
+     *
+     * @param subsystem
+     *            The subsystem start up.
+     * @return The future completion of the subsystem start up.
+     */
+    public Future<?> start(final Runnable subsystem) {
+        FutureTask<Object> future = new FutureTask<Object>(new Callable<Object>() {
+            public Object call() {
+                subsystem.run();
+                return null;
+            }
+        });
+        executor.execute(future);
+        started.add(future);
+        return future;
+    }
+
+    /**
+     * Determine whether every amendment and subsystem started has finished,
+     * without waiting. A gate whose amendments or subsystems have failed is
+     * reported as ready, so that the failure is raised by {@link #await()}.
+     *
+     * @return True if every amendment and subsystem has finished.
+     */
+    public boolean isReady() {
+        for (Future<?> future : started) {
+            if (!future.isDone()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wait for every amendment and subsystem started to finish, raising the
+     * first failure in the order in which they were started.
+     *
+     * @exception InterruptedException
+     *                If the thread is interrupted while waiting.
+     */
+    public void await() throws InterruptedException {
+        for (Future<?> future : started) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw (RuntimeException) e.getCause();
+            }
+        }
+    }
+}
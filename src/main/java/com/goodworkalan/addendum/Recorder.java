@@ -0,0 +1,372 @@
+package com.goodworkalan.addendum;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.goodworkalan.addendum.connector.Connector;
+import com.goodworkalan.addendum.dialect.Dialect;
+import com.goodworkalan.addendum.dialect.Timing;
+
+/**
+ * Records the timing history of the database updates of the addenda applied
+ * by an amend. Each update is timed, and the SQL it issues and the number of
+ * rows it changes are captured from the statements created by the thread that
+ * runs the update on connections wrapped by the recorder. The timings of an
+ * addendum are kept in memory until the addendum is applied and then written
+ * to the timing history table in a single batch.
+ * <p>
+ * Statements collected into a JDBC batch are attributed to the update that
+ * executes the batch.
+ *
+ * @author Alan Gutierrez
+ */
+class Recorder {
+    /** The names of the error codes that identify the kinds of updates. */
+    private final static Map<String, String> KINDS = getKinds();
+
+    /** The largest length of the names of the tables affected. */
+    private final static int TABLE_NAMES_LENGTH = 255;
+
+    /** The host that runs the updates. */
+    private final String host;
+
+    /** The capture of the update running in each thread. */
+    private final ThreadLocal<Capture> captures = new ThreadLocal<Capture>();
+
+    /** The timings of the addendum being applied. */
+    private final List<Timing> timings = Collections.synchronizedList(new ArrayList<Timing>());
+
+    /** The index of the addendum being applied. */
+    private volatile int addendum;
+
+    /**
+     * Create a recorder of the updates run by the given host.
+     *
+     * @param host
+     *            The host that runs the updates.
+     */
+    public Recorder(String host) {
+        this.host = host;
+    }
+
+    /**
+     * Map the error codes that identify the kinds of updates to the names of
+     * their constants in {@link Addendum}.
+     *
+     * @return The names of the error codes.
+     */
+    private static Map<String, String> getKinds() {
+        Map<String, String> kinds = new HashMap<String, String>();
+        for (Field field : Addendum.class.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType().equals(String.class)) {
+                try {
+                    kinds.put((String) field.get(null), field.getName());
+                } catch (IllegalAccessException e) {
+                    // The fields are public.
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return kinds;
+    }
+
+    /**
+     * Set the index of the addendum whose updates are recorded.
+     *
+     * @param addendum
+     *            The index of the addendum.
+     */
+    public void setAddendum(int addendum) {
+        this.addendum = addendum;
+    }
+
+    /**
+     * Wrap the given updates of an addendum so that each update is timed when
+     * it runs. Deferral markers are not recorded.
+     *
+     * @param updates
+     *            The updates of an addendum.
+     * @return The wrapped updates.
+     */
+    public List<DatabaseUpdate> record(List<DatabaseUpdate> updates) {
+        List<DatabaseUpdate> recorded = new ArrayList<DatabaseUpdate>();
+        for (DatabaseUpdate update : updates) {
+            recorded.add(update instanceof Deferral ? update : new Recorded(update));
+        }
+        return recorded;
+    }
+
+    /**
+     * Write the timings of the addendum being applied to the timing history
+     * table in a single batch and forget them.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void write(Connection connection) throws SQLException {
+        List<Timing> written;
+        synchronized (timings) {
+            written = new ArrayList<Timing>(timings);
+            timings.clear();
+        }
+        Timing.write(connection, written);
+    }
+
+    /**
+     * Wrap the given connector so that the statements of the connections it
+     * opens are captured.
+     *
+     * @param connector
+     *            The connector.
+     * @return The wrapped connector.
+     */
+    public Connector wrap(final Connector connector) {
+        return new Connector() {
+            public Connection open() {
+                return wrap(connector.open());
+            }
+
+            public void close(Connection connection) {
+                connector.close(Forwarder.unwrap(connection));
+            }
+        };
+    }
+
+    /**
+     * Wrap the given connection so that the statements it creates are
+     * captured.
+     *
+     * @param connection
+     *            The connection.
+     * @return The wrapped connection.
+     */
+    public Connection wrap(Connection connection) {
+        return Forwarder.proxy(new Handler(connection, false));
+    }
+
+    /**
+     * The SQL issued and the rows changed by the update running in a thread.
+     * The SQL is hashed as it is issued, so that the memory used does not
+     * depend on the number of statements.
+     */
+    private final static class Capture {
+        /** The digest of the SQL issued. */
+        private final MessageDigest digest;
+
+        /** Whether any SQL was issued. */
+        private boolean issued;
+
+        /** The number of rows changed or -1 if unknown. */
+        public long rowCount = -1;
+
+        /** Create an empty capture. */
+        public Capture() {
+            try {
+                digest = MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException e) {
+                // Every implementation of the Java platform supports SHA-1.
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Capture the given SQL.
+         *
+         * @param statement
+         *            The SQL.
+         */
+        public void sql(String statement) {
+            try {
+                digest.update(statement.getBytes("UTF-8"));
+            } catch (UnsupportedEncodingException e) {
+                // Every implementation of the Java platform supports UTF-8.
+                throw new IllegalStateException(e);
+            }
+            digest.update((byte) '\n');
+            issued = true;
+        }
+
+        /**
+         * Capture the given number of changed rows.
+         *
+         * @param count
+         *            The number of changed rows.
+         */
+        public void rows(int count) {
+            if (count >= 0) {
+                rowCount = Math.max(rowCount, 0) + count;
+            }
+        }
+
+        /**
+         * Get a SHA-1 hash of the SQL issued.
+         *
+         * @return The hash or null if no SQL was issued.
+         */
+        public String getHash() {
+            return issued ? Addenda.toHex(digest.digest()) : null;
+        }
+    }
+
+    /**
+     * An update that times the update it wraps and captures the SQL it
+     * issues.
+     */
+    private final class Recorded extends DatabaseUpdate {
+        /** The wrapped update. */
+        private final DatabaseUpdate update;
+
+        /**
+         * Create an update that records the given update.
+         *
+         * @param update
+         *            The wrapped update.
+         */
+        public Recorded(DatabaseUpdate update) {
+            super(update);
+            this.update = update;
+        }
+
+        @Override
+        public Set<String> getTableNames() {
+            return update.getTableNames();
+        }
+
+        @Override
+        public boolean isDataDefinition() {
+            return update.isDataDefinition();
+        }
+
+        @Override
+        public boolean isBatchable() {
+            return update.isBatchable();
+        }
+
+        /**
+         * Run the wrapped update, recording its timing.
+         *
+         * @param connection
+         *            The JDBC connection.
+         * @param dialect
+         *            The SQL dialect.
+         * @param settings
+         *            The settings of the amend.
+         */
+        @Override
+        public void update(Connection connection, Dialect dialect, Settings settings) {
+            Capture capture = new Capture();
+            captures.set(capture);
+            long started = System.currentTimeMillis();
+            try {
+                update.update(connection, dialect, settings);
+            } finally {
+                captures.remove();
+            }
+            long duration = System.currentTimeMillis() - started;
+            String kind = KINDS.get(update.getCode());
+            timings.add(new Timing(addendum, kind == null ? String.valueOf(update.getCode()) : kind, join(update.getTableNames()), capture.getHash(), started, duration, capture.rowCount, host));
+        }
+
+        /**
+         * Run the wrapped update.
+         *
+         * @param connection
+         *            The JDBC connection.
+         * @param dialect
+         *            The SQL dialect.
+         */
+        public void execute(Connection connection, Dialect dialect) throws SQLException {
+            update.execute(connection, dialect);
+        }
+    }
+
+    /**
+     * Join the given names of the tables affected by an update in order,
+     * separated by commas.
+     *
+     * @param tableNames
+     *            The names of the tables affected or null if unknown.
+     * @return The joined names of the tables affected or null.
+     */
+    private static String join(Set<String> tableNames) {
+        if (tableNames == null) {
+            return null;
+        }
+        StringBuilder names = new StringBuilder();
+        for (String tableName : new TreeSet<String>(tableNames)) {
+            if (names.length() != 0) {
+                names.append(',');
+            }
+            names.append(tableName);
+        }
+        return names.length() > TABLE_NAMES_LENGTH ? names.substring(0, TABLE_NAMES_LENGTH) : names.toString();
+    }
+
+    /**
+     * Forwards the methods of a connection or a statement to the wrapped
+     * connection or statement, capturing the SQL and the changed rows for
+     * the update running in the thread.
+     */
+    private final class Handler extends Forwarder {
+        /**
+         * Create a handler that forwards to the given target.
+         *
+         * @param target
+         *            The wrapped connection or statement.
+         * @param statement
+         *            Whether the target is a statement.
+         */
+        public Handler(Object target, boolean statement) {
+            super(target, statement);
+        }
+
+        /**
+         * Create a handler that forwards to the given statement.
+         *
+         * @param statement
+         *            The statement.
+         * @return A handler that forwards to the statement.
+         */
+        @Override
+        protected Forwarder forward(Object statement) {
+            return new Handler(statement, true);
+        }
+
+        /**
+         * Capture the SQL and the changed rows for the update running in the
+         * thread.
+         */
+        @Override
+        protected void forwarded(Object proxy, Method method, Object[] args, Object result) {
+            Capture capture = captures.get();
+            if (capture != null) {
+                if (args != null && args.length != 0 && args[0] instanceof String
+                    && (method.getName().startsWith("prepare") || method.getName().startsWith("execute") || method.getName().equals("addBatch"))) {
+                    capture.sql((String) args[0]);
+                }
+                if (result instanceof Integer && method.getName().equals("executeUpdate")) {
+                    capture.rows((Integer) result);
+                } else if (result instanceof int[]) {
+                    for (int count : (int[]) result) {
+                        capture.rows(count);
+                    }
+                }
+            }
+        }
+    }
+}
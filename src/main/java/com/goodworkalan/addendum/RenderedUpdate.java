@@ -0,0 +1,104 @@
+package com.goodworkalan.addendum;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import com.goodworkalan.addendum.dialect.Dialect;
+
+/**
+ * A database update that executes the statements rendered for a batchable
+ * database update by a specific dialect, so that the dialect does not
+ * generate the same statements again for every database amended by a
+ * {@link Plan}.
+ * 
+ * @author Alan Gutierrez
+ */
+class RenderedUpdate extends DatabaseUpdate {
+    /** The names of the affected tables or null if unknown. */
+    private final Set<String> tableNames;
+
+    /** Whether the update only changes the structure of tables. */
+    private final boolean dataDefinition;
+
+    /** The rendered statements. */
+    private final List<String> statements;
+
+    /**
+     * Create an update that executes the given statements rendered for the
+     * given database update.
+     * 
+     * @param update
+     *            The rendered database update.
+     * @param statements
+     *            The rendered statements.
+     */
+    public RenderedUpdate(DatabaseUpdate update, List<String> statements) {
+        super(update);
+        this.tableNames = update.getTableNames();
+        this.dataDefinition = update.isDataDefinition();
+        this.statements = Collections.unmodifiableList(new ArrayList<String>(statements));
+    }
+
+    /**
+     * Get the names of the tables affected by the rendered update.
+     * 
+     * @return The names of the affected tables or null if unknown.
+     */
+    @Override
+    public Set<String> getTableNames() {
+        return tableNames;
+    }
+
+    /**
+     * Determine whether the rendered update only changes the structure of
+     * tables.
+     * 
+     * @return True if the update only changes the structure of tables.
+     */
+    @Override
+    public boolean isDataDefinition() {
+        return dataDefinition;
+    }
+
+    /**
+     * Rendered updates are batchable, since only batchable updates are
+     * rendered.
+     * 
+     * @return True.
+     */
+    @Override
+    public boolean isBatchable() {
+        return true;
+    }
+
+    /**
+     * Get the rendered statements.
+     * 
+     * @return The rendered statements.
+     */
+    public List<String> getStatements() {
+        return statements;
+    }
+
+    /**
+     * Execute the rendered statements, or add them to the batch if DDL
+     * statements are being batched.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    @Override
+    public void execute(Connection connection, Dialect dialect) throws SQLException {
+        for (String sql : statements) {
+            dialect.execute(connection, sql);
+        }
+    }
+}
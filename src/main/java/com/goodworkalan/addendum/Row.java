@@ -0,0 +1,119 @@
+package com.goodworkalan.addendum;
+
+import com.goodworkalan.addendum.dialect.Rows;
+
+/**
+ * A builder that specifies the values of a row of an insert statement one
+ * column at a time, in the order of the insert columns. Primitive values are
+ * stored without boxing and bound with the setter for the type of the column.
+ * 
+ * @author Alan Gutierrez
+ */
+public class Row {
+    /** The values element that created this row. */
+    private final Values values;
+
+    /** The rows of the insert statement. */
+    private final Rows rows;
+
+    /**
+     * Create a row element that adds column values to the given rows.
+     * 
+     * @param values
+     *            The values element that created this row.
+     * @param rows
+     *            The rows of the insert statement.
+     */
+    Row(Values values, Rows rows) {
+        this.values = values;
+        this.rows = rows;
+    }
+
+    /**
+     * Set the value of the next column to the given integer.
+     * 
+     * @param value
+     *            The value.
+     * @return This row element to specify the next value.
+     */
+    public Row value(int value) {
+        rows.add((long) value);
+        return this;
+    }
+
+    /**
+     * Set the value of the next column to the given long integer.
+     * 
+     * @param value
+     *            The value.
+     * @return This row element to specify the next value.
+     */
+    public Row value(long value) {
+        rows.add(value);
+        return this;
+    }
+
+    /**
+     * Set the value of the next column to the given double.
+     * 
+     * @param value
+     *            The value.
+     * @return This row element to specify the next value.
+     */
+    public Row value(double value) {
+        rows.add(value);
+        return this;
+    }
+
+    /**
+     * Set the value of the next column to the given boolean.
+     * 
+     * @param value
+     *            The value.
+     * @return This row element to specify the next value.
+     */
+    public Row value(boolean value) {
+        rows.add(value);
+        return this;
+    }
+
+    /**
+     * Set the value of the next column to the given object, converting it to
+     * the type of the column.
+     * 
+     * @param value
+     *            The value or null.
+     * @return This row element to specify the next value.
+     * @exception AddendumException
+     *                If the value cannot be converted to the type of the
+     *                column.
+     */
+    public Row value(Object value) {
+        rows.add(value);
+        return this;
+    }
+
+    /**
+     * End this row and begin another row.
+     * 
+     * @return A row element to specify the column values of the next row.
+     * @exception AddendumException
+     *                If this row does not have a value for every column.
+     */
+    public Row row() {
+        rows.endRow();
+        return this;
+    }
+
+    /**
+     * End this row and return to the values element.
+     * 
+     * @return The values element.
+     * @exception AddendumException
+     *                If this row does not have a value for every column.
+     */
+    public Values end() {
+        rows.endRow();
+        return values;
+    }
+}
@@ -0,0 +1,30 @@
+package com.goodworkalan.addendum;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Transforms the rows of a table one row at a time. The rows are given as
+ * the current row of an updatable result set, so the transformer can change
+ * the row with the update methods of the result set followed by
+ * {@link ResultSet#updateRow() updateRow}. Rows are transformed concurrently
+ * on many connections, so the transformer must not keep state between calls
+ * that is not thread safe.
+ * 
+ * @author Alan Gutierrez
+ */
+public interface RowTransformer {
+    /**
+     * Transform the current row of the given result set.
+     * 
+     * @param connection
+     *            An open JDBC connection.
+     * @param row
+     *            An updatable result set positioned at the row.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void transform(Connection connection, ResultSet row)
+    throws SQLException;
+}
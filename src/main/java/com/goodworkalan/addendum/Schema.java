@@ -27,6 +27,24 @@ class Schema {
     /** The map of entity names to table names. */
     public final Map<String, String> aliases = new HashMap<String, String>();
 
+    /** Create an empty schema. */
+    public Schema() {
+    }
+
+    /**
+     * Create a copy of the given schema that will not change when the given
+     * schema changes.
+     * 
+     * @param schema
+     *            The schema to copy.
+     */
+    public Schema(Schema schema) {
+        for (Map.Entry<String, Entity> entry : schema.entities.entrySet()) {
+            entities.put(entry.getKey(), new Entity(entry.getValue()));
+        }
+        aliases.putAll(schema.aliases);
+    }
+
     /**
      * Get the entity definition with the given entity name. The entity is found
      * by looking up the given name in the aliases map, then by looking up the
@@ -0,0 +1,38 @@
+package com.goodworkalan.addendum;
+
+/**
+ * An update that will execute the statements of an SQL script file.
+ * 
+ * @author Alan Gutierrez
+ */
+class ScriptExecution implements SchemaUpdate {
+    /** The file name or class path resource name. */
+    private final String resource;
+
+    /** The initial statement delimiter. */
+    private final String delimiter;
+
+    /**
+     * Create a new script execution.
+     * 
+     * @param resource
+     *            The file name or class path resource name.
+     * @param delimiter
+     *            The initial statement delimiter.
+     */
+    public ScriptExecution(String resource, String delimiter) {
+        this.resource = resource;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Return a database update that will execute the statements of the
+     * script. This method has no effect on tracking schema.
+     * 
+     * @param schema
+     *            The tracking schema.
+     */
+    public DatabaseUpdate execute(Schema schema) {
+        return new ScriptUpdate(resource, delimiter);
+    }
+}
@@ -0,0 +1,168 @@
+package com.goodworkalan.addendum;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import com.goodworkalan.addendum.dialect.Tables;
+
+/**
+ * Records the offset in an SQL script of the end of the last batch of
+ * statements executed, and the statement delimiter in effect at that offset,
+ * in a progress table, so that if the process applying the addenda stops
+ * during the script, the script continues after the recorded offset when the
+ * addendum is applied again.
+ *
+ * @author Alan Gutierrez
+ */
+class ScriptProgress {
+    /** The name of the progress table. */
+    public final static String TABLE_NAME = "ADDENDA_SCRIPT";
+
+    /** The SQL to create the progress table. */
+    private final static String CREATE = "CREATE TABLE ADDENDA_SCRIPT (SCRIPT_NAME VARCHAR(255) NOT NULL, SCRIPT_OFFSET VARCHAR(32) NOT NULL, SCRIPT_DELIMITER VARCHAR(32) NOT NULL, PRIMARY KEY (SCRIPT_NAME))";
+
+    /** The SQL to select the progress of a script. */
+    private final static String SELECT = "SELECT SCRIPT_OFFSET, SCRIPT_DELIMITER FROM ADDENDA_SCRIPT WHERE SCRIPT_NAME = ?";
+
+    /** The SQL to insert the progress of a new script. */
+    private final static String INSERT = "INSERT INTO ADDENDA_SCRIPT (SCRIPT_NAME, SCRIPT_OFFSET, SCRIPT_DELIMITER) VALUES (?, '0', ?)";
+
+    /** The SQL to record the progress of a script. */
+    private final static String UPDATE = "UPDATE ADDENDA_SCRIPT SET SCRIPT_OFFSET = ?, SCRIPT_DELIMITER = ? WHERE SCRIPT_NAME = ?";
+
+    /** The SQL to delete the progress of a completed script. */
+    private final static String DELETE = "DELETE FROM ADDENDA_SCRIPT WHERE SCRIPT_NAME = ?";
+
+    /** The script name. */
+    private final String name;
+
+    /** The recorded delimiter. */
+    private String delimiter;
+
+    /**
+     * Create the progress of the script with the given name.
+     *
+     * @param name
+     *            The script name.
+     */
+    public ScriptProgress(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the recorded offset of the script, or -1 if the script has not been
+     * started.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @return The recorded offset or -1.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public long getOffset(Connection connection) throws SQLException {
+        if (!Tables.exists(connection, TABLE_NAME)) {
+            return -1L;
+        }
+        PreparedStatement statement = connection.prepareStatement(SELECT);
+        try {
+            statement.setString(1, name);
+            ResultSet rs = statement.executeQuery();
+            try {
+                if (rs.next()) {
+                    delimiter = rs.getString(2);
+                    return Long.parseLong(rs.getString(1));
+                }
+                return -1L;
+            } finally {
+                rs.close();
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Get the delimiter recorded with the offset.
+     *
+     * @return The recorded delimiter.
+     */
+    public String getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * Record the start of the script, creating the progress table if it does
+     * not exist.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param delimiter
+     *            The initial statement delimiter.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void start(Connection connection, String delimiter) throws SQLException {
+        if (!Tables.exists(connection, TABLE_NAME)) {
+            Statement statement = connection.createStatement();
+            try {
+                statement.execute(CREATE);
+            } finally {
+                statement.close();
+            }
+        }
+        PreparedStatement statement = connection.prepareStatement(INSERT);
+        try {
+            statement.setString(1, name);
+            statement.setString(2, delimiter);
+            statement.executeUpdate();
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Record the offset of the end of the last batch of statements executed
+     * and the delimiter in effect at that offset.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param offset
+     *            The offset of the end of the last statement executed.
+     * @param delimiter
+     *            The statement delimiter.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void record(Connection connection, long offset, String delimiter) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(UPDATE);
+        try {
+            statement.setString(1, Long.toString(offset));
+            statement.setString(2, delimiter);
+            statement.setString(3, name);
+            statement.executeUpdate();
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Delete the progress of the completed script.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void finish(Connection connection) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(DELETE);
+        try {
+            statement.setString(1, name);
+            statement.executeUpdate();
+        } finally {
+            statement.close();
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.goodworkalan.addendum;
+
+import java.io.IOException;
+
+/**
+ * Splits an SQL script into statements as it is read, one byte at a time,
+ * from an {@link Input}, so that only the current statement is held in
+ * memory.
+ * <p>
+ * Statements are separated by a delimiter, which is a semicolon by default.
+ * A delimiter inside of a string literal, a quoted identifier, a comment or a
+ * PostgreSQL dollar quoted string does not end a statement. If backslash
+ * escapes are enabled, as they are by default in MySQL, a backslash within a
+ * string literal or a double quoted identifier escapes the byte that follows
+ * it, so that an escaped quote does not end the literal. The delimiter can
+ * be changed within the script by a MySQL style <code>DELIMITER</code>
+ * directive on a line by itself. Statements that contain only comments and
+ * white space are skipped.
+ * <p>
+ * The offset of the end of each statement in the script is recorded, so that
+ * the reading of the script can be resumed after a statement.
+ *
+ * @author Alan Gutierrez
+ */
+class ScriptReader {
+    /** Outside of any quote or comment. */
+    private final static int NORMAL = 0;
+
+    /** Within a string literal. */
+    private final static int SINGLE = 1;
+
+    /** Within a double quoted identifier. */
+    private final static int DOUBLE = 2;
+
+    /** Within a back quoted identifier. */
+    private final static int BACKTICK = 3;
+
+    /** Within a line comment. */
+    private final static int LINE_COMMENT = 4;
+
+    /** Within a block comment. */
+    private final static int BLOCK_COMMENT = 5;
+
+    /** Within a dollar quoted string. */
+    private final static int DOLLAR = 6;
+
+    /** The input. */
+    private final Input input;
+
+    /** The statement delimiter. */
+    private byte[] delimiter;
+
+    /** Whether dollar quoted strings are recognized. */
+    private boolean dollarQuotes;
+
+    /** Whether a backslash within quotes escapes the next byte. */
+    private final boolean backslashEscapes;
+
+    /** Whether the previous byte was an escaping backslash. */
+    private boolean escaped;
+
+    /** The bytes of the current statement. */
+    private byte[] statement = new byte[1024];
+
+    /** The length of the current statement. */
+    private int length;
+
+    /** The current quote or comment state. */
+    private int state;
+
+    /** The number of bytes appended since the last quote or comment. */
+    private int normalRun;
+
+    /** The index of a dollar sign that may begin a dollar quote tag or -1. */
+    private int dollar;
+
+    /** The dollar quote tag including the dollar signs. */
+    private byte[] tag;
+
+    /** The index after the opening dollar quote tag or block comment. */
+    private int opened;
+
+    /** The offset of the end of the last statement read. */
+    private long offset;
+
+    /**
+     * Create a script reader that reads statements from the given input that
+     * are separated by the given delimiter.
+     *
+     * @param input
+     *            The input.
+     * @param delimiter
+     *            The statement delimiter.
+     */
+    public ScriptReader(Input input, String delimiter) {
+        this(input, delimiter, false);
+    }
+
+    /**
+     * Create a script reader that reads statements from the given input that
+     * are separated by the given delimiter, optionally treating a backslash
+     * within quotes as an escape of the byte that follows it.
+     *
+     * @param input
+     *            The input.
+     * @param delimiter
+     *            The statement delimiter.
+     * @param backslashEscapes
+     *            Whether a backslash within quotes escapes the next byte.
+     */
+    public ScriptReader(Input input, String delimiter, boolean backslashEscapes) {
+        this.input = input;
+        this.offset = input.getPosition();
+        this.backslashEscapes = backslashEscapes;
+        setDelimiter(delimiter);
+    }
+
+    /**
+     * Set the statement delimiter. Dollar quoted strings are not recognized
+     * if the delimiter contains a dollar sign.
+     *
+     * @param delimiter
+     *            The statement delimiter.
+     */
+    private void setDelimiter(String delimiter) {
+        try {
+            this.delimiter = delimiter.getBytes("UTF-8");
+            this.dollarQuotes = delimiter.indexOf('$') == -1;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Get the current statement delimiter, which may have been changed by a
+     * directive in the script.
+     *
+     * @return The statement delimiter.
+     */
+    public String getDelimiter() {
+        try {
+            return new String(delimiter, "UTF-8");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Get the offset in the script of the end of the last statement read.
+     *
+     * @return The offset of the end of the last statement.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Append the given byte to the current statement.
+     *
+     * @param b
+     *            The byte.
+     */
+    private void append(int b) {
+        if (length == statement.length) {
+            byte[] grown = new byte[length * 2];
+            System.arraycopy(statement, 0, grown, 0, length);
+            statement = grown;
+        }
+        statement[length++] = (byte) b;
+    }
+
+    /**
+     * Determine whether the current statement ends with the given bytes,
+     * ignoring the case of letters.
+     *
+     * @param bytes
+     *            The bytes.
+     * @param start
+     *            The earliest index at which the bytes can begin.
+     * @return True if the current statement ends with the bytes.
+     */
+    private boolean endsWith(byte[] bytes, int start) {
+        int from = length - bytes.length;
+        if (from < start) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (Character.toLowerCase((char) statement[from + i]) != Character.toLowerCase((char) bytes[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determine whether the given byte can be part of an identifier or a
+     * dollar quote tag.
+     *
+     * @param b
+     *            The byte.
+     * @return True if the byte is a letter, digit or underscore.
+     */
+    private static boolean isIdentifier(int b) {
+        return b == '_' || (b >= '0' && b <= '9') || (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b >= 0x80;
+    }
+
+    /**
+     * If the current statement is a <code>DELIMITER</code> directive, change
+     * the delimiter and return true.
+     *
+     * @return True if the current statement is a delimiter directive.
+     * @throws IOException
+     *             For any I/O error.
+     */
+    private boolean directive() throws IOException {
+        int start = 0;
+        while (start < length && Character.isWhitespace((char) statement[start])) {
+            start++;
+        }
+        if (length - start < 11 || (statement[start] | 0x20) != 'd' || !new String(statement, start, 10, "UTF-8").toUpperCase().matches("DELIMITER\\s")) {
+            return false;
+        }
+        String delimiter = new String(statement, start + 10, length - start - 10, "UTF-8").trim();
+        if (delimiter.length() == 0) {
+            return false;
+        }
+        setDelimiter(delimiter);
+        return true;
+    }
+
+    /**
+     * Get the current statement up to the given length as a string, or null
+     * if the statement contains only comments and white space.
+     *
+     * @param end
+     *            The length of the statement without the delimiter.
+     * @return The statement or null.
+     * @throws IOException
+     *             For any I/O error.
+     */
+    private String getStatement(int end) throws IOException {
+        int i = 0;
+        while (i < end) {
+            if (Character.isWhitespace((char) statement[i])) {
+                i++;
+            } else if (i + 1 < end && statement[i] == '-' && statement[i + 1] == '-') {
+                while (i < end && statement[i] != '\n') {
+                    i++;
+                }
+            } else if (i + 1 < end && statement[i] == '/' && statement[i + 1] == '*') {
+                i += 3;
+                while (i < end && !(statement[i - 1] == '*' && statement[i] == '/')) {
+                    i++;
+                }
+                i++;
+            } else {
+                return new String(statement, 0, end, "UTF-8").trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read the next statement, returning null at the end of the script.
+     *
+     * @return The next statement or null.
+     * @throws IOException
+     *             For any I/O error.
+     */
+    public String next() throws IOException {
+        length = 0;
+        state = NORMAL;
+        normalRun = 0;
+        dollar = -1;
+        escaped = false;
+        for (;;) {
+            int b = input.read();
+            if (b == -1) {
+                offset = input.getPosition();
+                return state == NORMAL && directive() ? null : getStatement(length);
+            }
+            append(b);
+            switch (state) {
+            case NORMAL:
+                normalRun++;
+                if (normalRun >= delimiter.length && endsWith(delimiter, 0)) {
+                    offset = input.getPosition();
+                    String sql = getStatement(length - delimiter.length);
+                    if (sql != null) {
+                        return sql;
+                    }
+                    length = 0;
+                    normalRun = 0;
+                    dollar = -1;
+                    break;
+                }
+                switch (b) {
+                case '\'':
+                    state = SINGLE;
+                    break;
+                case '"':
+                    state = DOUBLE;
+                    break;
+                case '`':
+                    state = BACKTICK;
+                    break;
+                case '-':
+                    if (normalRun >= 2 && statement[length - 2] == '-') {
+                        state = LINE_COMMENT;
+                    }
+                    break;
+                case '*':
+                    if (normalRun >= 2 && statement[length - 2] == '/') {
+                        state = BLOCK_COMMENT;
+                        opened = length;
+                    }
+                    break;
+                case '\n':
+                    if (directive()) {
+                        offset = input.getPosition();
+                        length = 0;
+                        normalRun = 0;
+                        dollar = -1;
+                    }
+                    break;
+                case '$':
+                    if (dollar != -1) {
+                        tag = new byte[length - dollar];
+                        System.arraycopy(statement, dollar, tag, 0, tag.length);
+                        opened = length;
+                        state = DOLLAR;
+                        dollar = -1;
+                    } else if ((length == 1 || !isIdentifier(statement[length - 2])) && dollarQuotes) {
+                        dollar = length - 1;
+                    }
+                    break;
+                default:
+                    if (!isIdentifier(b)) {
+                        dollar = -1;
+                    }
+                    break;
+                }
+                if (state != NORMAL) {
+                    normalRun = 0;
+                    dollar = -1;
+                }
+                break;
+            case SINGLE:
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\' && backslashEscapes) {
+                    escaped = true;
+                } else if (b == '\'') {
+                    state = NORMAL;
+                }
+                break;
+            case DOUBLE:
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\' && backslashEscapes) {
+                    escaped = true;
+                } else if (b == '"') {
+                    state = NORMAL;
+                }
+                break;
+            case BACKTICK:
+                if (b == '`') {
+                    state = NORMAL;
+                }
+                break;
+            case LINE_COMMENT:
+                if (b == '\n') {
+                    state = NORMAL;
+                }
+                break;
+            case BLOCK_COMMENT:
+                if (b == '/' && length - opened >= 2 && statement[length - 2] == '*') {
+                    state = NORMAL;
+                }
+                break;
+            case DOLLAR:
+                if (b == '$' && endsWith(tag, opened)) {
+                    state = NORMAL;
+                }
+                break;
+            }
+        }
+    }
+}
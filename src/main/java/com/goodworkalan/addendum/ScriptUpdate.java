@@ -0,0 +1,120 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.Addendum.CANNOT_EXECUTE_SCRIPT;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.slf4j.LoggerFactory;
+
+import com.goodworkalan.addendum.dialect.Dialect;
+import com.goodworkalan.danger.Danger;
+import com.goodworkalan.notice.Notice;
+import com.goodworkalan.notice.NoticeFactory;
+
+/**
+ * A database update that executes the statements of an SQL script file in
+ * batches as the script is read, so that the script is never held in memory.
+ * The offset of the end of each batch is recorded, so that a script that is
+ * interrupted continues after the last executed batch. A batch that was
+ * executed but not recorded is executed again, so the statements of a script
+ * that may be interrupted should be safe to repeat.
+ *
+ * @author Alan Gutierrez
+ */
+class ScriptUpdate extends DatabaseUpdate {
+    /** The notice factory specifically for the <code>ScriptUpdate</code>. */
+    private final static NoticeFactory NOTICES = new NoticeFactory(LoggerFactory.getLogger(ScriptUpdate.class));
+
+    /** The number of statements executed in each batch. */
+    private final static int BATCH_SIZE = 100;
+
+    /** The file name or class path resource name. */
+    private final String resource;
+
+    /** The initial statement delimiter. */
+    private final String delimiter;
+
+    /**
+     * Create a script update.
+     *
+     * @param resource
+     *            The file name or class path resource name.
+     * @param delimiter
+     *            The initial statement delimiter.
+     */
+    public ScriptUpdate(String resource, String delimiter) {
+        super(CANNOT_EXECUTE_SCRIPT, resource);
+        this.resource = resource;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Execute the statements of the script in batches, starting after the
+     * recorded offset if the script was interrupted.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    @Override
+    public void execute(Connection connection, Dialect dialect) throws SQLException {
+        Notice info = NOTICES.info("script");
+        long start = System.currentTimeMillis();
+        int count = 0;
+        Input input = null;
+        try {
+            info.put("resource", resource);
+            dialect.flushBatch(connection);
+            ScriptProgress progress = new ScriptProgress(resource);
+            long offset = progress.getOffset(connection);
+            input = Input.open(resource);
+            String current = delimiter;
+            if (offset == -1L) {
+                progress.start(connection, current);
+            } else {
+                info.put("resumed", offset);
+                input.seek(offset);
+                current = progress.getDelimiter();
+            }
+            ScriptReader reader = new ScriptReader(input, current, dialect.isBackslashEscape());
+            Statement statement = connection.createStatement();
+            try {
+                int batch = 0;
+                String sql;
+                while ((sql = reader.next()) != null) {
+                    statement.addBatch(sql);
+                    count++;
+                    if (++batch == BATCH_SIZE) {
+                        statement.executeBatch();
+                        progress.record(connection, reader.getOffset(), reader.getDelimiter());
+                        batch = 0;
+                    }
+                }
+                if (batch != 0) {
+                    statement.executeBatch();
+                }
+            } finally {
+                statement.close();
+            }
+            progress.finish(connection);
+        } catch (IOException e) {
+            throw new Danger(Addendum.class, CANNOT_EXECUTE_SCRIPT, e, resource);
+        } finally {
+            if (input != null) {
+                info.put("bytes", input.getPosition());
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    // Nothing more can be done.
+                }
+            }
+            info.put("statements", count).put("duration", System.currentTimeMillis() - start).send();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.goodworkalan.addendum;
+
+import com.goodworkalan.addendum.connector.Connector;
+
+/**
+ * The settings of a single amend given to each database update it applies.
+ * The settings are passed to the updates rather than set on the dialect, so
+ * that a dialect can be shared by amends with different settings running at
+ * the same time.
+ *
+ * @author Alan Gutierrez
+ */
+final class Settings {
+    /** The connector of the database being amended or null. */
+    private final Connector connector;
+
+    /** The number of rows initialized by each statement of a backfill. */
+    private final int backfillChunkSize;
+
+    /** The number of rows inserted by each batch. */
+    private final int insertBatchSize;
+
+    /**
+     * Create settings with no connector that initialize a not null column
+     * with a single statement and insert rows in batches of 100.
+     */
+    public Settings() {
+        this(null, 0, 100);
+    }
+
+    /**
+     * Create settings.
+     *
+     * @param connector
+     *            The connector of the database being amended or null.
+     * @param backfillChunkSize
+     *            The number of rows initialized by each statement of a
+     *            backfill, or zero to initialize a column with a single
+     *            statement.
+     * @param insertBatchSize
+     *            The number of rows inserted by each batch.
+     */
+    public Settings(Connector connector, int backfillChunkSize, int insertBatchSize) {
+        this.connector = connector;
+        this.backfillChunkSize = backfillChunkSize;
+        this.insertBatchSize = insertBatchSize;
+    }
+
+    /**
+     * Get the connector of the database being amended, available to updates
+     * that open connections of their own, or null if there is none.
+     *
+     * @return The connector or null.
+     */
+    public Connector getConnector() {
+        return connector;
+    }
+
+    /**
+     * Get the number of rows initialized by each statement when a not null
+     * column is added to a table, or zero to initialize all of the rows with
+     * a single statement.
+     *
+     * @return The backfill chunk size.
+     */
+    public int getBackfillChunkSize() {
+        return backfillChunkSize;
+    }
+
+    /**
+     * Get the number of rows inserted by each batch.
+     *
+     * @return The insert batch size.
+     */
+    public int getInsertBatchSize() {
+        return insertBatchSize;
+    }
+}
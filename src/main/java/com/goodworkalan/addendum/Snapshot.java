@@ -0,0 +1,411 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.Addendum.SNAPSHOT_INVALID;
+import static com.goodworkalan.addendum.Addendum.SNAPSHOT_VALUE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import com.goodworkalan.addendum.dialect.Column;
+import com.goodworkalan.danger.Danger;
+
+/**
+ * A compact binary snapshot of the tracking schema as it is after a number of
+ * addenda, together with the fingerprint chain of those addenda, so that the
+ * tracking schema can be loaded instead of replaying every addendum.
+ * <p>
+ * The snapshot begins with a magic number and a format version, and ends
+ * with a CRC-32 checksum of everything before it, so that a snapshot of
+ * another version or a damaged snapshot is rejected when it is read.
+ *
+ * @author Alan Gutierrez
+ */
+class Snapshot {
+    /** The magic number that begins every snapshot. */
+    private final static int MAGIC = 0x41444453;
+
+    /** The format version written by this implementation. */
+    private final static int VERSION = 1;
+
+    /** A null value. */
+    private final static int NULL = 0;
+
+    /** A string value. */
+    private final static int STRING = 1;
+
+    /** A boolean value. */
+    private final static int BOOLEAN = 2;
+
+    /** A byte value. */
+    private final static int BYTE = 3;
+
+    /** A short value. */
+    private final static int SHORT = 4;
+
+    /** An integer value. */
+    private final static int INTEGER = 5;
+
+    /** A long value. */
+    private final static int LONG = 6;
+
+    /** A float value. */
+    private final static int FLOAT = 7;
+
+    /** A double value. */
+    private final static int DOUBLE = 8;
+
+    /** A character value. */
+    private final static int CHARACTER = 9;
+
+    /** A big decimal value. */
+    private final static int BIG_DECIMAL = 10;
+
+    /** A big integer value. */
+    private final static int BIG_INTEGER = 11;
+
+    /** A date value. */
+    private final static int DATE = 12;
+
+    /** An SQL date value. */
+    private final static int SQL_DATE = 13;
+
+    /** An SQL time value. */
+    private final static int SQL_TIME = 14;
+
+    /** An SQL timestamp value. */
+    private final static int SQL_TIMESTAMP = 15;
+
+    /** The number of addenda the snapshot describes. */
+    private final int count;
+
+    /** The fingerprint chain of the addenda the snapshot describes. */
+    private final byte[] chain;
+
+    /**
+     * Create a snapshot of the given number of addenda with the given
+     * fingerprint chain.
+     *
+     * @param count
+     *            The number of addenda the snapshot describes.
+     * @param chain
+     *            The fingerprint chain of the addenda.
+     */
+    private Snapshot(int count, byte[] chain) {
+        this.count = count;
+        this.chain = chain;
+    }
+
+    /**
+     * Get the number of addenda the snapshot describes.
+     *
+     * @return The number of addenda.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Get the fingerprint chain of the addenda the snapshot describes.
+     *
+     * @return The fingerprint chain.
+     */
+    public byte[] getChain() {
+        return chain;
+    }
+
+    /**
+     * Write a snapshot of the given tracking schema as it is after the given
+     * number of addenda with the given fingerprint chain to the given output
+     * stream.
+     *
+     * @param schema
+     *            The tracking schema.
+     * @param count
+     *            The number of addenda applied to the schema.
+     * @param chain
+     *            The fingerprint chain of the addenda.
+     * @param out
+     *            The output stream.
+     * @throws IOException
+     *             For any I/O error.
+     */
+    public static void write(Schema schema, int count, byte[] chain, OutputStream out) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeInt(count);
+        data.writeShort(chain.length);
+        data.write(chain);
+        data.writeInt(schema.aliases.size());
+        for (Map.Entry<String, String> alias : schema.aliases.entrySet()) {
+            data.writeUTF(alias.getKey());
+            data.writeUTF(alias.getValue());
+        }
+        data.writeInt(schema.entities.size());
+        for (Entity entity : schema.entities.values()) {
+            data.writeUTF(entity.tableName);
+            data.writeInt(entity.primaryKey.size());
+            for (String columnName : entity.primaryKey) {
+                data.writeUTF(columnName);
+            }
+            data.writeInt(entity.properties.size());
+            for (Map.Entry<String, String> property : entity.properties.entrySet()) {
+                data.writeUTF(property.getKey());
+                data.writeUTF(property.getValue());
+            }
+            data.writeInt(entity.columns.size());
+            for (Column column : entity.columns.values()) {
+                write(data, column);
+            }
+        }
+        data.flush();
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        data.writeLong(crc.getValue());
+        data.flush();
+        bytes.writeTo(out);
+    }
+
+    /**
+     * Write the given column definition.
+     *
+     * @param data
+     *            The data output.
+     * @param column
+     *            The column definition.
+     * @throws IOException
+     *             For any I/O error.
+     */
+    private static void write(DataOutputStream data, Column column) throws IOException {
+        data.writeUTF(column.getName());
+        data.writeInt(column.getColumnType());
+        data.writeBoolean(column.isNotNull());
+        writeInteger(data, column.getLength());
+        writeInteger(data, column.getPrecision());
+        writeInteger(data, column.getScale());
+        data.writeBoolean(column.getGeneratorType() != null);
+        if (column.getGeneratorType() != null) {
+            data.writeUTF(column.getGeneratorType().name());
+        }
+        Object value = column.getDefaultValue();
+        if (value == null) {
+            data.writeByte(NULL);
+        } else if (value instanceof String) {
+            data.writeByte(STRING);
+            data.writeUTF((String) value);
+        } else if (value instanceof Boolean) {
+            data.writeByte(BOOLEAN);
+            data.writeBoolean((Boolean) value);
+        } else if (value instanceof Byte) {
+            data.writeByte(BYTE);
+            data.writeByte((Byte) value);
+        } else if (value instanceof Short) {
+            data.writeByte(SHORT);
+            data.writeShort((Short) value);
+        } else if (value instanceof Integer) {
+            data.writeByte(INTEGER);
+            data.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            data.writeByte(LONG);
+            data.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            data.writeByte(FLOAT);
+            data.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            data.writeByte(DOUBLE);
+            data.writeDouble((Double) value);
+        } else if (value instanceof Character) {
+            data.writeByte(CHARACTER);
+            data.writeChar((Character) value);
+        } else if (value instanceof BigDecimal) {
+            data.writeByte(BIG_DECIMAL);
+            data.writeUTF(value.toString());
+        } else if (value instanceof BigInteger) {
+            data.writeByte(BIG_INTEGER);
+            data.writeUTF(value.toString());
+        } else if (value instanceof java.sql.Date) {
+            data.writeByte(SQL_DATE);
+            data.writeLong(((java.sql.Date) value).getTime());
+        } else if (value instanceof java.sql.Time) {
+            data.writeByte(SQL_TIME);
+            data.writeLong(((java.sql.Time) value).getTime());
+        } else if (value instanceof java.sql.Timestamp) {
+            data.writeByte(SQL_TIMESTAMP);
+            data.writeLong(((java.sql.Timestamp) value).getTime());
+            data.writeInt(((java.sql.Timestamp) value).getNanos());
+        } else if (value.getClass().equals(java.util.Date.class)) {
+            data.writeByte(DATE);
+            data.writeLong(((java.util.Date) value).getTime());
+        } else {
+            throw new Danger(Addendum.class, SNAPSHOT_VALUE, value.getClass().getCanonicalName(), column.getName());
+        }
+    }
+
+    /**
+     * Write an integer that may be null.
+     *
+     * @param data
+     *            The data output.
+     * @param value
+     *            The integer or null.
+     * @throws IOException
+     *             For any I/O error.
+     */
+    private static void writeInteger(DataOutputStream data, Integer value) throws IOException {
+        data.writeBoolean(value != null);
+        if (value != null) {
+            data.writeInt(value);
+        }
+    }
+
+    /**
+     * Read a snapshot from the given input stream into the given empty
+     * tracking schema.
+     *
+     * @param schema
+     *            The empty tracking schema.
+     * @param in
+     *            The input stream.
+     * @return The number of addenda and the fingerprint chain of the
+     *         snapshot.
+     * @throws IOException
+     *             For any I/O error.
+     * @exception Danger
+     *                If the snapshot is damaged or of another version.
+     */
+    public static Snapshot read(Schema schema, InputStream in) throws IOException {
+        CheckedInputStream checked = new CheckedInputStream(in, new CRC32());
+        DataInputStream data = new DataInputStream(checked);
+        if (data.readInt() != MAGIC || data.readShort() != VERSION) {
+            throw new Danger(Addendum.class, SNAPSHOT_INVALID);
+        }
+        int count = data.readInt();
+        byte[] chain = new byte[data.readShort()];
+        data.readFully(chain);
+        for (int i = 0, stop = data.readInt(); i < stop; i++) {
+            String entityName = data.readUTF();
+            schema.aliases.put(entityName, data.readUTF());
+        }
+        for (int i = 0, entities = data.readInt(); i < entities; i++) {
+            Entity entity = new Entity(data.readUTF());
+            for (int j = 0, stop = data.readInt(); j < stop; j++) {
+                entity.primaryKey.add(data.readUTF());
+            }
+            for (int j = 0, stop = data.readInt(); j < stop; j++) {
+                String property = data.readUTF();
+                entity.properties.put(property, data.readUTF());
+            }
+            for (int j = 0, stop = data.readInt(); j < stop; j++) {
+                Column column = read(data);
+                entity.columns.put(column.getName(), column);
+            }
+            schema.entities.put(entity.tableName, entity);
+        }
+        long expected = checked.getChecksum().getValue();
+        if (new DataInputStream(in).readLong() != expected) {
+            throw new Danger(Addendum.class, SNAPSHOT_INVALID);
+        }
+        return new Snapshot(count, chain);
+    }
+
+    /**
+     * Read a column definition.
+     *
+     * @param data
+     *            The data input.
+     * @return The column definition.
+     * @throws IOException
+     *             For any I/O error.
+     */
+    private static Column read(DataInputStream data) throws IOException {
+        Column column = new Column(data.readUTF(), data.readInt());
+        column.setNotNull(data.readBoolean());
+        column.setLength(readInteger(data));
+        column.setPrecision(readInteger(data));
+        column.setScale(readInteger(data));
+        if (data.readBoolean()) {
+            try {
+                column.setGeneratorType(GeneratorType.valueOf(data.readUTF()));
+            } catch (IllegalArgumentException e) {
+                throw new Danger(Addendum.class, SNAPSHOT_INVALID, e);
+            }
+        }
+        switch (data.readByte()) {
+        case NULL:
+            break;
+        case STRING:
+            column.setDefaultValue(data.readUTF());
+            break;
+        case BOOLEAN:
+            column.setDefaultValue(data.readBoolean());
+            break;
+        case BYTE:
+            column.setDefaultValue(data.readByte());
+            break;
+        case SHORT:
+            column.setDefaultValue(data.readShort());
+            break;
+        case INTEGER:
+            column.setDefaultValue(data.readInt());
+            break;
+        case LONG:
+            column.setDefaultValue(data.readLong());
+            break;
+        case FLOAT:
+            column.setDefaultValue(data.readFloat());
+            break;
+        case DOUBLE:
+            column.setDefaultValue(data.readDouble());
+            break;
+        case CHARACTER:
+            column.setDefaultValue(data.readChar());
+            break;
+        case BIG_DECIMAL:
+            column.setDefaultValue(new BigDecimal(data.readUTF()));
+            break;
+        case BIG_INTEGER:
+            column.setDefaultValue(new BigInteger(data.readUTF()));
+            break;
+        case DATE:
+            column.setDefaultValue(new java.util.Date(data.readLong()));
+            break;
+        case SQL_DATE:
+            column.setDefaultValue(new java.sql.Date(data.readLong()));
+            break;
+        case SQL_TIME:
+            column.setDefaultValue(new java.sql.Time(data.readLong()));
+            break;
+        case SQL_TIMESTAMP:
+            java.sql.Timestamp timestamp = new java.sql.Timestamp(data.readLong());
+            timestamp.setNanos(data.readInt());
+            column.setDefaultValue(timestamp);
+            break;
+        default:
+            throw new Danger(Addendum.class, SNAPSHOT_INVALID);
+        }
+        return column;
+    }
+
+    /**
+     * Read an integer that may be null.
+     *
+     * @param data
+     *            The data input.
+     * @return The integer or null.
+     * @throws IOException
+     *             For any I/O error.
+     */
+    private static Integer readInteger(DataInputStream data) throws IOException {
+        return data.readBoolean() ? data.readInt() : null;
+    }
+}
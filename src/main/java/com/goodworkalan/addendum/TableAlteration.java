@@ -0,0 +1,221 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.Addendum.CANNOT_ALTER_TABLE;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.goodworkalan.addendum.dialect.ColumnChange;
+import com.goodworkalan.addendum.dialect.Dialect;
+
+/**
+ * A database update that applies many column changes to a single table with
+ * a single call to {@link Dialect#alterTable(Connection, String, List, int)
+ * Dialect.alterTable}, created by coalescing adjacent {@link ColumnUpdate}
+ * instances.
+ * 
+ * @author Alan Gutierrez
+ */
+class TableAlteration extends DatabaseUpdate {
+    /** The table name. */
+    private final String tableName;
+
+    /** The column changes. */
+    private final List<ColumnChange> changes;
+
+    /**
+     * Create a table alteration that applies the given column changes to the
+     * table with the given name.
+     * 
+     * @param tableName
+     *            The table name.
+     * @param changes
+     *            The column changes.
+     */
+    public TableAlteration(String tableName, List<ColumnChange> changes) {
+        super(CANNOT_ALTER_TABLE, tableName);
+        this.tableName = tableName;
+        this.changes = changes;
+    }
+
+    /**
+     * Get the name of the table whose columns are changed.
+     * 
+     * @return The table name in a set.
+     */
+    @Override
+    public Set<String> getTableNames() {
+        return Collections.singleton(tableName);
+    }
+
+    /**
+     * A table alteration is a data definition.
+     * 
+     * @return True.
+     */
+    @Override
+    public boolean isDataDefinition() {
+        return true;
+    }
+
+    /**
+     * A table alteration can be batched if it contains only column additions
+     * and drops.
+     * 
+     * @return True if there are no column alterations.
+     */
+    @Override
+    public boolean isBatchable() {
+        for (ColumnChange change : changes) {
+            if (change.getType() == ColumnChange.Type.ALTER) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Apply the column changes using the given JDBC connection and the given
+     * SQL dialect with the default settings.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    @Override
+    public void execute(Connection connection, Dialect dialect) throws SQLException {
+        execute(connection, dialect, new Settings());
+    }
+
+    /**
+     * Apply the column changes using the given JDBC connection and the given
+     * SQL dialect, initializing added not null columns in chunks of the
+     * backfill chunk size of the given settings.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @param settings
+     *            The settings of the amend.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    @Override
+    public void execute(Connection connection, Dialect dialect, Settings settings) throws SQLException {
+        dialect.alterTable(connection, tableName, changes, settings.getBackfillChunkSize());
+    }
+
+    /**
+     * Coalesce runs of adjacent column updates to the same table in the given
+     * list of database updates into table alterations. A run is broken when a
+     * column name is changed a second time, so that each table alteration
+     * changes any column at most once. Runs of a single column update are not
+     * coalesced. Adjacent online alterations of the same table are merged, so
+     * that the table is copied once. Adjacent inserts into the same columns
+     * of the same table are merged, so that their rows are inserted in
+     * batches by a single prepared statement.
+     * 
+     * @param updates
+     *            The database updates of an addendum.
+     * @return The database updates with column updates coalesced.
+     */
+    public static List<DatabaseUpdate> coalesce(List<DatabaseUpdate> updates) {
+        List<DatabaseUpdate> coalesced = new ArrayList<DatabaseUpdate>();
+        List<ColumnUpdate> run = new ArrayList<ColumnUpdate>();
+        Set<String> columnNames = new HashSet<String>();
+        for (DatabaseUpdate update : updates) {
+            if (update instanceof ColumnUpdate) {
+                ColumnUpdate columnUpdate = (ColumnUpdate) update;
+                if (!run.isEmpty() && !run.get(0).getTableName().equals(columnUpdate.getTableName())) {
+                    end(coalesced, run, columnNames);
+                }
+                if (!touch(columnNames, columnUpdate.getChange())) {
+                    end(coalesced, run, columnNames);
+                    touch(columnNames, columnUpdate.getChange());
+                }
+                run.add(columnUpdate);
+            } else if (update instanceof OnlineAlteration) {
+                end(coalesced, run, columnNames);
+                OnlineAlteration online = (OnlineAlteration) update;
+                int last = coalesced.size() - 1;
+                if (last != -1 && coalesced.get(last) instanceof OnlineAlteration
+                    && ((OnlineAlteration) coalesced.get(last)).getTableName().equals(online.getTableName())) {
+                    coalesced.set(last, ((OnlineAlteration) coalesced.get(last)).merge(online));
+                } else {
+                    coalesced.add(update);
+                }
+            } else if (update instanceof InsertUpdate) {
+                end(coalesced, run, columnNames);
+                InsertUpdate insert = (InsertUpdate) update;
+                int last = coalesced.size() - 1;
+                if (last != -1 && coalesced.get(last) instanceof InsertUpdate
+                    && ((InsertUpdate) coalesced.get(last)).canMerge(insert)) {
+                    coalesced.set(last, ((InsertUpdate) coalesced.get(last)).merge(insert));
+                } else {
+                    coalesced.add(update);
+                }
+            } else {
+                end(coalesced, run, columnNames);
+                coalesced.add(update);
+            }
+        }
+        end(coalesced, run, columnNames);
+        return coalesced;
+    }
+
+    /**
+     * Record the column names changed by the given change in the given set,
+     * returning false if any of them have already been changed.
+     * 
+     * @param columnNames
+     *            The column names changed in the current run.
+     * @param change
+     *            The column change.
+     * @return True if none of the column names have already been changed.
+     */
+    private static boolean touch(Set<String> columnNames, ColumnChange change) {
+        String name = change.getName();
+        String newName = change.getColumn() == null ? name : change.getColumn().getName();
+        if (columnNames.contains(name) || columnNames.contains(newName)) {
+            return false;
+        }
+        columnNames.add(name);
+        columnNames.add(newName);
+        return true;
+    }
+
+    /**
+     * End the given run of column updates, adding a single table alteration
+     * for the run to the given list of coalesced updates, or the update itself
+     * if the run has only one update.
+     * 
+     * @param coalesced
+     *            The coalesced database updates.
+     * @param run
+     *            The run of column updates to the same table.
+     * @param columnNames
+     *            The column names changed in the run.
+     */
+    private static void end(List<DatabaseUpdate> coalesced, List<ColumnUpdate> run, Set<String> columnNames) {
+        if (run.size() == 1) {
+            coalesced.add(run.get(0));
+        } else if (run.size() > 1) {
+            List<ColumnChange> changes = new ArrayList<ColumnChange>();
+            for (ColumnUpdate columnUpdate : run) {
+                changes.add(columnUpdate.getChange());
+            }
+            coalesced.add(new TableAlteration(run.get(0).getTableName(), changes));
+        }
+        run.clear();
+        columnNames.clear();
+    }
+}
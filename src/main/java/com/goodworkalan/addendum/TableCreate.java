@@ -4,6 +4,8 @@ import static com.goodworkalan.addendum.Addendum.CANNOT_CREATE_TABLE;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Set;
 
 import com.goodworkalan.addendum.dialect.Dialect;
 
@@ -44,10 +46,27 @@ class TableCreate implements SchemaUpdate {
     public DatabaseUpdate execute(Schema schema) {
         schema.aliases.put(entityName, entity.tableName);
         schema.entities.put(entity.tableName, entity);
-        return new DatabaseUpdate(CANNOT_CREATE_TABLE, entityName, entity.tableName) {
+        // Later addenda alter the entity in the schema, not the created table.
+        final Entity created = new Entity(entity);
+        return new DatabaseUpdate(CANNOT_CREATE_TABLE, entityName, created.tableName) {
             public void execute(Connection connection, Dialect dialect)
             throws SQLException {
-                dialect.createTable(connection, entity.tableName, entity.columns.values(), entity.primaryKey);
+                dialect.createTable(connection, created.tableName, created.columns.values(), created.primaryKey);
+            }
+
+            @Override
+            public Set<String> getTableNames() {
+                return Collections.singleton(created.tableName);
+            }
+
+            @Override
+            public boolean isDataDefinition() {
+                return true;
+            }
+
+            @Override
+            public boolean isBatchable() {
+                return true;
             }
         };
     }
@@ -1,12 +1,5 @@
 package com.goodworkalan.addendum;
 
-import static com.goodworkalan.addendum.Addendum.CANNOT_RENAME_TABLE;
-
-import java.sql.Connection;
-import java.sql.SQLException;
-
-import com.goodworkalan.addendum.dialect.Dialect;
-
 /**
  * Rename a table in the schema.
  * 
@@ -51,11 +44,6 @@ class TableRename implements SchemaUpdate {
         entity.tableName = to;
         schema.entities.put(to, entity);
         schema.aliases.put(alias, to);
-        return new DatabaseUpdate(CANNOT_RENAME_TABLE, from, to) {
-            public void execute(Connection connection, Dialect dialect)
-            throws SQLException {
-                dialect.renameTable(connection, from, to);
-            }
-        };
+        return new TableRenameUpdate(from, to);
     }
 }
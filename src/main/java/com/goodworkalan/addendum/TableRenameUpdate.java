@@ -0,0 +1,96 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.Addendum.CANNOT_RENAME_TABLE;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.goodworkalan.addendum.dialect.Dialect;
+
+/**
+ * A database update that renames a table. Table rename updates are exposed
+ * so that chains of renames can be folded by the {@link Optimizer}.
+ * 
+ * @author Alan Gutierrez
+ */
+class TableRenameUpdate extends DatabaseUpdate {
+    /** The existing table name. */
+    private final String from;
+
+    /** The new table name. */
+    private final String to;
+
+    /**
+     * Create a database update that renames the table with the given existing
+     * name to the given new name.
+     * 
+     * @param from
+     *            The existing table name.
+     * @param to
+     *            The new table name.
+     */
+    public TableRenameUpdate(String from, String to) {
+        super(CANNOT_RENAME_TABLE, from, to);
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Get the existing table name.
+     * 
+     * @return The existing table name.
+     */
+    public String getFrom() {
+        return from;
+    }
+
+    /**
+     * Get the new table name.
+     * 
+     * @return The new table name.
+     */
+    public String getTo() {
+        return to;
+    }
+
+    /**
+     * Get the existing and new table names.
+     * 
+     * @return The existing and new table names.
+     */
+    @Override
+    public Set<String> getTableNames() {
+        Set<String> tableNames = new HashSet<String>();
+        tableNames.add(from);
+        tableNames.add(to);
+        return tableNames;
+    }
+
+    /**
+     * A table rename is a data definition.
+     * 
+     * @return True.
+     */
+    @Override
+    public boolean isDataDefinition() {
+        return true;
+    }
+
+    /**
+     * Rename the table using the given JDBC connection and the given SQL
+     * dialect.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    @Override
+    public void execute(Connection connection, Dialect dialect) throws SQLException {
+        dialect.renameTable(connection, from, to);
+    }
+}
@@ -0,0 +1,85 @@
+package com.goodworkalan.addendum;
+
+/**
+ * The result of amending the database of a single tenant with a
+ * {@link FanOut}.
+ * 
+ * @author Alan Gutierrez
+ */
+public class TenantResult {
+    /** The tenant name. */
+    private final String tenant;
+
+    /** The host of the tenant database. */
+    private final String host;
+
+    /** The failure or null if the amend succeeded. */
+    private final RuntimeException failure;
+
+    /** The duration of the amend in milliseconds. */
+    private final long duration;
+
+    /**
+     * Create a tenant result.
+     * 
+     * @param tenant
+     *            The tenant name.
+     * @param host
+     *            The host of the tenant database.
+     * @param failure
+     *            The failure or null if the amend succeeded.
+     * @param duration
+     *            The duration of the amend in milliseconds.
+     */
+    TenantResult(String tenant, String host, RuntimeException failure, long duration) {
+        this.tenant = tenant;
+        this.host = host;
+        this.failure = failure;
+        this.duration = duration;
+    }
+
+    /**
+     * Get the tenant name.
+     * 
+     * @return The tenant name.
+     */
+    public String getTenant() {
+        return tenant;
+    }
+
+    /**
+     * Get the host of the tenant database.
+     * 
+     * @return The host.
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Determine whether the database of the tenant was amended.
+     * 
+     * @return True if the amend succeeded.
+     */
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    /**
+     * Get the exception that caused the amend to fail.
+     * 
+     * @return The failure or null if the amend succeeded.
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Get the duration of the amend in milliseconds.
+     * 
+     * @return The duration in milliseconds.
+     */
+    public long getDuration() {
+        return duration;
+    }
+}
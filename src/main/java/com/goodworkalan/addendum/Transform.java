@@ -0,0 +1,123 @@
+package com.goodworkalan.addendum;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.goodworkalan.addendum.dialect.Dialect;
+
+/**
+ * A builder that specifies the transformation of the rows of a table in
+ * ranges of a key column, with the ranges transformed at once on many
+ * connections.
+ * 
+ * @author Alan Gutierrez
+ */
+public class Transform {
+    /** The addendum builder. */
+    private final Addendum addendum;
+
+    /** The update action that will transform the rows. */
+    private final Transformation transformation;
+
+    /**
+     * Create a transform element that will specify the given transformation.
+     * 
+     * @param addendum
+     *            The addendum builder.
+     * @param transformation
+     *            The update action that will transform the rows.
+     */
+    Transform(Addendum addendum, Transformation transformation) {
+        this.addendum = addendum;
+        this.transformation = transformation;
+    }
+
+    /**
+     * Set the name of the key column used to divide the table into ranges.
+     * The key column must be unique and should be indexed. By default, the
+     * key column is the primary key column of a table with a single column
+     * primary key.
+     * 
+     * @param keyName
+     *            The key column name.
+     * @return This transform element to continue specifying the
+     *         transformation.
+     */
+    public Transform key(String keyName) {
+        transformation.setKeyName(keyName);
+        return this;
+    }
+
+    /**
+     * Set the number of keys in each range. The default is 1000.
+     * 
+     * @param chunkSize
+     *            The number of keys in each range.
+     * @return This transform element to continue specifying the
+     *         transformation.
+     */
+    public Transform chunkSize(int chunkSize) {
+        transformation.setChunkSize(chunkSize);
+        return this;
+    }
+
+    /**
+     * Set the number of ranges transformed at once, each on its own
+     * connection. The default is the number of available processors.
+     * 
+     * @param threads
+     *            The number of ranges transformed at once.
+     * @return This transform element to continue specifying the
+     *         transformation.
+     */
+    public Transform threads(int threads) {
+        transformation.setThreads(threads);
+        return this;
+    }
+
+    /**
+     * Transform the rows one range of keys at a time with the given chunk
+     * transformer.
+     * 
+     * @param transformer
+     *            The chunk transformer.
+     * @return The addendum builder.
+     */
+    public Addendum chunks(ChunkTransformer transformer) {
+        transformation.setTransformer(transformer);
+        return addendum;
+    }
+
+    /**
+     * Transform the rows one row at a time with the given row transformer.
+     * The rows of each range are selected in an updatable result set.
+     * 
+     * @param transformer
+     *            The row transformer.
+     * @return The addendum builder.
+     */
+    public Addendum rows(final RowTransformer transformer) {
+        final String tableName = transformation.getTableName();
+        return chunks(new ChunkTransformer() {
+            public void transform(Connection connection, Dialect dialect, Chunk chunk) throws SQLException {
+                String sql = "SELECT * FROM " + tableName + " WHERE " + chunk.getCondition();
+                PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_UPDATABLE);
+                try {
+                    chunk.bind(statement, 1);
+                    ResultSet rs = statement.executeQuery();
+                    try {
+                        while (rs.next()) {
+                            transformer.transform(connection, rs);
+                        }
+                    } finally {
+                        rs.close();
+                    }
+                } finally {
+                    statement.close();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,198 @@
+package com.goodworkalan.addendum;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.goodworkalan.addendum.dialect.Tables;
+
+/**
+ * Records the ranges of a transformation that have not been transformed in a
+ * progress table, so that if the process applying the addenda stops during
+ * the transformation, only the remaining ranges are transformed when the
+ * addendum is applied again.
+ * <p>
+ * The ranges are recorded when the transformation starts, together with a
+ * marker row that indicates that the ranges have been recorded. The row of a
+ * range is deleted in the same transaction that commits the transformation
+ * of the range, so each range is transformed exactly once.
+ *
+ * @author Alan Gutierrez
+ */
+class TransformProgress {
+    /** The name of the progress table. */
+    public final static String TABLE_NAME = "ADDENDA_TRANSFORM";
+
+    /** The chunk number of the marker row. */
+    private final static int MARKER = -1;
+
+    /** The SQL to create the progress table. */
+    private final static String CREATE = "CREATE TABLE ADDENDA_TRANSFORM (TABLE_NAME VARCHAR(255) NOT NULL, CHUNK_NUMBER INTEGER NOT NULL, LOWER_KEY VARCHAR(255), UPPER_KEY VARCHAR(255), PRIMARY KEY (TABLE_NAME, CHUNK_NUMBER))";
+
+    /** The SQL to select the remaining ranges of a transformation. */
+    private final static String SELECT = "SELECT CHUNK_NUMBER, LOWER_KEY, UPPER_KEY FROM ADDENDA_TRANSFORM WHERE TABLE_NAME = ? ORDER BY CHUNK_NUMBER";
+
+    /** The SQL to insert a range of a transformation. */
+    private final static String INSERT = "INSERT INTO ADDENDA_TRANSFORM (TABLE_NAME, CHUNK_NUMBER, LOWER_KEY, UPPER_KEY) VALUES (?, ?, ?, ?)";
+
+    /** The SQL to delete a transformed range. */
+    private final static String COMPLETE = "DELETE FROM ADDENDA_TRANSFORM WHERE TABLE_NAME = ? AND CHUNK_NUMBER = ?";
+
+    /** The SQL to delete the progress of a completed transformation. */
+    private final static String DELETE = "DELETE FROM ADDENDA_TRANSFORM WHERE TABLE_NAME = ?";
+
+    /** The table name. */
+    private final String tableName;
+
+    /** The key column name. */
+    private final String keyName;
+
+    /**
+     * Create the progress of the transformation of the given table.
+     *
+     * @param tableName
+     *            The table name.
+     * @param keyName
+     *            The key column name.
+     */
+    public TransformProgress(String tableName, String keyName) {
+        this.tableName = tableName;
+        this.keyName = keyName;
+    }
+
+    /**
+     * Get the ranges that remain to be transformed, or null if the
+     * transformation has not been started.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param keyType
+     *            The SQL type of the key column.
+     * @return The remaining ranges or null.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public List<Chunk> getChunks(Connection connection, int keyType) throws SQLException {
+        if (!Tables.exists(connection, TABLE_NAME)) {
+            return null;
+        }
+        PreparedStatement statement = connection.prepareStatement(SELECT);
+        try {
+            statement.setString(1, tableName);
+            ResultSet rs = statement.executeQuery();
+            try {
+                List<Chunk> chunks = null;
+                while (rs.next()) {
+                    if (chunks == null) {
+                        chunks = new ArrayList<Chunk>();
+                    }
+                    if (rs.getInt(1) == MARKER) {
+                        continue;
+                    }
+                    Object lower = Tables.toKey(rs.getString(2), keyType);
+                    Object upper = Tables.toKey(rs.getString(3), keyType);
+                    chunks.add(new Chunk(rs.getInt(1), keyName, lower, upper));
+                }
+                return chunks;
+            } finally {
+                rs.close();
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Record the ranges of the transformation and the marker row in a single
+     * transaction, creating the progress table if it does not exist.
+     *
+     * @param connection
+     *            The JDBC connection in auto-commit mode.
+     * @param chunks
+     *            The ranges.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void start(Connection connection, List<Chunk> chunks) throws SQLException {
+        if (!Tables.exists(connection, TABLE_NAME)) {
+            Statement statement = connection.createStatement();
+            try {
+                statement.execute(CREATE);
+            } finally {
+                statement.close();
+            }
+        }
+        connection.setAutoCommit(false);
+        try {
+            PreparedStatement statement = connection.prepareStatement(INSERT);
+            try {
+                statement.setString(1, tableName);
+                statement.setInt(2, MARKER);
+                statement.setString(3, null);
+                statement.setString(4, null);
+                statement.addBatch();
+                for (Chunk chunk : chunks) {
+                    statement.setInt(2, chunk.getNumber());
+                    statement.setString(3, chunk.getLower() == null ? null : chunk.getLower().toString());
+                    statement.setString(4, chunk.getUpper().toString());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            } finally {
+                statement.close();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Delete the row of the given range, which must be done in the
+     * transaction that commits the transformation of the range.
+     *
+     * @param connection
+     *            The JDBC connection of the worker.
+     * @param chunk
+     *            The transformed range.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void complete(Connection connection, Chunk chunk) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(COMPLETE);
+        try {
+            statement.setString(1, tableName);
+            statement.setInt(2, chunk.getNumber());
+            statement.executeUpdate();
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Delete the progress of the completed transformation.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void finish(Connection connection) throws SQLException {
+        if (Tables.exists(connection, TABLE_NAME)) {
+            PreparedStatement statement = connection.prepareStatement(DELETE);
+            try {
+                statement.setString(1, tableName);
+                statement.executeUpdate();
+            } finally {
+                statement.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.Addendum.CANNOT_TRANSFORM;
+import static com.goodworkalan.addendum.Addendum.TRANSFORM_KEY;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.LoggerFactory;
+
+import com.goodworkalan.addendum.connector.Connector;
+import com.goodworkalan.addendum.dialect.Dialect;
+import com.goodworkalan.addendum.dialect.Tables;
+import com.goodworkalan.danger.Danger;
+import com.goodworkalan.notice.Notice;
+import com.goodworkalan.notice.NoticeFactory;
+
+/**
+ * A database update that transforms the rows of a table in ranges of a key
+ * column. The key space is divided into ranges of roughly equal numbers of
+ * rows, and the ranges are transformed by a pool of workers, each with a
+ * connection of its own from the connector, committing the transformation of
+ * each range as it completes. The ranges that remain are recorded in a
+ * progress table, so that an interrupted transformation resumes with the
+ * ranges that were not committed.
+ * <p>
+ * If the addenda connection is not in auto-commit mode, because the addenda
+ * are applied in transactional mode, or if there is no connector, the ranges
+ * are transformed one after another on the addenda connection, so that they
+ * are committed with the addendum.
+ * 
+ * @author Alan Gutierrez
+ */
+class TransformUpdate extends DatabaseUpdate {
+    /** The notice factory specifically for the <code>TransformUpdate</code>. */
+    private final static NoticeFactory NOTICES = new NoticeFactory(LoggerFactory.getLogger(TransformUpdate.class));
+
+    /** The transformation settings. */
+    private final Transformation transformation;
+
+    /**
+     * Create a transform update.
+     * 
+     * @param transformation
+     *            The transformation settings.
+     */
+    public TransformUpdate(Transformation transformation) {
+        super(CANNOT_TRANSFORM, transformation.getTableName());
+        this.transformation = transformation;
+    }
+
+    /**
+     * Transform each range on the given connection.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    @Override
+    public void execute(Connection connection, Dialect dialect) throws SQLException {
+        execute(connection, dialect, new Settings());
+    }
+
+    /**
+     * Divide the table into ranges and transform each range, with a
+     * connection from the connector of the given settings for each worker.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The SQL dialect.
+     * @param settings
+     *            The settings of the amend.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    @Override
+    public void execute(Connection connection, Dialect dialect, Settings settings) throws SQLException {
+        Connector connector = settings.getConnector();
+        String tableName = transformation.getTableName();
+        String keyName = transformation.getKeyName();
+        if (keyName == null) {
+            throw new Danger(Addendum.class, TRANSFORM_KEY, tableName);
+        }
+        if (transformation.getTransformer() == null) {
+            return;
+        }
+        Notice info = NOTICES.info("transform");
+        long start = System.currentTimeMillis();
+        info.put("table", tableName).put("key", keyName);
+        try {
+            Statement statement = connection.createStatement();
+            Object min, max;
+            long count;
+            int keyType;
+            try {
+                ResultSet rs = statement.executeQuery("SELECT MIN(" + keyName + "), MAX(" + keyName + "), COUNT(*) FROM " + tableName);
+                try {
+                    rs.next();
+                    min = rs.getObject(1);
+                    max = rs.getObject(2);
+                    count = rs.getLong(3);
+                    keyType = rs.getMetaData().getColumnType(1);
+                } finally {
+                    rs.close();
+                }
+            } finally {
+                statement.close();
+            }
+            if (connector == null || !connection.getAutoCommit()) {
+                List<Chunk> chunks = getChunks(connection, keyType, min, max, count);
+                info.put("chunks", chunks.size()).put("threads", 1);
+                for (Chunk chunk : chunks) {
+                    transformation.getTransformer().transform(connection, dialect, chunk);
+                }
+                return;
+            }
+            TransformProgress progress = new TransformProgress(tableName, keyName);
+            List<Chunk> chunks = progress.getChunks(connection, keyType);
+            if (chunks == null) {
+                chunks = getChunks(connection, keyType, min, max, count);
+                progress.start(connection, chunks);
+            } else {
+                info.put("resumed", true);
+            }
+            int threads = Math.max(1, Math.min(transformation.getThreads(), chunks.size()));
+            info.put("chunks", chunks.size()).put("threads", threads);
+            transform(connector, dialect, progress, chunks, threads);
+            progress.finish(connection);
+        } finally {
+            info.put("duration", System.currentTimeMillis() - start).send();
+        }
+    }
+
+    /**
+     * Divide the keys of the table into ranges. Integer keys are divided
+     * arithmetically into ranges that each span the chunk size times the
+     * ratio of the key span to the row count, so that evenly distributed keys
+     * give ranges of about the chunk size in rows. Other keys are divided by
+     * reading the key index one chunk at a time.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param keyType
+     *            The SQL type of the key column.
+     * @param min
+     *            The minimum key or null if the table is empty.
+     * @param max
+     *            The maximum key or null if the table is empty.
+     * @param count
+     *            The number of rows.
+     * @return The ranges.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    private List<Chunk> getChunks(Connection connection, int keyType, Object min, Object max, long count) throws SQLException {
+        String keyName = transformation.getKeyName();
+        int chunkSize = Math.max(1, transformation.getChunkSize());
+        List<Chunk> chunks = new ArrayList<Chunk>();
+        if (min == null) {
+            return chunks;
+        }
+        long first = 0;
+        long last = 0;
+        if (Tables.isInteger(keyType)) {
+            first = ((Number) min).longValue();
+            last = ((Number) max).longValue();
+        }
+        // A span of keys that overflows a long is divided by the index.
+        if (Tables.isInteger(keyType) && last - first >= 0) {
+            long ranges = (count + chunkSize - 1) / chunkSize;
+            long span = (last - first) / ranges;
+            long step = span == Long.MAX_VALUE ? span : span + 1;
+            Long lower = null;
+            while (lower == null || lower < last) {
+                Long upper;
+                if (lower == null) {
+                    upper = last - first < step ? last : first + step - 1;
+                } else {
+                    upper = last - lower <= step ? last : lower + step;
+                }
+                chunks.add(new Chunk(chunks.size(), keyName, lower, upper));
+                lower = upper;
+            }
+        } else {
+            Object previous = null;
+            Object upper;
+            while ((upper = Tables.getUpperKey(connection, transformation.getTableName(), keyName, previous, chunkSize)) != null) {
+                chunks.add(new Chunk(chunks.size(), keyName, previous, upper));
+                previous = upper;
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Transform the given ranges with the given number of workers, each with
+     * its own connection. When a worker fails, the other workers stop after
+     * the range they are transforming and the first failure is thrown.
+     * 
+     * @param connector
+     *            The connector.
+     * @param dialect
+     *            The SQL dialect.
+     * @param progress
+     *            The progress of the transformation.
+     * @param chunks
+     *            The ranges.
+     * @param threads
+     *            The number of workers.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    private void transform(final Connector connector, final Dialect dialect, final TransformProgress progress, List<Chunk> chunks, int threads) throws SQLException {
+        final Queue<Chunk> queue = new ConcurrentLinkedQueue<Chunk>(chunks);
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicBoolean failed = new AtomicBoolean();
+        final int total = chunks.size();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws SQLException {
+                        Connection connection = connector.open();
+                        try {
+                            connection.setAutoCommit(false);
+                            try {
+                                Chunk chunk;
+                                while (!failed.get() && !Thread.currentThread().isInterrupted() && (chunk = queue.poll()) != null) {
+                                    try {
+                                        transformation.getTransformer().transform(connection, dialect, chunk);
+                                        progress.complete(connection, chunk);
+                                        connection.commit();
+                                    } catch (SQLException e) {
+                                        failed.set(true);
+                                        connection.rollback();
+                                        throw e;
+                                    } catch (RuntimeException e) {
+                                        failed.set(true);
+                                        connection.rollback();
+                                        throw e;
+                                    }
+                                    NOTICES.debug("transform.chunk")
+                                        .put("table", transformation.getTableName())
+                                        .put("chunk", chunk.getNumber())
+                                        .put("completed", completed.incrementAndGet())
+                                        .put("total", total)
+                                        .send();
+                                }
+                            } finally {
+                                connection.setAutoCommit(true);
+                            }
+                        } finally {
+                            connector.close(connection);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            Throwable failure = null;
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    executor.shutdownNow();
+                    throw new Danger(Addendum.class, CANNOT_TRANSFORM, e, transformation.getTableName());
+                }
+            }
+            if (failure instanceof SQLException) {
+                throw (SQLException) failure;
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
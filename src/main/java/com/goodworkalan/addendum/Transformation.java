@@ -0,0 +1,152 @@
+package com.goodworkalan.addendum;
+
+/**
+ * An update action that transforms the rows of a table in ranges of a key
+ * column on many connections at once. The settings of the transformation are
+ * specified by a {@link Transform} builder after the transformation is added
+ * to the addendum, so they are read by the database update when it is
+ * executed.
+ * 
+ * @author Alan Gutierrez
+ */
+class Transformation implements SchemaUpdate {
+    /** The table name or entity name. */
+    private final String table;
+
+    /** The table name resolved from the tracking schema. */
+    private String tableName;
+
+    /** The key column name. */
+    private String keyName;
+
+    /** The number of keys in each range. */
+    private int chunkSize = 1000;
+
+    /** The number of ranges transformed at once. */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /** The transformer. */
+    private ChunkTransformer transformer;
+
+    /**
+     * Create a transformation of the table with the given table name or
+     * entity name.
+     * 
+     * @param table
+     *            The table name or entity name.
+     */
+    public Transformation(String table) {
+        this.table = table;
+    }
+
+    /**
+     * Get the table name.
+     * 
+     * @return The table name.
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Get the key column name, which is the primary key column of the table if
+     * the table is tracked and has a single column primary key, unless a key
+     * column was given.
+     * 
+     * @return The key column name or null.
+     */
+    public String getKeyName() {
+        return keyName;
+    }
+
+    /**
+     * Set the key column name.
+     * 
+     * @param keyName
+     *            The key column name.
+     */
+    public void setKeyName(String keyName) {
+        this.keyName = keyName;
+    }
+
+    /**
+     * Get the number of keys in each range.
+     * 
+     * @return The chunk size.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Set the number of keys in each range.
+     * 
+     * @param chunkSize
+     *            The chunk size.
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Get the number of ranges transformed at once, which is the number of
+     * available processors unless a number was given.
+     * 
+     * @return The number of threads.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Set the number of ranges transformed at once.
+     * 
+     * @param threads
+     *            The number of threads.
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Get the transformer.
+     * 
+     * @return The transformer.
+     */
+    public ChunkTransformer getTransformer() {
+        return transformer;
+    }
+
+    /**
+     * Set the transformer.
+     * 
+     * @param transformer
+     *            The transformer.
+     */
+    public void setTransformer(ChunkTransformer transformer) {
+        this.transformer = transformer;
+    }
+
+    /**
+     * Return a database update that transforms the rows of the table,
+     * resolving an entity name to its table name and choosing the single
+     * column primary key of the table as the default key column.
+     * 
+     * @param schema
+     *            The tracking schema.
+     */
+    public DatabaseUpdate execute(Schema schema) {
+        Entity entity = schema.entities.get(table);
+        if (entity == null && schema.aliases.containsKey(table)) {
+            entity = schema.entities.get(schema.aliases.get(table));
+        }
+        tableName = table;
+        if (entity != null) {
+            tableName = entity.tableName;
+            if (entity.primaryKey.size() == 1) {
+                keyName = entity.primaryKey.get(0);
+            }
+        }
+        return new TransformUpdate(this);
+    }
+}
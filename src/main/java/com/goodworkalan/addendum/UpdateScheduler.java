@@ -0,0 +1,250 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.Addendum.PARALLEL_INTERRUPTED;
+import static com.goodworkalan.addendum.Addendum.SQL_CONNECT;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.goodworkalan.addendum.connector.Connector;
+import com.goodworkalan.addendum.dialect.Dialect;
+import com.goodworkalan.danger.Danger;
+
+/**
+ * Applies the updates of an addendum concurrently where they do not depend
+ * on each other. An update depends on every earlier update that affects any
+ * of the same tables. An update whose affected tables are unknown, such as an
+ * {@link Execution}, is a barrier that runs alone on the addenda connection
+ * after every earlier update has completed and before any later update
+ * starts.
+ * <p>
+ * Independent updates run on a pool of worker threads, each update on a
+ * connection of its own from the connector. The connections are opened as
+ * they are needed and reused by later updates until the scheduler is closed.
+ *
+ * @author Alan Gutierrez
+ */
+class UpdateScheduler {
+    /** The settings of the amend. */
+    private final Settings settings;
+
+    /** The database connector. */
+    private final Connector connector;
+
+    /** The SQL dialect. */
+    private final Dialect dialect;
+
+    /** The number of updates applied at once. */
+    private final int parallelism;
+
+    /** The idle worker connections. */
+    private final Queue<Connection> idle = new ConcurrentLinkedQueue<Connection>();
+
+    /** Every worker connection opened. */
+    private final List<Connection> connections = Collections.synchronizedList(new ArrayList<Connection>());
+
+    /** The worker threads or null if none have been needed. */
+    private ExecutorService executor;
+
+    /**
+     * Create a scheduler that applies at most the given number of updates at
+     * once using connections from the connector of the given settings.
+     *
+     * @param settings
+     *            The settings of the amend.
+     * @param dialect
+     *            The SQL dialect.
+     * @param parallelism
+     *            The number of updates applied at once.
+     */
+    public UpdateScheduler(Settings settings, Dialect dialect, int parallelism) {
+        this.settings = settings;
+        this.connector = settings.getConnector();
+        this.dialect = dialect;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Get the names of the tables affected by the given update in upper case,
+     * so that names that differ only in case refer to the same table, or null
+     * if the affected tables are unknown.
+     *
+     * @param update
+     *            The update.
+     * @return The upper case table names or null.
+     */
+    private static Set<String> getTableNames(DatabaseUpdate update) {
+        Set<String> names = update.getTableNames();
+        if (names == null) {
+            return null;
+        }
+        Set<String> upper = new HashSet<String>();
+        for (String name : names) {
+            upper.add(name.toUpperCase());
+        }
+        return upper;
+    }
+
+    /**
+     * Apply the given updates, running independent updates concurrently and
+     * running updates with unknown tables alone on the given connection. If
+     * an update fails, no further updates are started, the updates that are
+     * running are allowed to complete, and the first failure is thrown.
+     *
+     * @param connection
+     *            The addenda connection.
+     * @param updates
+     *            The updates of the addendum.
+     */
+    public void apply(Connection connection, List<DatabaseUpdate> updates) {
+        List<Set<String>> tableNames = new ArrayList<Set<String>>();
+        for (DatabaseUpdate update : updates) {
+            tableNames.add(getTableNames(update));
+        }
+        int i = 0, stop = updates.size();
+        while (i < stop) {
+            int j = i;
+            while (j < stop && tableNames.get(j) != null) {
+                j++;
+            }
+            if (j - i > 1) {
+                apply(updates.subList(i, j), tableNames.subList(i, j));
+            } else if (j > i) {
+                updates.get(i).update(connection, dialect, settings);
+            }
+            if (j < stop) {
+                updates.get(j).update(connection, dialect, settings);
+            }
+            i = j + 1;
+        }
+    }
+
+    /**
+     * Apply the given updates with known tables, starting each update when
+     * the earlier updates that affect the same tables have completed.
+     *
+     * @param updates
+     *            The updates.
+     * @param tableNames
+     *            The upper case names of the tables affected by each update.
+     */
+    private void apply(final List<DatabaseUpdate> updates, List<Set<String>> tableNames) {
+        int size = updates.size();
+        int[] waiting = new int[size];
+        List<List<Integer>> dependents = new ArrayList<List<Integer>>();
+        for (int i = 0; i < size; i++) {
+            dependents.add(new ArrayList<Integer>());
+            for (int j = 0; j < i; j++) {
+                if (!Collections.disjoint(tableNames.get(i), tableNames.get(j))) {
+                    dependents.get(j).add(i);
+                    waiting[i]++;
+                }
+            }
+        }
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(parallelism);
+        }
+        CompletionService<Integer> completion = new ExecutorCompletionService<Integer>(executor);
+        int running = 0;
+        for (int i = 0; i < size; i++) {
+            if (waiting[i] == 0) {
+                submit(completion, updates, i);
+                running++;
+            }
+        }
+        Throwable failure = null;
+        while (running != 0) {
+            int index;
+            try {
+                index = completion.take().get();
+            } catch (ExecutionException e) {
+                running--;
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+                executor = null;
+                throw new Danger(Addendum.class, PARALLEL_INTERRUPTED, e);
+            }
+            running--;
+            if (failure == null) {
+                for (int dependent : dependents.get(index)) {
+                    if (--waiting[dependent] == 0) {
+                        submit(completion, updates, dependent);
+                        running++;
+                    }
+                }
+            }
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new Danger(Addendum.class, SQL_CONNECT, failure);
+        }
+    }
+
+    /**
+     * Submit the update at the given index to run on a worker connection.
+     *
+     * @param completion
+     *            The completion service.
+     * @param updates
+     *            The updates.
+     * @param index
+     *            The index of the update to run.
+     */
+    private void submit(CompletionService<Integer> completion, final List<DatabaseUpdate> updates, final int index) {
+        completion.submit(new Callable<Integer>() {
+            public Integer call() throws SQLException {
+                Connection connection = idle.poll();
+                if (connection == null) {
+                    connection = connector.open();
+                    connections.add(connection);
+                    if (!connection.getAutoCommit()) {
+                        connection.setAutoCommit(true);
+                    }
+                }
+                try {
+                    updates.get(index).update(connection, dialect, settings);
+                } finally {
+                    idle.add(connection);
+                }
+                return index;
+            }
+        });
+    }
+
+    /**
+     * Stop the worker threads and close the worker connections.
+     */
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        for (Connection connection : connections) {
+            connector.close(connection);
+        }
+        connections.clear();
+        idle.clear();
+    }
+}
@@ -28,17 +28,60 @@ public class Values {
     }
 
     /**
-     * Set the insert statement values.
+     * Add a row of values to the insert statement and end the insert
+     * statement. The values element can be kept and called again to add more
+     * rows to the same insert statement.
+     * 
+     * <p>
+     * Each value is converted to the type of its column in the table
+     * definition, so that a string can be given for any column, or a value of
+     * the Java type of the column can be given.
      * 
      * @param values
      *            The column values in the insert statement.
-     * @return An end element with which to end the statement.
+     * @return The addendum builder.
      * @exception AddendumException
      *                If the count of column values does not match the count of
      *                names.
      */
-    public Addendum values(String... values) {
+    public Addendum values(Object... values) {
         insertion.values(values);
         return addendum;
     }
+
+    /**
+     * Add a row of values to the insert statement and continue to add rows.
+     * The rows of an insert statement are inserted in batches by a single
+     * prepared statement.
+     * 
+     * @param values
+     *            The column values in the insert statement.
+     * @return This values element to add more rows.
+     * @exception AddendumException
+     *                If the count of column values does not match the count of
+     *                names.
+     */
+    public Values row(Object... values) {
+        insertion.values(values);
+        return this;
+    }
+
+    /**
+     * Begin a row of values that is specified one column at a time, so that
+     * primitive values can be given without boxing.
+     * 
+     * @return A row element to specify the column values.
+     */
+    public Row row() {
+        return new Row(this, insertion.getRows());
+    }
+
+    /**
+     * End the insert statement.
+     * 
+     * @return The addendum builder.
+     */
+    public Addendum end() {
+        return addendum;
+    }
 }
@@ -4,6 +4,11 @@ import java.sql.Connection;
 
 /**
  * Opens and closes a connection to a JDBC data source.
+ * <p>
+ * Connectors to the same data source should be equal and have the same hash
+ * code, so that threads amending the same database at once through different
+ * connector instances share a single migration. Connectors that do not
+ * implement equality are only shared by threads using the same instance.
  * 
  * @author Alan Gutierrez
  */
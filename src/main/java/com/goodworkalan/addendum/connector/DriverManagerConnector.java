@@ -69,4 +69,31 @@ public class DriverManagerConnector implements Connector {
             throw new Danger(Addendum.class, SQL_CLOSE, e);
         }
     }
+
+    /**
+     * A driver manager connector is equal to another driver manager connector
+     * with the same connect string and user name.
+     * 
+     * @param object
+     *            The object to compare.
+     * @return True if the object is a connector to the same data source.
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (object instanceof DriverManagerConnector) {
+            DriverManagerConnector other = (DriverManagerConnector) object;
+            return url.equals(other.url) && (user == null ? other.user == null : user.equals(other.user));
+        }
+        return false;
+    }
+
+    /**
+     * Get a hash code based on the connect string and user name.
+     * 
+     * @return The hash code.
+     */
+    @Override
+    public int hashCode() {
+        return url.hashCode() * 37 + (user == null ? 0 : user.hashCode());
+    }
 }
@@ -15,27 +15,27 @@ import com.goodworkalan.addendum.Addendum;
 import com.goodworkalan.danger.Danger;
 
 /**
- * A connector that creates JDBC connections using a JDNI specified data source.
+ * A connector that creates JDBC connections using a JNDI specified data source.
  * 
  * @author Alan Gutierrez
  */
 public class NamingConnector implements Connector {
-    /** The JDNI name of the data source. */
+    /** The JNDI name of the data source. */
     private final String dataSourceName;
 
     /**
      * Create a connector that will open JDBC connections using the data source
-     * resource specified by the given JDNI name.
+     * resource specified by the given JNDI name.
      * 
      * @param dataSourceName
-     *            The JDNI name of the data source.
+     *            The JNDI name of the data source.
      */
     public NamingConnector(String dataSourceName) {
         this.dataSourceName = dataSourceName;
     }
 
     /**
-     * Open a connection to a JDBC data source using a JDNI specified data
+     * Open a connection to a JDBC data source using a JNDI specified data
      * source.
      * 
      * @return A JDBC connection.
@@ -68,4 +68,27 @@ public class NamingConnector implements Connector {
             throw new Danger(Addendum.class, SQL_CLOSE, e);
         }
     }
+
+    /**
+     * A naming connector is equal to another naming connector with the same
+     * JNDI name.
+     * 
+     * @param object
+     *            The object to compare.
+     * @return True if the object is a connector to the same data source.
+     */
+    @Override
+    public boolean equals(Object object) {
+        return object instanceof NamingConnector && dataSourceName.equals(((NamingConnector) object).dataSourceName);
+    }
+
+    /**
+     * Get a hash code based on the JNDI name.
+     * 
+     * @return The hash code.
+     */
+    @Override
+    public int hashCode() {
+        return dataSourceName.hashCode();
+    }
 }
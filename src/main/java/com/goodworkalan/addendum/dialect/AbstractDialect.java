@@ -1,5 +1,6 @@
 package com.goodworkalan.addendum.dialect;
 
+import static com.goodworkalan.addendum.Addendum.DIALECT_DOES_NOT_SUPPORT_CAPTURE;
 import static com.goodworkalan.addendum.Addendum.DIALECT_DOES_NOT_SUPPORT_GENERATOR;
 import static com.goodworkalan.addendum.Addendum.DIALECT_DOES_NOT_SUPPORT_TYPE;
 
@@ -8,12 +9,14 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.goodworkalan.danger.Danger;
 import com.goodworkalan.notice.Notice;
@@ -35,11 +38,47 @@ public abstract class AbstractDialect implements Dialect {
     /** A map of default lengths. */
     private final Map<Integer, Integer> defaultLengths;
 
+    /** The statements collecting batched DDL by connection. */
+    private final Map<Connection, Statement> batches;
+
+    /** The statements recorded instead of executed by connection. */
+    private final Map<Connection, List<String>> recordings;
+
     /** Create a base dialect. */
     protected AbstractDialect() {
         this.typeNames = new HashMap<Integer, SortedMap<Integer, String>>();
         this.defaultPrecisionScale = new HashMap<Integer, int[]>();
         this.defaultLengths = new HashMap<Integer, Integer>();
+        this.batches = new ConcurrentHashMap<Connection, Statement>();
+        this.recordings = new ConcurrentHashMap<Connection, List<String>>();
+    }
+
+    /**
+     * Get a backfill that initializes the given not null column of the given
+     * table in ranges of its primary key, or null if the column is to be
+     * initialized with a single statement. A backfill is only used if the
+     * given chunk size is not zero, if the connection is in auto-commit mode, so that each
+     * range is committed as it is updated without committing a transaction
+     * that contains other changes, and if the table has a single column
+     * primary key.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @param column
+     *            The column definition.
+     * @param backfillChunkSize
+     *            The number of rows initialized by each statement.
+     * @return A backfill or null.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    private Backfill getBackfill(Connection connection, String tableName, Column column, int backfillChunkSize) throws SQLException {
+        if (column.isNotNull() && backfillChunkSize > 0 && connection.getAutoCommit()) {
+            return Backfill.getInstance(connection, tableName, column.getName());
+        }
+        return null;
     }
 
     /**
@@ -107,6 +146,231 @@ public abstract class AbstractDialect implements Dialect {
         defaultLengths.put(type, length);
     }
 
+    /**
+     * Record the given number of applied addenda and the given fingerprint of
+     * the applied addenda in the version stamp table using standard SQL.
+     * 
+     * @param connection
+     *            An SQL connection on the database.
+     * @param version
+     *            The number of addenda applied.
+     * @param fingerprint
+     *            The fingerprint of the applied addenda.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void stamp(Connection connection, int version, String fingerprint) throws SQLException {
+        Stamp.write(connection, version, fingerprint);
+    }
+
+    /**
+     * Create the table of the migration lease and its single lease row if
+     * they do not exist using standard SQL.
+     * 
+     * @param connection
+     *            An SQL connection on the database.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void createLeaseTable(Connection connection) throws SQLException {
+        Lease.create(connection);
+    }
+
+    /**
+     * Determine if the migration lease is held by a process using standard
+     * SQL.
+     * 
+     * @param connection
+     *            An SQL connection on the database.
+     * @return True if the lease is held by a process.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public boolean isLeased(Connection connection) throws SQLException {
+        return Lease.isHeld(connection);
+    }
+
+    /**
+     * Create the table of the timing history if it does not exist using
+     * standard SQL.
+     * 
+     * @param connection
+     *            An SQL connection on the database.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void createTimingTable(Connection connection) throws SQLException {
+        Timing.create(connection);
+    }
+
+    /**
+     * Acquire or renew the migration lease for the given owner for the given
+     * duration using standard SQL.
+     * 
+     * @param connection
+     *            An SQL connection on the database.
+     * @param owner
+     *            The unique identity of the lease owner.
+     * @param duration
+     *            The duration of the lease in milliseconds.
+     * @return True if the lease is now held by the given owner.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public boolean lease(Connection connection, String owner, long duration) throws SQLException {
+        return Lease.acquire(connection, owner, duration);
+    }
+
+    /**
+     * Release the migration lease if it is held by the given owner using
+     * standard SQL.
+     * 
+     * @param connection
+     *            An SQL connection on the database.
+     * @param owner
+     *            The unique identity of the lease owner.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void release(Connection connection, String owner) throws SQLException {
+        Lease.release(connection, owner);
+    }
+
+    /**
+     * Determine if DDL statements can be rolled back as part of a transaction
+     * on the given connection. This implementation asks the JDBC database
+     * meta data. Dialects can override this method if their driver reports
+     * incorrectly.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @return True if DDL can be committed and rolled back in a transaction.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public boolean isTransactionalDDL(Connection connection) throws SQLException {
+        return connection.getMetaData().supportsDataDefinitionAndDataManipulationTransactions();
+    }
+
+    /**
+     * Determine whether a backslash within a string literal or a quoted
+     * identifier escapes the character that follows it. This implementation
+     * returns false, as the SQL standard doubles a quote to escape it.
+     * Dialects for databases that accept backslash escapes, such as MySQL,
+     * should override this method to return true.
+     * 
+     * @return False.
+     */
+    public boolean isBackslashEscape() {
+        return false;
+    }
+
+    /**
+     * Begin collecting the DDL statements issued through
+     * {@link #execute(Connection, String) execute} for the given connection
+     * into a JDBC batch.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void beginBatch(Connection connection) throws SQLException {
+        if (!batches.containsKey(connection)) {
+            batches.put(connection, connection.createStatement());
+        }
+    }
+
+    /**
+     * Execute the DDL statements collected in the batch for the given
+     * connection, if any, and continue batching.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void flushBatch(Connection connection) throws SQLException {
+        Statement statement = batches.get(connection);
+        if (statement != null) {
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Stop batching DDL statements for the given connection, discarding any
+     * statements that have not been flushed.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void endBatch(Connection connection) throws SQLException {
+        Statement statement = batches.remove(connection);
+        if (statement != null) {
+            statement.close();
+        }
+    }
+
+    /**
+     * Begin recording the statements issued through
+     * {@link #execute(Connection, String) execute} for the given connection
+     * instead of executing them.
+     * 
+     * @param connection
+     *            The JDBC connection used only as the recording key.
+     */
+    public void beginRecording(Connection connection) {
+        recordings.put(connection, new ArrayList<String>());
+    }
+
+    /**
+     * Stop recording the statements for the given connection and return the
+     * statements recorded.
+     * 
+     * @param connection
+     *            The JDBC connection used only as the recording key.
+     * @return The recorded statements.
+     */
+    public List<String> endRecording(Connection connection) {
+        return recordings.remove(connection);
+    }
+
+    /**
+     * Execute the given SQL statement on the given connection, or add it to
+     * the batch for the connection if DDL statements are being batched, or to
+     * the recording for the connection if statements are being recorded.
+     * Statements that must execute immediately, such as prepared statements,
+     * should be preceded by a call to {@link #flushBatch(Connection)
+     * flushBatch}.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param sql
+     *            The SQL statement.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void execute(Connection connection, String sql) throws SQLException {
+        List<String> recording = recordings.get(connection);
+        if (recording != null) {
+            recording.add(sql);
+            return;
+        }
+        Statement batch = batches.get(connection);
+        if (batch == null) {
+            Statement statement = connection.createStatement();
+            try {
+                statement.execute(sql);
+            } finally {
+                statement.close();
+            }
+        } else {
+            batch.addBatch(sql);
+        }
+    }
+
     /**
      * Create a table with the given table name, given columns and the given
      * primary key fields.
@@ -128,9 +392,7 @@ public abstract class AbstractDialect implements Dialect {
             
             info.put("sql", sql);
             
-            Statement statement = connection.createStatement();
-            statement.execute(sql.toString());
-            statement.close();
+            execute(connection, sql.toString());
         } finally {
             info.send();
         }
@@ -280,25 +542,56 @@ public abstract class AbstractDialect implements Dialect {
      *            The table name.
      * @param column
      *            The column definition.
+     * @param backfillChunkSize
+     *            The number of rows initialized by each statement, or zero
+     *            to initialize all of the rows with a single statement.
      * @throws SQLException
      *             For any reason, any reason at all.
      */
-    public void addColumn(Connection connection, String tableName, Column column) throws SQLException {
+    public void addColumn(Connection connection, String tableName, Column column, int backfillChunkSize) throws SQLException {
         Notice info = getNoticeFactory().info("add.column");
         
         info.put("tableName", tableName).put("column", column);
         
-        StringBuilder addSql = new StringBuilder();
-        addSql.append("ALTER TABLE ").append(tableName).append(" ADD ");
-        columnDefinition(addSql, column, false);
+        Backfill backfill = getBackfill(connection, tableName, column, backfillChunkSize);
         
-        info.put("add", addSql);
+        // Record the start of a backfill before adding the column, so that a
+        // backfill that resumes adds the column only if it is missing.
+        boolean add = true;
+        if (backfill != null) {
+            if (backfill.isStarted(connection)) {
+                add = !Tables.exists(connection, tableName, column.getName());
+            } else {
+                backfill.start(connection);
+            }
+        }
         
-        Statement statement = connection.createStatement();
-        statement.execute(addSql.toString());
-        statement.close();
+        if (add) {
+            StringBuilder addSql = new StringBuilder();
+            addSql.append("ALTER TABLE ").append(tableName).append(" ADD ");
+            columnDefinition(addSql, column, false);
+            
+            info.put("add", addSql);
+            
+            execute(connection, addSql.toString());
+        }
         
-        if (column.isNotNull()) {
+        if (backfill != null) {
+            backfill.run(connection, column.getDefaultValue(), backfillChunkSize);
+
+            info
+                .map("backfill")
+                    .put("chunkSize", backfillChunkSize)
+                    .put("chunks", backfill.getChunks())
+                    .put("rows", backfill.getRows())
+                    .end();
+
+            alterColumn(connection, tableName, column.getName(), column);
+
+            backfill.finish(connection);
+        } else if (column.isNotNull()) {
+            flushBatch(connection);
+
             StringBuilder updateSql = new StringBuilder();
             updateSql.append("UPDATE ").append(tableName)
                      .append(" SET ").append(column.getName()).append(" = ?");
@@ -335,9 +628,206 @@ public abstract class AbstractDialect implements Dialect {
      */
     public void dropColumn(Connection connection, String tableName, String columnName)
     throws SQLException {
-        Statement statement = connection.createStatement();
-        statement.execute(String.format("ALTER TABLE %s DROP COLUMN %s", tableName, columnName));
-        statement.close();
+        execute(connection, String.format("ALTER TABLE %s DROP COLUMN %s", tableName, columnName));
+    }
+
+    /**
+     * Determine whether the <code>ALTER TABLE</code> statement of the dialect
+     * accepts multiple comma separated clauses. This implementation returns
+     * false, so that column changes are applied one statement at a time.
+     * Dialects whose databases accept multiple clauses, such as MySQL and
+     * PostgreSQL, should override this method to return true.
+     * 
+     * @return True if an <code>ALTER TABLE</code> statement can contain
+     *         multiple clauses.
+     */
+    protected boolean canAlterMultipleColumns() {
+        return false;
+    }
+
+    /**
+     * Append the clause that alters the column with the given existing name
+     * according to the given column definition to the given
+     * <code>ALTER TABLE</code> statement, returning false if the dialect cannot
+     * express the alteration as a single clause. This implementation returns
+     * false, so that alterations are applied using
+     * {@link #alterColumn(Connection, String, String, Column) alterColumn}.
+     * 
+     * @param sql
+     *            The <code>ALTER TABLE</code> statement buffer.
+     * @param oldName
+     *            The existing column name.
+     * @param column
+     *            The column definition.
+     * @return True if the clause was appended.
+     */
+    protected boolean alterColumnClause(StringBuilder sql, String oldName, Column column) {
+        return false;
+    }
+
+    /**
+     * Apply the given column changes, in order, to the table with the given
+     * table name. If the dialect accepts multiple clauses in an
+     * <code>ALTER TABLE</code> statement, the changes are applied with a
+     * single statement. Added columns that are not null are added as nullable,
+     * initialized with their default values by a single update, then altered
+     * to be not null with a second statement. If the dialect cannot express
+     * the changes as clauses, each change is applied with its own statement.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @param changes
+     *            The column changes.
+     * @param backfillChunkSize
+     *            The number of rows initialized by each statement when a not
+     *            null column is added, or zero to initialize all of the rows
+     *            with a single statement.
+     * @throws SQLException
+     *             For any reason, any reason at all.
+     */
+    public void alterTable(Connection connection, String tableName, List<ColumnChange> changes, int backfillChunkSize) throws SQLException {
+        if (changes.size() < 2 || !canAlterMultipleColumns() || isBackfilled(connection, tableName, changes, backfillChunkSize)) {
+            alterEach(connection, tableName, changes, backfillChunkSize);
+            return;
+        }
+
+        StringBuilder sql = new StringBuilder();
+        sql.append("ALTER TABLE ").append(tableName);
+        List<Column> notNull = new ArrayList<Column>();
+        String separator = " ";
+        for (ColumnChange change : changes) {
+            sql.append(separator);
+            switch (change.getType()) {
+            case ADD:
+                sql.append("ADD ");
+                columnDefinition(sql, change.getColumn(), false);
+                if (change.getColumn().isNotNull()) {
+                    notNull.add(change.getColumn());
+                }
+                break;
+            case ALTER:
+                if (!alterColumnClause(sql, change.getName(), change.getColumn())) {
+                    alterEach(connection, tableName, changes, backfillChunkSize);
+                    return;
+                }
+                break;
+            case DROP:
+                sql.append("DROP COLUMN ").append(change.getName());
+                break;
+            }
+            separator = ", ";
+        }
+        
+        Notice info = getNoticeFactory().info("alter.table");
+        try {
+            info.put("tableName", tableName).put("alter", sql);
+
+            execute(connection, sql.toString());
+
+            if (!notNull.isEmpty()) {
+                flushBatch(connection);
+
+                StringBuilder updateSql = new StringBuilder();
+                updateSql.append("UPDATE ").append(tableName);
+                separator = " SET ";
+                for (Column column : notNull) {
+                    updateSql.append(separator).append(column.getName()).append(" = ?");
+                    separator = ", ";
+                }
+                info.put("update", updateSql);
+
+                PreparedStatement prepared = connection.prepareStatement(updateSql.toString());
+                try {
+                    for (int i = 0; i < notNull.size(); i++) {
+                        prepared.setObject(i + 1, notNull.get(i).getDefaultValue());
+                    }
+                    prepared.execute();
+                } finally {
+                    prepared.close();
+                }
+
+                StringBuilder alterSql = new StringBuilder();
+                alterSql.append("ALTER TABLE ").append(tableName);
+                separator = " ";
+                for (Column column : notNull) {
+                    alterSql.append(separator);
+                    if (!alterColumnClause(alterSql, column.getName(), column)) {
+                        for (Column each : notNull) {
+                            alterColumn(connection, tableName, each.getName(), each);
+                        }
+                        return;
+                    }
+                    separator = ", ";
+                }
+                info.put("notNull", alterSql);
+
+                execute(connection, alterSql.toString());
+            }
+        } finally {
+            info.send();
+        }
+    }
+
+    /**
+     * Determine whether any of the given column changes adds a not null column
+     * that will be initialized in ranges of the primary key, in which case the
+     * changes are applied one at a time so that the column is added by
+     * {@link #addColumn(Connection, String, Column, int) addColumn}.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @param changes
+     *            The column changes.
+     * @param backfillChunkSize
+     *            The number of rows initialized by each statement.
+     * @return True if a not null column will be initialized in ranges.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    private boolean isBackfilled(Connection connection, String tableName, List<ColumnChange> changes, int backfillChunkSize) throws SQLException {
+        for (ColumnChange change : changes) {
+            if (change.getType() == ColumnChange.Type.ADD && getBackfill(connection, tableName, change.getColumn(), backfillChunkSize) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Apply each of the given column changes to the table with the given
+     * table name with its own statement.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @param changes
+     *            The column changes.
+     * @param backfillChunkSize
+     *            The number of rows initialized by each statement when a not
+     *            null column is added.
+     * @throws SQLException
+     *             For any reason, any reason at all.
+     */
+    private void alterEach(Connection connection, String tableName, List<ColumnChange> changes, int backfillChunkSize) throws SQLException {
+        for (ColumnChange change : changes) {
+            switch (change.getType()) {
+            case ADD:
+                addColumn(connection, tableName, change.getColumn(), backfillChunkSize);
+                break;
+            case ALTER:
+                flushBatch(connection);
+                alterColumn(connection, tableName, change.getName(), change.getColumn());
+                break;
+            case DROP:
+                dropColumn(connection, tableName, change.getName());
+                break;
+            }
+        }
     }
 
     /**
@@ -354,64 +844,359 @@ public abstract class AbstractDialect implements Dialect {
     }
 
     /**
-     * Insert a row into the given table. The column names are specified by the
-     * given columns list. The values are specified by the given values list.
+     * Drop the table with the given name.
      * 
      * @param connection
-     *            The database connection.
-     * @param table
-     *            The name of the table to insert into.
-     * @param columns
-     *            The name of insert columns.
-     * @param values
-     *            A parallel list of insert values, parallel to the insert
-     *            columns.
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
      * @throws SQLException
      *             For any SQL error.
      */
-    public void insert(Connection connection, String table, List<String> columns, List<String> values) throws SQLException {
-        Notice info = getNoticeFactory().info("insert");
+    public void dropTable(Connection connection, String tableName) throws SQLException {
+        execute(connection, "DROP TABLE " + tableName);
+    }
+
+    /**
+     * Swap the shadow table with the given name into the place of the table
+     * with the given name by renaming the table to the given old name and
+     * then renaming the shadow table to the table name in one transaction.
+     * If the connection is already in a transaction, the renames are made in
+     * that transaction. Dialects of databases that do not have transactional
+     * DDL but can rename two tables in one statement should override this
+     * method.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @param shadowName
+     *            The shadow table name.
+     * @param oldName
+     *            The name given to the table that is replaced.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void swapTable(Connection connection, String tableName, String shadowName, String oldName) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        if (autoCommit) {
+            connection.setAutoCommit(false);
+        }
+        boolean committed = false;
         try {
-            info.put("table", table).put("columns", columns).put("values", values);
-            
+            renameTable(connection, tableName, oldName);
+            renameTable(connection, shadowName, tableName);
+            if (autoCommit) {
+                connection.commit();
+            }
+            committed = true;
+        } finally {
+            if (autoCommit) {
+                if (!committed) {
+                    connection.rollback();
+                }
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Change capture triggers are specific to each database, so this
+     * implementation returns false. Dialects that support online table
+     * alteration must override this method to return true and override
+     * {@link #createCapture(Connection, String, String, String, Collection, Map)
+     * createCapture} and {@link #dropCapture(Connection, String, String)
+     * dropCapture}.
+     * 
+     * @return False.
+     */
+    public boolean canCapture() {
+        return false;
+    }
+
+    /**
+     * Change capture triggers are specific to each database, so this
+     * implementation raises an exception. Dialects that support online table
+     * alteration must override this method, {@link #canCapture() canCapture}
+     * and {@link #dropCapture(Connection, String, String) dropCapture}.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @param shadowName
+     *            The shadow table name.
+     * @param keyName
+     *            The primary key column name.
+     * @param columns
+     *            The columns of the shadow table.
+     * @param sources
+     *            A map of the shadow table column names to the table column
+     *            names from which they are copied, or null if they have no
+     *            source.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void createCapture(Connection connection, String tableName, String shadowName, String keyName, Collection<Column> columns, Map<String, String> sources) throws SQLException {
+        throw new Danger(AbstractDialect.class, DIALECT_DOES_NOT_SUPPORT_CAPTURE, getClass().getName());
+    }
+
+    /**
+     * Change capture triggers are specific to each database, so this
+     * implementation raises an exception.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The current name of the table.
+     * @param originalName
+     *            The name of the table when the triggers were created.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void dropCapture(Connection connection, String tableName, String originalName) throws SQLException {
+        throw new Danger(AbstractDialect.class, DIALECT_DOES_NOT_SUPPORT_CAPTURE, getClass().getName());
+    }
+
+    /**
+     * Copy the rows of the given table into the given shadow table in ranges
+     * of the given number of primary keys using
+     * <code>INSERT INTO ... SELECT</code> statements, skipping rows that
+     * already exist in the shadow table because they were written by the
+     * change capture triggers.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @param shadowName
+     *            The shadow table name.
+     * @param keyName
+     *            The primary key column name.
+     * @param columns
+     *            The columns of the shadow table.
+     * @param sources
+     *            A map of the shadow table column names to the table column
+     *            names from which they are copied, or null if they have no
+     *            source.
+     * @param batchSize
+     *            The number of rows copied by each statement.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void copyRows(Connection connection, String tableName, String shadowName, String keyName, Collection<Column> columns, Map<String, String> sources, int batchSize) throws SQLException {
+        Notice info = getNoticeFactory().info("copy.rows");
+
+        info.put("tableName", tableName).put("shadowName", shadowName).put("batchSize", batchSize);
+
+        flushBatch(connection);
+
+        StringBuilder insert = new StringBuilder();
+        StringBuilder select = new StringBuilder();
+        List<Object> defaults = new ArrayList<Object>();
+        String separator = "";
+        for (Column column : columns) {
+            insert.append(separator).append(column.getName());
+            select.append(separator);
+            String source = sources.get(column.getName());
+            if (source != null) {
+                select.append("f.").append(source);
+            } else if (column.getDefaultValue() != null) {
+                select.append("?");
+                defaults.add(column.getDefaultValue());
+            } else {
+                select.append("NULL");
+            }
+            separator = ", ";
+        }
+
+        int batches = 0;
+        int rows = 0;
+        Object lower = null;
+        for (;;) {
+            Object upper = Tables.getUpperKey(connection, tableName, keyName, lower, batchSize);
+            if (upper == null) {
+                break;
+            }
             StringBuilder sql = new StringBuilder();
-            
-            sql.append("INSERT INTO ").append(table).append("(");
-            
-            String separator = "";
-            
-            for (String column : columns) {
-                sql.append(separator).append(column);
-                separator = ", ";
+            sql.append("INSERT INTO ").append(shadowName).append(" (").append(insert).append(")")
+               .append(" SELECT ").append(select).append(" FROM ").append(tableName).append(" f")
+               .append(" WHERE ");
+            if (lower != null) {
+                sql.append("f.").append(keyName).append(" > ? AND ");
             }
-            
-            sql.append(")\n");
-            
-            sql.append("VALUES(");
-            
+            sql.append("f.").append(keyName).append(" <= ?")
+               .append(" AND NOT EXISTS (SELECT 1 FROM ").append(shadowName).append(" s WHERE s.")
+               .append(keyName).append(" = f.").append(keyName).append(")");
+            PreparedStatement statement = connection.prepareStatement(sql.toString());
+            try {
+                int index = 1;
+                for (Object value : defaults) {
+                    statement.setObject(index++, value);
+                }
+                if (lower != null) {
+                    statement.setObject(index++, lower);
+                }
+                statement.setObject(index, upper);
+                rows += statement.executeUpdate();
+            } finally {
+                statement.close();
+            }
+            batches++;
+            lower = upper;
+        }
+
+        info.put("batches", batches).put("rows", rows).send();
+    }
+
+    /**
+     * Determine whether the <code>INSERT</code> statement of the dialect
+     * accepts multiple rows in its <code>VALUES</code> clause. This
+     * implementation returns false, so that rows are inserted by adding each
+     * row to a JDBC batch. Dialects whose databases accept multiple rows, such
+     * as MySQL and PostgreSQL, should override this method to return true, so
+     * that each batch of rows is inserted by a single statement.
+     * 
+     * @return True if an <code>INSERT</code> statement can contain multiple
+     *         rows.
+     */
+    protected boolean canInsertMultipleRows() {
+        return false;
+    }
+
+    /**
+     * Create an insert statement for the given table and columns with
+     * parameters for the given number of rows.
+     * 
+     * @param table
+     *            The name of the table to insert into.
+     * @param columns
+     *            The insert columns.
+     * @param count
+     *            The number of rows.
+     * @return The insert statement.
+     */
+    private String getInsert(String table, List<Column> columns, int count) {
+        StringBuilder sql = new StringBuilder();
+        
+        sql.append("INSERT INTO ").append(table).append("(");
+        
+        String separator = "";
+        
+        for (Column column : columns) {
+            sql.append(separator).append(column.getName());
+            separator = ", ";
+        }
+        
+        sql.append(")\n");
+        
+        sql.append("VALUES");
+        
+        String rowSeparator = "";
+        for (int i = 0; i < count; i++) {
+            sql.append(rowSeparator).append("(");
             separator = "";
-            for (int i = 0; i < values.size(); i++) {
+            for (int j = 0; j < columns.size(); j++) {
                 sql.append(separator).append("?");
                 separator = ", ";
             }
+            sql.append(")");
+            rowSeparator = ", ";
+        }
+        
+        sql.append("\n");
+
+        return sql.toString();
+    }
+
+    /**
+     * Insert rows into the given table. The columns are specified by the given
+     * columns list. The values of the rows are bound with the setter for the
+     * SQL type of each column, so that the database does not have to convert
+     * strings to the column types.
+     * <p>
+     * If the dialect {@link #canInsertMultipleRows() can insert multiple
+     * rows} with a single statement, each batch of rows is inserted by a
+     * single multiple row statement, otherwise the rows are added to a JDBC
+     * batch that is executed when it reaches the batch size. In either case,
+     * the statement is prepared once and reused for every full batch.
+     * 
+     * @param connection
+     *            The database connection.
+     * @param table
+     *            The name of the table to insert into.
+     * @param columns
+     *            The insert columns.
+     * @param rows
+     *            The rows to insert.
+     * @param batchSize
+     *            The number of rows inserted by each batch.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void insert(Connection connection, String table, List<Column> columns, Rows rows, int batchSize) throws SQLException {
+        Notice info = getNoticeFactory().info("insert");
+        try {
+            batchSize = Math.max(batchSize, 1);
+            int count = rows.size();
+
+            info.put("table", table).put("rows", count).put("batchSize", batchSize);
             
-            sql.append(")\n");
-            
-            info.put("sql", sql);
-            
-            PreparedStatement statement = connection.prepareStatement(sql.toString());
-            
-            for (int i = 0; i < values.size(); i++) {
-                String value = values.get(i);
-                if (value == null) {
-                    statement.setNull(i + 1, Types.VARCHAR);
-                } else {
-                    statement.setString(i + 1, value);
+            flushBatch(connection);
+
+            if (count > 1 && canInsertMultipleRows()) {
+                int size = Math.min(batchSize, count);
+                String sql = getInsert(table, columns, size);
+                info.put("sql", sql);
+                PreparedStatement statement = connection.prepareStatement(sql);
+                try {
+                    int row = 0;
+                    for (int stop = count - count % size; row < stop;) {
+                        int index = 1;
+                        for (int i = 0; i < size; i++) {
+                            index = rows.bind(statement, index, row++);
+                        }
+                        statement.executeUpdate();
+                    }
+                    if (row < count) {
+                        PreparedStatement remainder = connection.prepareStatement(getInsert(table, columns, count - row));
+                        try {
+                            int index = 1;
+                            while (row < count) {
+                                index = rows.bind(remainder, index, row++);
+                            }
+                            remainder.executeUpdate();
+                        } finally {
+                            remainder.close();
+                        }
+                    }
+                } finally {
+                    statement.close();
+                }
+            } else {
+                String sql = getInsert(table, columns, 1);
+                info.put("sql", sql);
+                PreparedStatement statement = connection.prepareStatement(sql);
+                try {
+                    if (count == 1) {
+                        rows.bind(statement, 1, 0);
+                        statement.execute();
+                    } else {
+                        for (int row = 0; row < count; row++) {
+                            rows.bind(statement, 1, row);
+                            statement.addBatch();
+                            if ((row + 1) % batchSize == 0) {
+                                statement.executeBatch();
+                            }
+                        }
+                        if (count % batchSize != 0) {
+                            statement.executeBatch();
+                        }
+                    }
+                } finally {
+                    statement.close();
                 }
             }
-            
-            statement.execute();
-            statement.close();
         } finally {
             info.send();
         }
@@ -0,0 +1,308 @@
+package com.goodworkalan.addendum.dialect;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Initializes a new not null column with its default value in ranges of the
+ * primary key, so that each range is updated and committed by its own
+ * statement instead of updating the entire table in a single statement.
+ * <p>
+ * The last key of the last updated range is recorded in a progress table, so
+ * that if the process applying the addenda stops during the backfill, the
+ * backfill continues after the recorded key when the addendum is applied
+ * again. A progress row that exists for the table and column also indicates
+ * that the column has already been added. Only rows where the column is null
+ * are updated, so a range that was updated but not recorded can be updated
+ * again without effect.
+ *
+ * @author Alan Gutierrez
+ */
+class Backfill {
+    /** The name of the progress table. */
+    public final static String TABLE_NAME = "ADDENDA_BACKFILL";
+
+    /** The SQL to create the progress table. */
+    private final static String CREATE = "CREATE TABLE ADDENDA_BACKFILL (TABLE_NAME VARCHAR(255) NOT NULL, COLUMN_NAME VARCHAR(255) NOT NULL, LAST_KEY VARCHAR(255), PRIMARY KEY (TABLE_NAME, COLUMN_NAME))";
+
+    /** The SQL to select the progress of a backfill. */
+    private final static String SELECT = "SELECT LAST_KEY FROM ADDENDA_BACKFILL WHERE TABLE_NAME = ? AND COLUMN_NAME = ?";
+
+    /** The SQL to insert the progress of a new backfill. */
+    private final static String INSERT = "INSERT INTO ADDENDA_BACKFILL (TABLE_NAME, COLUMN_NAME, LAST_KEY) VALUES (?, ?, NULL)";
+
+    /** The SQL to record the progress of a backfill. */
+    private final static String UPDATE = "UPDATE ADDENDA_BACKFILL SET LAST_KEY = ? WHERE TABLE_NAME = ? AND COLUMN_NAME = ?";
+
+    /** The SQL to delete the progress of a completed backfill. */
+    private final static String DELETE = "DELETE FROM ADDENDA_BACKFILL WHERE TABLE_NAME = ? AND COLUMN_NAME = ?";
+
+    /** The table name. */
+    private final String tableName;
+
+    /** The column name. */
+    private final String columnName;
+
+    /** The primary key column name. */
+    private final String keyName;
+
+    /** The SQL type of the primary key column. */
+    private final int keyType;
+
+    /** The number of chunks updated. */
+    private int chunks;
+
+    /** The number of rows updated. */
+    private int rows;
+
+    /**
+     * Create a backfill of the given column of the given table using the
+     * given primary key column.
+     *
+     * @param tableName
+     *            The table name.
+     * @param columnName
+     *            The column name.
+     * @param keyName
+     *            The primary key column name.
+     * @param keyType
+     *            The SQL type of the primary key column.
+     */
+    private Backfill(String tableName, String columnName, String keyName, int keyType) {
+        this.tableName = tableName;
+        this.columnName = columnName;
+        this.keyName = keyName;
+        this.keyType = keyType;
+    }
+
+    /**
+     * Create a backfill of the given column of the given table, or return
+     * null if the table does not have a single column primary key with which
+     * to divide the table into ranges.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @param columnName
+     *            The column name.
+     * @return A backfill or null if the table cannot be divided into ranges.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public static Backfill getInstance(Connection connection, String tableName, String columnName) throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        for (String name : new String[] { tableName, tableName.toUpperCase(), tableName.toLowerCase() }) {
+            List<String> keys = new ArrayList<String>();
+            ResultSet rs = meta.getPrimaryKeys(null, null, name);
+            try {
+                while (rs.next()) {
+                    keys.add(rs.getString("COLUMN_NAME"));
+                }
+            } finally {
+                rs.close();
+            }
+            if (keys.size() == 1) {
+                rs = meta.getColumns(null, null, name, keys.get(0));
+                try {
+                    if (rs.next()) {
+                        return new Backfill(tableName, columnName, keys.get(0), rs.getInt("DATA_TYPE"));
+                    }
+                } finally {
+                    rs.close();
+                }
+            }
+            if (!keys.isEmpty()) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Determine if a backfill of the column was started and not finished.
+     * The start is recorded before the column is added, so the column may not
+     * have been added if the backfill was interrupted right after it
+     * started.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @return True if the backfill was started.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public boolean isStarted(Connection connection) throws SQLException {
+        if (!Tables.exists(connection, TABLE_NAME)) {
+            return false;
+        }
+        PreparedStatement statement = connection.prepareStatement(SELECT);
+        try {
+            statement.setString(1, tableName);
+            statement.setString(2, columnName);
+            ResultSet rs = statement.executeQuery();
+            try {
+                return rs.next();
+            } finally {
+                rs.close();
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Record the start of the backfill, creating the progress table if it
+     * does not exist.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void start(Connection connection) throws SQLException {
+        if (!Tables.exists(connection, TABLE_NAME)) {
+            Statement statement = connection.createStatement();
+            try {
+                statement.execute(CREATE);
+            } finally {
+                statement.close();
+            }
+        }
+        PreparedStatement statement = connection.prepareStatement(INSERT);
+        try {
+            statement.setString(1, tableName);
+            statement.setString(2, columnName);
+            statement.executeUpdate();
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Set the column to the given value in each row where the column is null,
+     * one range of the given number of primary keys at a time, starting after
+     * the last recorded key and recording the last key of each range.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param value
+     *            The value of the column.
+     * @param chunkSize
+     *            The number of primary keys in each range.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void run(Connection connection, Object value, int chunkSize) throws SQLException {
+        Object lower = getLastKey(connection);
+        for (;;) {
+            Object upper = Tables.getUpperKey(connection, tableName, keyName, lower, chunkSize);
+            if (upper == null) {
+                break;
+            }
+            StringBuilder sql = new StringBuilder();
+            sql.append("UPDATE ").append(tableName)
+               .append(" SET ").append(columnName).append(" = ?")
+               .append(" WHERE ");
+            if (lower != null) {
+                sql.append(keyName).append(" > ? AND ");
+            }
+            sql.append(keyName).append(" <= ? AND ").append(columnName).append(" IS NULL");
+            PreparedStatement statement = connection.prepareStatement(sql.toString());
+            try {
+                int index = 1;
+                statement.setObject(index++, value);
+                if (lower != null) {
+                    statement.setObject(index++, lower);
+                }
+                statement.setObject(index, upper);
+                rows += statement.executeUpdate();
+            } finally {
+                statement.close();
+            }
+            statement = connection.prepareStatement(UPDATE);
+            try {
+                statement.setString(1, upper.toString());
+                statement.setString(2, tableName);
+                statement.setString(3, columnName);
+                statement.executeUpdate();
+            } finally {
+                statement.close();
+            }
+            chunks++;
+            lower = upper;
+        }
+    }
+
+    /**
+     * Get the last recorded primary key, converted to the type of the primary
+     * key column, or null if no range has been updated.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @return The last recorded primary key or null.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    private Object getLastKey(Connection connection) throws SQLException {
+        String lastKey = null;
+        PreparedStatement statement = connection.prepareStatement(SELECT);
+        try {
+            statement.setString(1, tableName);
+            statement.setString(2, columnName);
+            ResultSet rs = statement.executeQuery();
+            try {
+                if (rs.next()) {
+                    lastKey = rs.getString(1);
+                }
+            } finally {
+                rs.close();
+            }
+        } finally {
+            statement.close();
+        }
+        return Tables.toKey(lastKey, keyType);
+    }
+
+    /**
+     * Delete the progress of the completed backfill.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void finish(Connection connection) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(DELETE);
+        try {
+            statement.setString(1, tableName);
+            statement.setString(2, columnName);
+            statement.executeUpdate();
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Get the number of ranges updated.
+     *
+     * @return The number of ranges updated.
+     */
+    public int getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Get the number of rows updated.
+     *
+     * @return The number of rows updated.
+     */
+    public int getRows() {
+        return rows;
+    }
+}
@@ -0,0 +1,107 @@
+package com.goodworkalan.addendum.dialect;
+
+/**
+ * A single change to a column of a table, one of possibly many changes
+ * applied to the same table by a single {@link Dialect#alterTable(java.sql.Connection, String, java.util.List, int) alterTable}.
+ *
+ * @author Alan Gutierrez
+ */
+public class ColumnChange {
+    /** The kinds of column change. */
+    public enum Type {
+        /** Add a new column. */
+        ADD,
+        /** Alter and possibly rename an existing column. */
+        ALTER,
+        /** Drop an existing column. */
+        DROP
+    }
+
+    /** The kind of column change. */
+    private final Type type;
+
+    /** The existing column name, or the new column name for an add. */
+    private final String name;
+
+    /** The column definition, or null for a drop. */
+    private final Column column;
+
+    /**
+     * Create a column change.
+     *
+     * @param type
+     *            The kind of column change.
+     * @param name
+     *            The existing column name, or the new column name for an add.
+     * @param column
+     *            The column definition, or null for a drop.
+     */
+    private ColumnChange(Type type, String name, Column column) {
+        this.type = type;
+        this.name = name;
+        this.column = column;
+    }
+
+    /**
+     * Create a change that adds the given column.
+     *
+     * @param column
+     *            The column definition.
+     * @return A column add change.
+     */
+    public static ColumnChange add(Column column) {
+        return new ColumnChange(Type.ADD, column.getName(), column);
+    }
+
+    /**
+     * Create a change that alters the column with the given existing name
+     * according to the given column definition.
+     *
+     * @param oldName
+     *            The existing column name.
+     * @param column
+     *            The column definition.
+     * @return A column alter change.
+     */
+    public static ColumnChange alter(String oldName, Column column) {
+        return new ColumnChange(Type.ALTER, oldName, column);
+    }
+
+    /**
+     * Create a change that drops the column with the given name.
+     *
+     * @param columnName
+     *            The column name.
+     * @return A column drop change.
+     */
+    public static ColumnChange drop(String columnName) {
+        return new ColumnChange(Type.DROP, columnName, null);
+    }
+
+    /**
+     * Get the kind of column change.
+     *
+     * @return The kind of column change.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Get the existing column name, or the new column name for an add.
+     *
+     * @return The column name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the column definition, or null for a drop.
+     *
+     * @return The column definition.
+     */
+    public Column getColumn() {
+        return column;
+    }
+}
@@ -4,6 +4,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -47,6 +48,181 @@ public interface Dialect {
      */
     public void addendum(Connection connection) throws SQLException;
 
+    /**
+     * Record the given number of applied addenda and the given fingerprint of
+     * the applied addenda in the version stamp table, creating the version
+     * stamp table if it does not exist. The version stamp is read without a
+     * dialect by {@link Stamp#read(Connection)} to detect a database that is
+     * already up to date.
+     * 
+     * @param connection
+     *            An SQL connection on the database.
+     * @param version
+     *            The number of addenda applied.
+     * @param fingerprint
+     *            The fingerprint of the applied addenda.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void stamp(Connection connection, int version, String fingerprint) throws SQLException;
+
+    /**
+     * Create the table of the migration lease kept alongside the addenda
+     * table and its single lease row if they do not exist.
+     * 
+     * @param connection
+     *            An SQL connection on the database.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void createLeaseTable(Connection connection) throws SQLException;
+
+    /**
+     * Determine if the migration lease is held by a process, that is, if it
+     * has an owner and has not expired, with a single read of the lease row.
+     * 
+     * @param connection
+     *            An SQL connection on the database.
+     * @return True if the lease is held by a process.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public boolean isLeased(Connection connection) throws SQLException;
+
+    /**
+     * Create the table of the timing history kept alongside the addenda table
+     * if it does not exist.
+     * 
+     * @param connection
+     *            An SQL connection on the database.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void createTimingTable(Connection connection) throws SQLException;
+
+    /**
+     * Acquire or renew the migration lease kept alongside the addenda table
+     * for the given owner for the given duration. The lease is granted if it
+     * is free, if it has expired, or if it is already held by the given
+     * owner. The lease table must have been created with
+     * {@link #createLeaseTable(Connection) createLeaseTable}.
+     * 
+     * @param connection
+     *            An SQL connection on the database.
+     * @param owner
+     *            The unique identity of the lease owner.
+     * @param duration
+     *            The duration of the lease in milliseconds.
+     * @return True if the lease is now held by the given owner.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public boolean lease(Connection connection, String owner, long duration) throws SQLException;
+
+    /**
+     * Release the migration lease if it is held by the given owner.
+     * 
+     * @param connection
+     *            An SQL connection on the database.
+     * @param owner
+     *            The unique identity of the lease owner.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void release(Connection connection, String owner) throws SQLException;
+
+    /**
+     * Determine if DDL statements can be rolled back as part of a transaction
+     * on the given connection. If so, the statements of an addendum can be
+     * batched and committed together with the addendum accounting.
+     * 
+     * @param connection
+     *            An SQL connection on the database.
+     * @return True if DDL can be committed and rolled back in a transaction.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public boolean isTransactionalDDL(Connection connection) throws SQLException;
+
+    /**
+     * Determine whether a backslash within a string literal or a quoted
+     * identifier escapes the character that follows it, as it does by
+     * default in MySQL, so that the statements of a script can be found
+     * without ending a literal at an escaped quote.
+     * 
+     * @return True if a backslash escapes the next character in quotes.
+     */
+    public boolean isBackslashEscape();
+
+    /**
+     * Begin collecting DDL statements for the given connection into a JDBC
+     * batch instead of executing them immediately.
+     * 
+     * @param connection
+     *            An SQL connection on the database.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void beginBatch(Connection connection) throws SQLException;
+
+    /**
+     * Execute the DDL statements collected in the batch for the given
+     * connection, if any, and continue batching. This method does nothing if
+     * DDL statements are not being batched for the connection.
+     * 
+     * @param connection
+     *            An SQL connection on the database.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void flushBatch(Connection connection) throws SQLException;
+
+    /**
+     * Stop batching DDL statements for the given connection, discarding any
+     * statements that have not been flushed.
+     * 
+     * @param connection
+     *            An SQL connection on the database.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void endBatch(Connection connection) throws SQLException;
+
+    /**
+     * Begin recording the DDL statements for the given connection instead of
+     * executing them, so that the statements generated by the dialect for an
+     * update can be rendered once and executed against many databases.
+     *
+     * @param connection
+     *            An SQL connection used only as the recording key.
+     */
+    public void beginRecording(Connection connection);
+
+    /**
+     * Stop recording the DDL statements for the given connection and return
+     * the statements recorded, or null if this dialect cannot record
+     * statements.
+     *
+     * @param connection
+     *            An SQL connection used only as the recording key.
+     * @return The recorded statements or null.
+     */
+    public List<String> endRecording(Connection connection);
+
+    /**
+     * Execute the given SQL statement on the given connection, add it to the
+     * batch for the connection if DDL statements are being batched, or add it
+     * to the recording for the connection if statements are being recorded.
+     *
+     * @param connection
+     *            An SQL connection on the database.
+     * @param sql
+     *            The SQL statement.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void execute(Connection connection, String sql) throws SQLException;
+
     /**
      * Determine if the dialect can translate for the given connection.
      * 
@@ -74,7 +250,12 @@ public interface Dialect {
     public void createTable(Connection connection, String tableName, Collection<Column> columns, List<String> primaryKey) throws SQLException;
     
     /**
-     * Add a the given column definition to the the given table.
+     * Add a the given column definition to the the given table. When a not
+     * null column is added with a chunk size and the connection is in
+     * auto-commit mode, the rows are initialized in ranges of the primary key,
+     * the progress is recorded so that an interrupted initialization
+     * continues where it stopped, and the column is made not null after the
+     * last range.
      * 
      * @param connection
      *            The JDBC connection.
@@ -82,10 +263,13 @@ public interface Dialect {
      *            The table name.
      * @param column
      *            The column definition.
+     * @param backfillChunkSize
+     *            The number of rows initialized by each statement, or zero
+     *            to initialize all of the rows with a single statement.
      * @throws SQLException
      *             For any reason, any reason at all.
      */
-    public void addColumn(Connection connection, String tableName, Column column) throws SQLException;
+    public void addColumn(Connection connection, String tableName, Column column, int backfillChunkSize) throws SQLException;
 
     /**
      * Alter the column in the given table with the given exiting column name
@@ -120,6 +304,27 @@ public interface Dialect {
      */
     public void dropColumn(Connection connection, String tableName, String columnName) throws SQLException;
 
+    /**
+     * Apply the given column changes, in order, to the table with the given
+     * table name, using as few <code>ALTER TABLE</code> statements as the
+     * dialect allows, so that engines that rewrite the table for each
+     * <code>ALTER TABLE</code> rewrite it once for all of the changes.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @param changes
+     *            The column changes.
+     * @param backfillChunkSize
+     *            The number of rows initialized by each statement when a not
+     *            null column is added, or zero to initialize all of the rows
+     *            with a single statement.
+     * @throws SQLException
+     *             For any reason, any reason at all.
+     */
+    public void alterTable(Connection connection, String tableName, List<ColumnChange> changes, int backfillChunkSize) throws SQLException;
+
     /**
      * Verify that a table with the given table name exists in the database.
      * 
@@ -147,22 +352,141 @@ public interface Dialect {
      *             For any reason, any reason at all.
      */
     public void renameTable(Connection connection, String oldName, String newName) throws SQLException;
+
+    /**
+     * Swap the shadow table with the given name into the place of the table
+     * with the given name, renaming the table to the given old name, so that
+     * there is no moment when neither table has the table name. Databases
+     * that can rename two tables in one statement, such as MySQL with
+     * <code>RENAME TABLE a TO a_old, a_shadow TO a</code>, should do so,
+     * otherwise the two renames are made in one transaction.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @param shadowName
+     *            The shadow table name.
+     * @param oldName
+     *            The name given to the table that is replaced.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void swapTable(Connection connection, String tableName, String shadowName, String oldName) throws SQLException;
+
+    /**
+     * Drop the table with the given name.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void dropTable(Connection connection, String tableName) throws SQLException;
+
+    /**
+     * Determine whether the dialect can create the change capture triggers
+     * of an online table alteration. If not, an online alteration alters the
+     * table in place.
+     * 
+     * @return True if the dialect can capture changes to a table.
+     */
+    public boolean canCapture();
+
+    /**
+     * Create triggers on the given table that apply every insert, update and
+     * delete of a row to the given shadow table, so that the shadow table is
+     * kept in sync with the table while rows are copied into it. Each column
+     * of the shadow table is copied from the column of the table named by the
+     * given map of sources, or is set to the default value of the column if
+     * it has no source.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @param shadowName
+     *            The shadow table name.
+     * @param keyName
+     *            The primary key column name.
+     * @param columns
+     *            The columns of the shadow table.
+     * @param sources
+     *            A map of the shadow table column names to the table column
+     *            names from which they are copied, or null if they have no
+     *            source.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void createCapture(Connection connection, String tableName, String shadowName, String keyName, Collection<Column> columns, Map<String, String> sources) throws SQLException;
+
+    /**
+     * Drop the triggers created by
+     * {@link #createCapture(Connection, String, String, String, Collection, Map)
+     * createCapture} on the table with the given name, which may have been
+     * renamed since the triggers were created. Triggers that do not exist are
+     * ignored, so that the triggers left by an online alteration that did not
+     * finish can be dropped whether or not they were created.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The current name of the table.
+     * @param originalName
+     *            The name of the table when the triggers were created.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void dropCapture(Connection connection, String tableName, String originalName) throws SQLException;
+
+    /**
+     * Copy the rows of the given table into the given shadow table in ranges
+     * of the given number of primary keys, skipping rows that already exist in
+     * the shadow table. Each column of the shadow table is copied from the
+     * column of the table named by the given map of sources, or is set to the
+     * default value of the column if it has no source.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @param shadowName
+     *            The shadow table name.
+     * @param keyName
+     *            The primary key column name.
+     * @param columns
+     *            The columns of the shadow table.
+     * @param sources
+     *            A map of the shadow table column names to the table column
+     *            names from which they are copied, or null if they have no
+     *            source.
+     * @param batchSize
+     *            The number of rows copied by each statement.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void copyRows(Connection connection, String tableName, String shadowName, String keyName, Collection<Column> columns, Map<String, String> sources, int batchSize) throws SQLException;
     
     /**
-     * Insert a row into the given table. The column names are specified by the
-     * given columns list. The values are specified by the given values list.
+     * Insert rows into the given table. The columns are specified by the given
+     * columns list. The values of the rows are bound to the statement with the
+     * setter for the SQL type of each column. The rows are inserted using a
+     * single prepared statement in batches.
      * 
      * @param connection
      *            The database connection.
      * @param table
      *            The name of the table to insert into.
      * @param columns
-     *            The name of insert columns.
-     * @param values
-     *            A parallel list of insert values, parallel to the insert
-     *            columns.
+     *            The insert columns.
+     * @param rows
+     *            The rows to insert.
+     * @param batchSize
+     *            The number of rows inserted by each batch.
      * @throws SQLException
      *             For any SQL error.
      */
-    public void insert(Connection connection, String table, List<String> columns, List<String> values) throws SQLException;
+    public void insert(Connection connection, String table, List<Column> columns, Rows rows, int batchSize) throws SQLException;
 }
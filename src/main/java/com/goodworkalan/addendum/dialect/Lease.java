@@ -0,0 +1,221 @@
+package com.goodworkalan.addendum.dialect;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The single row migration lease that ensures that only one process applies
+ * addenda to a database at a time. The lease row records the owner of the
+ * lease, the time at which the lease expires and the time of the last
+ * heartbeat of the owner.
+ * <p>
+ * The lease is acquired with a single conditional update that succeeds only
+ * if the lease is free, expired or already held by the owner, so that the
+ * database arbitrates between competing processes. Expiration times are
+ * calculated using the clock of the process acquiring the lease, so the lease
+ * duration must be much larger than the clock skew between processes.
+ * <p>
+ * The lease table is created once before the lease is first requested, and
+ * a process waiting for the lease reads the lease row until the lease is
+ * free or expired before it requests the lease again. When the connection is
+ * not in auto-commit mode, each change to the lease row is committed
+ * immediately, so that it is visible to the waiting processes.
+ *
+ * @author Alan Gutierrez
+ */
+public class Lease {
+    /** The name of the lease table. */
+    public final static String TABLE_NAME = "ADDENDA_LEASE";
+
+    /** The SQL to create the lease table. */
+    private final static String CREATE = "CREATE TABLE ADDENDA_LEASE (LEASE_ID INTEGER NOT NULL, LEASE_OWNER VARCHAR(255), LEASE_EXPIRES BIGINT NOT NULL, LEASE_HEARTBEAT BIGINT NOT NULL, PRIMARY KEY (LEASE_ID))";
+
+    /** The SQL to select the single lease row. */
+    private final static String SELECT = "SELECT LEASE_ID FROM ADDENDA_LEASE WHERE LEASE_ID = 1";
+
+    /** The SQL to select the owner and expiration of the lease. */
+    private final static String SELECT_LEASE = "SELECT LEASE_OWNER, LEASE_EXPIRES FROM ADDENDA_LEASE WHERE LEASE_ID = 1";
+
+    /** The SQL to insert the single lease row. */
+    private final static String INSERT = "INSERT INTO ADDENDA_LEASE (LEASE_ID, LEASE_OWNER, LEASE_EXPIRES, LEASE_HEARTBEAT) VALUES (1, NULL, 0, 0)";
+
+    /** The SQL to acquire or renew the lease. */
+    private final static String ACQUIRE = "UPDATE ADDENDA_LEASE SET LEASE_OWNER = ?, LEASE_EXPIRES = ?, LEASE_HEARTBEAT = ? WHERE LEASE_ID = 1 AND (LEASE_OWNER IS NULL OR LEASE_OWNER = ? OR LEASE_EXPIRES < ?)";
+
+    /** The SQL to release the lease. */
+    private final static String RELEASE = "UPDATE ADDENDA_LEASE SET LEASE_OWNER = NULL, LEASE_EXPIRES = 0 WHERE LEASE_ID = 1 AND LEASE_OWNER = ?";
+
+    /** Cannot be instantiated. */
+    private Lease() {
+    }
+
+    /**
+     * Create the lease table and the single lease row if they do not exist.
+     * Competing processes may race to create the table and the row, so a
+     * failure to create either is ignored if the table or row exists
+     * afterward.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public static void create(Connection connection) throws SQLException {
+        if (!Tables.exists(connection, TABLE_NAME)) {
+            Statement statement = connection.createStatement();
+            try {
+                statement.execute(CREATE);
+            } catch (SQLException e) {
+                if (!Tables.exists(connection, TABLE_NAME)) {
+                    throw e;
+                }
+            } finally {
+                statement.close();
+            }
+        }
+        if (!exists(connection)) {
+            Statement statement = connection.createStatement();
+            try {
+                statement.execute(INSERT);
+            } catch (SQLException e) {
+                if (!exists(connection)) {
+                    throw e;
+                }
+            } finally {
+                statement.close();
+            }
+        }
+        commit(connection);
+    }
+
+    /**
+     * Determine if the single lease row exists.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @return True if the lease row exists.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    private static boolean exists(Connection connection) throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            ResultSet rs = statement.executeQuery(SELECT);
+            try {
+                return rs.next();
+            } finally {
+                rs.close();
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Determine if the lease is held by a process, that is, if it has an
+     * owner and has not expired. This is the single read issued by a process
+     * waiting for the lease. When the connection is not in auto-commit mode,
+     * the read transaction is ended, so that the next read sees the lease as
+     * it is then.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @return True if the lease is held by a process.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public static boolean isHeld(Connection connection) throws SQLException {
+        boolean held = false;
+        Statement statement = connection.createStatement();
+        try {
+            ResultSet rs = statement.executeQuery(SELECT_LEASE);
+            try {
+                if (rs.next()) {
+                    String owner = rs.getString(1);
+                    held = owner != null && rs.getLong(2) >= System.currentTimeMillis();
+                }
+            } finally {
+                rs.close();
+            }
+        } finally {
+            statement.close();
+        }
+        if (!connection.getAutoCommit()) {
+            connection.rollback();
+        }
+        return held;
+    }
+
+    /**
+     * Acquire or renew the lease for the given owner for the given duration.
+     * The lease is granted if it is free, if it has expired, or if it is
+     * already held by the given owner. The lease table must have been
+     * created by {@link #create(Connection) create}.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param owner
+     *            The unique identity of the lease owner.
+     * @param duration
+     *            The duration of the lease in milliseconds.
+     * @return True if the lease is now held by the given owner.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public static boolean acquire(Connection connection, String owner, long duration) throws SQLException {
+        long now = System.currentTimeMillis();
+        boolean acquired;
+        PreparedStatement statement = connection.prepareStatement(ACQUIRE);
+        try {
+            statement.setString(1, owner);
+            statement.setLong(2, now + duration);
+            statement.setLong(3, now);
+            statement.setString(4, owner);
+            statement.setLong(5, now);
+            acquired = statement.executeUpdate() == 1;
+        } finally {
+            statement.close();
+        }
+        commit(connection);
+        return acquired;
+    }
+
+    /**
+     * Release the lease if it is held by the given owner.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param owner
+     *            The unique identity of the lease owner.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public static void release(Connection connection, String owner) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(RELEASE);
+        try {
+            statement.setString(1, owner);
+            statement.executeUpdate();
+        } finally {
+            statement.close();
+        }
+        commit(connection);
+    }
+
+    /**
+     * Commit the change to the lease if the given connection is not in
+     * auto-commit mode.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    private static void commit(Connection connection) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+    }
+}
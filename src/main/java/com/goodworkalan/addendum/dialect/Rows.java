@@ -0,0 +1,489 @@
+package com.goodworkalan.addendum.dialect;
+
+import static com.goodworkalan.addendum.Addendum.INSERT_TYPE;
+import static com.goodworkalan.addendum.Addendum.INSERT_VALUES;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import com.goodworkalan.addendum.Addendum;
+import com.goodworkalan.danger.Danger;
+
+/**
+ * The rows of values of an insert statement, stored by column and converted
+ * to the SQL type of each column as they are added, so that they can be bound
+ * to a prepared statement with the setter for the type of the column.
+ * <p>
+ * Values of integer, boolean and floating point columns are stored in
+ * primitive arrays, so that values added as primitives are not boxed.
+ * <p>
+ * The column list is read when the first value is added, so that the rows can
+ * be created before the columns of the insert statement are specified.
+ *
+ * @author Alan Gutierrez
+ */
+public final class Rows {
+    /** The columns of the insert statement. */
+    private final List<Column> columns;
+
+    /** The SQL type of each column. */
+    private int[] types;
+
+    /** The integer values of each integer or boolean column, or null. */
+    private long[][] longs;
+
+    /** The floating point values of each floating point column, or null. */
+    private double[][] doubles;
+
+    /** The values of each column of any other type, or null. */
+    private Object[][] objects;
+
+    /** Whether the value of each column of each row is null. */
+    private boolean[][] nulls;
+
+    /** The number of rows including the row being added. */
+    private int size;
+
+    /** The index of the column of the next value of the row being added. */
+    private int column;
+
+    /**
+     * Create an empty set of rows for the given columns.
+     *
+     * @param columns
+     *            The columns of the insert statement.
+     */
+    public Rows(List<Column> columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Allocate the storage for each column according to its type.
+     */
+    private void allocate() {
+        int count = columns.size();
+        types = new int[count];
+        longs = new long[count][];
+        doubles = new double[count][];
+        objects = new Object[count][];
+        nulls = new boolean[count][];
+        for (int i = 0; i < count; i++) {
+            types[i] = columns.get(i).getColumnType();
+            switch (types[i]) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                longs[i] = new long[8];
+                break;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                doubles[i] = new double[8];
+                break;
+            default:
+                objects[i] = new Object[8];
+                break;
+            }
+            nulls[i] = new boolean[8];
+        }
+    }
+
+    /**
+     * Advance to the next column, starting a new row and growing the storage
+     * if the next column is the first column.
+     *
+     * @return The index of the column of the value being added.
+     */
+    private int next() {
+        if (types == null) {
+            allocate();
+        }
+        if (column == types.length) {
+            throw new Danger(Addendum.class, INSERT_VALUES);
+        }
+        if (column == 0) {
+            if (size == nulls[0].length) {
+                for (int i = 0; i < types.length; i++) {
+                    int capacity = size * 2;
+                    if (longs[i] != null) {
+                        longs[i] = copy(longs[i], capacity);
+                    } else if (doubles[i] != null) {
+                        doubles[i] = copy(doubles[i], capacity);
+                    } else {
+                        objects[i] = copy(objects[i], capacity);
+                    }
+                    nulls[i] = copy(nulls[i], capacity);
+                }
+            }
+            for (int i = 0; i < types.length; i++) {
+                nulls[i][size] = false;
+            }
+            size++;
+        }
+        return column++;
+    }
+
+    /**
+     * Copy the given array into a new array of the given length.
+     *
+     * @param array
+     *            The array.
+     * @param length
+     *            The new length.
+     * @return The copy.
+     */
+    private static long[] copy(long[] array, int length) {
+        long[] copy = new long[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    /**
+     * Copy the given array into a new array of the given length.
+     *
+     * @param array
+     *            The array.
+     * @param length
+     *            The new length.
+     * @return The copy.
+     */
+    private static double[] copy(double[] array, int length) {
+        double[] copy = new double[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    /**
+     * Copy the given array into a new array of the given length.
+     *
+     * @param array
+     *            The array.
+     * @param length
+     *            The new length.
+     * @return The copy.
+     */
+    private static Object[] copy(Object[] array, int length) {
+        Object[] copy = new Object[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    /**
+     * Copy the given array into a new array of the given length.
+     *
+     * @param array
+     *            The array.
+     * @param length
+     *            The new length.
+     * @return The copy.
+     */
+    private static boolean[] copy(boolean[] array, int length) {
+        boolean[] copy = new boolean[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    /**
+     * Add the given integer value as the value of the next column.
+     *
+     * @param value
+     *            The value.
+     * @exception Danger
+     *                If the row already has a value for every column.
+     */
+    public void add(long value) {
+        int i = next();
+        if (longs[i] != null) {
+            longs[i][size - 1] = value;
+        } else if (doubles[i] != null) {
+            doubles[i][size - 1] = value;
+        } else {
+            objects[i][size - 1] = convert(i, value);
+        }
+    }
+
+    /**
+     * Add the given floating point value as the value of the next column.
+     *
+     * @param value
+     *            The value.
+     * @exception Danger
+     *                If the row already has a value for every column.
+     */
+    public void add(double value) {
+        int i = next();
+        if (doubles[i] != null) {
+            doubles[i][size - 1] = value;
+        } else if (longs[i] != null) {
+            longs[i][size - 1] = (long) value;
+        } else {
+            objects[i][size - 1] = convert(i, value);
+        }
+    }
+
+    /**
+     * Add the given boolean value as the value of the next column.
+     *
+     * @param value
+     *            The value.
+     * @exception Danger
+     *                If the row already has a value for every column.
+     */
+    public void add(boolean value) {
+        add(value ? 1L : 0L);
+    }
+
+    /**
+     * Add the given value as the value of the next column, converting it to
+     * the type of the column.
+     *
+     * @param value
+     *            The value or null.
+     * @exception Danger
+     *                If the row already has a value for every column, or if
+     *                the value cannot be converted to the type of the column.
+     */
+    public void add(Object value) {
+        int i = next();
+        if (value == null) {
+            nulls[i][size - 1] = true;
+        } else if (longs[i] != null) {
+            if (value instanceof Number) {
+                longs[i][size - 1] = ((Number) value).longValue();
+            } else if (value instanceof Boolean) {
+                longs[i][size - 1] = ((Boolean) value) ? 1L : 0L;
+            } else {
+                try {
+                    longs[i][size - 1] = Long.parseLong(value.toString().trim());
+                } catch (NumberFormatException e) {
+                    throw new Danger(Addendum.class, INSERT_TYPE, e, value, columns.get(i).getName());
+                }
+            }
+        } else if (doubles[i] != null) {
+            if (value instanceof Number) {
+                doubles[i][size - 1] = ((Number) value).doubleValue();
+            } else {
+                try {
+                    doubles[i][size - 1] = Double.parseDouble(value.toString().trim());
+                } catch (NumberFormatException e) {
+                    throw new Danger(Addendum.class, INSERT_TYPE, e, value, columns.get(i).getName());
+                }
+            }
+        } else {
+            objects[i][size - 1] = convert(i, value);
+        }
+    }
+
+    /**
+     * Convert the given value to the Java type used to bind a value of the
+     * type of the column at the given index.
+     *
+     * @param i
+     *            The column index.
+     * @param value
+     *            The value.
+     * @return The converted value.
+     * @exception Danger
+     *                If the value cannot be converted.
+     */
+    private Object convert(int i, Object value) {
+        try {
+            switch (types[i]) {
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                if (value instanceof BigDecimal) {
+                    return value;
+                }
+                return new BigDecimal(value.toString().trim());
+            case Types.TIMESTAMP:
+                if (value instanceof Timestamp) {
+                    return value;
+                } else if (value instanceof Date) {
+                    return new Timestamp(((Date) value).getTime());
+                } else if (value instanceof Calendar) {
+                    return new Timestamp(((Calendar) value).getTimeInMillis());
+                } else if (value instanceof Number) {
+                    return new Timestamp(((Number) value).longValue());
+                }
+                return Timestamp.valueOf(value.toString().trim());
+            case Types.DATE:
+                if (value instanceof java.sql.Date) {
+                    return value;
+                } else if (value instanceof Date) {
+                    return new java.sql.Date(((Date) value).getTime());
+                } else if (value instanceof Calendar) {
+                    return new java.sql.Date(((Calendar) value).getTimeInMillis());
+                }
+                return java.sql.Date.valueOf(value.toString().trim());
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.CLOB:
+                return value.toString();
+            }
+        } catch (IllegalArgumentException e) {
+            throw new Danger(Addendum.class, INSERT_TYPE, e, value, columns.get(i).getName());
+        }
+        return value;
+    }
+
+    /**
+     * Add a copy of the rows of the given rows, which must have the same
+     * column types.
+     *
+     * @param rows
+     *            The rows to add.
+     */
+    public void addAll(Rows rows) {
+        for (int row = 0, stop = rows.size(); row < stop; row++) {
+            for (int i = 0; i < rows.types.length; i++) {
+                if (rows.nulls[i][row]) {
+                    add((Object) null);
+                } else if (rows.longs[i] != null) {
+                    add(rows.longs[i][row]);
+                } else if (rows.doubles[i] != null) {
+                    add(rows.doubles[i][row]);
+                } else {
+                    add(rows.objects[i][row]);
+                }
+            }
+            endRow();
+        }
+    }
+
+    /**
+     * Get the number of columns in a row.
+     *
+     * @return The number of columns.
+     */
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    /**
+     * Determine whether the row being added has a value for every column.
+     *
+     * @return True if every row is complete.
+     */
+    public boolean isComplete() {
+        return column == 0 || column == types.length;
+    }
+
+    /**
+     * End the row being added, so that the next value starts a new row.
+     *
+     * @exception Danger
+     *                If the row does not have a value for every column.
+     */
+    public void endRow() {
+        if (!isComplete()) {
+            throw new Danger(Addendum.class, INSERT_VALUES);
+        }
+        column = 0;
+    }
+
+    /**
+     * Remove all of the rows, keeping the storage allocated for them, so
+     * that rows can be added and inserted in chunks without growing.
+     */
+    public void clear() {
+        if (types != null) {
+            for (int i = 0; i < types.length; i++) {
+                if (objects[i] != null) {
+                    Arrays.fill(objects[i], 0, size, null);
+                }
+            }
+        }
+        size = 0;
+        column = 0;
+    }
+
+    /**
+     * Get the number of complete rows.
+     *
+     * @return The number of rows.
+     */
+    public int size() {
+        return column == 0 ? size : size - 1;
+    }
+
+    /**
+     * Bind the values of the row at the given index to the parameters of the
+     * given statement starting at the given parameter index, using the setter
+     * for the type of each column.
+     *
+     * @param statement
+     *            The prepared statement.
+     * @param index
+     *            The index of the first parameter.
+     * @param row
+     *            The row index.
+     * @return The index of the parameter after the last parameter set.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public int bind(PreparedStatement statement, int index, int row) throws SQLException {
+        for (int i = 0; i < types.length; i++, index++) {
+            if (nulls[i][row]) {
+                statement.setNull(index, types[i] == Types.OTHER ? Types.VARCHAR : types[i]);
+                continue;
+            }
+            switch (types[i]) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+                statement.setBoolean(index, longs[i][row] != 0L);
+                break;
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                statement.setInt(index, (int) longs[i][row]);
+                break;
+            case Types.BIGINT:
+                statement.setLong(index, longs[i][row]);
+                break;
+            case Types.REAL:
+            case Types.FLOAT:
+                statement.setFloat(index, (float) doubles[i][row]);
+                break;
+            case Types.DOUBLE:
+                statement.setDouble(index, doubles[i][row]);
+                break;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                statement.setBigDecimal(index, (BigDecimal) objects[i][row]);
+                break;
+            case Types.TIMESTAMP:
+                statement.setTimestamp(index, (Timestamp) objects[i][row]);
+                break;
+            case Types.DATE:
+                statement.setDate(index, (java.sql.Date) objects[i][row]);
+                break;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.CLOB:
+                statement.setString(index, (String) objects[i][row]);
+                break;
+            default:
+                Object value = objects[i][row];
+                if (value instanceof String) {
+                    statement.setString(index, (String) value);
+                } else {
+                    statement.setObject(index, value);
+                }
+                break;
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,158 @@
+package com.goodworkalan.addendum.dialect;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The single row version stamp that records the number of addenda applied to
+ * the database and a fingerprint of the addenda that were applied.
+ * <p>
+ * The version stamp table is read and written using standard SQL, so that a
+ * database that is already up to date can be detected with a single primary
+ * key lookup, before any dialect has been chosen and before any DDL has been
+ * issued.
+ *
+ * @author Alan Gutierrez
+ */
+public class Stamp {
+    /** The name of the version stamp table. */
+    public final static String TABLE_NAME = "ADDENDA_STAMP";
+
+    /** The SQL to select the single version stamp row. */
+    private final static String SELECT = "SELECT ADDENDA_VERSION, ADDENDA_FINGERPRINT FROM ADDENDA_STAMP WHERE STAMP_ID = 1";
+
+    /** The SQL to create the version stamp table. */
+    private final static String CREATE = "CREATE TABLE ADDENDA_STAMP (STAMP_ID INTEGER NOT NULL, ADDENDA_VERSION INTEGER NOT NULL, ADDENDA_FINGERPRINT VARCHAR(64), PRIMARY KEY (STAMP_ID))";
+
+    /** The SQL to update the single version stamp row. */
+    private final static String UPDATE = "UPDATE ADDENDA_STAMP SET ADDENDA_VERSION = ?, ADDENDA_FINGERPRINT = ? WHERE STAMP_ID = 1";
+
+    /** The SQL to insert the single version stamp row. */
+    private final static String INSERT = "INSERT INTO ADDENDA_STAMP (STAMP_ID, ADDENDA_VERSION, ADDENDA_FINGERPRINT) VALUES (1, ?, ?)";
+
+    /** The number of addenda applied. */
+    private final int version;
+
+    /** The fingerprint of the addenda applied. */
+    private final String fingerprint;
+
+    /**
+     * Create a version stamp with the given version and fingerprint.
+     *
+     * @param version
+     *            The number of addenda applied.
+     * @param fingerprint
+     *            The fingerprint of the addenda applied.
+     */
+    public Stamp(int version, String fingerprint) {
+        this.version = version;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Get the number of addenda applied.
+     *
+     * @return The number of addenda applied.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the fingerprint of the addenda applied.
+     *
+     * @return The fingerprint of the addenda applied.
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Determine if this version stamp records the given version and the given
+     * fingerprint.
+     *
+     * @param version
+     *            The number of addenda.
+     * @param fingerprint
+     *            The fingerprint of the addenda.
+     * @return True if this stamp matches the given version and fingerprint.
+     */
+    public boolean matches(int version, String fingerprint) {
+        return this.version == version && fingerprint.equals(this.fingerprint);
+    }
+
+    /**
+     * Read the version stamp from the database at the given connection,
+     * returning null if the version stamp row has not been written. If the
+     * version stamp table does not exist, the SQL exception raised by the
+     * database is thrown.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @return The version stamp or null if there is no version stamp row.
+     * @throws SQLException
+     *             For any SQL error, including a missing version stamp table.
+     */
+    public static Stamp read(Connection connection) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(SELECT);
+        try {
+            ResultSet rs = statement.executeQuery();
+            try {
+                if (rs.next()) {
+                    return new Stamp(rs.getInt(1), rs.getString(2));
+                }
+                return null;
+            } finally {
+                rs.close();
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Write the given version and fingerprint to the version stamp table in the
+     * database at the given connection, creating the version stamp table if it
+     * does not exist.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param version
+     *            The number of addenda applied.
+     * @param fingerprint
+     *            The fingerprint of the addenda applied.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public static void write(Connection connection, int version, String fingerprint) throws SQLException {
+        if (!Tables.exists(connection, TABLE_NAME)) {
+            Statement statement = connection.createStatement();
+            try {
+                statement.execute(CREATE);
+            } finally {
+                statement.close();
+            }
+        }
+        PreparedStatement update = connection.prepareStatement(UPDATE);
+        try {
+            update.setInt(1, version);
+            update.setString(2, fingerprint);
+            if (update.executeUpdate() != 0) {
+                return;
+            }
+        } finally {
+            update.close();
+        }
+        PreparedStatement insert = connection.prepareStatement(INSERT);
+        try {
+            insert.setInt(1, version);
+            insert.setString(2, fingerprint);
+            insert.executeUpdate();
+        } finally {
+            insert.close();
+        }
+    }
+}
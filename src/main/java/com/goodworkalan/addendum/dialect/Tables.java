@@ -0,0 +1,178 @@
+package com.goodworkalan.addendum.dialect;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Static utility methods for inspecting the tables in a database.
+ *
+ * @author Alan Gutierrez
+ */
+public class Tables {
+    /** Cannot be instantiated. */
+    private Tables() {
+    }
+
+    /**
+     * Determine if a table with the given name exists in the database at the
+     * given connection. Databases differ on how they store unquoted
+     * identifiers, so the table name is searched for as given, in upper case
+     * and in lower case.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @return True if the table exists.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public static boolean exists(Connection connection, String tableName) throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        for (String name : new String[] { tableName, tableName.toUpperCase(), tableName.toLowerCase() }) {
+            ResultSet rs = meta.getTables(null, null, name, null);
+            try {
+                if (rs.next()) {
+                    return true;
+                }
+            } finally {
+                rs.close();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determine if a column with the given name exists in the table with the
+     * given name in the database at the given connection. The table and
+     * column names are searched for as given, in upper case and in lower
+     * case.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @param columnName
+     *            The column name.
+     * @return True if the column exists.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public static boolean exists(Connection connection, String tableName, String columnName) throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        String[] tableNames = new String[] { tableName, tableName.toUpperCase(), tableName.toLowerCase() };
+        String[] columnNames = new String[] { columnName, columnName.toUpperCase(), columnName.toLowerCase() };
+        for (int i = 0; i < tableNames.length; i++) {
+            ResultSet rs = meta.getColumns(null, null, tableNames[i], columnNames[i]);
+            try {
+                if (rs.next()) {
+                    return true;
+                }
+            } finally {
+                rs.close();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the last primary key of the range of the given number of primary
+     * keys of the given table that follows the given key, or null if there
+     * are no more keys. Tables are divided into ranges of their primary key
+     * so that large tables can be updated or copied in many short statements.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @param keyName
+     *            The primary key column name.
+     * @param lower
+     *            The last key of the previous range or null for the first
+     *            range.
+     * @param chunkSize
+     *            The number of primary keys in the range.
+     * @return The last primary key of the range or null.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public static Object getUpperKey(Connection connection, String tableName, String keyName, Object lower, int chunkSize) throws SQLException {
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT ").append(keyName).append(" FROM ").append(tableName);
+        if (lower != null) {
+            sql.append(" WHERE ").append(keyName).append(" > ?");
+        }
+        sql.append(" ORDER BY ").append(keyName);
+        PreparedStatement statement = connection.prepareStatement(sql.toString());
+        try {
+            statement.setMaxRows(chunkSize);
+            statement.setFetchSize(chunkSize);
+            if (lower != null) {
+                statement.setObject(1, lower);
+            }
+            ResultSet rs = statement.executeQuery();
+            try {
+                Object upper = null;
+                while (rs.next()) {
+                    upper = rs.getObject(1);
+                }
+                return upper;
+            } finally {
+                rs.close();
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Determine if the given SQL type is an integer type.
+     *
+     * @param type
+     *            The SQL type.
+     * @return True if the SQL type is an integer type.
+     */
+    public static boolean isInteger(int type) {
+        switch (type) {
+        case Types.TINYINT:
+        case Types.SMALLINT:
+        case Types.INTEGER:
+        case Types.BIGINT:
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Convert a key recorded as a string in a progress table back to a value
+     * of the given SQL type, so that it compares with the key column as a
+     * number if the key column is numeric.
+     *
+     * @param key
+     *            The recorded key or null.
+     * @param keyType
+     *            The SQL type of the key column.
+     * @return The key converted to the type of the key column or null.
+     */
+    public static Object toKey(String key, int keyType) {
+        if (key == null) {
+            return null;
+        }
+        switch (keyType) {
+        case Types.TINYINT:
+        case Types.SMALLINT:
+        case Types.INTEGER:
+        case Types.BIGINT:
+            return Long.valueOf(key);
+        case Types.NUMERIC:
+        case Types.DECIMAL:
+            return new BigDecimal(key);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,279 @@
+package com.goodworkalan.addendum.dialect;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A row of the timing history kept alongside the addenda table that records
+ * a single execution of a database update of an addendum: the kind of
+ * update, the tables it affected, a hash of the SQL it issued, when it
+ * started, how long it took, the number of rows it changed and the host
+ * that ran it.
+ * <p>
+ * The timing history is read and written using standard SQL, so that the
+ * history of a staging database can be used to predict the duration of a
+ * migration of a production database, and so that the histories of
+ * databases in different environments can be compared.
+ *
+ * @author Alan Gutierrez
+ */
+public class Timing {
+    /** The name of the timing history table. */
+    public final static String TABLE_NAME = "ADDENDA_TIMING";
+
+    /** The SQL to create the timing history table. */
+    private final static String CREATE = "CREATE TABLE ADDENDA_TIMING (ADDENDUM INTEGER NOT NULL, UPDATE_KIND VARCHAR(64) NOT NULL, TABLE_NAMES VARCHAR(255), SQL_HASH VARCHAR(40), STARTED BIGINT NOT NULL, DURATION BIGINT NOT NULL, ROW_COUNT BIGINT NOT NULL, HOST VARCHAR(255))";
+
+    /** The SQL to insert a row of the timing history. */
+    private final static String INSERT = "INSERT INTO ADDENDA_TIMING (ADDENDUM, UPDATE_KIND, TABLE_NAMES, SQL_HASH, STARTED, DURATION, ROW_COUNT, HOST) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /** The SQL to select the timing history. */
+    private final static String SELECT = "SELECT ADDENDUM, UPDATE_KIND, TABLE_NAMES, SQL_HASH, STARTED, DURATION, ROW_COUNT, HOST FROM ADDENDA_TIMING ORDER BY ADDENDUM, STARTED";
+
+    /** The index of the addendum. */
+    private final int addendum;
+
+    /** The kind of update. */
+    private final String kind;
+
+    /** The names of the tables affected or null if unknown. */
+    private final String tableNames;
+
+    /** The hash of the SQL issued or null if no SQL was issued. */
+    private final String sqlHash;
+
+    /** The time in milliseconds at which the update started. */
+    private final long started;
+
+    /** The duration of the update in milliseconds. */
+    private final long duration;
+
+    /** The number of rows changed or -1 if unknown. */
+    private final long rowCount;
+
+    /** The host that ran the update. */
+    private final String host;
+
+    /**
+     * Create a row of the timing history.
+     *
+     * @param addendum
+     *            The index of the addendum.
+     * @param kind
+     *            The kind of update.
+     * @param tableNames
+     *            The names of the tables affected or null if unknown.
+     * @param sqlHash
+     *            The hash of the SQL issued or null if no SQL was issued.
+     * @param started
+     *            The time in milliseconds at which the update started.
+     * @param duration
+     *            The duration of the update in milliseconds.
+     * @param rowCount
+     *            The number of rows changed or -1 if unknown.
+     * @param host
+     *            The host that ran the update.
+     */
+    public Timing(int addendum, String kind, String tableNames, String sqlHash, long started, long duration, long rowCount, String host) {
+        this.addendum = addendum;
+        this.kind = kind;
+        this.tableNames = tableNames;
+        this.sqlHash = sqlHash;
+        this.started = started;
+        this.duration = duration;
+        this.rowCount = rowCount;
+        this.host = host;
+    }
+
+    /**
+     * Get the index of the addendum.
+     *
+     * @return The index of the addendum.
+     */
+    public int getAddendum() {
+        return addendum;
+    }
+
+    /**
+     * Get the kind of update.
+     *
+     * @return The kind of update.
+     */
+    public String getKind() {
+        return kind;
+    }
+
+    /**
+     * Get the names of the tables affected separated by commas.
+     *
+     * @return The names of the tables affected or null if unknown.
+     */
+    public String getTableNames() {
+        return tableNames;
+    }
+
+    /**
+     * Get the hash of the SQL issued by the update.
+     *
+     * @return The hash of the SQL or null if no SQL was issued.
+     */
+    public String getSqlHash() {
+        return sqlHash;
+    }
+
+    /**
+     * Get the time in milliseconds at which the update started.
+     *
+     * @return The start time.
+     */
+    public long getStarted() {
+        return started;
+    }
+
+    /**
+     * Get the duration of the update in milliseconds.
+     *
+     * @return The duration.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Get the number of rows changed by the update.
+     *
+     * @return The number of rows changed or -1 if unknown.
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Get the host that ran the update.
+     *
+     * @return The host.
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Read the timing history from the database at the given connection in
+     * the order of the addenda, returning an empty list if the timing history
+     * table does not exist.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @return The timing history.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public static List<Timing> read(Connection connection) throws SQLException {
+        List<Timing> timings = new ArrayList<Timing>();
+        if (!Tables.exists(connection, TABLE_NAME)) {
+            return timings;
+        }
+        PreparedStatement statement = connection.prepareStatement(SELECT);
+        try {
+            ResultSet rs = statement.executeQuery();
+            try {
+                while (rs.next()) {
+                    timings.add(new Timing(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getLong(5), rs.getLong(6), rs.getLong(7), rs.getString(8)));
+                }
+            } finally {
+                rs.close();
+            }
+        } finally {
+            statement.close();
+        }
+        return timings;
+    }
+
+    /**
+     * Create the timing history table if it does not exist. Competing
+     * processes may race to create the table, so a failure to create it is
+     * ignored if the table exists afterward.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public static void create(Connection connection) throws SQLException {
+        if (!Tables.exists(connection, TABLE_NAME)) {
+            Statement statement = connection.createStatement();
+            try {
+                statement.execute(CREATE);
+            } catch (SQLException e) {
+                if (!Tables.exists(connection, TABLE_NAME)) {
+                    throw e;
+                }
+            } finally {
+                statement.close();
+            }
+        }
+    }
+
+    /**
+     * Write the given rows to the timing history table in the database at the
+     * given connection in a single batch. The timing history table must have
+     * been created with {@link Dialect#createTimingTable(Connection)
+     * createTimingTable}.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param timings
+     *            The rows of the timing history.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public static void write(Connection connection, List<Timing> timings) throws SQLException {
+        if (timings.isEmpty()) {
+            return;
+        }
+        PreparedStatement insert = connection.prepareStatement(INSERT);
+        try {
+            for (Timing timing : timings) {
+                insert.setInt(1, timing.addendum);
+                insert.setString(2, timing.kind);
+                setString(insert, 3, timing.tableNames);
+                setString(insert, 4, timing.sqlHash);
+                insert.setLong(5, timing.started);
+                insert.setLong(6, timing.duration);
+                insert.setLong(7, timing.rowCount);
+                setString(insert, 8, timing.host);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        } finally {
+            insert.close();
+        }
+    }
+
+    /**
+     * Set the parameter at the given index of the given statement to the
+     * given string or to null.
+     *
+     * @param statement
+     *            The prepared statement.
+     * @param index
+     *            The parameter index.
+     * @param value
+     *            The string or null.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    private static void setString(PreparedStatement statement, int index, String value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.VARCHAR);
+        } else {
+            statement.setString(index, value);
+        }
+    }
+}
@@ -4,10 +4,17 @@ import static com.goodworkalan.addendum.Addendum.SQL_ADDENDA_COUNT;
 import static com.goodworkalan.addendum.Addendum.SQL_ADDENDUM;
 import static com.goodworkalan.addendum.Addendum.SQL_CREATE_ADDENDA;
 import static com.goodworkalan.addendum.Addendum.SQL_GET_DIALECT;
+import static com.goodworkalan.addendum.TestDatabase.count;
+import static com.goodworkalan.addendum.TestDatabase.transactionalConnector;
+import static com.goodworkalan.addendum.TestDatabase.url;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.fail;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -15,6 +22,7 @@ import org.testng.annotations.Test;
 import com.goodworkalan.addendum.connector.MockConnector;
 import com.goodworkalan.addendum.dialect.Dialect;
 import com.goodworkalan.addendum.dialect.MockDatabase;
+import com.goodworkalan.addendum.dialect.Stamp;
 import com.goodworkalan.danger.Danger;
 import com.goodworkalan.danger.test.Dangerous;
 
@@ -157,6 +165,141 @@ public class AddendaTest {
         addenda.addendum();
         addenda.amend();
         assertEquals(1, MockDatabase.INSTANCE.addenda.size());
+        assertEquals(1, MockDatabase.INSTANCE.stamps.size());
+        assertEquals(1, (int) MockDatabase.INSTANCE.stamps.get(0));
+    }
+
+    /**
+     * In transactional mode, the statements of each addendum are batched.
+     */
+    @Test
+    public void transactional() {
+        Addenda addenda = new Addenda(new MockConnector());
+        addenda.setTransactional(true);
+        addenda.addendum();
+        addenda.addendum();
+        addenda.amend();
+        assertEquals(2, MockDatabase.INSTANCE.addenda.size());
+        assertEquals(2, MockDatabase.INSTANCE.batches);
+    }
+
+    /**
+     * Each addendum applied to H2 in transactional mode is committed once,
+     * and the version stamp is committed after the last addendum.
+     */
+    @Test
+    public void transactionalCommit() throws Exception {
+        String url = url("addenda");
+        AtomicInteger commits = new AtomicInteger();
+        Addenda addenda = new Addenda(transactionalConnector(url, commits));
+        addenda.setTransactional(true);
+        addenda
+            .addendum()
+                .create("Person")
+                    .add("id", int.class).end()
+                    .primaryKey("id")
+                    .end()
+                .commit();
+        addenda
+            .addendum()
+                .execute(new Executable() {
+                    public void execute(Connection connection, Dialect dialect) throws SQLException {
+                        connection.createStatement().execute("INSERT INTO Person (id) VALUES (1)");
+                        connection.createStatement().execute("INSERT INTO Person (id) VALUES (2)");
+                    }
+                })
+                .commit();
+        addenda.amend();
+        assertEquals(3, commits.get());
+        assertEquals(2, count(url, "SELECT COUNT(*) FROM Person"));
+        assertEquals(2, count(url, "SELECT COUNT(*) FROM ADDENDA"));
+    }
+
+    /**
+     * A failing statement in an addendum applied to H2 in transactional mode
+     * rolls back the changes of the whole addendum together with its
+     * accounting, and the addendum is applied again by the next amend.
+     */
+    @Test
+    public void transactionalRollback() throws Exception {
+        String url = url("addenda");
+        AtomicInteger commits = new AtomicInteger();
+        final AtomicBoolean duplicate = new AtomicBoolean(true);
+        Addenda addenda = new Addenda(transactionalConnector(url, commits));
+        addenda.setTransactional(true);
+        addenda
+            .addendum()
+                .create("Person")
+                    .add("id", int.class).end()
+                    .primaryKey("id")
+                    .end()
+                .commit();
+        addenda
+            .addendum()
+                .execute(new Executable() {
+                    public void execute(Connection connection, Dialect dialect) throws SQLException {
+                        connection.createStatement().execute("INSERT INTO Person (id) VALUES (1)");
+                        if (duplicate.get()) {
+                            connection.createStatement().execute("INSERT INTO Person (id) VALUES (1)");
+                        }
+                    }
+                })
+                .commit();
+        try {
+            addenda.amend();
+            fail();
+        } catch (Danger e) {
+        }
+        assertEquals(1, commits.get());
+        assertEquals(0, count(url, "SELECT COUNT(*) FROM Person"));
+        assertEquals(1, count(url, "SELECT COUNT(*) FROM ADDENDA"));
+        duplicate.set(false);
+        addenda.amend();
+        assertEquals(1, count(url, "SELECT COUNT(*) FROM Person"));
+        assertEquals(2, count(url, "SELECT COUNT(*) FROM ADDENDA"));
+    }
+
+    /**
+     * When the version stamp matches the addenda count and fingerprint, the
+     * amend returns without choosing a dialect. If a dialect were chosen, the
+     * "ERROR" database product name would raise an exception.
+     */
+    @Test
+    public void current() {
+        Addenda addenda = new Addenda(new MockConnector());
+        addenda.addendum();
+        Stamp stamp = new Stamp(1, addenda.getFingerprint());
+        Addenda current = new Addenda(new MockConnector("ERROR", stamp));
+        current.addendum();
+        current.amend();
+        assertEquals(0, MockDatabase.INSTANCE.addenda.size());
+    }
+
+    /**
+     * When the version stamp fingerprint does not match the addenda, the
+     * addenda are applied.
+     */
+    @Test
+    public void fingerprintMismatch() {
+        Addenda addenda = new Addenda(new MockConnector("MOCK", new Stamp(1, "mismatch")));
+        addenda.addendum();
+        addenda.amend();
+        assertEquals(1, MockDatabase.INSTANCE.addenda.size());
+    }
+
+    /** The fingerprint changes when an update is added to the addenda. */
+    @Test
+    public void fingerprint() {
+        Addenda addenda = new Addenda(new MockConnector());
+        addenda.addendum();
+        String empty = addenda.getFingerprint();
+        assertEquals(empty, addenda.getFingerprint());
+        addenda.addendum()
+            .create("Person")
+                .add("firstName", String.class).end()
+                .end()
+            .commit();
+        assertFalse(empty.equals(addenda.getFingerprint()));
     }
 
     /**
@@ -190,6 +333,55 @@ public class AddendaTest {
         new ExampleMigration(addenda).create();
     }
     
+    /** The tables are not copied as addenda are created without provisioning. */
+    @Test
+    public void provisionDisabled() {
+        Addenda addenda = new Addenda(new MockConnector());
+        addenda
+            .addendum()
+                .create("a")
+                    .add("a", int.class).end()
+                    .end()
+                .commit();
+        addenda.addendum();
+        assertEquals(-1, addenda.definitionsAt);
+        assertEquals(null, addenda.definitions);
+    }
+
+    /**
+     * A fresh database is provisioned by creating the tables as they are
+     * after the leading data definition addenda, then applying the rest.
+     */
+    @Test
+    public void provision() {
+        Addenda addenda = new Addenda(new MockConnector());
+        addenda.setProvision(true);
+        addenda
+            .addendum()
+                .create("a")
+                    .add("a", int.class).end()
+                    .end()
+                .commit();
+        addenda
+            .addendum()
+                .alter("a")
+                    .add("b", int.class).end()
+                    .end()
+                .commit();
+        addenda
+            .addendum()
+                .alter("a")
+                    .add("c", int.class).end()
+                    .end()
+                .insert("a").columns("a").values("1")
+                .commit();
+        addenda.amend();
+        assertEquals(MockDatabase.INSTANCE.createTables.size(), 1);
+        assertEquals(MockDatabase.INSTANCE.createTables.get(0).columns.size(), 2);
+        assertEquals(MockDatabase.INSTANCE.addColumns.size(), 1);
+        assertEquals(MockDatabase.INSTANCE.addenda.size(), 3);
+    }
+
     /**
      * A skipped addendum is not invoked. If the skipped addendum were invoked,
      * an exception would be thrown by this test.
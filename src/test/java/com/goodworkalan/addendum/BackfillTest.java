@@ -0,0 +1,113 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.TestDatabase.connector;
+import static com.goodworkalan.addendum.TestDatabase.count;
+import static com.goodworkalan.addendum.TestDatabase.execute;
+import static com.goodworkalan.addendum.TestDatabase.url;
+import static org.testng.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.testng.annotations.Test;
+
+import com.goodworkalan.addendum.dialect.Dialect;
+
+/**
+ * Tests of the initialization of a new not null column in ranges of the
+ * primary key.
+ *
+ * @author Alan Gutierrez
+ */
+public class BackfillTest {
+    /**
+     * Create addenda that create a table of the given number of rows and then
+     * add a not null column to the table.
+     *
+     * @param url
+     *            The H2 database URL.
+     * @param count
+     *            The number of rows.
+     * @return The addenda.
+     */
+    private Addenda addenda(String url, final int count) {
+        Addenda addenda = new Addenda(connector(url));
+        addenda
+            .addendum()
+                .create("Person")
+                    .add("id", int.class).end()
+                    .primaryKey("id")
+                    .end()
+                .execute(new Executable() {
+                    public void execute(Connection connection, Dialect dialect) throws SQLException {
+                        PreparedStatement statement = connection.prepareStatement("INSERT INTO Person (id) VALUES (?)");
+                        for (int i = 0; i < count; i++) {
+                            statement.setInt(1, i);
+                            statement.executeUpdate();
+                        }
+                        statement.close();
+                    }
+                })
+                .commit();
+        addenda
+            .addendum()
+                .alter("Person")
+                    .add("age", int.class).notNull().defaultValue(0).end()
+                    .end()
+                .commit();
+        return addenda;
+    }
+
+    /** Every row is initialized and the progress is removed. */
+    @Test
+    public void chunks() throws Exception {
+        String url = url("backfill");
+        Addenda addenda = addenda(url, 10);
+        addenda.setBackfillChunkSize(3);
+        addenda.amend();
+        assertEquals(count(url, "SELECT COUNT(*) FROM Person WHERE age = 0"), 10);
+        assertEquals(count(url, "SELECT COUNT(*) FROM ADDENDA_BACKFILL"), 0);
+    }
+
+    /** An interrupted backfill continues after the last recorded key. */
+    @Test
+    public void resume() throws Exception {
+        String url = url("backfill");
+        addenda(url, 10).amend();
+        execute(url,
+            "ALTER TABLE Person DROP COLUMN age",
+            "ALTER TABLE Person ADD age INTEGER",
+            "UPDATE Person SET age = 1 WHERE id <= 4",
+            "DELETE FROM ADDENDA WHERE ADDENDUM > 0",
+            "DELETE FROM ADDENDA_STAMP",
+            "CREATE TABLE ADDENDA_BACKFILL (TABLE_NAME VARCHAR(255) NOT NULL, COLUMN_NAME VARCHAR(255) NOT NULL, LAST_KEY VARCHAR(255), PRIMARY KEY (TABLE_NAME, COLUMN_NAME))",
+            "INSERT INTO ADDENDA_BACKFILL VALUES ('Person', 'age', '4')");
+        Addenda addenda = addenda(url, 10);
+        addenda.setBackfillChunkSize(3);
+        addenda.amend();
+        assertEquals(count(url, "SELECT COUNT(*) FROM Person WHERE age = 1"), 5);
+        assertEquals(count(url, "SELECT COUNT(*) FROM Person WHERE age = 0"), 5);
+    }
+
+    /**
+     * A backfill interrupted after its start was recorded and before the
+     * column was added adds the column when it resumes.
+     */
+    @Test
+    public void resumeBeforeAdd() throws Exception {
+        String url = url("backfill");
+        addenda(url, 10).amend();
+        execute(url,
+            "ALTER TABLE Person DROP COLUMN age",
+            "DELETE FROM ADDENDA WHERE ADDENDUM > 0",
+            "DELETE FROM ADDENDA_STAMP",
+            "CREATE TABLE ADDENDA_BACKFILL (TABLE_NAME VARCHAR(255) NOT NULL, COLUMN_NAME VARCHAR(255) NOT NULL, LAST_KEY VARCHAR(255), PRIMARY KEY (TABLE_NAME, COLUMN_NAME))",
+            "INSERT INTO ADDENDA_BACKFILL VALUES ('Person', 'age', NULL)");
+        Addenda addenda = addenda(url, 10);
+        addenda.setBackfillChunkSize(3);
+        addenda.amend();
+        assertEquals(count(url, "SELECT COUNT(*) FROM Person WHERE age = 0"), 10);
+        assertEquals(count(url, "SELECT COUNT(*) FROM ADDENDA_BACKFILL"), 0);
+    }
+}
@@ -0,0 +1,124 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.Addendum.DEADLINE_EXCEEDED;
+import static com.goodworkalan.addendum.TestDatabase.count;
+import static com.goodworkalan.addendum.TestDatabase.transactionalConnector;
+import static com.goodworkalan.addendum.TestDatabase.url;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.goodworkalan.addendum.connector.Connector;
+import com.goodworkalan.addendum.dialect.Dialect;
+import com.goodworkalan.danger.Danger;
+
+/**
+ * Tests of the cancellation of statements at the deadline of an amend.
+ *
+ * @author Alan Gutierrez
+ */
+public class DeadlineTest {
+    /**
+     * Create a connection that creates statements that count the times they
+     * are cancelled.
+     *
+     * @param cancels
+     *            The count of cancellations.
+     * @return A connection.
+     */
+    private Connection connection(final AtomicInteger cancels) {
+        final Statement statement = (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { Statement.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("cancel")) {
+                    cancels.incrementAndGet();
+                }
+                return null;
+            }
+        });
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("createStatement")) {
+                    return statement;
+                }
+                return null;
+            }
+        });
+    }
+
+    /** Open statements are cancelled at the deadline. */
+    @Test
+    public void cancel() throws Exception {
+        AtomicInteger cancels = new AtomicInteger();
+        Deadline deadline = new Deadline(System.currentTimeMillis() + 50);
+        Connection connection = deadline.wrap(connection(cancels));
+        connection.createStatement();
+        connection.createStatement().close();
+        assertFalse(deadline.isExpired());
+        Thread.sleep(200);
+        assertTrue(deadline.isExpired());
+        assertEquals(cancels.get(), 1);
+        assertTrue(connection.equals(connection));
+        deadline.close();
+    }
+
+    /** Nothing is cancelled if the deadline is closed first. */
+    @Test
+    public void close() throws Exception {
+        AtomicInteger cancels = new AtomicInteger();
+        Deadline deadline = new Deadline(System.currentTimeMillis() + 500);
+        deadline.wrap(connection(cancels)).createStatement();
+        deadline.close();
+        Thread.sleep(700);
+        assertFalse(deadline.isExpired());
+        assertEquals(cancels.get(), 0);
+    }
+
+    /**
+     * A statement running at the deadline of an amend is cancelled, the
+     * addendum is rolled back and the migration lease is released.
+     */
+    @Test
+    public void amend() throws Exception {
+        String url = url("deadline");
+        Connector connector = transactionalConnector(url, new AtomicInteger());
+        Addenda addenda = new Addenda(connector);
+        addenda.setTransactional(true);
+        addenda
+            .addendum()
+                .create("Person")
+                    .add("id", int.class).end()
+                    .primaryKey("id")
+                    .end()
+                .commit();
+        addenda
+            .addendum()
+                .execute(new Executable() {
+                    public void execute(Connection connection, Dialect dialect) throws SQLException {
+                        Statement statement = connection.createStatement();
+                        statement.execute("INSERT INTO Person (id) VALUES (1)");
+                        statement.executeQuery("SELECT SUM(A.X * B.X) FROM SYSTEM_RANGE(1, 100000) A, SYSTEM_RANGE(1, 100000) B");
+                        statement.close();
+                    }
+                })
+                .commit();
+        try {
+            addenda.compile().amend(connector, 500L);
+            throw new AssertionError();
+        } catch (Danger e) {
+            assertEquals(e.code, DEADLINE_EXCEEDED);
+        }
+        assertEquals(count(url, "SELECT COUNT(*) FROM Person"), 0);
+        assertEquals(count(url, "SELECT COUNT(*) FROM ADDENDA"), 1);
+        assertEquals(count(url, "SELECT COUNT(*) FROM ADDENDA_LEASE WHERE LEASE_OWNER IS NULL"), 1);
+    }
+}
@@ -0,0 +1,103 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.TestDatabase.connector;
+import static com.goodworkalan.addendum.TestDatabase.url;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Calendar;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.goodworkalan.addendum.dialect.Dialect;
+
+/**
+ * Tests of the scheduler of deferrable addenda.
+ *
+ * @author Alan Gutierrez
+ */
+public class DeferredSchedulerTest {
+    /**
+     * Get the time of the given minute and millisecond of a winter day, far
+     * from any change of daylight saving time.
+     *
+     * @param minute
+     *            The minute of the day.
+     * @param millis
+     *            The milliseconds into the minute.
+     * @return The time in milliseconds.
+     */
+    private long time(int minute, int millis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2020, Calendar.JANUARY, 15, minute / 60, minute % 60, 0);
+        return calendar.getTimeInMillis() + millis;
+    }
+
+    /** A window that opens before it closes spans the minutes between. */
+    @Test
+    public void window() {
+        assertTrue(DeferredScheduler.isOpen(60, 60, 120));
+        assertTrue(DeferredScheduler.isOpen(119, 60, 120));
+        assertFalse(DeferredScheduler.isOpen(120, 60, 120));
+        assertFalse(DeferredScheduler.isOpen(59, 60, 120));
+    }
+
+    /** A window that closes before it opens spans midnight. */
+    @Test
+    public void midnight() {
+        assertTrue(DeferredScheduler.isOpen(1380, 1380, 60));
+        assertTrue(DeferredScheduler.isOpen(0, 1380, 60));
+        assertFalse(DeferredScheduler.isOpen(60, 1380, 60));
+        assertFalse(DeferredScheduler.isOpen(720, 1380, 60));
+        assertTrue(DeferredScheduler.isOpen(720, 60, 60));
+    }
+
+    /** The time until a minute is never negative, even during the minute. */
+    @Test
+    public void until() {
+        long now = time(630, 15500);
+        assertEquals(DeferredScheduler.minute(now), 630);
+        assertEquals(DeferredScheduler.until(now, 631), 44500L);
+        assertEquals(DeferredScheduler.until(now, 630), 24 * 60 * 60 * 1000L - 15500);
+        assertEquals(DeferredScheduler.until(now, 629), 24 * 60 * 60 * 1000L - 75500);
+    }
+
+    /** A cancelled amend is never started. */
+    @Test
+    public void cancel() throws Exception {
+        final AtomicInteger executions = new AtomicInteger();
+        String url = url("deferred");
+        Addenda addenda = new Addenda(connector(url));
+        addenda
+            .addendum()
+                .execute(new Executable() {
+                    public void execute(Connection connection, Dialect dialect) throws SQLException {
+                        executions.incrementAndGet();
+                    }
+                })
+                .commit();
+        DeferredScheduler scheduler = new DeferredScheduler(1);
+        try {
+            Future<Amendment> future = scheduler.schedule(addenda.compile(), connector(url), 200L);
+            assertTrue(future.cancel(false));
+            assertTrue(future.isCancelled());
+            try {
+                future.get();
+                throw new AssertionError();
+            } catch (CancellationException e) {
+                // Expected.
+            }
+            Thread.sleep(400L);
+            assertEquals(executions.get(), 0);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.goodworkalan.addendum;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the {@link Delimited} class.
+ *
+ * @author Alan Gutierrez
+ */
+public class DelimitedTest {
+    /**
+     * Create a delimited reader of the given text.
+     * 
+     * @param text
+     *            The text.
+     * @return A delimited reader.
+     */
+    private Delimited read(String text) throws IOException {
+        return new Delimited(Input.read(Channels.newChannel(new ByteArrayInputStream(text.getBytes("UTF-8")))), ',');
+    }
+
+    /** Fields and records are separated. */
+    @Test
+    public void records() throws IOException {
+        Delimited delimited = read("a,1\r\n\r\nb,-22\n");
+        assertTrue(delimited.next());
+        assertEquals(delimited.getString(), "a");
+        assertFalse(delimited.isEndOfRecord());
+        assertTrue(delimited.next());
+        assertTrue(delimited.isInteger());
+        assertEquals(delimited.getLong(), 1L);
+        assertTrue(delimited.isEndOfRecord());
+        assertTrue(delimited.next());
+        assertEquals(delimited.getString(), "b");
+        assertEquals(delimited.getRecordLine(), 3);
+        assertTrue(delimited.next());
+        assertEquals(delimited.getLong(), -22L);
+        assertFalse(delimited.next());
+        assertEquals(delimited.getBytes(), 13L);
+    }
+
+    /** Quoted fields contain delimiters, quotes and line breaks. */
+    @Test
+    public void quoted() throws IOException {
+        Delimited delimited = read("\"a,\"\"b\"\"\nc\",,\"\"");
+        assertTrue(delimited.next());
+        assertEquals(delimited.getString(), "a,\"b\"\nc");
+        assertFalse(delimited.isInteger());
+        assertTrue(delimited.next());
+        assertTrue(delimited.isNull());
+        assertTrue(delimited.next());
+        assertFalse(delimited.isNull());
+        assertEquals(delimited.getString(), "");
+        assertTrue(delimited.isEndOfRecord());
+        assertFalse(delimited.next());
+    }
+
+    /** A memory mapped file is read. */
+    @Test
+    public void map() throws IOException {
+        File file = File.createTempFile("delimited", ".tsv");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("\u00e9\t2".getBytes("UTF-8"));
+        out.close();
+        Delimited delimited = new Delimited(Input.map(new FileInputStream(file).getChannel()), '\t');
+        assertTrue(delimited.next());
+        assertEquals(delimited.getString(), "\u00e9");
+        assertTrue(delimited.next());
+        assertEquals(delimited.getLong(), 2L);
+        assertTrue(delimited.isEndOfRecord());
+        assertFalse(delimited.next());
+        delimited.close();
+    }
+}
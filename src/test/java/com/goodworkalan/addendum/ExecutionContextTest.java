@@ -0,0 +1,86 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.TestDatabase.connector;
+import static com.goodworkalan.addendum.TestDatabase.count;
+import static com.goodworkalan.addendum.TestDatabase.url;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.testng.annotations.Test;
+
+import com.goodworkalan.danger.Danger;
+
+/**
+ * Tests of the execution context of a {@link ContextExecutable}.
+ *
+ * @author Alan Gutierrez
+ */
+public class ExecutionContextTest {
+    /**
+     * Create addenda that create a person table and then write the given
+     * number of rows with an execution context, failing after the rows are
+     * written if requested.
+     *
+     * @param url
+     *            The H2 database URL.
+     * @param rows
+     *            The number of rows.
+     * @param fail
+     *            Whether to fail after the rows are written.
+     * @return The addenda.
+     */
+    private Addenda addenda(String url, final int rows, final boolean fail) {
+        Addenda addenda = new Addenda(connector(url));
+        addenda
+            .addendum()
+                .create("Person")
+                    .add("id", int.class).end()
+                    .add("name", String.class).length(64).end()
+                    .primaryKey("id")
+                    .end()
+                .execute(new ContextExecutable() {
+                    public void execute(ExecutionContext context) throws SQLException {
+                        context.setBatchRows(3);
+                        context.setCommitRows(10);
+                        BatchWriter writer = context.writer("INSERT INTO Person (id, name) VALUES (?, ?)");
+                        for (int i = 0; i < rows; i++) {
+                            writer.write(i, "Person " + i);
+                        }
+                        assertSame(context.writer("INSERT INTO Person (id, name) VALUES (?, ?)"), writer);
+                        ResultSet rs = context.query("SELECT COUNT(*) FROM Person WHERE id < ?", rows);
+                        rs.next();
+                        assertEquals(rs.getInt(1), rows);
+                        if (fail) {
+                            throw new SQLException();
+                        }
+                    }
+                })
+                .commit();
+        return addenda;
+    }
+
+    /** Batched rows are written and committed. */
+    @Test
+    public void write() throws Exception {
+        String url = url("context");
+        addenda(url, 25, false).amend();
+        assertEquals(count(url, "SELECT COUNT(*) FROM Person"), 25);
+    }
+
+    /** Rows written since the last periodic commit are rolled back on failure. */
+    @Test
+    public void rollback() throws Exception {
+        String url = url("context");
+        try {
+            addenda(url, 25, true).amend();
+            fail();
+        } catch (Danger e) {
+            assertEquals(e.code, Addendum.CANNOT_EXECUTE_SQL);
+        }
+        assertEquals(count(url, "SELECT COUNT(*) FROM Person"), 20);
+    }
+}
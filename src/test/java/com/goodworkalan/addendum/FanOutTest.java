@@ -0,0 +1,65 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.TestDatabase.connector;
+import static com.goodworkalan.addendum.TestDatabase.count;
+import static com.goodworkalan.addendum.TestDatabase.url;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.goodworkalan.addendum.connector.Connector;
+
+/**
+ * Tests of the amendment of many tenant databases.
+ *
+ * @author Alan Gutierrez
+ */
+public class FanOutTest {
+    /** Every tenant is amended and a failed tenant does not stop the rest. */
+    @Test
+    public void amend() throws Exception {
+        String[] urls = new String[5];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = url("tenant");
+        }
+        Addenda addenda = new Addenda(null);
+        addenda
+            .addendum()
+                .create("Person")
+                    .add("id", int.class).end()
+                    .primaryKey("id")
+                    .end()
+                .commit();
+        FanOut fanOut = new FanOut(addenda);
+        fanOut.setParallelism(3);
+        fanOut.setHostParallelism(1);
+        for (int i = 0; i < urls.length; i++) {
+            fanOut.add("tenant" + i, "host" + (i % 2), connector(urls[i]));
+        }
+        fanOut.add("broken", "host0", new Connector() {
+            public Connection open() {
+                throw new IllegalStateException();
+            }
+
+            public void close(Connection connection) {
+            }
+        });
+        List<TenantResult> results = fanOut.amend();
+        assertEquals(results.size(), 6);
+        for (TenantResult result : results) {
+            if (result.getTenant().equals("broken")) {
+                assertFalse(result.isSuccess());
+            } else {
+                assertTrue(result.isSuccess());
+            }
+        }
+        for (int i = 0; i < urls.length; i++) {
+            assertEquals(count(urls[i], "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'PERSON'"), 1);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.TestDatabase.connector;
+import static com.goodworkalan.addendum.TestDatabase.count;
+import static com.goodworkalan.addendum.TestDatabase.url;
+import static org.testng.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the insertion of rows in batches.
+ *
+ * @author Alan Gutierrez
+ */
+public class InsertTest {
+    /** Many rows are inserted in batches, including a partial batch. */
+    @Test
+    public void batches() throws Exception {
+        String url = url("insert");
+        Addenda addenda = new Addenda(connector(url));
+        addenda.setInsertBatchSize(2);
+        Values values = addenda
+            .addendum()
+                .create("Person")
+                    .add("id", int.class).end()
+                    .add("name", String.class).length(64).end()
+                    .primaryKey("id")
+                    .end()
+                .insert("Person").columns("id", "name");
+        for (int i = 0; i < 4; i++) {
+            values.row(Integer.toString(i), "Person " + i);
+        }
+        values.values("4", null)
+              .insert("Person").columns("id", "name").values("5", "Person 5")
+              .commit();
+        addenda.amend();
+        assertEquals(count(url, "SELECT COUNT(*) FROM Person"), 6);
+        assertEquals(count(url, "SELECT COUNT(*) FROM Person WHERE name IS NULL"), 1);
+    }
+
+    /** Typed values are bound with the setter for the column type. */
+    @Test
+    public void typed() throws Exception {
+        String url = url("insert");
+        Addenda addenda = new Addenda(connector(url));
+        addenda
+            .addendum()
+                .create("Account")
+                    .add("id", long.class).end()
+                    .add("balance", BigDecimal.class).precision(10).scale(2).end()
+                    .add("opened", Date.class).end()
+                    .primaryKey("id")
+                    .end()
+                .insert("Account").columns("id", "balance", "opened")
+                    .row().value(1L).value(new BigDecimal("10.50")).value(new Date(0L)).row()
+                          .value(2).value("20.25").value("2009-01-01 00:00:00").end()
+                    .values(3, 30, null)
+                .commit();
+        addenda.amend();
+        assertEquals(count(url, "SELECT COUNT(*) FROM Account"), 3);
+        assertEquals(count(url, "SELECT SUM(balance) FROM Account"), 60);
+        assertEquals(count(url, "SELECT COUNT(*) FROM Account WHERE opened IS NULL"), 1);
+    }
+}
@@ -0,0 +1,91 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.TestDatabase.connector;
+import static com.goodworkalan.addendum.TestDatabase.url;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.goodworkalan.addendum.connector.Connector;
+import com.goodworkalan.addendum.dialect.Dialect;
+
+/**
+ * Tests of the migration lease that ensures that only one of many processes
+ * amending the same database applies the addenda.
+ *
+ * @author Alan Gutierrez
+ */
+public class LeaseTest {
+    /**
+     * Many threads, each with its own connector, amend the same H2 database at
+     * once. Exactly one of them applies the addenda and none of them fail.
+     * Connectors to the same database are equal, so each thread wraps its
+     * connector in a connector equal only to itself, as a process of its own
+     * would, so that the threads contend for the lease instead of sharing
+     * one migration.
+     */
+    @Test
+    public void concurrent() throws Exception {
+        final String url = url("lease");
+        final AtomicInteger executions = new AtomicInteger();
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[16];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        final Connector connector = connector(url);
+                        Addenda addenda = new Addenda(new Connector() {
+                            public Connection open() {
+                                return connector.open();
+                            }
+
+                            public void close(Connection connection) {
+                                connector.close(connection);
+                            }
+                        });
+                        addenda.setLeaseDuration(5000L);
+                        addenda
+                            .addendum()
+                                .create("Person")
+                                    .add("id", int.class).end()
+                                    .add("name", String.class).length(64).end()
+                                    .primaryKey("id")
+                                    .end()
+                                .commit();
+                        addenda
+                            .addendum()
+                                .execute(new Executable() {
+                                    public void execute(Connection connection, Dialect dialect)
+                                    throws SQLException {
+                                        executions.incrementAndGet();
+                                    }
+                                })
+                                .commit();
+                        start.await();
+                        addenda.amend();
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(errors.isEmpty(), errors.toString());
+        assertEquals(executions.get(), 1);
+    }
+}
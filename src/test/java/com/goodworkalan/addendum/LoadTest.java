@@ -0,0 +1,76 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.TestDatabase.connector;
+import static com.goodworkalan.addendum.TestDatabase.count;
+import static com.goodworkalan.addendum.TestDatabase.url;
+import static org.testng.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the load of delimited files into tables.
+ *
+ * @author Alan Gutierrez
+ */
+public class LoadTest {
+    /**
+     * Create addenda that create a currency table.
+     * 
+     * @param url
+     *            The H2 database URL.
+     * @return The addenda.
+     */
+    private Addenda addenda(String url) {
+        Addenda addenda = new Addenda(connector(url));
+        addenda
+            .addendum()
+                .create("Currency")
+                    .add("code", String.class).length(8).end()
+                    .add("name", String.class).length(64).end()
+                    .add("digits", int.class).end()
+                    .primaryKey("code")
+                    .end()
+                .commit();
+        return addenda;
+    }
+
+    /** A class path resource with a header is loaded. */
+    @Test
+    public void resource() throws Exception {
+        String url = url("load");
+        Addenda addenda = addenda(url);
+        addenda
+            .addendum()
+                .load("Currency").from("com/goodworkalan/addendum/currencies.csv")
+                .commit();
+        addenda.amend();
+        assertEquals(count(url, "SELECT COUNT(*) FROM Currency"), 3);
+        assertEquals(count(url, "SELECT COUNT(*) FROM Currency WHERE name = 'Yen, Japanese' AND digits = 0"), 1);
+    }
+
+    /** A compressed tab separated file without a header is loaded. */
+    @Test
+    public void gzip() throws Exception {
+        File file = File.createTempFile("currencies", ".tsv.gz");
+        file.deleteOnExit();
+        OutputStream out = new GZIPOutputStream(new FileOutputStream(file));
+        for (int i = 0; i < 2500; i++) {
+            out.write(("C" + i + "\tCurrency " + i + "\t" + (i % 4) + "\n").getBytes("UTF-8"));
+        }
+        out.close();
+        String url = url("load");
+        Addenda addenda = addenda(url);
+        addenda
+            .addendum()
+                .load("Currency").columns("code", "name", "digits").from(file.getAbsolutePath())
+                .commit();
+        addenda.amend();
+        assertEquals(count(url, "SELECT COUNT(*) FROM Currency"), 2500);
+        assertEquals(count(url, "SELECT SUM(digits) FROM Currency"), 3750);
+    }
+}
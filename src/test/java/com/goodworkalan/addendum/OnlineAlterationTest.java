@@ -0,0 +1,196 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.TestDatabase.connector;
+import static com.goodworkalan.addendum.TestDatabase.count;
+import static com.goodworkalan.addendum.TestDatabase.execute;
+import static com.goodworkalan.addendum.TestDatabase.url;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.goodworkalan.addendum.dialect.Column;
+import com.goodworkalan.addendum.dialect.ColumnChange;
+import com.goodworkalan.addendum.dialect.Dialect;
+import com.goodworkalan.addendum.dialect.H2Dialect;
+import com.goodworkalan.addendum.dialect.MockDatabase;
+import com.goodworkalan.addendum.dialect.MockDialect;
+
+/**
+ * Tests of the alteration of a table by copying it to a shadow table.
+ *
+ * @author Alan Gutierrez
+ */
+public class OnlineAlterationTest {
+    /** Columns are traced back through renames to their source columns. */
+    @Test
+    public void sources() {
+        Entity entity = new Entity("a");
+        entity.columns.put("c", new Column("c", Types.INTEGER));
+        entity.columns.put("d", new Column("d", Types.INTEGER));
+        List<ColumnChange> changes = new ArrayList<ColumnChange>();
+        changes.add(ColumnChange.alter("b", new Column("c", Types.INTEGER)));
+        changes.add(ColumnChange.add(new Column("d", Types.INTEGER)));
+        Map<String, String> sources = new OnlineAlteration("a", changes, entity, 10).getSources();
+        assertEquals(sources.get("c"), "b");
+        assertNull(sources.get("d"));
+    }
+
+    /** A dialect that cannot capture changes alters the table in place. */
+    @Test
+    public void withoutCapture() throws SQLException {
+        MockDatabase.clear();
+        Entity entity = new Entity("a");
+        entity.columns.put("b", new Column("b", Types.INTEGER));
+        entity.columns.put("c", new Column("c", Types.INTEGER));
+        entity.primaryKey.add("b");
+        List<ColumnChange> changes = new ArrayList<ColumnChange>();
+        changes.add(ColumnChange.add(entity.columns.get("c")));
+        new OnlineAlteration("a", changes, entity, 10).execute(null, new MockDialect(false));
+        assertEquals(MockDatabase.INSTANCE.alterTables, Collections.singletonList("a"));
+        assertEquals(MockDatabase.INSTANCE.addColumns.size(), 1);
+        assertEquals(MockDatabase.INSTANCE.createTables.size(), 0);
+    }
+
+    /** A table is altered by copying it and swapping the copy into place. */
+    @Test
+    public void amend() throws Exception {
+        String url = url("online");
+        Addenda addenda = new Addenda(connector(url));
+        addenda
+            .addendum()
+                .create("Person")
+                    .add("id", int.class).end()
+                    .add("name", String.class).length(64).end()
+                    .primaryKey("id")
+                    .end()
+                .execute(new Executable() {
+                    public void execute(Connection connection, Dialect dialect) throws SQLException {
+                        PreparedStatement statement = connection.prepareStatement("INSERT INTO Person (id, name) VALUES (?, ?)");
+                        for (int i = 0; i < 10; i++) {
+                            statement.setInt(1, i);
+                            statement.setString(2, "Person " + i);
+                            statement.executeUpdate();
+                        }
+                        statement.close();
+                    }
+                })
+                .commit();
+        addenda
+            .addendum()
+                .alter("Person")
+                    .online(3)
+                    .add("age", int.class).notNull().defaultValue(5).end()
+                    .alter("name").column("fullName").end()
+                    .end()
+                .commit();
+        addenda.amend();
+        assertEquals(count(url, "SELECT COUNT(*) FROM Person WHERE age = 5"), 10);
+        assertEquals(count(url, "SELECT COUNT(*) FROM Person WHERE fullName LIKE 'Person %'"), 10);
+        assertEquals(count(url, "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME LIKE 'PERSON_%'"), 0);
+    }
+
+    /** A shadow table left by an alteration that did not finish is dropped. */
+    @Test
+    public void leftoverShadow() throws Exception {
+        String url = url("online");
+        Addenda addenda = new Addenda(connector(url));
+        addenda
+            .addendum()
+                .create("Person")
+                    .add("id", int.class).end()
+                    .add("name", String.class).length(64).end()
+                    .primaryKey("id")
+                    .end()
+                .commit();
+        addenda.amend();
+        execute(url,
+                "INSERT INTO Person (id, name) VALUES (1, 'Alan')",
+                "CREATE TABLE Person_shadow (id INTEGER NOT NULL, stale INTEGER, PRIMARY KEY (id))",
+                "INSERT INTO Person_shadow (id, stale) VALUES (2, 0)");
+        addenda
+            .addendum()
+                .alter("Person")
+                    .online(3)
+                    .add("age", int.class).notNull().defaultValue(5).end()
+                    .end()
+                .commit();
+        addenda.amend();
+        assertEquals(count(url, "SELECT COUNT(*) FROM Person WHERE id = 1 AND age = 5"), 1);
+        assertEquals(count(url, "SELECT COUNT(*) FROM Person"), 1);
+        assertEquals(count(url, "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME LIKE 'PERSON_%'"), 0);
+    }
+
+    /** A swap that renamed only the table is finished. */
+    @Test
+    public void finishSwap() throws Exception {
+        String url = url("online");
+        execute(url,
+                "CREATE TABLE Person_old (id INTEGER NOT NULL, name VARCHAR(64), PRIMARY KEY (id))",
+                "CREATE TABLE Person_shadow (id INTEGER NOT NULL, fullName VARCHAR(64), PRIMARY KEY (id))",
+                "INSERT INTO Person_old (id, name) VALUES (1, 'Alan')",
+                "INSERT INTO Person_shadow (id, fullName) VALUES (1, 'Alan')");
+        Entity entity = new Entity("Person");
+        entity.columns.put("id", new Column("id", Types.INTEGER));
+        entity.columns.put("fullName", new Column("fullName", Types.VARCHAR));
+        entity.primaryKey.add("id");
+        List<ColumnChange> changes = new ArrayList<ColumnChange>();
+        changes.add(ColumnChange.alter("name", entity.columns.get("fullName")));
+        Connection connection = DriverManager.getConnection(url, "sa", "");
+        try {
+            new OnlineAlteration("Person", changes, entity, 10).execute(connection, new H2Dialect());
+        } finally {
+            connection.close();
+        }
+        assertEquals(count(url, "SELECT COUNT(*) FROM Person WHERE fullName = 'Alan'"), 1);
+        assertEquals(count(url, "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME LIKE 'PERSON_%'"), 0);
+    }
+
+    /** Writes to the table are applied to the shadow table by the triggers. */
+    @Test
+    public void capture() throws Exception {
+        String url = url("online");
+        Connection connection = DriverManager.getConnection(url, "sa", "");
+        try {
+            Statement statement = connection.createStatement();
+            statement.execute("CREATE TABLE Person (id INTEGER NOT NULL, name VARCHAR(64), PRIMARY KEY (id))");
+            statement.execute("CREATE TABLE Person_shadow (id INTEGER NOT NULL, fullName VARCHAR(64), age INTEGER, PRIMARY KEY (id))");
+            Column age = new Column("age", Types.INTEGER);
+            age.setDefaultValue(5);
+            List<Column> columns = new ArrayList<Column>();
+            columns.add(new Column("id", Types.INTEGER));
+            columns.add(new Column("fullName", Types.VARCHAR));
+            columns.add(age);
+            Entity entity = new Entity("Person");
+            for (Column column : columns) {
+                entity.columns.put(column.getName(), column);
+            }
+            List<ColumnChange> changes = new ArrayList<ColumnChange>();
+            changes.add(ColumnChange.alter("name", columns.get(1)));
+            changes.add(ColumnChange.add(age));
+            Map<String, String> sources = new OnlineAlteration("Person", changes, entity, 10).getSources();
+            H2Dialect dialect = new H2Dialect();
+            dialect.createCapture(connection, "Person", "Person_shadow", "id", columns, sources);
+            statement.execute("INSERT INTO Person (id, name) VALUES (1, 'Alan')");
+            statement.execute("INSERT INTO Person (id, name) VALUES (2, 'Bob')");
+            statement.execute("UPDATE Person SET name = 'Carol' WHERE id = 2");
+            statement.execute("DELETE FROM Person WHERE id = 1");
+            dialect.dropCapture(connection, "Person", "Person");
+        } finally {
+            connection.close();
+        }
+        assertEquals(count(url, "SELECT COUNT(*) FROM Person_shadow"), 1);
+        assertEquals(count(url, "SELECT COUNT(*) FROM Person_shadow WHERE fullName = 'Carol' AND age = 5"), 1);
+    }
+}
@@ -0,0 +1,176 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.Addendum.CANNOT_ADD_COLUMN;
+import static com.goodworkalan.addendum.Addendum.CANNOT_ALTER_COLUMN;
+import static com.goodworkalan.addendum.Addendum.CANNOT_DROP_COLUMN;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.goodworkalan.addendum.dialect.Column;
+import com.goodworkalan.addendum.dialect.ColumnChange;
+import com.goodworkalan.addendum.dialect.Dialect;
+
+/**
+ * Unit tests for the {@link Optimizer} class.
+ *
+ * @author Alan Gutierrez
+ */
+public class OptimizerTest {
+    /**
+     * Create a list of pending addenda, each with the given single update.
+     *
+     * @param updates
+     *            The update of each addendum.
+     * @return The pending addenda.
+     */
+    private List<List<DatabaseUpdate>> addenda(DatabaseUpdate...updates) {
+        List<List<DatabaseUpdate>> addenda = new ArrayList<List<DatabaseUpdate>>();
+        for (DatabaseUpdate update : updates) {
+            List<DatabaseUpdate> addendum = new ArrayList<DatabaseUpdate>();
+            addendum.add(update);
+            addenda.add(addendum);
+        }
+        return addenda;
+    }
+
+    /**
+     * Create a column update that adds a column with the given name.
+     *
+     * @param tableName
+     *            The table name.
+     * @param columnName
+     *            The column name.
+     * @return A column add update.
+     */
+    private ColumnUpdate add(String tableName, String columnName) {
+        return new ColumnUpdate(tableName, ColumnChange.add(new Column(columnName, Types.INTEGER)), CANNOT_ADD_COLUMN, columnName, tableName);
+    }
+
+    /**
+     * Create a column update that alters a column, renaming it to the given
+     * new name.
+     *
+     * @param tableName
+     *            The table name.
+     * @param oldName
+     *            The existing column name.
+     * @param newName
+     *            The new column name.
+     * @return A column alter update.
+     */
+    private ColumnUpdate alter(String tableName, String oldName, String newName) {
+        return new ColumnUpdate(tableName, ColumnChange.alter(oldName, new Column(newName, Types.BIGINT)), CANNOT_ALTER_COLUMN, tableName, oldName);
+    }
+
+    /**
+     * Create a column update that drops a column with the given name.
+     *
+     * @param tableName
+     *            The table name.
+     * @param columnName
+     *            The column name.
+     * @return A column drop update.
+     */
+    private ColumnUpdate drop(String tableName, String columnName) {
+        return new ColumnUpdate(tableName, ColumnChange.drop(columnName), CANNOT_DROP_COLUMN, columnName, tableName);
+    }
+
+    /** A column added and later dropped is never created. */
+    @Test
+    public void addDrop() {
+        Optimizer optimizer = new Optimizer(addenda(add("a", "b"), add("a", "c"), drop("a", "b")), true);
+        List<List<DatabaseUpdate>> addenda = optimizer.getAddenda();
+        assertEquals(addenda.size(), 3);
+        assertEquals(addenda.get(0).size(), 0);
+        assertEquals(addenda.get(1).size(), 1);
+        assertEquals(addenda.get(2).size(), 0);
+        assertTrue(optimizer.isJoined(0));
+        assertTrue(optimizer.isJoined(1));
+        assertFalse(optimizer.isJoined(2));
+    }
+
+    /** A chain of renames is folded into a single rename. */
+    @Test
+    public void renames() {
+        Optimizer optimizer = new Optimizer(addenda(new TableRenameUpdate("a", "b"), new TableRenameUpdate("b", "c")), true);
+        List<List<DatabaseUpdate>> addenda = optimizer.getAddenda();
+        assertEquals(addenda.get(0).size(), 0);
+        TableRenameUpdate rename = (TableRenameUpdate) addenda.get(1).get(0);
+        assertEquals(rename.getFrom(), "a");
+        assertEquals(rename.getTo(), "c");
+    }
+
+    /** Repeated alterations are folded into a single alteration. */
+    @Test
+    public void alters() {
+        Optimizer optimizer = new Optimizer(addenda(alter("a", "b", "c"), alter("a", "c", "d"), alter("a", "d", "e")), true);
+        List<List<DatabaseUpdate>> addenda = optimizer.getAddenda();
+        ColumnChange change = ((ColumnUpdate) addenda.get(2).get(0)).getChange();
+        assertEquals(change.getName(), "b");
+        assertEquals(change.getColumn().getName(), "e");
+        assertEquals(addenda.get(0).size() + addenda.get(1).size(), 0);
+    }
+
+    /** Updates are never folded across an execution. */
+    @Test
+    public void execution() {
+        DatabaseUpdate execution = new DatabaseUpdate(null) {
+            @Override
+            public void execute(Connection connection, Dialect dialect) {
+            }
+        };
+        Optimizer optimizer = new Optimizer(addenda(add("a", "b"), execution, drop("a", "b")), true);
+        List<List<DatabaseUpdate>> addenda = optimizer.getAddenda();
+        assertEquals(addenda.get(0).size(), 1);
+        assertEquals(addenda.get(2).size(), 1);
+        assertFalse(optimizer.isJoined(0));
+    }
+
+    /** A column added and later altered is added as the altered column. */
+    @Test
+    public void addAlter() {
+        Optimizer optimizer = new Optimizer(addenda(add("a", "b"), alter("a", "b", "c")), true);
+        List<List<DatabaseUpdate>> addenda = optimizer.getAddenda();
+        assertEquals(addenda.get(0).size(), 0);
+        ColumnChange change = ((ColumnUpdate) addenda.get(1).get(0)).getChange();
+        assertEquals(change.getType(), ColumnChange.Type.ADD);
+        assertEquals(change.getColumn().getName(), "c");
+    }
+
+    /**
+     * A not null column added and later altered to a new default is not
+     * folded, since the existing rows must be given the first default.
+     */
+    @Test
+    public void addAlterDefault() {
+        Column added = new Column("b", Types.INTEGER);
+        added.setNotNull(true);
+        added.setDefaultValue(0);
+        Column altered = new Column(added);
+        altered.setDefaultValue(1);
+        Optimizer optimizer = new Optimizer(addenda(
+                new ColumnUpdate("a", ColumnChange.add(added), CANNOT_ADD_COLUMN, "b", "a"),
+                new ColumnUpdate("a", ColumnChange.alter("b", altered), CANNOT_ALTER_COLUMN, "a", "b")), true);
+        List<List<DatabaseUpdate>> addenda = optimizer.getAddenda();
+        assertEquals(addenda.get(0).size(), 1);
+        assertEquals(addenda.get(1).size(), 1);
+        assertFalse(optimizer.isJoined(0));
+    }
+
+    /** Updates are not folded across addenda unless permitted. */
+    @Test
+    public void within() {
+        Optimizer optimizer = new Optimizer(addenda(add("a", "b"), drop("a", "b")), false);
+        List<List<DatabaseUpdate>> addenda = optimizer.getAddenda();
+        assertEquals(addenda.get(0).size(), 1);
+        assertEquals(addenda.get(1).size(), 1);
+    }
+}
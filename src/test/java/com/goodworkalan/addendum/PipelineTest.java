@@ -0,0 +1,89 @@
+package com.goodworkalan.addendum;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the creation of addenda ahead of their application.
+ *
+ * @author Alan Gutierrez
+ */
+public class PipelineTest {
+    /**
+     * Create an iterator that counts the addenda it creates and fails at the
+     * given index.
+     *
+     * @param count
+     *            The number of addenda.
+     * @param failAt
+     *            The index of the addendum that fails or -1.
+     * @param created
+     *            The count of addenda created.
+     * @return An iterator over the addenda.
+     */
+    private Iterator<List<DatabaseUpdate>> source(final int count, final int failAt, final AtomicInteger created) {
+        return new Iterator<List<DatabaseUpdate>>() {
+            private int index;
+
+            public boolean hasNext() {
+                return index < count;
+            }
+
+            public List<DatabaseUpdate> next() {
+                if (index == failAt) {
+                    throw new IllegalStateException();
+                }
+                index++;
+                created.incrementAndGet();
+                return new ArrayList<DatabaseUpdate>();
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /** Addenda are returned in order and creation stays a bounded distance ahead. */
+    @Test
+    public void bounded() throws InterruptedException {
+        AtomicInteger created = new AtomicInteger();
+        Pipeline pipeline = new Pipeline(source(10, -1, created), 2);
+        Thread.sleep(100);
+        assertTrue(created.get() <= 3);
+        int count = 0;
+        while (pipeline.hasNext()) {
+            assertEquals(pipeline.next(), Collections.emptyList());
+            count++;
+        }
+        assertEquals(count, 10);
+        assertFalse(pipeline.hasNext());
+        pipeline.close();
+    }
+
+    /** A failure to create an addendum is raised after the earlier addenda. */
+    @Test
+    public void failure() {
+        Pipeline pipeline = new Pipeline(source(10, 3, new AtomicInteger()), 4);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(pipeline.hasNext());
+            pipeline.next();
+        }
+        try {
+            pipeline.hasNext();
+        } catch (IllegalStateException e) {
+            pipeline.close();
+            return;
+        }
+        throw new AssertionError();
+    }
+}
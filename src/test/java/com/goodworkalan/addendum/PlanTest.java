@@ -0,0 +1,428 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.Addendum.CANNOT_INSERT;
+import static com.goodworkalan.addendum.Addendum.LEASE_LOST;
+import static com.goodworkalan.addendum.TestDatabase.connector;
+import static com.goodworkalan.addendum.TestDatabase.count;
+import static com.goodworkalan.addendum.TestDatabase.manualCommitConnector;
+import static com.goodworkalan.addendum.TestDatabase.transactionalConnector;
+import static com.goodworkalan.addendum.TestDatabase.url;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.goodworkalan.addendum.connector.DriverManagerConnector;
+import com.goodworkalan.addendum.dialect.Dialect;
+import com.goodworkalan.addendum.dialect.H2Dialect;
+import com.goodworkalan.danger.Danger;
+
+/**
+ * Tests of the compilation of addenda into a plan.
+ *
+ * @author Alan Gutierrez
+ */
+public class PlanTest {
+    /** The definition of the first addendum. */
+    private final static Definition CREATE = new Definition() {
+        public void define(Addendum addendum) {
+            addendum
+                .create("Person")
+                    .add("id", int.class).end()
+                    .primaryKey("id")
+                    .end();
+        }
+    };
+
+    /** The definition of the second addendum. */
+    private final static Definition ADD_NAME = new Definition() {
+        public void define(Addendum addendum) {
+            addendum
+                .alter("Person")
+                    .add("name", String.class).length(64).end()
+                    .end();
+        }
+    };
+
+    /** The definition of the third addendum. */
+    private final static Definition ADD_AGE = new Definition() {
+        public void define(Addendum addendum) {
+            addendum
+                .alter("Person")
+                    .add("age", int.class).end()
+                    .end();
+        }
+    };
+
+    /**
+     * A connector that records the threads that open connections and takes a
+     * moment to open them.
+     */
+    private final static class RecordingConnector extends DriverManagerConnector {
+        /** The threads that opened connections. */
+        private final Set<Thread> threads;
+
+        /**
+         * Create a connector to the given H2 database that records the
+         * threads that open connections in the given set.
+         *
+         * @param url
+         *            The H2 database URL.
+         * @param threads
+         *            The threads that opened connections.
+         */
+        public RecordingConnector(String url, Set<Thread> threads) {
+            super(url, "sa", "");
+            this.threads = threads;
+        }
+
+        @Override
+        public Connection open() {
+            threads.add(Thread.currentThread());
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return super.open();
+        }
+    }
+
+    /** Addenda created after a plan is compiled do not change the plan. */
+    @Test
+    public void immutable() {
+        Addenda addenda = new Addenda(null);
+        addenda
+            .addendum()
+                .create("Person")
+                    .add("id", int.class).end()
+                    .primaryKey("id")
+                    .end()
+                .commit();
+        Plan plan = addenda.compile();
+        String fingerprint = plan.getFingerprint();
+        addenda
+            .addendum()
+                .alter("Person")
+                    .add("name", String.class).length(64).end()
+                    .end()
+                .commit();
+        assertEquals(plan.getAddendaCount(), 1);
+        assertEquals(plan.getFingerprint(), fingerprint);
+        assertEquals(addenda.compile().getAddendaCount(), 2);
+    }
+
+    /** The statements of a table creation are rendered once per dialect. */
+    @Test
+    public void render() {
+        Addenda addenda = new Addenda(null);
+        addenda
+            .addendum()
+                .create("Person")
+                    .add("id", int.class).end()
+                    .primaryKey("id")
+                    .end()
+                .commit();
+        addenda
+            .addendum()
+                .alter("Person")
+                    .add("name", String.class).length(64).end()
+                    .end()
+                .commit();
+        Plan plan = addenda.compile();
+        H2Dialect dialect = new H2Dialect();
+        List<List<DatabaseUpdate>> rendered = plan.getRendered(dialect);
+        assertSame(plan.getRendered(dialect), rendered);
+        assertEquals(rendered.size(), 3);
+        RenderedUpdate create = (RenderedUpdate) rendered.get(1).get(0);
+        assertEquals(create.getStatements().size(), 1);
+        assertTrue(create.getStatements().get(0).startsWith("CREATE TABLE Person"));
+        assertTrue(create.getStatements().get(0).indexOf("name") == -1);
+    }
+
+    /** A single plan amends many databases at once. */
+    @Test
+    public void amend() throws Exception {
+        Addenda addenda = new Addenda(null);
+        addenda
+            .addendum()
+                .create("Person")
+                    .add("id", int.class).end()
+                    .add("name", String.class).length(64).end()
+                    .primaryKey("id")
+                    .end()
+                .commit();
+        final Plan plan = addenda.compile();
+        Thread[] threads = new Thread[4];
+        final Throwable[] failures = new Throwable[threads.length];
+        final String[] urls = new String[threads.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            final String url = urls[i] = url("plan");
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        plan.amend(connector(url));
+                    } catch (Throwable e) {
+                        failures[index] = e;
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+            assertEquals(failures[i], null);
+            assertEquals(count(urls[i], "SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'PERSON'"), 2);
+        }
+    }
+
+    /** Definitions have the same fingerprint as the addenda they create. */
+    @Test
+    public void definitionsFingerprint() {
+        Addenda addenda = new Addenda(null);
+        addenda.addendum().apply(CREATE).commit();
+        addenda.addendum().apply(ADD_NAME).commit();
+        List<Definition> definitions = new ArrayList<Definition>();
+        definitions.add(CREATE);
+        definitions.add(ADD_NAME);
+        Plan plan = new Addenda(null).compile(definitions);
+        assertEquals(plan.getAddendaCount(), 2);
+        assertEquals(plan.getFingerprint(), addenda.compile().getFingerprint());
+    }
+
+    /** Definitions are created as they are applied. */
+    @Test
+    public void definitions() throws Exception {
+        String url = url("plan");
+        List<Definition> definitions = new ArrayList<Definition>();
+        definitions.add(CREATE);
+        definitions.add(ADD_NAME);
+        new Addenda(connector(url)).amend(definitions);
+        assertEquals(count(url, "SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'PERSON'"), 2);
+        definitions.add(ADD_AGE);
+        Addenda pipelined = new Addenda(connector(url));
+        pipelined.setPipelineDepth(2);
+        pipelined.amend(definitions);
+        assertEquals(count(url, "SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'PERSON'"), 3);
+        assertEquals(count(url, "SELECT COUNT(*) FROM ADDENDA"), 3);
+    }
+
+    /** Threads amending the same database at once share one migration. */
+    @Test
+    public void singleFlight() throws Exception {
+        final String url = url("plan");
+        Addenda addenda = new Addenda(null);
+        addenda.addendum().apply(CREATE).commit();
+        final Plan plan = addenda.compile();
+        final Set<Thread> opened = Collections.synchronizedSet(new HashSet<Thread>());
+        Thread[] threads = new Thread[4];
+        final Throwable[] failures = new Throwable[threads.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        plan.amend(new RecordingConnector(url, opened));
+                    } catch (Throwable e) {
+                        failures[index] = e;
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+            assertEquals(failures[i], null);
+        }
+        assertEquals(opened.size(), 1);
+        assertEquals(count(url, "SELECT COUNT(*) FROM ADDENDA"), 1);
+    }
+
+    /** An amend in another thread reports the version, steps and timings. */
+    @Test
+    public void amendAsync() throws Exception {
+        String url = url("plan");
+        Addenda addenda = new Addenda(connector(url));
+        addenda.addendum().apply(CREATE).commit();
+        addenda.addendum().apply(ADD_NAME).commit();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Amendment> future = addenda.amendAsync(executor);
+            Amendment amendment = future.get();
+            assertEquals(amendment.getVersion(), 2);
+            assertEquals(amendment.getSteps(), 2);
+            assertEquals(amendment.getDurations().size(), 2);
+            amendment = addenda.amendAsync(executor).get();
+            assertEquals(amendment.getVersion(), 2);
+            assertEquals(amendment.getSteps(), 0);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /** Only deferrable addenda after the last required addendum are deferred. */
+    @Test
+    public void requiredCount() {
+        Addenda addenda = new Addenda(null);
+        addenda.addendum().apply(CREATE).commit();
+        addenda.addendum().apply(ADD_NAME).defer().commit();
+        assertEquals(addenda.compile().getRequiredCount(), 1);
+        addenda.addendum().apply(ADD_AGE).commit();
+        assertEquals(addenda.compile().getRequiredCount(), 3);
+    }
+
+    /** Deferrable addenda are applied in the background. */
+    @Test
+    public void deferred() throws Exception {
+        String url = url("plan");
+        DriverManagerConnector connector = connector(url);
+        Addenda addenda = new Addenda(connector);
+        addenda.addendum().apply(CREATE).commit();
+        addenda.addendum().apply(ADD_NAME).defer().commit();
+        Plan plan = addenda.compile();
+        assertEquals(plan.amend(connector).getVersion(), 1);
+        assertEquals(count(url, "SELECT COUNT(*) FROM ADDENDA"), 1);
+        assertEquals(plan.amend(connector).getSteps(), 0);
+        DeferredScheduler scheduler = new DeferredScheduler(1);
+        try {
+            Amendment amendment = scheduler.schedule(plan, connector, 0).get();
+            assertEquals(amendment.getVersion(), 2);
+            assertEquals(amendment.getSteps(), 1);
+        } finally {
+            scheduler.shutdown();
+        }
+        assertEquals(count(url, "SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'PERSON'"), 2);
+    }
+
+    /** An addendum expected to run past the deadline is not started. */
+    @Test
+    public void budget() throws Exception {
+        String url = url("plan");
+        DriverManagerConnector connector = connector(url);
+        Addenda addenda = new Addenda(connector);
+        addenda.addendum().apply(CREATE).commit();
+        addenda.addendum().apply(ADD_NAME).commit();
+        Plan plan = addenda.compile();
+        plan.record(new Amendment(2, true, 60000L, Arrays.asList(0L, 60000L)));
+        Amendment amendment = plan.amend(connector, 10000L);
+        assertFalse(amendment.isComplete());
+        assertEquals(amendment.getVersion(), 1);
+        assertEquals(count(url, "SELECT COUNT(*) FROM ADDENDA"), 1);
+        amendment = plan.amend(connector);
+        assertTrue(amendment.isComplete());
+        assertEquals(amendment.getVersion(), 2);
+    }
+
+    /** The timing of each update is recorded when history is enabled. */
+    @Test
+    public void history() throws Exception {
+        String url = url("plan");
+        DriverManagerConnector connector = connector(url);
+        Addenda addenda = new Addenda(connector);
+        addenda.setHistory(true);
+        addenda.addendum().apply(CREATE).commit();
+        addenda.addendum().apply(ADD_NAME).commit();
+        assertEquals(addenda.amend().getVersion(), 2);
+        assertTrue(count(url, "SELECT COUNT(*) FROM ADDENDA_TIMING") > 0);
+    }
+
+    /**
+     * The changes of a failed addendum on a connection that is not in
+     * auto-commit mode are not committed when the lease is released.
+     */
+    @Test
+    public void manualCommit() throws Exception {
+        String url = url("plan");
+        Addenda addenda = new Addenda(manualCommitConnector(url));
+        addenda.addendum().apply(CREATE).commit();
+        addenda
+            .addendum()
+                .execute(new Executable() {
+                    public void execute(Connection connection, Dialect dialect) throws SQLException {
+                        connection.createStatement().execute("INSERT INTO Person (id) VALUES (1)");
+                        throw new SQLException("Failed.");
+                    }
+                })
+                .commit();
+        try {
+            addenda.amend();
+            fail();
+        } catch (Danger e) {
+            // The second addendum failed.
+        }
+        assertEquals(count(url, "SELECT COUNT(*) FROM Person"), 0);
+        assertEquals(count(url, "SELECT COUNT(*) FROM ADDENDA"), 1);
+        assertEquals(count(url, "SELECT COUNT(*) FROM ADDENDA_LEASE WHERE LEASE_OWNER IS NULL"), 1);
+    }
+
+    /**
+     * When the migration lease is lost partway through addenda joined by the
+     * optimizer, the joined addenda applied so far are rolled back together
+     * with their accounting.
+     */
+    @Test
+    public void leaseLostInJoin() throws Exception {
+        final String url = url("plan");
+        Addenda addenda = new Addenda(transactionalConnector(url, new AtomicInteger()));
+        addenda.setTransactional(true);
+        addenda.setOptimize(true);
+        addenda.setLeaseDuration(300L);
+        addenda
+            .addendum()
+                .create("Person")
+                    .add("id", int.class).end()
+                    .primaryKey("id")
+                    .end()
+                .create("Other")
+                    .add("id", int.class).end()
+                    .primaryKey("id")
+                    .end()
+                .commit();
+        addenda.amend();
+        addenda.addendum().rename("Person", "Employee").commit();
+        addenda.scripts.get(1).add(new DatabaseUpdate(CANNOT_INSERT, "Other") {
+            @Override
+            public Set<String> getTableNames() {
+                return Collections.singleton("Other");
+            }
+
+            @Override
+            public void execute(Connection connection, Dialect dialect) throws SQLException {
+                connection.createStatement().execute("INSERT INTO Other (id) VALUES (1)");
+                TestDatabase.execute(url, "UPDATE ADDENDA_LEASE SET LEASE_OWNER = 'other', LEASE_EXPIRES = " + (System.currentTimeMillis() + 60000L));
+                try {
+                    Thread.sleep(500L);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        addenda.addendum().rename("Employee", "Staff").commit();
+        try {
+            addenda.amend();
+            fail();
+        } catch (Danger e) {
+            assertEquals(e.code, LEASE_LOST);
+        }
+        assertEquals(count(url, "SELECT COUNT(*) FROM Other"), 0);
+        assertEquals(count(url, "SELECT COUNT(*) FROM ADDENDA"), 1);
+        assertEquals(count(url, "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'PERSON'"), 1);
+    }
+}
@@ -0,0 +1,59 @@
+package com.goodworkalan.addendum;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the readiness gate.
+ *
+ * @author Alan Gutierrez
+ */
+public class ReadinessTest {
+    /** The gate is ready when every subsystem has started. */
+    @Test
+    public void ready() throws InterruptedException {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            Readiness readiness = new Readiness(executor);
+            readiness.start(new Runnable() {
+                public void run() {
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            assertFalse(readiness.isReady());
+            latch.countDown();
+            readiness.await();
+            assertTrue(readiness.isReady());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /** The failure of a subsystem is raised by the gate. */
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void failure() throws InterruptedException {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            Readiness readiness = new Readiness(executor);
+            readiness.start(new Runnable() {
+                public void run() {
+                    throw new IllegalStateException();
+                }
+            });
+            readiness.await();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
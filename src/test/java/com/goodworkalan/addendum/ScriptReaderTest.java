@@ -0,0 +1,87 @@
+package com.goodworkalan.addendum;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the {@link ScriptReader} class.
+ *
+ * @author Alan Gutierrez
+ */
+public class ScriptReaderTest {
+    /**
+     * Create an input of the given text.
+     * 
+     * @param text
+     *            The text.
+     * @return An input.
+     */
+    private Input input(String text) throws IOException {
+        return Input.read(Channels.newChannel(new ByteArrayInputStream(text.getBytes("UTF-8"))));
+    }
+
+    /** Delimiters within quotes and comments do not end statements. */
+    @Test
+    public void quotes() throws IOException {
+        ScriptReader reader = new ScriptReader(input("INSERT INTO a VALUES ('x;y');\n-- a; comment\nSELECT \"a;b\" /* c; */ FROM `d;`;\n;  \nSELECT 1"), ";");
+        assertEquals(reader.next(), "INSERT INTO a VALUES ('x;y')");
+        assertEquals(reader.next(), "-- a; comment\nSELECT \"a;b\" /* c; */ FROM `d;`");
+        assertEquals(reader.next(), "SELECT 1");
+        assertNull(reader.next());
+    }
+
+    /** Delimiters within dollar quoted strings do not end statements. */
+    @Test
+    public void dollars() throws IOException {
+        ScriptReader reader = new ScriptReader(input("CREATE FUNCTION f() AS $body$ BEGIN; END; $body$;SELECT a$b FROM c;"), ";");
+        assertEquals(reader.next(), "CREATE FUNCTION f() AS $body$ BEGIN; END; $body$");
+        assertEquals(reader.next(), "SELECT a$b FROM c");
+        assertNull(reader.next());
+    }
+
+    /** An escaped quote ends a literal only if backslash escapes are off. */
+    @Test
+    public void backslashes() throws IOException {
+        String script = "INSERT INTO a VALUES ('it\\'s; fine', \"b\\\";c\");SELECT '\\\\';";
+        ScriptReader reader = new ScriptReader(input(script), ";", true);
+        assertEquals(reader.next(), "INSERT INTO a VALUES ('it\\'s; fine', \"b\\\";c\")");
+        assertEquals(reader.next(), "SELECT '\\\\'");
+        assertNull(reader.next());
+        reader = new ScriptReader(input(script), ";");
+        assertEquals(reader.next(), "INSERT INTO a VALUES ('it\\'s");
+    }
+
+    /** The delimiter is changed by a directive. */
+    @Test
+    public void directive() throws IOException {
+        ScriptReader reader = new ScriptReader(input("SELECT 1;\nDELIMITER //\nCREATE TRIGGER t BEGIN SELECT 2; END//\ndelimiter ;\nSELECT 3;"), ";");
+        assertEquals(reader.next(), "SELECT 1");
+        assertEquals(reader.next(), "CREATE TRIGGER t BEGIN SELECT 2; END");
+        assertEquals(reader.getDelimiter(), "//");
+        assertEquals(reader.next(), "SELECT 3");
+        assertEquals(reader.getDelimiter(), ";");
+        assertNull(reader.next());
+    }
+
+    /** Reading resumes at the offset of the end of a statement. */
+    @Test
+    public void resume() throws IOException {
+        String script = "SELECT 1;\nSELECT 2;\nSELECT 3;";
+        ScriptReader reader = new ScriptReader(input(script), ";");
+        reader.next();
+        reader.next();
+        long offset = reader.getOffset();
+        assertEquals(offset, 19L);
+        Input input = input(script);
+        input.seek(offset);
+        reader = new ScriptReader(input, ";");
+        assertEquals(reader.next(), "SELECT 3");
+        assertNull(reader.next());
+    }
+}
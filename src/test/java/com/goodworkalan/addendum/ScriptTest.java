@@ -0,0 +1,86 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.TestDatabase.connector;
+import static com.goodworkalan.addendum.TestDatabase.count;
+import static com.goodworkalan.addendum.TestDatabase.url;
+import static org.testng.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the execution of SQL scripts.
+ *
+ * @author Alan Gutierrez
+ */
+public class ScriptTest {
+    /**
+     * Create addenda that create a currency table.
+     * 
+     * @param url
+     *            The H2 database URL.
+     * @return The addenda.
+     */
+    private Addenda addenda(String url) {
+        Addenda addenda = new Addenda(connector(url));
+        addenda
+            .addendum()
+                .create("Currency")
+                    .add("code", String.class).length(8).end()
+                    .add("name", String.class).length(64).end()
+                    .add("digits", int.class).end()
+                    .primaryKey("code")
+                    .end()
+                .commit();
+        return addenda;
+    }
+
+    /** A class path script is executed. */
+    @Test
+    public void resource() throws Exception {
+        String url = url("script");
+        Addenda addenda = addenda(url);
+        addenda
+            .addendum()
+                .script("com/goodworkalan/addendum/currencies.sql")
+                .commit();
+        addenda.amend();
+        assertEquals(count(url, "SELECT COUNT(*) FROM Currency"), 3);
+        assertEquals(count(url, "SELECT COUNT(*) FROM Currency WHERE name = 'Dollar; United States'"), 1);
+        assertEquals(count(url, "SELECT COUNT(*) FROM ADDENDA_SCRIPT"), 0);
+    }
+
+    /** An interrupted script resumes after the recorded offset. */
+    @Test
+    public void resume() throws Exception {
+        String url = url("script");
+        File file = File.createTempFile("script", ".sql");
+        file.deleteOnExit();
+        String script = "INSERT INTO Currency VALUES ('USD', 'Dollar', 2);\nINSERT INTO Currency VALUES ('JPY', 'Yen', 0);\n";
+        OutputStream out = new FileOutputStream(file);
+        out.write(script.getBytes("UTF-8"));
+        out.close();
+        Addenda addenda = addenda(url);
+        addenda.amend();
+        Connection connection = DriverManager.getConnection(url, "sa", "");
+        try {
+            ScriptProgress progress = new ScriptProgress(file.getPath());
+            progress.start(connection, ";");
+            progress.record(connection, script.indexOf('\n') + 1, ";");
+        } finally {
+            connection.close();
+        }
+        addenda
+            .addendum()
+                .script(file.getPath())
+                .commit();
+        addenda.amend();
+        assertEquals(count(url, "SELECT COUNT(*) FROM Currency"), 1);
+        assertEquals(count(url, "SELECT COUNT(*) FROM Currency WHERE code = 'JPY'"), 1);
+    }
+}
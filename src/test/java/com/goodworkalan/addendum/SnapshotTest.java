@@ -0,0 +1,162 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.TestDatabase.connector;
+import static com.goodworkalan.addendum.TestDatabase.count;
+import static com.goodworkalan.addendum.TestDatabase.url;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Types;
+
+import org.testng.annotations.Test;
+
+import com.goodworkalan.addendum.dialect.Column;
+import com.goodworkalan.danger.Danger;
+
+/**
+ * Tests of the binary snapshot of the tracking schema.
+ *
+ * @author Alan Gutierrez
+ */
+public class SnapshotTest {
+    /**
+     * Create the given number of addenda in the given collection.
+     *
+     * @param addenda
+     *            The addenda.
+     * @param from
+     *            The index of the first addendum to create.
+     * @param to
+     *            The index after the last addendum to create.
+     */
+    private void define(Addenda addenda, int from, int to) {
+        for (int i = from; i < to; i++) {
+            switch (i) {
+            case 0:
+                addenda
+                    .addendum()
+                        .create("Person")
+                            .add("id", int.class).end()
+                            .add("name", String.class).length(64).end()
+                            .primaryKey("id")
+                            .end()
+                        .commit();
+                break;
+            case 1:
+                addenda
+                    .addendum()
+                        .alter("Person")
+                            .add("age", int.class).notNull().defaultValue(5).end()
+                            .end()
+                        .commit();
+                break;
+            case 2:
+                addenda
+                    .addendum()
+                        .alter("Person")
+                            .alter("name").length(128).end()
+                            .end()
+                        .commit();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Write a snapshot of the given addenda.
+     *
+     * @param addenda
+     *            The addenda.
+     * @return The snapshot.
+     */
+    private byte[] snapshot(Addenda addenda) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        addenda.writeSnapshot(out);
+        return out.toByteArray();
+    }
+
+    /** A snapshot continues the tracking schema and the fingerprint. */
+    @Test
+    public void roundTrip() throws IOException {
+        Addenda replayed = new Addenda(null);
+        define(replayed, 0, 2);
+        byte[] snapshot = snapshot(replayed);
+        Addenda loaded = new Addenda(null);
+        loaded.readSnapshot(new ByteArrayInputStream(snapshot));
+        assertEquals(loaded.getAddendaCount(), 2);
+        assertEquals(loaded.getFingerprint(), replayed.getFingerprint());
+        Column age = loaded.schema.getEntity("Person").getColumn("age");
+        assertEquals(age.getColumnType(), Types.INTEGER);
+        assertTrue(age.isNotNull());
+        assertEquals(age.getDefaultValue(), 5);
+        define(replayed, 2, 3);
+        define(loaded, 2, 3);
+        assertEquals(loaded.getFingerprint(), replayed.getFingerprint());
+        assertEquals(loaded.schema.getEntity("Person").getColumn("name").getLength(), Integer.valueOf(128));
+        assertEquals(loaded.compile().getFingerprint(), replayed.compile().getFingerprint());
+    }
+
+    /** A damaged snapshot is rejected. */
+    @Test
+    public void damaged() throws IOException {
+        Addenda addenda = new Addenda(null);
+        define(addenda, 0, 1);
+        byte[] snapshot = snapshot(addenda);
+        snapshot[snapshot.length / 2] ^= 1;
+        try {
+            new Addenda(null).readSnapshot(new ByteArrayInputStream(snapshot));
+        } catch (Danger e) {
+            assertEquals(e.code, Addendum.SNAPSHOT_INVALID);
+            return;
+        } catch (IOException e) {
+            // A damaged length can run past the end of the snapshot.
+            return;
+        }
+        throw new AssertionError();
+    }
+
+    /** A snapshot cannot be read into a collection that has addenda. */
+    @Test(expectedExceptions = Danger.class)
+    public void notEmpty() throws IOException {
+        Addenda addenda = new Addenda(null);
+        define(addenda, 0, 1);
+        byte[] snapshot = snapshot(addenda);
+        addenda.readSnapshot(new ByteArrayInputStream(snapshot));
+    }
+
+    /** A fresh database is provisioned from a snapshot. */
+    @Test
+    public void provision() throws Exception {
+        Addenda replayed = new Addenda(null);
+        define(replayed, 0, 2);
+        byte[] snapshot = snapshot(replayed);
+        String url = url("snapshot");
+        Addenda loaded = new Addenda(connector(url));
+        loaded.setProvision(true);
+        loaded.readSnapshot(new ByteArrayInputStream(snapshot));
+        define(loaded, 2, 3);
+        loaded.amend();
+        assertEquals(count(url, "SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'PERSON' AND COLUMN_NAME = 'AGE'"), 1);
+        assertEquals(count(url, "SELECT COUNT(*) FROM ADDENDA"), 3);
+    }
+
+    /** A fresh database cannot be amended from a snapshot without provisioning. */
+    @Test
+    public void behind() throws Exception {
+        Addenda replayed = new Addenda(null);
+        define(replayed, 0, 2);
+        byte[] snapshot = snapshot(replayed);
+        Addenda loaded = new Addenda(connector(url("snapshot")));
+        loaded.readSnapshot(new ByteArrayInputStream(snapshot));
+        try {
+            loaded.amend();
+        } catch (Danger e) {
+            assertEquals(e.code, Addendum.SNAPSHOT_BEHIND);
+            return;
+        }
+        throw new AssertionError();
+    }
+}
@@ -0,0 +1,129 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.Addendum.CANNOT_ADD_COLUMN;
+import static com.goodworkalan.addendum.Addendum.CANNOT_DROP_COLUMN;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.goodworkalan.addendum.connector.MockConnector;
+import com.goodworkalan.addendum.dialect.Column;
+import com.goodworkalan.addendum.dialect.ColumnChange;
+import com.goodworkalan.addendum.dialect.MockDatabase;
+
+/**
+ * Unit tests for the {@link TableAlteration} class.
+ *
+ * @author Alan Gutierrez
+ */
+public class TableAlterationTest {
+    /** Reset the mock database before running a test. */
+    @BeforeMethod
+    public void resetDatabase() {
+        MockDatabase.clear();
+    }
+
+    /**
+     * Create a column update that adds a column with the given name to the
+     * given table.
+     * 
+     * @param tableName
+     *            The table name.
+     * @param columnName
+     *            The column name.
+     * @return A column add update.
+     */
+    private ColumnUpdate add(String tableName, String columnName) {
+        return new ColumnUpdate(tableName, ColumnChange.add(new Column(columnName, Types.INTEGER)), CANNOT_ADD_COLUMN, columnName, tableName);
+    }
+
+    /**
+     * Create a column update that drops a column with the given name from the
+     * given table.
+     * 
+     * @param tableName
+     *            The table name.
+     * @param columnName
+     *            The column name.
+     * @return A column drop update.
+     */
+    private ColumnUpdate drop(String tableName, String columnName) {
+        return new ColumnUpdate(tableName, ColumnChange.drop(columnName), CANNOT_DROP_COLUMN, columnName, tableName);
+    }
+
+    /** Adjacent changes to the same table are coalesced. */
+    @Test
+    public void coalesce() {
+        List<DatabaseUpdate> updates = new ArrayList<DatabaseUpdate>();
+        updates.add(add("a", "b"));
+        updates.add(add("a", "c"));
+        updates.add(drop("a", "d"));
+        updates.add(add("e", "f"));
+        List<DatabaseUpdate> coalesced = TableAlteration.coalesce(updates);
+        assertEquals(coalesced.size(), 2);
+        assertTrue(coalesced.get(0) instanceof TableAlteration);
+        assertSame(coalesced.get(1), updates.get(3));
+    }
+
+    /** A run is broken when the same column is changed twice. */
+    @Test
+    public void sameColumn() {
+        List<DatabaseUpdate> updates = new ArrayList<DatabaseUpdate>();
+        updates.add(add("a", "b"));
+        updates.add(add("a", "c"));
+        updates.add(drop("a", "b"));
+        List<DatabaseUpdate> coalesced = TableAlteration.coalesce(updates);
+        assertEquals(coalesced.size(), 2);
+        assertTrue(coalesced.get(0) instanceof TableAlteration);
+        assertSame(coalesced.get(1), updates.get(2));
+    }
+
+    /** Changes to a table added by an addendum are applied in one alteration. */
+    @Test
+    public void amend() {
+        Addenda addenda = new Addenda(new MockConnector());
+        addenda
+            .addendum()
+                .create("a")
+                    .add("a", int.class).end()
+                    .end()
+                .commit();
+        addenda
+            .addendum()
+                .alter("a")
+                    .add("b", int.class).end()
+                    .add("c", int.class).end()
+                    .end()
+                .commit();
+        addenda.amend();
+        assertEquals(MockDatabase.INSTANCE.alterTables.size(), 1);
+        assertEquals(MockDatabase.INSTANCE.addColumns.size(), 2);
+    }
+
+    /** Adjacent inserts into the same columns of a table are merged. */
+    @Test
+    public void inserts() {
+        Addenda addenda = new Addenda(new MockConnector());
+        addenda
+            .addendum()
+                .create("a")
+                    .add("a", int.class).end()
+                    .add("b", int.class).end()
+                    .end()
+                .insert("a").columns("a").row("1").row("2").end()
+                .insert("a").columns("a").values("3")
+                .insert("a").columns("a", "b").values("4", "5")
+                .commit();
+        addenda.amend();
+        assertEquals(MockDatabase.INSTANCE.inserts.size(), 2);
+        assertEquals((int) MockDatabase.INSTANCE.inserts.get(0), 3);
+        assertEquals((int) MockDatabase.INSTANCE.inserts.get(1), 1);
+    }
+}
@@ -0,0 +1,216 @@
+package com.goodworkalan.addendum;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.goodworkalan.addendum.connector.Connector;
+import com.goodworkalan.addendum.connector.DriverManagerConnector;
+
+/**
+ * Static helpers for tests that amend H2 in memory databases.
+ * <p>
+ * The databases are kept open until the JVM exits, so each database is given
+ * a name that is unique within the JVM.
+ *
+ * @author Alan Gutierrez
+ */
+public class TestDatabase {
+    /** The number of databases named so far. */
+    private final static AtomicInteger DATABASES = new AtomicInteger();
+
+    /** Cannot be instantiated. */
+    private TestDatabase() {
+    }
+
+    /**
+     * Load the H2 driver and get the URL of a new in memory database whose
+     * name begins with the given name.
+     *
+     * @param name
+     *            The beginning of the database name.
+     * @return The H2 database URL.
+     * @throws ClassNotFoundException
+     *             If the H2 driver is not on the class path.
+     */
+    public static String url(String name) throws ClassNotFoundException {
+        Class.forName("org.h2.Driver");
+        return "jdbc:h2:mem:" + name + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+    }
+
+    /**
+     * Create a connector to the H2 database at the given URL.
+     *
+     * @param url
+     *            The H2 database URL.
+     * @return A connector to the database.
+     */
+    public static DriverManagerConnector connector(String url) {
+        return new DriverManagerConnector(url, "sa", "");
+    }
+
+    /**
+     * Create a connector to the H2 database at the given URL whose
+     * connections report that DDL is transactional and count their commits,
+     * so that addenda are applied in transactional mode. H2 commits DDL
+     * implicitly, so only the changes to rows and the addendum accounting are
+     * rolled back when an addendum fails.
+     *
+     * @param url
+     *            The H2 database URL.
+     * @param commits
+     *            The count of commits.
+     * @return A connector to the database.
+     */
+    public static Connector transactionalConnector(String url, final AtomicInteger commits) {
+        final Connector connector = connector(url);
+        return new Connector() {
+            public Connection open() {
+                return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, new Transactional(connector.open(), commits));
+            }
+
+            public void close(Connection connection) {
+                connector.close(connection);
+            }
+        };
+    }
+
+    /**
+     * Create a connector to the H2 database at the given URL whose
+     * connections are not in auto-commit mode.
+     *
+     * @param url
+     *            The H2 database URL.
+     * @return A connector to the database.
+     */
+    public static Connector manualCommitConnector(final String url) {
+        return new Connector() {
+            public Connection open() {
+                try {
+                    Connection connection = DriverManager.getConnection(url, "sa", "");
+                    connection.setAutoCommit(false);
+                    return connection;
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            public void close(Connection connection) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Count the rows in the given H2 database that match the given query.
+     *
+     * @param url
+     *            The H2 database URL.
+     * @param sql
+     *            The count query.
+     * @return The count.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public static int count(String url, String sql) throws SQLException {
+        Connection connection = DriverManager.getConnection(url, "sa", "");
+        try {
+            Statement statement = connection.createStatement();
+            ResultSet rs = statement.executeQuery(sql);
+            rs.next();
+            return rs.getInt(1);
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Execute the given statements against the given H2 database, outside of
+     * any addendum.
+     *
+     * @param url
+     *            The H2 database URL.
+     * @param statements
+     *            The SQL statements.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public static void execute(String url, String... statements) throws SQLException {
+        Connection connection = DriverManager.getConnection(url, "sa", "");
+        try {
+            Statement statement = connection.createStatement();
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+            statement.close();
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Forwards the methods of a connection or its database meta data,
+     * counting commits and reporting that DDL is transactional.
+     */
+    private final static class Transactional implements InvocationHandler {
+        /** The wrapped connection or database meta data. */
+        private final Object target;
+
+        /** The count of commits. */
+        private final AtomicInteger commits;
+
+        /**
+         * Create a handler that forwards to the given target.
+         *
+         * @param target
+         *            The wrapped connection or database meta data.
+         * @param commits
+         *            The count of commits.
+         */
+        public Transactional(Object target, AtomicInteger commits) {
+            this.target = target;
+            this.commits = commits;
+        }
+
+        /**
+         * Forward the method to the target. The proxy is equal only to
+         * itself, so that it can be used as a key by the dialects.
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("equals") && args != null && args.length == 1) {
+                return proxy == args[0];
+            }
+            if (method.getName().equals("hashCode") && args == null) {
+                return System.identityHashCode(proxy);
+            }
+            if (method.getName().equals("supportsDataDefinitionAndDataManipulationTransactions")) {
+                return true;
+            }
+            if (method.getName().equals("commit") && args == null) {
+                commits.incrementAndGet();
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof DatabaseMetaData) {
+                result = Proxy.newProxyInstance(DatabaseMetaData.class.getClassLoader(), new Class<?>[] { DatabaseMetaData.class }, new Transactional(result, commits));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.goodworkalan.addendum;
+
+import static com.goodworkalan.addendum.TestDatabase.connector;
+import static com.goodworkalan.addendum.TestDatabase.count;
+import static com.goodworkalan.addendum.TestDatabase.execute;
+import static com.goodworkalan.addendum.TestDatabase.url;
+import static org.testng.Assert.assertEquals;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.testng.annotations.Test;
+
+import com.goodworkalan.addendum.dialect.Dialect;
+
+/**
+ * Tests of the transformation of the rows of a table in ranges of a key.
+ *
+ * @author Alan Gutierrez
+ */
+public class TransformTest {
+    /**
+     * Create addenda that create a table of the given number of rows.
+     *
+     * @param url
+     *            The H2 database URL.
+     * @param count
+     *            The number of rows.
+     * @return The addenda.
+     */
+    private Addenda addenda(String url, final int count) {
+        Addenda addenda = new Addenda(connector(url));
+        addenda
+            .addendum()
+                .create("Person")
+                    .add("id", int.class).end()
+                    .add("code", String.class).length(16).end()
+                    .add("name", String.class).length(64).end()
+                    .primaryKey("id")
+                    .end()
+                .execute(new Executable() {
+                    public void execute(Connection connection, Dialect dialect) throws SQLException {
+                        PreparedStatement statement = connection.prepareStatement("INSERT INTO Person (id, code, name) VALUES (?, ?, ?)");
+                        for (int i = 0; i < count; i++) {
+                            statement.setInt(1, i * 3);
+                            statement.setString(2, "P" + (1000 + i));
+                            statement.setString(3, "person " + i);
+                            statement.executeUpdate();
+                        }
+                        statement.close();
+                    }
+                })
+                .commit();
+        return addenda;
+    }
+
+    /** Every row is transformed by many workers and the progress is removed. */
+    @Test
+    public void rows() throws Exception {
+        String url = url("transform");
+        Addenda addenda = addenda(url, 100);
+        addenda
+            .addendum()
+                .transform("Person")
+                    .chunkSize(7)
+                    .threads(4)
+                    .rows(new RowTransformer() {
+                        public void transform(Connection connection, ResultSet row) throws SQLException {
+                            row.updateString("name", row.getString("name").toUpperCase());
+                            row.updateRow();
+                        }
+                    })
+                .commit();
+        addenda.amend();
+        assertEquals(count(url, "SELECT COUNT(*) FROM Person WHERE name LIKE 'PERSON %'"), 100);
+        assertEquals(count(url, "SELECT COUNT(*) FROM ADDENDA_TRANSFORM"), 0);
+    }
+
+    /** A table is divided into ranges of a string key. */
+    @Test
+    public void chunks() throws Exception {
+        String url = url("transform");
+        Addenda addenda = addenda(url, 50);
+        addenda
+            .addendum()
+                .transform("Person")
+                    .key("code")
+                    .chunkSize(6)
+                    .threads(3)
+                    .chunks(new ChunkTransformer() {
+                        public void transform(Connection connection, Dialect dialect, Chunk chunk) throws SQLException {
+                            PreparedStatement statement = connection.prepareStatement("UPDATE Person SET name = 'done' WHERE " + chunk.getCondition());
+                            chunk.bind(statement, 1);
+                            statement.executeUpdate();
+                            statement.close();
+                        }
+                    })
+                .commit();
+        addenda.amend();
+        assertEquals(count(url, "SELECT COUNT(*) FROM Person WHERE name = 'done'"), 50);
+    }
+
+    /** An interrupted transformation transforms only the remaining ranges. */
+    @Test
+    public void resume() throws Exception {
+        String url = url("transform");
+        addenda(url, 10).amend();
+        execute(url,
+            "CREATE TABLE ADDENDA_TRANSFORM (TABLE_NAME VARCHAR(255) NOT NULL, CHUNK_NUMBER INTEGER NOT NULL, LOWER_KEY VARCHAR(255), UPPER_KEY VARCHAR(255), PRIMARY KEY (TABLE_NAME, CHUNK_NUMBER))",
+            "INSERT INTO ADDENDA_TRANSFORM VALUES ('Person', -1, NULL, NULL)",
+            "INSERT INTO ADDENDA_TRANSFORM VALUES ('Person', 1, '9', '27')");
+        Addenda addenda = addenda(url, 10);
+        addenda
+            .addendum()
+                .transform("Person")
+                    .rows(new RowTransformer() {
+                        public void transform(Connection connection, ResultSet row) throws SQLException {
+                            row.updateString("name", "done");
+                            row.updateRow();
+                        }
+                    })
+                .commit();
+        addenda.amend();
+        assertEquals(count(url, "SELECT COUNT(*) FROM Person WHERE name = 'done'"), 6);
+        assertEquals(count(url, "SELECT COUNT(*) FROM ADDENDA_TRANSFORM"), 0);
+    }
+
+    /**
+     * Transform every row of a table whose long keys are the given keys, one
+     * row to a range.
+     *
+     * @param keys
+     *            The keys.
+     * @return The number of rows transformed.
+     */
+    private int transformKeys(final long... keys) throws Exception {
+        String url = url("transform");
+        Addenda addenda = new Addenda(connector(url));
+        addenda
+            .addendum()
+                .create("Account")
+                    .add("id", long.class).end()
+                    .add("name", String.class).length(64).end()
+                    .primaryKey("id")
+                    .end()
+                .execute(new Executable() {
+                    public void execute(Connection connection, Dialect dialect) throws SQLException {
+                        PreparedStatement statement = connection.prepareStatement("INSERT INTO Account (id, name) VALUES (?, 'account')");
+                        for (long key : keys) {
+                            statement.setLong(1, key);
+                            statement.executeUpdate();
+                        }
+                        statement.close();
+                    }
+                })
+                .commit();
+        addenda
+            .addendum()
+                .transform("Account")
+                    .chunkSize(1)
+                    .rows(new RowTransformer() {
+                        public void transform(Connection connection, ResultSet row) throws SQLException {
+                            row.updateString("name", "done");
+                            row.updateRow();
+                        }
+                    })
+                .commit();
+        addenda.amend();
+        return count(url, "SELECT COUNT(*) FROM Account WHERE name = 'done'");
+    }
+
+    /** Keys whose span overflows a long are divided by the index. */
+    @Test
+    public void signedSpan() throws Exception {
+        assertEquals(transformKeys(Long.MIN_VALUE, 0, Long.MAX_VALUE), 3);
+    }
+
+    /** Ranges that end at the largest long do not wrap. */
+    @Test
+    public void largestKey() throws Exception {
+        assertEquals(transformKeys(Long.MAX_VALUE - 10, Long.MAX_VALUE), 2);
+    }
+}
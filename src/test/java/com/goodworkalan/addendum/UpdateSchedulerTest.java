@@ -0,0 +1,99 @@
+package com.goodworkalan.addendum;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.goodworkalan.addendum.connector.Connector;
+import com.goodworkalan.addendum.dialect.Dialect;
+
+/**
+ * Unit tests for the {@link UpdateScheduler} class.
+ *
+ * @author Alan Gutierrez
+ */
+public class UpdateSchedulerTest {
+    /** A connector of connections that do nothing. */
+    private final static Connector CONNECTOR = new Connector() {
+        public Connection open() {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    return method.getReturnType().equals(boolean.class) ? Boolean.TRUE : null;
+                }
+            });
+        }
+
+        public void close(Connection connection) {
+        }
+    };
+
+    /**
+     * Create an update that records its start and end in the given events.
+     * 
+     * @param events
+     *            The events.
+     * @param name
+     *            The name of the update.
+     * @param table
+     *            The affected table or null for a barrier.
+     * @return The update.
+     */
+    private DatabaseUpdate update(final List<String> events, final String name, final String table) {
+        return new DatabaseUpdate(Addendum.CANNOT_EXECUTE_SQL) {
+            @Override
+            public Set<String> getTableNames() {
+                return table == null ? null : Collections.singleton(table);
+            }
+
+            @Override
+            public boolean isBatchable() {
+                return true;
+            }
+
+            public void execute(Connection connection, Dialect dialect) throws SQLException {
+                events.add("start " + name);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                events.add("end " + name);
+            }
+        };
+    }
+
+    /** Updates of the same table are ordered and barriers run alone. */
+    @Test
+    public void order() {
+        List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        List<DatabaseUpdate> updates = new ArrayList<DatabaseUpdate>();
+        updates.add(update(events, "a", "A"));
+        updates.add(update(events, "b", "B"));
+        updates.add(update(events, "a2", "a"));
+        updates.add(update(events, "x", null));
+        updates.add(update(events, "c", "C"));
+        updates.add(update(events, "d", "D"));
+        UpdateScheduler scheduler = new UpdateScheduler(new Settings(CONNECTOR, 0, 100), null, 4);
+        try {
+            scheduler.apply(CONNECTOR.open(), updates);
+        } finally {
+            scheduler.close();
+        }
+        assertEquals(events.size(), 12);
+        assertTrue(events.indexOf("end a") < events.indexOf("start a2"));
+        assertTrue(events.indexOf("start b") < events.indexOf("end a"));
+        assertEquals(events.indexOf("start x"), 6);
+        assertEquals(events.indexOf("end x"), 7);
+    }
+}
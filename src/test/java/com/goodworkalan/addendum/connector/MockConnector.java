@@ -1,13 +1,17 @@
 package com.goodworkalan.addendum.connector;
 
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 
 import com.goodworkalan.addendum.connector.Connector;
+import com.goodworkalan.addendum.dialect.Stamp;
 
 /**
  * A mock connector.
@@ -17,6 +21,9 @@ import com.goodworkalan.addendum.connector.Connector;
 public class MockConnector implements Connector {
     /** The database product name. */
     private final String databaseProductName;
+
+    /** The version stamp or null if there is no version stamp table. */
+    private final Stamp stamp;
     
     /**
      * Create a mock connection with a database product name of "MOCK".
@@ -31,7 +38,22 @@ public class MockConnector implements Connector {
      * @param databaseProductName The database product name.
      */
     public MockConnector(String databaseProductName) {
+        this(databaseProductName, null);
+    }
+
+    /**
+     * Create a mock connector with the given database product name whose
+     * connections will read the given version stamp.
+     * 
+     * @param databaseProductName
+     *            The database product name.
+     * @param stamp
+     *            The version stamp or null if there is no version stamp
+     *            table.
+     */
+    public MockConnector(String databaseProductName, Stamp stamp) {
         this.databaseProductName = databaseProductName;
+        this.stamp = stamp;
     }
     
     /**
@@ -50,6 +72,20 @@ public class MockConnector implements Connector {
             when(meta.getDatabaseProductName()).thenReturn(databaseProductName);
         } catch (SQLException e) {
         }
+        try {
+            if (stamp == null) {
+                when(connection.prepareStatement(anyString())).thenThrow(new SQLException());
+            } else {
+                PreparedStatement statement = mock(PreparedStatement.class);
+                ResultSet rs = mock(ResultSet.class);
+                when(connection.prepareStatement(anyString())).thenReturn(statement);
+                when(statement.executeQuery()).thenReturn(rs);
+                when(rs.next()).thenReturn(true);
+                when(rs.getInt(1)).thenReturn(stamp.getVersion());
+                when(rs.getString(2)).thenReturn(stamp.getFingerprint());
+            }
+        } catch (SQLException e) {
+        }
         return connection;
     }
     
@@ -316,12 +316,12 @@ public class AbstractDialectTest {
         assertTable(connection, "A");
         
         a.setName("b");
-        dialect.addColumn(connection, "A", a);
+        dialect.addColumn(connection, "A", a, 0);
 
         a.setName("c");
         a.setNotNull(true);
         a.setDefaultValue(0);
-        dialect.addColumn(connection, "A", a);
+        dialect.addColumn(connection, "A", a, 0);
 
         connection.close();
     }
@@ -363,7 +363,11 @@ public class AbstractDialectTest {
         dialect.createTable(connection, "A", columns, Arrays.asList("a"));
         assertTable(connection, "A");
         
-        dialect.insert(connection, "A", Arrays.asList("a", "b"), Arrays.asList("1", null));
+        Rows rows = new Rows(columns);
+        rows.add(1);
+        rows.add((Object) null);
+        rows.endRow();
+        dialect.insert(connection, "A", columns, rows, 100);
 
         connection.close();
     }
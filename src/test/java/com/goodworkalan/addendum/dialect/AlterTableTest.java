@@ -0,0 +1,153 @@
+package com.goodworkalan.addendum.dialect;
+
+import static org.testng.Assert.assertEquals;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests of the rendering of column changes as a single
+ * <code>ALTER TABLE</code> statement.
+ * 
+ * @author Alan Gutierrez
+ */
+public class AlterTableTest {
+    /**
+     * Create a connection that records the SQL of the statements it executes
+     * and the parameters of its prepared statements in the given list.
+     * 
+     * @param executed
+     *            The list of executed SQL.
+     * @return A connection.
+     */
+    private Connection connection(final List<String> executed) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("equals")) {
+                    return proxy == args[0];
+                }
+                if (method.getName().equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                }
+                if (method.getName().equals("createStatement")) {
+                    return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { Statement.class }, new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            if (method.getName().equals("execute")) {
+                                executed.add((String) args[0]);
+                                return false;
+                            }
+                            return null;
+                        }
+                    });
+                }
+                if (method.getName().equals("prepareStatement")) {
+                    final StringBuilder sql = new StringBuilder((String) args[0]);
+                    return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class }, new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            if (method.getName().equals("setObject")) {
+                                sql.append(" [").append(args[1]).append("]");
+                            } else if (method.getName().equals("execute")) {
+                                executed.add(sql.toString());
+                                return false;
+                            }
+                            return null;
+                        }
+                    });
+                }
+                if (method.getName().equals("getAutoCommit")) {
+                    return true;
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Alter the table <code>a</code> with the given dialect and the given
+     * changes, returning the SQL executed.
+     * 
+     * @param dialect
+     *            The dialect.
+     * @param changes
+     *            The column changes.
+     * @return The SQL executed.
+     */
+    private List<String> alter(AbstractDialect dialect, ColumnChange... changes) throws SQLException {
+        List<String> executed = new ArrayList<String>();
+        dialect.alterTable(connection(executed), "a", Arrays.asList(changes), 0);
+        return executed;
+    }
+
+    /**
+     * Create a not null integer column with a default value.
+     * 
+     * @param name
+     *            The column name.
+     * @return The column.
+     */
+    private Column notNull(String name) {
+        Column column = new Column(name, Types.INTEGER);
+        column.setNotNull(true);
+        column.setDefaultValue(5);
+        return column;
+    }
+
+    /** Added and dropped columns are changed by a single statement. */
+    @Test
+    public void addDrop() throws SQLException {
+        List<String> executed = alter(new MultipleAlterDialect(true),
+                ColumnChange.add(new Column("b", Types.INTEGER)),
+                ColumnChange.drop("c"));
+        assertEquals(executed, Arrays.asList("ALTER TABLE a ADD b INTEGER, DROP COLUMN c"));
+    }
+
+    /** Altered columns are changed by a clause of the same statement. */
+    @Test
+    public void addAlterDrop() throws SQLException {
+        List<String> executed = alter(new MultipleAlterDialect(true),
+                ColumnChange.add(new Column("b", Types.INTEGER)),
+                ColumnChange.alter("c", new Column("d", Types.INTEGER)),
+                ColumnChange.drop("e"));
+        assertEquals(executed, Arrays.asList("ALTER TABLE a ADD b INTEGER, CHANGE c d INTEGER, DROP COLUMN e"));
+    }
+
+    /**
+     * Added columns that are not null are added as nullable, initialized with
+     * a single update, then made not null with a single statement.
+     */
+    @Test
+    public void notNull() throws SQLException {
+        List<String> executed = alter(new MultipleAlterDialect(true),
+                ColumnChange.add(notNull("b")),
+                ColumnChange.add(notNull("c")),
+                ColumnChange.drop("d"));
+        assertEquals(executed, Arrays.asList(
+                "ALTER TABLE a ADD b INTEGER DEFAULT 5, ADD c INTEGER DEFAULT 5, DROP COLUMN d",
+                "UPDATE a SET b = ?, c = ? [5] [5]",
+                "ALTER TABLE a CHANGE b b INTEGER NOT NULL DEFAULT 5, CHANGE c c INTEGER NOT NULL DEFAULT 5"));
+    }
+
+    /**
+     * Changes are applied one statement at a time if an alteration cannot be
+     * expressed as a clause.
+     */
+    @Test
+    public void eachAlter() throws SQLException {
+        List<String> executed = alter(new MultipleAlterDialect(false),
+                ColumnChange.add(new Column("b", Types.INTEGER)),
+                ColumnChange.alter("c", new Column("d", Types.INTEGER)),
+                ColumnChange.drop("e"));
+        assertEquals(executed, Arrays.asList("ALTER TABLE a ADD b INTEGER", "ALTER TABLE a DROP COLUMN e"));
+    }
+}
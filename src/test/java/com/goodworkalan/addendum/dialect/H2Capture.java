@@ -0,0 +1,228 @@
+package com.goodworkalan.addendum.dialect;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.h2.api.Trigger;
+
+/**
+ * An H2 trigger that applies each insert, update and delete of a row of a
+ * table to the shadow table of an online alteration. H2 triggers are Java
+ * classes instantiated by the database, so the shadow table definition is
+ * registered by trigger name before the trigger is created.
+ *
+ * @author Alan Gutierrez
+ */
+public class H2Capture implements Trigger {
+    /** The shadow table definitions by trigger name. */
+    private final static Map<String, H2Capture> CAPTURES = new ConcurrentHashMap<String, H2Capture>();
+
+    /** The shadow table name. */
+    private final String shadowName;
+
+    /** The primary key column name. */
+    private final String keyName;
+
+    /** The columns of the shadow table. */
+    private final List<Column> columns;
+
+    /** The source column names by shadow table column name. */
+    private final Map<String, String> sources;
+
+    /** The shadow table definition registered for the trigger. */
+    private H2Capture capture;
+
+    /** The index of the primary key in a row of the table. */
+    private int keyIndex;
+
+    /** The index in a row of the table of each shadow column or -1. */
+    private int[] indexes;
+
+    /**
+     * Create the trigger instantiated by H2, which copies the registered
+     * shadow table definition when it is initialized.
+     */
+    public H2Capture() {
+        this(null, null, new ArrayList<Column>(), null);
+    }
+
+    /**
+     * Create a shadow table definition.
+     *
+     * @param shadowName
+     *            The shadow table name.
+     * @param keyName
+     *            The primary key column name.
+     * @param columns
+     *            The columns of the shadow table.
+     * @param sources
+     *            The source column names by shadow table column name.
+     */
+    private H2Capture(String shadowName, String keyName, Collection<Column> columns, Map<String, String> sources) {
+        this.shadowName = shadowName;
+        this.keyName = keyName;
+        this.columns = new ArrayList<Column>(columns);
+        this.sources = sources;
+    }
+
+    /**
+     * Register the shadow table definition for the trigger with the given
+     * name.
+     *
+     * @param triggerName
+     *            The trigger name.
+     * @param shadowName
+     *            The shadow table name.
+     * @param keyName
+     *            The primary key column name.
+     * @param columns
+     *            The columns of the shadow table.
+     * @param sources
+     *            The source column names by shadow table column name.
+     */
+    public static void register(String triggerName, String shadowName, String keyName, Collection<Column> columns, Map<String, String> sources) {
+        CAPTURES.put(triggerName.toUpperCase(), new H2Capture(shadowName, keyName, columns, sources));
+    }
+
+    /**
+     * Remove the shadow table definition for the trigger with the given name.
+     *
+     * @param triggerName
+     *            The trigger name.
+     */
+    public static void unregister(String triggerName) {
+        CAPTURES.remove(triggerName.toUpperCase());
+    }
+
+    /**
+     * Find the registered shadow table definition and map the columns of
+     * the shadow table to the columns of a row of the table.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param schemaName
+     *            The schema name.
+     * @param triggerName
+     *            The trigger name.
+     * @param tableName
+     *            The table name.
+     * @param before
+     *            Whether the trigger fires before the change.
+     * @param type
+     *            The kinds of change that fire the trigger.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void init(Connection connection, String schemaName, String triggerName, String tableName, boolean before, int type) throws SQLException {
+        capture = CAPTURES.get(triggerName.toUpperCase());
+        if (capture == null) {
+            throw new SQLException("No capture registered for " + triggerName + ".");
+        }
+        List<String> names = new ArrayList<String>();
+        ResultSet rs = connection.getMetaData().getColumns(null, schemaName, tableName, null);
+        try {
+            while (rs.next()) {
+                names.add(rs.getString("COLUMN_NAME"));
+            }
+        } finally {
+            rs.close();
+        }
+        keyIndex = indexOf(names, capture.keyName);
+        indexes = new int[capture.columns.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            String source = capture.sources.get(capture.columns.get(i).getName());
+            indexes[i] = source == null ? -1 : indexOf(names, source);
+        }
+    }
+
+    /**
+     * Find the index of the given column name in the given list of column
+     * names, ignoring case.
+     *
+     * @param names
+     *            The column names.
+     * @param name
+     *            The column name to find.
+     * @return The index of the column name or -1.
+     */
+    private static int indexOf(List<String> names, String name) {
+        for (int i = 0, stop = names.size(); i < stop; i++) {
+            if (names.get(i).equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Apply the change of a row of the table to the shadow table by deleting
+     * the old row and inserting the new row.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param oldRow
+     *            The row before the change or null for an insert.
+     * @param newRow
+     *            The row after the change or null for a delete.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void fire(Connection connection, Object[] oldRow, Object[] newRow) throws SQLException {
+        PreparedStatement delete = connection.prepareStatement("DELETE FROM " + capture.shadowName + " WHERE " + capture.keyName + " = ?");
+        try {
+            for (Object[] row : new Object[][] { oldRow, newRow }) {
+                if (row != null) {
+                    delete.setObject(1, row[keyIndex]);
+                    delete.executeUpdate();
+                }
+            }
+        } finally {
+            delete.close();
+        }
+        if (newRow != null) {
+            StringBuilder sql = new StringBuilder();
+            sql.append("INSERT INTO ").append(capture.shadowName).append(" (");
+            String separator = "";
+            for (Column column : capture.columns) {
+                sql.append(separator).append(column.getName());
+                separator = ", ";
+            }
+            sql.append(") VALUES (");
+            separator = "";
+            for (int i = 0; i < indexes.length; i++) {
+                sql.append(separator).append("?");
+                separator = ", ";
+            }
+            sql.append(")");
+            PreparedStatement insert = connection.prepareStatement(sql.toString());
+            try {
+                for (int i = 0; i < indexes.length; i++) {
+                    Object value = indexes[i] == -1 ? capture.columns.get(i).getDefaultValue() : newRow[indexes[i]];
+                    insert.setObject(i + 1, value);
+                }
+                insert.executeUpdate();
+            } finally {
+                insert.close();
+            }
+        }
+    }
+
+    /**
+     * Does nothing.
+     */
+    public void close() {
+    }
+
+    /**
+     * Does nothing.
+     */
+    public void remove() {
+    }
+}
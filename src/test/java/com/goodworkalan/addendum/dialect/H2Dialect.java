@@ -0,0 +1,213 @@
+package com.goodworkalan.addendum.dialect;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.Map;
+
+import org.slf4j.LoggerFactory;
+
+import com.goodworkalan.notice.NoticeFactory;
+
+/**
+ * A minimal H2 dialect used to apply addenda to an H2 database in tests.
+ *
+ * @author Alan Gutierrez
+ */
+public class H2Dialect extends AbstractDialect {
+    /** The notice factory specifically for the <code>H2Dialect</code>. */
+    private final static NoticeFactory NOTICES = new NoticeFactory(LoggerFactory.getLogger(H2Dialect.class));
+
+    /**
+     * Create an H2 dialect.
+     */
+    public H2Dialect() {
+        super();
+        setType(Types.INTEGER, "INTEGER");
+        setType(Types.BIGINT, "BIGINT");
+        setType(Types.NUMERIC, "NUMERIC(%2$d, %3$d)");
+        setType(Types.VARCHAR, "VARCHAR(%1$d)");
+        setType(Types.CHAR, "CHAR(%1$d)");
+        setType(Types.TIMESTAMP, "TIMESTAMP");
+        setDefaultLength(Types.VARCHAR, 255);
+        setDefaultLength(Types.CHAR, 1);
+        setDefaultPrecisionScale(Types.NUMERIC, 10, 2);
+    }
+
+    /**
+     * Get the notice factory specifically for the <code>H2Dialect</code>.
+     *
+     * @return The notice factory.
+     */
+    @Override
+    protected NoticeFactory getNoticeFactory() {
+        return NOTICES;
+    }
+
+    /**
+     * Return this dialect if the database is H2 and no other dialect has been
+     * chosen.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param dialect
+     *            The currently chosen dialect.
+     * @return This dialect or the currently chosen dialect.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public Dialect canTranslate(Connection connection, Dialect dialect) throws SQLException {
+        if (dialect == null && connection.getMetaData().getDatabaseProductName().equals("H2")) {
+            return this;
+        }
+        return dialect;
+    }
+
+    /**
+     * Create the addenda table with a primary key on the addendum number, so
+     * that two processes that apply the same addendum will collide.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void createAddendaTable(Connection connection) throws SQLException {
+        execute(connection, "CREATE TABLE IF NOT EXISTS ADDENDA (ADDENDUM INTEGER NOT NULL, PRIMARY KEY (ADDENDUM))");
+    }
+
+    /**
+     * Get the count of addenda applied.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @return The count of addenda applied.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public int addendaCount(Connection connection) throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM ADDENDA");
+            try {
+                rs.next();
+                return rs.getInt(1);
+            } finally {
+                rs.close();
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Record the application of an addendum.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void addendum(Connection connection) throws SQLException {
+        execute(connection, "INSERT INTO ADDENDA (ADDENDUM) SELECT COUNT(*) FROM ADDENDA");
+    }
+
+    /**
+     * Alter the column in the given table, renaming it if necessary.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @param oldName
+     *            The existing column name.
+     * @param column
+     *            The column definition.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void alterColumn(Connection connection, String tableName, String oldName, Column column) throws SQLException {
+        if (!oldName.equals(column.getName())) {
+            execute(connection, "ALTER TABLE " + tableName + " ALTER COLUMN " + oldName + " RENAME TO " + column.getName());
+        }
+        StringBuilder sql = new StringBuilder();
+        sql.append("ALTER TABLE ").append(tableName).append(" ALTER COLUMN ");
+        columnDefinition(sql, column, true);
+        execute(connection, sql.toString());
+    }
+
+    /**
+     * Rename the given table.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param oldName
+     *            The old table name.
+     * @param newName
+     *            The new table name.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    public void renameTable(Connection connection, String oldName, String newName) throws SQLException {
+        execute(connection, "ALTER TABLE " + oldName + " RENAME TO " + newName);
+    }
+
+    /**
+     * H2 captures changes with a Java trigger.
+     *
+     * @return True.
+     */
+    @Override
+    public boolean canCapture() {
+        return true;
+    }
+
+    /**
+     * Create an H2 trigger that applies every change to a row of the given
+     * table to the given shadow table.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @param shadowName
+     *            The shadow table name.
+     * @param keyName
+     *            The primary key column name.
+     * @param columns
+     *            The columns of the shadow table.
+     * @param sources
+     *            The source column names by shadow table column name.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    @Override
+    public void createCapture(Connection connection, String tableName, String shadowName, String keyName, Collection<Column> columns, Map<String, String> sources) throws SQLException {
+        String triggerName = tableName + "_capture";
+        H2Capture.register(triggerName, shadowName, keyName, columns, sources);
+        execute(connection, "CREATE TRIGGER " + triggerName + " AFTER INSERT, UPDATE, DELETE ON " + tableName + " FOR EACH ROW CALL \"" + H2Capture.class.getName() + "\"");
+    }
+
+    /**
+     * Drop the H2 trigger created for the table with the given original name,
+     * if it exists.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The current name of the table.
+     * @param originalName
+     *            The name of the table when the trigger was created.
+     * @throws SQLException
+     *             For any SQL error.
+     */
+    @Override
+    public void dropCapture(Connection connection, String tableName, String originalName) throws SQLException {
+        String triggerName = originalName + "_capture";
+        execute(connection, "DROP TRIGGER IF EXISTS " + triggerName);
+        H2Capture.unregister(triggerName);
+    }
+}
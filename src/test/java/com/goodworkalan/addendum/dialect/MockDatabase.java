@@ -15,15 +15,27 @@ public class MockDatabase {
     /** The list of addenda applied. */
     public final List<Integer> addenda = new ArrayList<Integer>();
 
+    /** The addenda counts recorded in the version stamp. */
+    public final List<Integer> stamps = new ArrayList<Integer>();
+
+    /** The number of batches begun. */
+    public int batches;
+
     /** The create table records. */
     public final List<CreateTable> createTables = new ArrayList<CreateTable>();
 
     /** The add column records. */
     public final List<AddColumn> addColumns = new ArrayList<AddColumn>();
     
+    /** The names of the tables altered with many column changes. */
+    public final List<String> alterTables = new ArrayList<String>();
+
     /** The alter column records. */
     public final List<AlterColumn> alterColumns = new ArrayList<AlterColumn>();
 
+    /** The count of rows of each insert. */
+    public final List<Integer> inserts = new ArrayList<Integer>();
+
     /** Reset the mock database. */
     public static void clear() {
         INSTANCE = new MockDatabase();
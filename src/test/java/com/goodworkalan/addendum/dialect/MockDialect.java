@@ -4,6 +4,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A mock dialect that can be configured to raise exceptions.
@@ -20,6 +21,24 @@ public class MockDialect implements Dialect {
     /** Whether to throw an exception when inserting an addendum record. */
     private boolean failOnAddendum;
     
+    /** Whether the dialect reports that it can capture changes. */
+    private final boolean capture;
+
+    /** Create a mock dialect that reports that it can capture changes. */
+    public MockDialect() {
+        this(true);
+    }
+
+    /**
+     * Create a mock dialect.
+     * 
+     * @param capture
+     *            Whether the dialect reports that it can capture changes.
+     */
+    public MockDialect(boolean capture) {
+        this.capture = capture;
+    }
+
     /**
      * Records the addition of an addenda, possibly fails.
      * 
@@ -35,6 +54,154 @@ public class MockDialect implements Dialect {
         MockDatabase.INSTANCE.addenda.add(MockDatabase.INSTANCE.addenda.size());
     }
 
+    /**
+     * Records the version stamp.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param version
+     *            The number of addenda applied.
+     * @param fingerprint
+     *            The fingerprint of the applied addenda.
+     */
+    public void stamp(Connection connection, int version, String fingerprint) {
+        MockDatabase.INSTANCE.stamps.add(version);
+    }
+
+    /**
+     * Does nothing.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     */
+    public void createLeaseTable(Connection connection) {
+    }
+
+    /**
+     * Never reports the migration lease as held.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @return False.
+     */
+    public boolean isLeased(Connection connection) {
+        return false;
+    }
+
+    /**
+     * Does nothing.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     */
+    public void createTimingTable(Connection connection) {
+    }
+
+    /**
+     * Always grants the migration lease.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param owner
+     *            The unique identity of the lease owner.
+     * @param duration
+     *            The duration of the lease in milliseconds.
+     * @return True.
+     */
+    public boolean lease(Connection connection, String owner, long duration) {
+        return true;
+    }
+
+    /**
+     * Does nothing.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param owner
+     *            The unique identity of the lease owner.
+     */
+    public void release(Connection connection, String owner) {
+    }
+
+    /**
+     * Always supports transactional DDL.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @return True.
+     */
+    public boolean isTransactionalDDL(Connection connection) {
+        return true;
+    }
+
+    /**
+     * Never treats a backslash as an escape.
+     * 
+     * @return False.
+     */
+    public boolean isBackslashEscape() {
+        return false;
+    }
+
+    /**
+     * Records the beginning of a batch.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     */
+    public void beginBatch(Connection connection) {
+        MockDatabase.INSTANCE.batches++;
+    }
+
+    /**
+     * Does nothing.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     */
+    public void flushBatch(Connection connection) {
+    }
+
+    /**
+     * Does nothing.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     */
+    public void endBatch(Connection connection) {
+    }
+
+    /**
+     * Does nothing.
+     *
+     * @param connection
+     *            The JDBC connection.
+     */
+    public void beginRecording(Connection connection) {
+    }
+
+    /**
+     * Returns null, since the mock dialect does not record statements.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @return Null.
+     */
+    public List<String> endRecording(Connection connection) {
+        return null;
+    }
+
+    /**
+     * Does nothing.
+     *
+     * @param connection
+     *            The JDBC connection.
+     * @param sql
+     *            The SQL statement.
+     */
+    public void execute(Connection connection, String sql) {
+    }
+
     /**
      * Possibly fails.
      * 
@@ -74,8 +241,10 @@ public class MockDialect implements Dialect {
      *            The table name.
      * @param column
      *            The column definition.
+     * @param backfillChunkSize
+     *            The number of rows initialized by each statement.
      */
-    public void addColumn(Connection connection, String tableName, Column column) throws SQLException {
+    public void addColumn(Connection connection, String tableName, Column column, int backfillChunkSize) throws SQLException {
         MockDatabase.INSTANCE.addColumns.add(new AddColumn(tableName, column));
     }
 
@@ -156,19 +325,50 @@ public class MockDialect implements Dialect {
     }
 
     /**
-     * Does nothing.
+     * Records the table alteration and applies each column change.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @param changes
+     *            The column changes.
+     * @param backfillChunkSize
+     *            The number of rows initialized by each statement.
+     */
+    public void alterTable(Connection connection, String tableName, List<ColumnChange> changes, int backfillChunkSize) throws SQLException {
+        MockDatabase.INSTANCE.alterTables.add(tableName);
+        for (ColumnChange change : changes) {
+            switch (change.getType()) {
+            case ADD:
+                addColumn(connection, tableName, change.getColumn(), backfillChunkSize);
+                break;
+            case ALTER:
+                alterColumn(connection, tableName, change.getName(), change.getColumn());
+                break;
+            case DROP:
+                dropColumn(connection, tableName, change.getName());
+                break;
+            }
+        }
+    }
+
+    /**
+     * Records the count of rows inserted.
      * 
      * @param connection
      *            The database connection.
      * @param table
      *            The name of the table to insert into.
      * @param columns
-     *            The name of insert columns.
-     * @param values
-     *            A parallel list of insert values, parallel to the insert
-     *            columns.
+     *            The insert columns.
+     * @param rows
+     *            The rows to insert.
+     * @param batchSize
+     *            The number of rows inserted by each batch.
      */
-    public void insert(Connection connection, String table, List<String> columns, List<String> values) {
+    public void insert(Connection connection, String table, List<Column> columns, Rows rows, int batchSize) {
+        MockDatabase.INSTANCE.inserts.add(rows.size());
     }
 
 
@@ -185,6 +385,94 @@ public class MockDialect implements Dialect {
     public void renameTable(Connection connection, String oldName, String newName) throws SQLException {
     }
 
+    /**
+     * Does nothing.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @param shadowName
+     *            The shadow table name.
+     * @param oldName
+     *            The name given to the table that is replaced.
+     */
+    public void swapTable(Connection connection, String tableName, String shadowName, String oldName) {
+    }
+
+    /**
+     * Does nothing.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     */
+    public void dropTable(Connection connection, String tableName) {
+    }
+
+    /**
+     * Report whether the dialect can capture changes.
+     * 
+     * @return True if the dialect was created to capture changes.
+     */
+    public boolean canCapture() {
+        return capture;
+    }
+
+    /**
+     * Does nothing.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @param shadowName
+     *            The shadow table name.
+     * @param keyName
+     *            The primary key column name.
+     * @param columns
+     *            The columns of the shadow table.
+     * @param sources
+     *            The source column names.
+     */
+    public void createCapture(Connection connection, String tableName, String shadowName, String keyName, Collection<Column> columns, Map<String, String> sources) {
+    }
+
+    /**
+     * Does nothing.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The current name of the table.
+     * @param originalName
+     *            The name of the table when the triggers were created.
+     */
+    public void dropCapture(Connection connection, String tableName, String originalName) {
+    }
+
+    /**
+     * Does nothing.
+     * 
+     * @param connection
+     *            The JDBC connection.
+     * @param tableName
+     *            The table name.
+     * @param shadowName
+     *            The shadow table name.
+     * @param keyName
+     *            The primary key column name.
+     * @param columns
+     *            The columns of the shadow table.
+     * @param sources
+     *            The source column names.
+     * @param batchSize
+     *            The number of rows copied by each statement.
+     */
+    public void copyRows(Connection connection, String tableName, String shadowName, String keyName, Collection<Column> columns, Map<String, String> sources, int batchSize) {
+    }
+
     /**
      * Does nothing.
      * 
@@ -0,0 +1,56 @@
+package com.goodworkalan.addendum.dialect;
+
+/**
+ * A dialect that alters many columns with a single <code>ALTER TABLE</code>
+ * statement, for testing the rendering of that statement by
+ * {@link AbstractDialect}.
+ * 
+ * @author Alan Gutierrez
+ */
+public class MultipleAlterDialect extends ConcreteDialect {
+    /** Whether an alteration of a column can be expressed as a clause. */
+    private final boolean clauses;
+
+    /**
+     * Create a dialect that alters many columns at once.
+     * 
+     * @param clauses
+     *            Whether an alteration of a column can be expressed as a
+     *            clause.
+     */
+    public MultipleAlterDialect(boolean clauses) {
+        this.clauses = clauses;
+    }
+
+    /**
+     * An <code>ALTER TABLE</code> statement can contain many clauses.
+     * 
+     * @return True.
+     */
+    @Override
+    protected boolean canAlterMultipleColumns() {
+        return true;
+    }
+
+    /**
+     * Append a MySQL style <code>CHANGE</code> clause, if alterations can be
+     * expressed as clauses.
+     * 
+     * @param sql
+     *            The <code>ALTER TABLE</code> statement buffer.
+     * @param oldName
+     *            The existing column name.
+     * @param column
+     *            The column definition.
+     * @return True if the clause was appended.
+     */
+    @Override
+    protected boolean alterColumnClause(StringBuilder sql, String oldName, Column column) {
+        if (!clauses) {
+            return false;
+        }
+        sql.append("CHANGE ").append(oldName).append(" ");
+        columnDefinition(sql, column, true);
+        return true;
+    }
+}
@@ -0,0 +1,107 @@
+package com.goodworkalan.addendum.dialect;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.goodworkalan.danger.Danger;
+
+/**
+ * Unit tests for the {@link Rows} class.
+ *
+ * @author Alan Gutierrez
+ */
+public class RowsTest {
+    /**
+     * Create rows with an integer, a numeric, a string and a timestamp
+     * column.
+     * 
+     * @return The rows.
+     */
+    private Rows rows() {
+        List<Column> columns = new ArrayList<Column>();
+        columns.add(new Column("a", Types.INTEGER));
+        columns.add(new Column("b", Types.NUMERIC));
+        columns.add(new Column("c", Types.VARCHAR));
+        columns.add(new Column("d", Types.TIMESTAMP));
+        return new Rows(columns);
+    }
+
+    /** Values are bound with the setter for the type of the column. */
+    @Test
+    public void bind() throws SQLException {
+        Rows rows = rows();
+        rows.add(1);
+        rows.add("1.50");
+        rows.add((Object) "x");
+        rows.add((Object) null);
+        rows.endRow();
+        rows.add((Object) "2");
+        rows.add(3L);
+        rows.add(4);
+        rows.add((Object) "2009-01-01 00:00:00");
+        rows.endRow();
+        assertEquals(rows.size(), 2);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        assertEquals(rows.bind(statement, 1, 0), 5);
+        verify(statement).setInt(1, 1);
+        verify(statement).setBigDecimal(2, new BigDecimal("1.50"));
+        verify(statement).setString(3, "x");
+        verify(statement).setNull(4, Types.TIMESTAMP);
+        rows.bind(statement, 1, 1);
+        verify(statement).setInt(1, 2);
+        verify(statement).setBigDecimal(2, new BigDecimal("3"));
+        verify(statement).setString(3, "4");
+        verify(statement).setTimestamp(4, Timestamp.valueOf("2009-01-01 00:00:00"));
+    }
+
+    /** Rows are copied and grown past their initial capacity. */
+    @Test
+    public void addAll() {
+        Rows rows = rows();
+        for (int i = 0; i < 20; i++) {
+            rows.add(i);
+            rows.add(i);
+            rows.add(i);
+            rows.add(i);
+            rows.endRow();
+        }
+        Rows copy = rows();
+        copy.addAll(rows);
+        copy.addAll(rows);
+        assertEquals(copy.size(), 40);
+    }
+
+    /** A value that cannot be converted raises an exception. */
+    @Test(expectedExceptions = Danger.class)
+    public void badValue() {
+        rows().add((Object) "x");
+    }
+
+    /** Too many values for a row raise an exception. */
+    @Test(expectedExceptions = Danger.class)
+    public void tooManyValues() {
+        Rows rows = rows();
+        for (int i = 0; i < 5; i++) {
+            rows.add(i);
+        }
+    }
+
+    /** An incomplete row raises an exception. */
+    @Test(expectedExceptions = Danger.class)
+    public void incomplete() {
+        Rows rows = rows();
+        rows.add(1);
+        rows.endRow();
+    }
+}
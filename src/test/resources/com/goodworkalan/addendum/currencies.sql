@@ -0,0 +1,5 @@
+-- Currencies; inserted by a script.
+INSERT INTO Currency (code, name, digits) VALUES ('USD', 'Dollar; United States', 2);
+INSERT INTO Currency (code, name, digits) VALUES ('JPY', 'Yen', 0);
+/* The euro; */
+INSERT INTO Currency (code, name, digits) VALUES ('EUR', 'Euro', 2);